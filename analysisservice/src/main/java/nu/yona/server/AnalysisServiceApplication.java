@@ -1,24 +1,32 @@
 /*
- * Copyright (c) 2015, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server;
 
 import java.util.UUID;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 
 import nu.yona.server.properties.PropertyInitializer;
+import nu.yona.server.properties.YonaProperties;
 import nu.yona.server.util.LockPool;
+import nu.yona.server.util.LockPoolFactory;
 
 @SpringBootApplication
 @EnableCaching
 public class AnalysisServiceApplication
 {
+	@Autowired
+	private YonaProperties yonaProperties;
+
 	public static void main(String[] args)
 	{
 		PropertyInitializer.initializePropertiesFromEnvironment();
@@ -27,8 +35,21 @@ public class AnalysisServiceApplication
 	}
 
 	@Bean
-	public LockPool<UUID> userAnonymizedSynchronizer()
+	public LockPool<UUID> userAnonymizedSynchronizer(LockPoolFactory lockPoolFactory)
+	{
+		return lockPoolFactory.createInstance("userAnonymized", yonaProperties.getAnalysisService().isDistributedModeEnabled());
+	}
+
+	/**
+	 * The cache manager for the analysis engine caches. When the analysis service runs in distributed mode, these caches must be
+	 * shared between the instances, so the distributed cache manager is used. Otherwise, the faster local cache manager suffices.
+	 *
+	 * @return The cache manager for the analysis engine caches
+	 */
+	@Bean
+	public CacheManager analysisCacheManager(@Qualifier("cacheManager") CacheManager distributedCacheManager,
+			@Qualifier("localCache") CacheManager localCacheManager)
 	{
-		return new LockPool<>();
+		return yonaProperties.getAnalysisService().isDistributedModeEnabled() ? distributedCacheManager : localCacheManager;
 	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2021 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.rest;
@@ -24,6 +24,8 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 
 import nu.yona.server.analysis.service.AnalysisEngineService;
 import nu.yona.server.analysis.service.AppActivitiesDto;
+import nu.yona.server.analysis.service.NetworkActivitiesDto;
+import nu.yona.server.analysis.service.NetworkActivitiesResultDto;
 import nu.yona.server.analysis.service.NetworkActivityDto;
 
 @Controller
@@ -57,6 +59,19 @@ public class AnalysisEngineController
 		}
 	}
 
+	/**
+	 * Bulk variant of {@link #analyzeNetworkActivity(UUID, String, NetworkActivityDto)}, for network activities of possibly many
+	 * users. The response contains a result per activity, in the order of the posted activities.
+	 */
+	@PostMapping(value = "/networkActivities/")
+	@ResponseBody
+	public HttpEntity<NetworkActivitiesResultResource> analyzeNetworkActivities(
+			@RequestBody NetworkActivitiesDto networkActivities)
+	{
+		NetworkActivitiesResultDto result = analysisEngineService.analyze(networkActivities);
+		return new ResponseEntity<>(new NetworkActivitiesResultResource(result), HttpStatus.OK);
+	}
+
 	/**
 	 * The app service receives the app activity monitored by the Yona app and sends that to the analysis engine through this
 	 * method.
@@ -85,4 +100,13 @@ public class AnalysisEngineController
 			super(categories);
 		}
 	}
+
+	public static class NetworkActivitiesResultResource extends EntityModel<NetworkActivitiesResultDto>
+	{
+		@SuppressWarnings("deprecation") // Constructor will become protected, see spring-projects/spring-hateoas#1297
+		public NetworkActivitiesResultResource(NetworkActivitiesResultDto result)
+		{
+			super(result);
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.service;
@@ -8,21 +8,47 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheConfig;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 import nu.yona.server.analysis.entities.DayActivity;
+import nu.yona.server.util.CacheRegistrar;
 
 @Service
 // Day activities are only used in the analysis engine service, so a local cache suffices for as long as we do not
-// scale out the analysis engine service.
-@CacheConfig(cacheManager = "localCache", cacheNames = "lastActivity")
+// scale out the analysis engine service. When it is scaled out (distributed mode), analysisCacheManager is the distributed one.
+@CacheConfig(cacheManager = ActivityCacheService.CACHE_MANAGER_NAME, cacheNames = ActivityCacheService.CACHE_NAME)
 public class ActivityCacheService
 {
+	static final String CACHE_MANAGER_NAME = "analysisCacheManager";
+	static final String CACHE_NAME = "lastActivity";
+
+	@Autowired(required = false)
+	@Qualifier(CACHE_MANAGER_NAME)
+	private CacheManager cacheManager;
+
+	@Autowired(required = false)
+	private CacheRegistrar cacheRegistrar;
+
+	@PostConstruct
+	public void registerCacheForMetrics()
+	{
+		if (cacheRegistrar == null || cacheManager == null)
+		{
+			// Apparently running in a unit test that does not have all dependencies
+			return;
+		}
+		cacheRegistrar.registerCacheForMetrics(cacheManager, CACHE_MANAGER_NAME, CACHE_NAME);
+	}
+
 	@Cacheable(key = "{#userAnonymizedId,#deviceAnonymizedId,#goalId}")
 	@Transactional
 	public Optional<ActivityDto> fetchLastActivityForUser(UUID userAnonymizedId, UUID deviceAnonymizedId, UUID goalId)
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.analysis.service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PreDestroy;
+import nu.yona.server.analysis.entities.DayActivityRepository;
+import nu.yona.server.analysis.entities.WeekActivityRepository;
+import nu.yona.server.exceptions.YonaException;
+import nu.yona.server.goals.service.GoalDto;
+import nu.yona.server.properties.AnalysisServiceProperties;
+import nu.yona.server.properties.YonaProperties;
+import nu.yona.server.subscriptions.service.UserAnonymizedService;
+import nu.yona.server.util.LockPool;
+import nu.yona.server.util.TransactionHelper;
+
+/**
+ * Buffers extensions of the end time of the last activity of a user, device and goal in memory, and writes them to the database
+ * when the coalescing window of the user has passed. See {@link AnalysisServiceProperties#getUpdateCoalescingWindow()} for the
+ * durability trade-off.<br/>
+ * The pending updates of a user are only accessed while holding the lock of that user, so they are consistent with the
+ * activities stored in the database. Before any other update of the last activity of a user, device and goal, the pending update
+ * is applied, so it is never applied to an activity that is not the last one anymore.<br/>
+ * The last activity cache is not updated for every buffered extension. Instead, the extended activity is looked up in the pending
+ * updates first, and the cache is updated once per device and goal when the pending update is applied.<br/>
+ * If the transaction that applies pending updates does not commit, the pending updates are restored, so they are applied by a
+ * later flush.
+ */
+@Service
+class ActivityUpdateCoalescer
+{
+	private static final Logger logger = LoggerFactory.getLogger(ActivityUpdateCoalescer.class);
+
+	@Autowired
+	private YonaProperties yonaProperties;
+	@Autowired
+	private ActivityUpdateService activityUpdateService;
+	@Autowired
+	private UserAnonymizedService userAnonymizedService;
+	@Autowired(required = false)
+	private DayActivityRepository dayActivityRepository;
+	@Autowired(required = false)
+	private WeekActivityRepository weekActivityRepository;
+	@Autowired
+	private LockPool<UUID> userAnonymizedSynchronizer;
+	@Autowired
+	private TransactionHelper transactionHelper;
+
+	private final Map<UUID, Map<ActivityKey, PendingUpdate>> pendingUpdatesPerUser = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "activityUpdateCoalescer");
+		// Do not block shutdown, the pending updates are flushed in flushAll
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	boolean isEnabled()
+	{
+		AnalysisServiceProperties properties = yonaProperties.getAnalysisService();
+		return !properties.getUpdateCoalescingWindow().isZero() && !properties.isDistributedModeEnabled();
+	}
+
+	/**
+	 * Buffers the extension of the end time of the last registered activity. Subsequent payloads are combined with the
+	 * extended activity, as {@link #getPendingLastActivity(UUID, UUID, UUID)} returns it. Must be called while holding the lock
+	 * of the user.
+	 */
+	void bufferEndTimeExtension(ActivityPayload payload, GoalDto matchingGoal, ActivityDto lastRegisteredActivity)
+	{
+		UUID userAnonymizedId = payload.userAnonymized.getId();
+		UUID deviceAnonymizedId = payload.deviceAnonymized.getId();
+		Map<ActivityKey, PendingUpdate> pendingUpdates = pendingUpdatesPerUser.computeIfAbsent(userAnonymizedId,
+				this::scheduleFlush);
+		ActivityKey key = new ActivityKey(deviceAnonymizedId, matchingGoal.getGoalId());
+		PendingUpdate existingUpdate = pendingUpdates.get(key);
+		// The flush compares with the activity as it is stored, not with the extended one
+		ActivityDto storedActivity = (existingUpdate == null) ? lastRegisteredActivity : existingUpdate.storedActivity;
+		pendingUpdates.put(key, new PendingUpdate(payload, matchingGoal, storedActivity,
+				lastRegisteredActivity.withEndTime(payload.endTime)));
+	}
+
+	/**
+	 * Returns the last activity of the given user, device and goal as extended by the pending update, if any. Must be called
+	 * while holding the lock of the user.
+	 */
+	Optional<ActivityDto> getPendingLastActivity(UUID userAnonymizedId, UUID deviceAnonymizedId, UUID goalId)
+	{
+		Map<ActivityKey, PendingUpdate> pendingUpdates = pendingUpdatesPerUser.get(userAnonymizedId);
+		if (pendingUpdates == null)
+		{
+			return Optional.empty();
+		}
+		return Optional.ofNullable(pendingUpdates.get(new ActivityKey(deviceAnonymizedId, goalId)))
+				.map(u -> u.extendedActivity);
+	}
+
+	/**
+	 * Applies the pending update of the last activity of the given user, device and goal, if any, within the current
+	 * transaction. The pending update is restored if that transaction does not commit. Must be called while holding the lock of
+	 * the user.
+	 */
+	void applyPendingUpdate(UUID userAnonymizedId, UUID deviceAnonymizedId, UUID goalId,
+			IntervalActivityCache intervalActivityCache)
+	{
+		Map<ActivityKey, PendingUpdate> pendingUpdates = pendingUpdatesPerUser.get(userAnonymizedId);
+		if (pendingUpdates == null)
+		{
+			return;
+		}
+		ActivityKey key = new ActivityKey(deviceAnonymizedId, goalId);
+		PendingUpdate pendingUpdate = pendingUpdates.remove(key);
+		if (pendingUpdate != null)
+		{
+			restoreUnlessCommitted(userAnonymizedId, key, pendingUpdate);
+			apply(pendingUpdate, intervalActivityCache);
+		}
+	}
+
+	private void restoreUnlessCommitted(UUID userAnonymizedId, ActivityKey key, PendingUpdate pendingUpdate)
+	{
+		if (!TransactionSynchronizationManager.isSynchronizationActive())
+		{
+			return;
+		}
+		// The transaction completes while the lock of the user is still held
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+		{
+			@Override
+			public void afterCompletion(int status)
+			{
+				if (status != STATUS_COMMITTED)
+				{
+					restore(userAnonymizedId, Map.of(key, pendingUpdate));
+				}
+			}
+		});
+	}
+
+	private void restore(UUID userAnonymizedId, Map<ActivityKey, PendingUpdate> restoredUpdates)
+	{
+		Map<ActivityKey, PendingUpdate> pendingUpdates = pendingUpdatesPerUser.computeIfAbsent(userAnonymizedId,
+				this::scheduleFlush);
+		// An update buffered in the meantime extends the activity as it was stored before the restored update was taken out
+		restoredUpdates.forEach((k, u) -> pendingUpdates.merge(k, u,
+				(bufferedUpdate, restoredUpdate) -> bufferedUpdate.withStoredActivity(restoredUpdate.storedActivity)));
+	}
+
+	private Map<ActivityKey, PendingUpdate> scheduleFlush(UUID userAnonymizedId)
+	{
+		// During shutdown, the remaining pending updates are flushed by flushAll
+		if (!flushExecutor.isShutdown())
+		{
+			flushExecutor.schedule(() -> flush(userAnonymizedId),
+					yonaProperties.getAnalysisService().getUpdateCoalescingWindow().toMillis(), TimeUnit.MILLISECONDS);
+		}
+		return new HashMap<>();
+	}
+
+	private void flush(UUID userAnonymizedId)
+	{
+		try (LockPool<UUID>.Lock lock = userAnonymizedSynchronizer.lock(userAnonymizedId))
+		{
+			Map<ActivityKey, PendingUpdate> pendingUpdates = pendingUpdatesPerUser.remove(userAnonymizedId);
+			if (pendingUpdates == null || pendingUpdates.isEmpty())
+			{
+				return;
+			}
+			try
+			{
+				transactionHelper.executeInNewTransaction(() -> {
+					IntervalActivityCache intervalActivityCache = IntervalActivityCache.createInstance(dayActivityRepository,
+							weekActivityRepository, userAnonymizedId);
+					pendingUpdates.values().forEach(u -> applyIgnoringObsoleteUpdate(u, intervalActivityCache));
+					userAnonymizedService.getUserAnonymizedEntity(userAnonymizedId)
+							.ifPresent(userAnonymizedService::updateUserAnonymized);
+				});
+			}
+			catch (RuntimeException e)
+			{
+				// The transaction was rolled back, so retry with the next flush
+				restore(userAnonymizedId, pendingUpdates);
+				throw e;
+			}
+		}
+		catch (RuntimeException e)
+		{
+			// Catch everything, as nobody else will handle it on the flush thread
+			logger.error("Failed to flush buffered activity updates of user anonymized with ID " + userAnonymizedId, e);
+		}
+	}
+
+	private void applyIgnoringObsoleteUpdate(PendingUpdate pendingUpdate, IntervalActivityCache intervalActivityCache)
+	{
+		try
+		{
+			apply(pendingUpdate, intervalActivityCache);
+		}
+		catch (YonaException e)
+		{
+			// The activity was deleted in the meantime, e.g. because the goal was deleted
+			logger.warn("Ignoring buffered update of an activity that does not exist anymore", e);
+		}
+	}
+
+	// Updating the last activity also updates the last activity cache, so that is done once per device and goal
+	private void apply(PendingUpdate pendingUpdate, IntervalActivityCache intervalActivityCache)
+	{
+		activityUpdateService.updateTimeLastActivity(pendingUpdate.payload, pendingUpdate.matchingGoal,
+				pendingUpdate.storedActivity, intervalActivityCache);
+	}
+
+	@PreDestroy
+	public void flushAll()
+	{
+		flushExecutor.shutdownNow();
+		new HashSet<>(pendingUpdatesPerUser.keySet()).forEach(this::flush);
+	}
+
+	private static class ActivityKey
+	{
+		private final UUID deviceAnonymizedId;
+		private final UUID goalId;
+
+		ActivityKey(UUID deviceAnonymizedId, UUID goalId)
+		{
+			this.deviceAnonymizedId = deviceAnonymizedId;
+			this.goalId = goalId;
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if (this == other)
+			{
+				return true;
+			}
+			if (!(other instanceof ActivityKey))
+			{
+				return false;
+			}
+			ActivityKey otherKey = (ActivityKey) other;
+			return deviceAnonymizedId.equals(otherKey.deviceAnonymizedId) && goalId.equals(otherKey.goalId);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash(deviceAnonymizedId, goalId);
+		}
+	}
+
+	private static class PendingUpdate
+	{
+		private final ActivityPayload payload;
+		private final GoalDto matchingGoal;
+		private final ActivityDto storedActivity;
+		private final ActivityDto extendedActivity;
+
+		PendingUpdate(ActivityPayload payload, GoalDto matchingGoal, ActivityDto storedActivity, ActivityDto extendedActivity)
+		{
+			this.payload = payload;
+			this.matchingGoal = matchingGoal;
+			this.storedActivity = storedActivity;
+			this.extendedActivity = extendedActivity;
+		}
+
+		PendingUpdate withStoredActivity(ActivityDto storedActivity)
+		{
+			return new PendingUpdate(payload, matchingGoal, storedActivity, extendedActivity);
+		}
+	}
+}
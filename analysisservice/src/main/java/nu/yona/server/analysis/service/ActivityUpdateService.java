@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2018, 2021 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * Copyright (c) 2018, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
  * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.service;
@@ -20,7 +20,6 @@ import nu.yona.server.analysis.entities.DayActivity;
 import nu.yona.server.analysis.entities.DayActivityRepository;
 import nu.yona.server.analysis.entities.GoalConflictMessage;
 import nu.yona.server.analysis.entities.WeekActivity;
-import nu.yona.server.analysis.entities.WeekActivityRepository;
 import nu.yona.server.device.entities.DeviceAnonymized;
 import nu.yona.server.device.entities.DeviceAnonymizedRepository;
 import nu.yona.server.exceptions.AnalysisException;
@@ -55,8 +54,6 @@ class ActivityUpdateService
 	private ActivityRepository activityRepository;
 	@Autowired(required = false)
 	private DayActivityRepository dayActivityRepository;
-	@Autowired(required = false)
-	private WeekActivityRepository weekActivityRepository;
 	@Autowired
 	private ActivityCacheService cacheService;
 
@@ -68,11 +65,11 @@ class ActivityUpdateService
 	}
 
 	public void addActivity(UserAnonymized userAnonymizedEntity, ActivityPayload payload, GoalDto matchingGoal,
-			Optional<ActivityDto> lastRegisteredActivity)
+			Optional<ActivityDto> lastRegisteredActivity, IntervalActivityCache intervalActivityCache)
 	{
 		Goal matchingGoalEntity = goalService.getGoalEntityForUserAnonymizedId(payload.userAnonymized.getId(),
 				matchingGoal.getGoalId());
-		Activity addedActivity = createNewActivity(userAnonymizedEntity, payload, matchingGoalEntity);
+		Activity addedActivity = createNewActivity(userAnonymizedEntity, payload, matchingGoalEntity, intervalActivityCache);
 		if (shouldUpdateCache(lastRegisteredActivity, addedActivity))
 		{
 			cacheService.updateLastActivityForUser(payload.userAnonymized.getId(), payload.deviceAnonymized.getId(),
@@ -127,34 +124,33 @@ class ActivityUpdateService
 	public void updateTimeExistingActivity(ActivityPayload payload, Activity existingActivity)
 	{
 		LocalDateTime startTimeLocal = payload.startTime.toLocalDateTime();
-		if (startTimeLocal.isBefore(existingActivity.getStartTime()))
-		{
-			existingActivity.setStartTime(startTimeLocal);
-		}
 		LocalDateTime endTimeLocal = payload.endTime.toLocalDateTime();
-		if (endTimeLocal.isAfter(existingActivity.getEndTime()))
+		boolean isStartTimeExtended = startTimeLocal.isBefore(existingActivity.getStartTime());
+		boolean isEndTimeExtended = endTimeLocal.isAfter(existingActivity.getEndTime());
+		if (isStartTimeExtended || isEndTimeExtended)
 		{
-			existingActivity.setEndTime(endTimeLocal);
+			existingActivity.setTimes(isStartTimeExtended ? startTimeLocal : existingActivity.getStartTime(),
+					isEndTimeExtended ? endTimeLocal : existingActivity.getEndTime());
 		}
 	}
 
-	public void updateTimeLastActivity(ActivityPayload payload, GoalDto matchingGoal, ActivityDto lastRegisteredActivity)
+	public void updateTimeLastActivity(ActivityPayload payload, GoalDto matchingGoal, ActivityDto lastRegisteredActivity,
+			IntervalActivityCache intervalActivityCache)
 	{
 		UUID deviceAnonymizedId = payload.deviceAnonymized.getId();
-		DayActivity dayActivity = findExistingDayActivity(payload, matchingGoal.getGoalId()).orElseThrow(
+		DayActivity dayActivity = findExistingDayActivity(payload, matchingGoal.getGoalId(), intervalActivityCache).orElseThrow(
 				() -> AnalysisException.dayActivityNotFound(payload.userAnonymized.getId(), matchingGoal.getGoalId(),
 						payload.startTime, lastRegisteredActivity.getStartTime(), lastRegisteredActivity.getEndTime()));
 		// because of the lock further up in this class, we are sure that getLastActivity() gives the same activity
 		Activity activity = dayActivity.getLastActivity(deviceAnonymizedId).orElseThrow(
 				() -> ActivityServiceException.lastActivityNotFoundOnDayActivity(deviceAnonymizedId,
 						dayActivity.getActivities().size()));
-		if (payload.startTime.isBefore(lastRegisteredActivity.getStartTime()))
+		boolean isStartTimeExtended = payload.startTime.isBefore(lastRegisteredActivity.getStartTime());
+		boolean isEndTimeExtended = payload.endTime.isAfter(lastRegisteredActivity.getEndTime());
+		if (isStartTimeExtended || isEndTimeExtended)
 		{
-			activity.setStartTime(payload.startTime.toLocalDateTime());
-		}
-		if (payload.endTime.isAfter(lastRegisteredActivity.getEndTime()))
-		{
-			activity.setEndTime(payload.endTime.toLocalDateTime());
+			activity.setTimes(isStartTimeExtended ? payload.startTime.toLocalDateTime() : activity.getStartTime(),
+					isEndTimeExtended ? payload.endTime.toLocalDateTime() : activity.getEndTime());
 		}
 		cacheService.updateLastActivityForUser(payload.userAnonymized.getId(), deviceAnonymizedId, matchingGoal.getGoalId(),
 				ActivityDto.createInstance(activity));
@@ -171,10 +167,11 @@ class ActivityUpdateService
 		return !newOrUpdatedActivity.getEndTimeAsZonedDateTime().isBefore(lastRegisteredActivity.get().getEndTime());
 	}
 
-	private Activity createNewActivity(UserAnonymized userAnonymized, ActivityPayload payload, Goal matchingGoal)
+	private Activity createNewActivity(UserAnonymized userAnonymized, ActivityPayload payload, Goal matchingGoal,
+			IntervalActivityCache intervalActivityCache)
 	{
-		DayActivity dayActivity = findExistingDayActivity(payload, matchingGoal.getId()).orElseGet(
-				() -> createNewDayActivity(userAnonymized, payload, matchingGoal));
+		DayActivity dayActivity = findExistingDayActivity(payload, matchingGoal.getId(), intervalActivityCache).orElseGet(
+				() -> createNewDayActivity(userAnonymized, payload, matchingGoal, intervalActivityCache));
 
 		ZonedDateTime endTime = ensureMinimumDurationOneMinute(payload);
 		DeviceAnonymized deviceAnonymized = deviceAnonymizedRepository.getReferenceById(payload.deviceAnonymized.getId());
@@ -195,29 +192,36 @@ class ActivityUpdateService
 		return payload.endTime;
 	}
 
-	private DayActivity createNewDayActivity(UserAnonymized userAnonymizedEntity, ActivityPayload payload, Goal matchingGoal)
+	private DayActivity createNewDayActivity(UserAnonymized userAnonymizedEntity, ActivityPayload payload, Goal matchingGoal,
+			IntervalActivityCache intervalActivityCache)
 	{
 		DayActivity dayActivity = DayActivity.createInstance(userAnonymizedEntity, matchingGoal, payload.startTime.getZone(),
 				TimeUtil.getStartOfDay(payload.userAnonymized.getTimeZone(), payload.startTime).toLocalDate());
 		dayActivityRepository.save(dayActivity);
+		intervalActivityCache.registerDayActivity(dayActivity);
 
 		ZonedDateTime startOfWeek = TimeUtil.getStartOfWeek(payload.userAnonymized.getTimeZone(), payload.startTime);
-		WeekActivity weekActivity = weekActivityRepository.findOne(payload.userAnonymized.getId(), matchingGoal.getId(),
-				startOfWeek.toLocalDate());
-		if (weekActivity == null)
-		{
-			weekActivity = WeekActivity.createInstance(userAnonymizedEntity, matchingGoal, startOfWeek.getZone(),
-					startOfWeek.toLocalDate());
-			matchingGoal.addWeekActivity(weekActivity);
-		}
+		WeekActivity weekActivity = intervalActivityCache.findWeekActivity(matchingGoal.getId(), startOfWeek.toLocalDate())
+				.orElseGet(() -> createNewWeekActivity(userAnonymizedEntity, matchingGoal, startOfWeek, intervalActivityCache));
 		weekActivity.addDayActivity(dayActivity);
 
 		return dayActivity;
 	}
 
-	private Optional<DayActivity> findExistingDayActivity(ActivityPayload payload, UUID matchingGoalId)
+	private WeekActivity createNewWeekActivity(UserAnonymized userAnonymizedEntity, Goal matchingGoal, ZonedDateTime startOfWeek,
+			IntervalActivityCache intervalActivityCache)
 	{
-		return Optional.ofNullable(dayActivityRepository.findOne(payload.userAnonymized.getId(),
-				TimeUtil.getStartOfDay(payload.userAnonymized.getTimeZone(), payload.startTime).toLocalDate(), matchingGoalId));
+		WeekActivity weekActivity = WeekActivity.createInstance(userAnonymizedEntity, matchingGoal, startOfWeek.getZone(),
+				startOfWeek.toLocalDate());
+		matchingGoal.addWeekActivity(weekActivity);
+		intervalActivityCache.registerWeekActivity(weekActivity);
+		return weekActivity;
+	}
+
+	private Optional<DayActivity> findExistingDayActivity(ActivityPayload payload, UUID matchingGoalId,
+			IntervalActivityCache intervalActivityCache)
+	{
+		return intervalActivityCache.findDayActivity(matchingGoalId,
+				TimeUtil.getStartOfDay(payload.userAnonymized.getTimeZone(), payload.startTime).toLocalDate());
 	}
 }
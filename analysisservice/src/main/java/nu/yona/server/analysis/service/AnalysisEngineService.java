@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.service;
@@ -8,12 +8,16 @@ import java.text.MessageFormat;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,15 +26,15 @@ import org.springframework.stereotype.Service;
 
 import jakarta.transaction.Transactional;
 import nu.yona.server.analysis.entities.Activity;
-import nu.yona.server.analysis.entities.ActivityRepository;
 import nu.yona.server.analysis.entities.DayActivity;
 import nu.yona.server.analysis.entities.DayActivityRepository;
+import nu.yona.server.analysis.entities.WeekActivityRepository;
 import nu.yona.server.device.entities.DeviceAnonymized;
 import nu.yona.server.device.entities.DeviceAnonymized.OperatingSystem;
 import nu.yona.server.device.service.DeviceAnonymizedDto;
 import nu.yona.server.device.service.DeviceService;
-import nu.yona.server.exceptions.AnalysisException;
 import nu.yona.server.exceptions.InvalidDataException;
+import nu.yona.server.exceptions.YonaException;
 import nu.yona.server.goals.service.ActivityCategoryDto;
 import nu.yona.server.goals.service.ActivityCategoryService;
 import nu.yona.server.goals.service.GoalDto;
@@ -47,8 +51,6 @@ public class AnalysisEngineService
 {
 	private static final Logger logger = LoggerFactory.getLogger(AnalysisEngineService.class);
 
-	private static final Duration DEVICE_TIME_INACCURACY_MARGIN = Duration.ofSeconds(10);
-
 	@Autowired
 	private YonaProperties yonaProperties;
 	@Autowired
@@ -62,15 +64,17 @@ public class AnalysisEngineService
 	@Autowired
 	private DeviceService deviceService;
 	@Autowired(required = false)
-	private ActivityRepository activityRepository;
-	@Autowired(required = false)
 	private DayActivityRepository dayActivityRepository;
+	@Autowired(required = false)
+	private WeekActivityRepository weekActivityRepository;
 	@Autowired
 	private LockPool<UUID> userAnonymizedSynchronizer;
 	@Autowired
 	private TransactionHelper transactionHelper;
 	@Autowired
 	private ActivityUpdateService activityUpdateService;
+	@Autowired
+	private ActivityUpdateCoalescer activityUpdateCoalescer;
 
 	// This is intentionally not marked with @Transactional, as the transaction is explicitly started within the lock inside
 	// analyze(List<ActivityPayload>, UserAnonymizedDto)
@@ -78,7 +82,8 @@ public class AnalysisEngineService
 	{
 		UserAnonymizedDto userAnonymized = userAnonymizedService.getUserAnonymized(userAnonymizedId);
 		DeviceAnonymizedDto deviceAnonymized = deviceService.getDeviceAnonymized(userAnonymized, deviceAnonymizedId);
-		Duration deviceTimeOffset = determineDeviceTimeOffset(appActivities);
+		appActivities.assertValidTimes(userAnonymizedId);
+		Duration deviceTimeOffset = appActivities.determineDeviceTimeOffset();
 		List<ActivityPayload> activityPayloads = appActivities.getActivitiesSorted().stream()
 				.map(appActivity -> createActivityPayload(deviceTimeOffset, appActivity, userAnonymized, deviceAnonymized))
 				.toList();
@@ -97,21 +102,79 @@ public class AnalysisEngineService
 			return;
 		}
 
+		analyze(Arrays.asList(createActivityPayload(userAnonymized, networkActivity)), userAnonymized);
+	}
+
+	/**
+	 * Analyzes a batch of network activities, possibly of multiple users. The activities are grouped per user, so the lock for a
+	 * user is taken only once and all activities of that user are analyzed within one transaction. A failure to analyze the
+	 * activities of one user does not affect the analysis of the activities of the other users.
+	 *
+	 * @param networkActivities The network activities to analyze
+	 * @return The analysis result per activity, in the same order as the given activities
+	 */
+	// This is intentionally not marked with @Transactional, as the transaction is explicitly started within the lock inside
+	// analyze(List<ActivityPayload>, UserAnonymizedDto)
+	public NetworkActivitiesResultDto analyze(NetworkActivitiesDto networkActivities)
+	{
+		List<NetworkActivitiesDto.Activity> activities = networkActivities.getActivities();
+		NetworkActivitiesResultDto.Result[] results = new NetworkActivitiesResultDto.Result[activities.size()];
+		Map<UUID, List<Integer>> activityIndexesPerUser = IntStream.range(0, activities.size()).boxed()
+				.collect(Collectors.groupingBy(i -> activities.get(i).getUserAnonymizedId(), LinkedHashMap::new,
+						Collectors.toList()));
+		activityIndexesPerUser.forEach(
+				(userAnonymizedId, activityIndexes) -> analyzeNetworkActivitiesOfUser(userAnonymizedId, activities, activityIndexes,
+						results));
+		return new NetworkActivitiesResultDto(Arrays.asList(results));
+	}
+
+	private void analyzeNetworkActivitiesOfUser(UUID userAnonymizedId, List<NetworkActivitiesDto.Activity> activities,
+			List<Integer> activityIndexes, NetworkActivitiesResultDto.Result[] results)
+	{
+		try
+		{
+			UserAnonymizedDto userAnonymized = userAnonymizedService.getUserAnonymized(userAnonymizedId);
+			if (userAnonymized.getDevicesAnonymized().isEmpty())
+			{
+				// See analyze(UUID, NetworkActivityDto)
+				activityIndexes.forEach(
+						i -> results[i] = NetworkActivitiesResultDto.Result.ignored("User did not open the app yet"));
+				return;
+			}
+
+			List<ActivityPayload> payloads = new ArrayList<>();
+			List<Integer> payloadActivityIndexes = new ArrayList<>();
+			for (int i : activityIndexes)
+			{
+				try
+				{
+					payloads.add(createActivityPayload(userAnonymized, activities.get(i).getNetworkActivity()));
+					payloadActivityIndexes.add(i);
+				}
+				catch (YonaException e)
+				{
+					results[i] = NetworkActivitiesResultDto.Result.failed(e);
+				}
+			}
+			payloads.sort((p1, p2) -> p1.startTime.compareTo(p2.startTime));
+			analyze(payloads, userAnonymized);
+			payloadActivityIndexes.forEach(i -> results[i] = NetworkActivitiesResultDto.Result.analyzed());
+		}
+		catch (RuntimeException e)
+		{
+			logger.error("Failed to analyze network activities of user anonymized with ID " + userAnonymizedId, e);
+			activityIndexes.stream().filter(i -> results[i] == null)
+					.forEach(i -> results[i] = NetworkActivitiesResultDto.Result.failed(e));
+		}
+	}
+
+	private ActivityPayload createActivityPayload(UserAnonymizedDto userAnonymized, NetworkActivityDto networkActivity)
+	{
 		DeviceAnonymizedDto deviceAnonymized = deviceService.getDeviceAnonymized(userAnonymized,
 				networkActivity.getDeviceIndex());
 		Set<ActivityCategoryDto> matchingActivityCategories = activityCategoryFilterService.getMatchingCategoriesForSmoothwallCategories(
 				networkActivity.getCategories());
-		analyze(Arrays.asList(
-						ActivityPayload.createInstance(userAnonymized, deviceAnonymized, networkActivity, matchingActivityCategories)),
-				userAnonymized);
-	}
-
-	private Duration determineDeviceTimeOffset(AppActivitiesDto appActivities)
-	{
-		Duration offset = Duration.between(ZonedDateTime.now(), appActivities.getDeviceDateTime());
-		return (offset.abs().compareTo(DEVICE_TIME_INACCURACY_MARGIN) > 0) ?
-				offset :
-				Duration.ZERO; // Ignore if less than 10 seconds
+		return ActivityPayload.createInstance(userAnonymized, deviceAnonymized, networkActivity, matchingActivityCategories);
 	}
 
 	private ActivityPayload createActivityPayload(Duration deviceTimeOffset, AppActivitiesDto.Activity appActivity,
@@ -120,31 +183,12 @@ public class AnalysisEngineService
 		ZonedDateTime correctedStartTime = correctTime(deviceTimeOffset, appActivity.getStartTime());
 		ZonedDateTime correctedEndTime = correctTime(deviceTimeOffset, appActivity.getEndTime());
 		String application = appActivity.getApplication();
-		assertValidTimes(userAnonymized, application, correctedStartTime, correctedEndTime);
 		Set<ActivityCategoryDto> matchingActivityCategories = activityCategoryFilterService.getMatchingCategoriesForApp(
 				appActivity.getApplication());
 		return ActivityPayload.createInstance(userAnonymized, deviceAnonymized, correctedStartTime, correctedEndTime, application,
 				matchingActivityCategories);
 	}
 
-	private void assertValidTimes(UserAnonymizedDto userAnonymized, String application, ZonedDateTime correctedStartTime,
-			ZonedDateTime correctedEndTime)
-	{
-		if (correctedEndTime.isBefore(correctedStartTime))
-		{
-			throw AnalysisException.appActivityStartAfterEnd(userAnonymized.getId(), application, correctedStartTime,
-					correctedEndTime);
-		}
-		if (correctedStartTime.isAfter(ZonedDateTime.now().plus(DEVICE_TIME_INACCURACY_MARGIN)))
-		{
-			throw AnalysisException.appActivityStartsInFuture(userAnonymized.getId(), application, correctedStartTime);
-		}
-		if (correctedEndTime.isAfter(ZonedDateTime.now().plus(DEVICE_TIME_INACCURACY_MARGIN)))
-		{
-			throw AnalysisException.appActivityEndsInFuture(userAnonymized.getId(), application, correctedEndTime);
-		}
-	}
-
 	private ZonedDateTime correctTime(Duration deviceTimeOffset, ZonedDateTime time)
 	{
 		return time.minus(deviceTimeOffset);
@@ -162,7 +206,8 @@ public class AnalysisEngineService
 			transactionHelper.executeInNewTransaction(() -> {
 				UserAnonymizedEntityHolder userAnonymizedHolder = new UserAnonymizedEntityHolder(userAnonymizedService,
 						userAnonymizedId);
-				analyzeInsideLock(payloads, userAnonymized, userAnonymizedHolder);
+				IntervalActivityCache intervalActivityCache = createIntervalActivityCache(payloads, userAnonymized);
+				analyzeInsideLock(payloads, userAnonymized, userAnonymizedHolder, intervalActivityCache);
 				if (userAnonymizedHolder.isEntityFetched())
 				{
 					userAnonymizedService.updateUserAnonymized(userAnonymizedHolder.getEntity());
@@ -171,8 +216,34 @@ public class AnalysisEngineService
 		}
 	}
 
+	/**
+	 * Creates the cache of day and week activities for this analysis run. It prefetches the activities of all goals that are
+	 * relevant for any of the payloads, from the first day till the last day the payloads touch, so each of these is fetched
+	 * with a single query on first use instead of with a query per payload and goal.
+	 */
+	private IntervalActivityCache createIntervalActivityCache(List<ActivityPayload> payloads, UserAnonymizedDto userAnonymized)
+	{
+		Set<UUID> goalIds = payloads.stream().flatMap(p -> determineRelevantGoals(p).stream()).map(GoalDto::getGoalId)
+				.collect(Collectors.toSet());
+		if (goalIds.isEmpty())
+		{
+			return IntervalActivityCache.createInstance(dayActivityRepository, weekActivityRepository, userAnonymized.getId());
+		}
+		LocalDate dateFrom = payloads.stream().map(p -> getStartDate(p.startTime, userAnonymized)).min(LocalDate::compareTo)
+				.get();
+		LocalDate dateUntil = payloads.stream().map(p -> getStartDate(p.endTime, userAnonymized)).max(LocalDate::compareTo).get()
+				.plusDays(1);
+		return IntervalActivityCache.createInstance(dayActivityRepository, weekActivityRepository, userAnonymized.getId(),
+				goalIds, dateFrom, dateUntil);
+	}
+
+	private static LocalDate getStartDate(ZonedDateTime time, UserAnonymizedDto userAnonymized)
+	{
+		return TimeUtil.getStartOfDay(userAnonymized.getTimeZone(), time).toLocalDate();
+	}
+
 	private void analyzeInsideLock(List<ActivityPayload> payloads, UserAnonymizedDto userAnonymized,
-			UserAnonymizedEntityHolder userAnonymizedEntityHolder)
+			UserAnonymizedEntityHolder userAnonymizedEntityHolder, IntervalActivityCache intervalActivityCache)
 	{
 		for (ActivityPayload payload : payloads)
 		{
@@ -181,7 +252,7 @@ public class AnalysisEngineService
 			Set<GoalDto> goals = determineRelevantGoals(payload);
 			for (GoalDto goal : goals)
 			{
-				addOrUpdateActivity(payload, goal, userAnonymizedEntityHolder);
+				addOrUpdateActivity(payload, goal, userAnonymizedEntityHolder, intervalActivityCache);
 			}
 		}
 	}
@@ -209,7 +280,7 @@ public class AnalysisEngineService
 	}
 
 	private void addOrUpdateActivity(ActivityPayload payload, GoalDto matchingGoal,
-			UserAnonymizedEntityHolder userAnonymizedEntityHolder)
+			UserAnonymizedEntityHolder userAnonymizedEntityHolder, IntervalActivityCache intervalActivityCache)
 	{
 		if (isCrossDayActivity(payload))
 		{
@@ -219,22 +290,22 @@ public class AnalysisEngineService
 			ActivityPayload nextDayPayload = ActivityPayload.copyFromStartTime(payload,
 					TimeUtil.getStartOfDay(payload.userAnonymized.getTimeZone(), payload.endTime));
 
-			addOrUpdateDayTruncatedActivity(truncatedPayload, matchingGoal, userAnonymizedEntityHolder);
-			addOrUpdateDayTruncatedActivity(nextDayPayload, matchingGoal, userAnonymizedEntityHolder);
+			addOrUpdateDayTruncatedActivity(truncatedPayload, matchingGoal, userAnonymizedEntityHolder, intervalActivityCache);
+			addOrUpdateDayTruncatedActivity(nextDayPayload, matchingGoal, userAnonymizedEntityHolder, intervalActivityCache);
 		}
 		else
 		{
-			addOrUpdateDayTruncatedActivity(payload, matchingGoal, userAnonymizedEntityHolder);
+			addOrUpdateDayTruncatedActivity(payload, matchingGoal, userAnonymizedEntityHolder, intervalActivityCache);
 		}
 	}
 
 	private void addOrUpdateDayTruncatedActivity(ActivityPayload payload, GoalDto matchingGoal,
-			UserAnonymizedEntityHolder userAnonymizedEntityHolder)
+			UserAnonymizedEntityHolder userAnonymizedEntityHolder, IntervalActivityCache intervalActivityCache)
 	{
 		Optional<ActivityDto> lastRegisteredActivity = getLastRegisteredActivity(payload, matchingGoal);
 		if (precedesLastRegisteredActivity(payload, lastRegisteredActivity))
 		{
-			Optional<Activity> overlappingActivity = findOverlappingActivitySameApp(payload, matchingGoal);
+			Optional<Activity> overlappingActivity = findOverlappingActivitySameApp(payload, matchingGoal, intervalActivityCache);
 			if (overlappingActivity.isPresent())
 			{
 				userAnonymizedEntityHolder.getEntity(); // Mark that we did an update
@@ -245,31 +316,47 @@ public class AnalysisEngineService
 
 		if (canCombineWithLastRegisteredActivity(payload, lastRegisteredActivity))
 		{
-			if (payload.startTime.isBefore(lastRegisteredActivity.get().getStartTime())
-					|| isBeyondSkipWindowAfterLastRegisteredActivity(payload, lastRegisteredActivity.get()))
+			boolean isStartTimeUpdated = payload.startTime.isBefore(lastRegisteredActivity.get().getStartTime());
+			if (isStartTimeUpdated || isBeyondSkipWindowAfterLastRegisteredActivity(payload, lastRegisteredActivity.get()))
 			{
 				// Update message only if the start time is to be updated or if the end time moves with at least five seconds, to
 				// avoid unnecessary cache flushes.
+				if (!isStartTimeUpdated && activityUpdateCoalescer.isEnabled())
+				{
+					activityUpdateCoalescer.bufferEndTimeExtension(payload, matchingGoal, lastRegisteredActivity.get());
+					return;
+				}
+				applyPendingUpdate(payload, matchingGoal, intervalActivityCache);
 				userAnonymizedEntityHolder.getEntity(); // Mark that we did an update
-				activityUpdateService.updateTimeLastActivity(payload, matchingGoal, lastRegisteredActivity.get());
+				activityUpdateService.updateTimeLastActivity(payload, matchingGoal, lastRegisteredActivity.get(),
+						intervalActivityCache);
 			}
 			return;
 		}
 
-		activityUpdateService.addActivity(userAnonymizedEntityHolder.getEntity(), payload, matchingGoal, lastRegisteredActivity);
+		applyPendingUpdate(payload, matchingGoal, intervalActivityCache);
+		activityUpdateService.addActivity(userAnonymizedEntityHolder.getEntity(), payload, matchingGoal, lastRegisteredActivity,
+				intervalActivityCache);
+	}
+
+	private void applyPendingUpdate(ActivityPayload payload, GoalDto matchingGoal, IntervalActivityCache intervalActivityCache)
+	{
+		activityUpdateCoalescer.applyPendingUpdate(payload.userAnonymized.getId(), payload.deviceAnonymized.getId(),
+				matchingGoal.getGoalId(), intervalActivityCache);
 	}
 
-	private Optional<Activity> findOverlappingActivitySameApp(ActivityPayload payload, GoalDto matchingGoal)
+	private Optional<Activity> findOverlappingActivitySameApp(ActivityPayload payload, GoalDto matchingGoal,
+			IntervalActivityCache intervalActivityCache)
 	{
-		Optional<DayActivity> dayActivity = findExistingDayActivity(payload, matchingGoal.getGoalId());
+		Optional<DayActivity> dayActivity = findExistingDayActivity(payload, matchingGoal.getGoalId(), intervalActivityCache);
 		if (!dayActivity.isPresent())
 		{
 			return Optional.empty();
 		}
 
-		List<Activity> overlappingOfSameApp = activityRepository.findOverlappingOfSameApp(dayActivity.get(),
-				payload.deviceAnonymized.getId(), matchingGoal.getActivityCategoryId(), payload.application.orElse(null),
-				payload.startTime.toLocalDateTime(), payload.endTime.toLocalDateTime());
+		List<Activity> overlappingOfSameApp = dayActivity.get().findOverlappingActivitiesOfSameApp(
+				payload.deviceAnonymized.getId(), payload.application, payload.startTime.toLocalDateTime(),
+				payload.endTime.toLocalDateTime());
 
 		// The prognosis is that there is no or one overlapping activity of the same app, because we don't expect the mobile app
 		// to post app activity that spans other existing same app activity (that indicates that there is something wrong in the
@@ -306,10 +393,10 @@ public class AnalysisEngineService
 				dayActivity.getId(), matchingGoal.getActivityCategoryId(), overlappingActivities);
 	}
 
-	private Optional<DayActivity> findExistingDayActivity(ActivityPayload payload, UUID matchingGoalId)
+	private Optional<DayActivity> findExistingDayActivity(ActivityPayload payload, UUID matchingGoalId,
+			IntervalActivityCache intervalActivityCache)
 	{
-		return Optional.ofNullable(dayActivityRepository.findOne(payload.userAnonymized.getId(),
-				TimeUtil.getStartOfDay(payload.userAnonymized.getTimeZone(), payload.startTime).toLocalDate(), matchingGoalId));
+		return intervalActivityCache.findDayActivity(matchingGoalId, getStartDate(payload.startTime, payload.userAnonymized));
 	}
 
 	private boolean isBeyondSkipWindowAfterLastRegisteredActivity(ActivityPayload payload, ActivityDto lastRegisteredActivity)
@@ -387,8 +474,11 @@ public class AnalysisEngineService
 
 	private Optional<ActivityDto> getLastRegisteredActivity(ActivityPayload payload, GoalDto matchingGoal)
 	{
-		return cacheService.fetchLastActivityForUser(payload.userAnonymized.getId(), payload.deviceAnonymized.getId(),
-				matchingGoal.getGoalId());
+		// A buffered extension of the last activity is not in the cache yet
+		UUID userAnonymizedId = payload.userAnonymized.getId();
+		UUID deviceAnonymizedId = payload.deviceAnonymized.getId();
+		return activityUpdateCoalescer.getPendingLastActivity(userAnonymizedId, deviceAnonymizedId, matchingGoal.getGoalId())
+				.or(() -> cacheService.fetchLastActivityForUser(userAnonymizedId, deviceAnonymizedId, matchingGoal.getGoalId()));
 	}
 
 	private boolean isCrossDayActivity(ActivityPayload payload)
@@ -412,8 +502,9 @@ public class AnalysisEngineService
 		Set<GoalDto> goalsOfUser = payload.userAnonymized.getGoalsIncludingHistoryItems();
 		return goalsOfUser.stream().filter(g -> !g.isHistoryItem())
 				.filter(g -> matchingActivityCategoryIds.contains(g.getActivityCategoryId()))
-				.filter(g -> g.isNoGoGoal() || !onlyNoGoGoals).filter(g -> g.getCreationTime().get()
-						.isBefore(TimeUtil.toUtcLocalDateTime(payload.startTime.plus(DEVICE_TIME_INACCURACY_MARGIN))))
+				.filter(g -> g.isNoGoGoal() || !onlyNoGoGoals)
+				.filter(g -> g.getCreationTime().get().isBefore(
+						TimeUtil.toUtcLocalDateTime(payload.startTime.plus(AppActivitiesDto.DEVICE_TIME_INACCURACY_MARGIN))))
 				.collect(Collectors.toSet());
 	}
 
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.analysis.service;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import nu.yona.server.analysis.entities.DayActivity;
+import nu.yona.server.analysis.entities.DayActivityRepository;
+import nu.yona.server.analysis.entities.IntervalActivity;
+import nu.yona.server.analysis.entities.WeekActivity;
+import nu.yona.server.analysis.entities.WeekActivityRepository;
+import nu.yona.server.util.TimeUtil;
+
+/**
+ * Holds the day and week activities of one user that are looked up during one analysis run, so every activity is fetched from the
+ * database at most once. The instance is meant to live within one transaction, while holding the lock of the user, so the held
+ * entities are managed and up to date.<br/>
+ * If a prefetch range is given, the first lookup of a day or week activity within that range fetches all day or week activities
+ * of that range with a single query. Lookups outside that range fall back to fetching the individual activity. Both found and
+ * absent activities are remembered, so newly created activities must be registered.
+ */
+class IntervalActivityCache
+{
+	private final DayActivityRepository dayActivityRepository;
+	private final WeekActivityRepository weekActivityRepository;
+	private final UUID userAnonymizedId;
+	private final Set<UUID> prefetchGoalIds;
+	private final LocalDate prefetchDateFrom;
+	private final LocalDate prefetchWeekDateFrom;
+	private final LocalDate prefetchDateUntil;
+	private final Map<ActivityKey, Optional<DayActivity>> dayActivities = new HashMap<>();
+	private final Map<ActivityKey, Optional<WeekActivity>> weekActivities = new HashMap<>();
+	private boolean isDayActivitiesPrefetched;
+	private boolean isWeekActivitiesPrefetched;
+
+	private IntervalActivityCache(DayActivityRepository dayActivityRepository, WeekActivityRepository weekActivityRepository,
+			UUID userAnonymizedId, Set<UUID> prefetchGoalIds, LocalDate prefetchDateFrom, LocalDate prefetchWeekDateFrom,
+			LocalDate prefetchDateUntil)
+	{
+		this.dayActivityRepository = dayActivityRepository;
+		this.weekActivityRepository = weekActivityRepository;
+		this.userAnonymizedId = userAnonymizedId;
+		this.prefetchGoalIds = prefetchGoalIds;
+		this.prefetchDateFrom = prefetchDateFrom;
+		this.prefetchWeekDateFrom = prefetchWeekDateFrom;
+		this.prefetchDateUntil = prefetchDateUntil;
+	}
+
+	static IntervalActivityCache createInstance(DayActivityRepository dayActivityRepository,
+			WeekActivityRepository weekActivityRepository, UUID userAnonymizedId)
+	{
+		return new IntervalActivityCache(dayActivityRepository, weekActivityRepository, userAnonymizedId, Collections.emptySet(),
+				LocalDate.MIN, LocalDate.MIN, LocalDate.MIN);
+	}
+
+	/**
+	 * Creates a cache that prefetches the activities of the given goals from the start date till the end date (exclusive).
+	 */
+	static IntervalActivityCache createInstance(DayActivityRepository dayActivityRepository,
+			WeekActivityRepository weekActivityRepository, UUID userAnonymizedId, Set<UUID> prefetchGoalIds,
+			LocalDate prefetchDateFrom, LocalDate prefetchDateUntil)
+	{
+		return new IntervalActivityCache(dayActivityRepository, weekActivityRepository, userAnonymizedId, prefetchGoalIds,
+				prefetchDateFrom, TimeUtil.getStartOfWeek(prefetchDateFrom), prefetchDateUntil);
+	}
+
+	Optional<DayActivity> findDayActivity(UUID goalId, LocalDate startDate)
+	{
+		boolean isInPrefetchRange = isInPrefetchRange(goalId, startDate, prefetchDateFrom);
+		if (isInPrefetchRange && !isDayActivitiesPrefetched)
+		{
+			dayActivityRepository.findAll(userAnonymizedId, prefetchGoalIds, prefetchDateFrom, prefetchDateUntil)
+					.forEach(a -> dayActivities.putIfAbsent(ActivityKey.createInstance(a), Optional.of(a)));
+			isDayActivitiesPrefetched = true;
+		}
+		return dayActivities.computeIfAbsent(new ActivityKey(goalId, startDate), k -> isInPrefetchRange ?
+				Optional.empty() :
+				Optional.ofNullable(dayActivityRepository.findOne(userAnonymizedId, startDate, goalId)));
+	}
+
+	Optional<WeekActivity> findWeekActivity(UUID goalId, LocalDate startDate)
+	{
+		boolean isInPrefetchRange = isInPrefetchRange(goalId, startDate, prefetchWeekDateFrom);
+		if (isInPrefetchRange && !isWeekActivitiesPrefetched)
+		{
+			// This query cannot be limited to goals, but a user has only a few of them
+			weekActivityRepository.findAll(userAnonymizedId, prefetchWeekDateFrom, prefetchDateUntil)
+					.forEach(a -> weekActivities.putIfAbsent(ActivityKey.createInstance(a), Optional.of(a)));
+			isWeekActivitiesPrefetched = true;
+		}
+		return weekActivities.computeIfAbsent(new ActivityKey(goalId, startDate), k -> isInPrefetchRange ?
+				Optional.empty() :
+				Optional.ofNullable(weekActivityRepository.findOne(userAnonymizedId, goalId, startDate)));
+	}
+
+	void registerDayActivity(DayActivity dayActivity)
+	{
+		dayActivities.put(ActivityKey.createInstance(dayActivity), Optional.of(dayActivity));
+	}
+
+	void registerWeekActivity(WeekActivity weekActivity)
+	{
+		weekActivities.put(ActivityKey.createInstance(weekActivity), Optional.of(weekActivity));
+	}
+
+	private boolean isInPrefetchRange(UUID goalId, LocalDate startDate, LocalDate dateFrom)
+	{
+		return prefetchGoalIds.contains(goalId) && !startDate.isBefore(dateFrom) && startDate.isBefore(prefetchDateUntil);
+	}
+
+	private static class ActivityKey
+	{
+		private final UUID goalId;
+		private final LocalDate startDate;
+
+		ActivityKey(UUID goalId, LocalDate startDate)
+		{
+			this.goalId = goalId;
+			this.startDate = startDate;
+		}
+
+		static ActivityKey createInstance(IntervalActivity intervalActivity)
+		{
+			return new ActivityKey(intervalActivity.getGoalId(), intervalActivity.getStartDate());
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if (this == other)
+			{
+				return true;
+			}
+			if (!(other instanceof ActivityKey))
+			{
+				return false;
+			}
+			ActivityKey otherKey = (ActivityKey) other;
+			return goalId.equals(otherKey.goalId) && startDate.equals(otherKey.startDate);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash(goalId, startDate);
+		}
+	}
+}
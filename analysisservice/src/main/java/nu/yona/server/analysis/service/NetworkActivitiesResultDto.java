@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.analysis.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+/*
+ * Result of analyzing a batch of network activities. The results are in the same order as the activities in the batch.
+ * @see NetworkActivitiesDto
+ */
+@JsonRootName("networkActivitiesResult")
+public class NetworkActivitiesResultDto
+{
+	public enum Status
+	{
+		ANALYZED, IGNORED, FAILED
+	}
+
+	@JsonRootName("result")
+	public static class Result
+	{
+		private final Status status;
+		private final Optional<String> message;
+
+		private Result(Status status, Optional<String> message)
+		{
+			this.status = status;
+			this.message = message;
+		}
+
+		static Result analyzed()
+		{
+			return new Result(Status.ANALYZED, Optional.empty());
+		}
+
+		static Result ignored(String reason)
+		{
+			return new Result(Status.IGNORED, Optional.of(reason));
+		}
+
+		static Result failed(Exception exception)
+		{
+			return new Result(Status.FAILED, Optional.ofNullable(exception.getMessage()));
+		}
+
+		public Status getStatus()
+		{
+			return status;
+		}
+
+		@JsonInclude(Include.NON_EMPTY)
+		public Optional<String> getMessage()
+		{
+			return message;
+		}
+	}
+
+	private final List<Result> results;
+
+	NetworkActivitiesResultDto(List<Result> results)
+	{
+		this.results = results;
+	}
+
+	public List<Result> getResults()
+	{
+		return Collections.unmodifiableList(results);
+	}
+}
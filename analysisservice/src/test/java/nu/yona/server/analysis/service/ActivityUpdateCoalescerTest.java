@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.analysis.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import nu.yona.server.Translator;
+import nu.yona.server.analysis.entities.Activity;
+import nu.yona.server.device.entities.DeviceAnonymized;
+import nu.yona.server.device.entities.DeviceAnonymized.OperatingSystem;
+import nu.yona.server.device.service.DeviceAnonymizedDto;
+import nu.yona.server.goals.service.GoalDto;
+import nu.yona.server.properties.AnalysisServiceProperties;
+import nu.yona.server.properties.YonaProperties;
+import nu.yona.server.subscriptions.entities.UserAnonymized;
+import nu.yona.server.subscriptions.service.UserAnonymizedDto;
+import nu.yona.server.subscriptions.service.UserAnonymizedService;
+import nu.yona.server.util.LockPool;
+import nu.yona.server.util.TransactionHelper;
+
+@ExtendWith(MockitoExtension.class)
+class ActivityUpdateCoalescerTest
+{
+	private static final ZoneId ZONE = ZoneId.of("Europe/Amsterdam");
+
+	private final AnalysisServiceProperties analysisServiceProperties = new AnalysisServiceProperties();
+	private final UUID userAnonymizedId = UUID.randomUUID();
+	private final UUID goalId = UUID.randomUUID();
+
+	@Mock
+	private YonaProperties mockYonaProperties;
+	@Mock
+	private ActivityUpdateService mockActivityUpdateService;
+	@Mock
+	private UserAnonymizedService mockUserAnonymizedService;
+	@Mock
+	private LockPool<UUID> mockUserAnonymizedSynchronizer;
+	@Mock
+	private TransactionHelper mockTransactionHelper;
+	@Mock
+	private UserAnonymizedDto mockUserAnonymized;
+	@Mock
+	private DeviceAnonymizedDto mockDeviceAnonymized;
+	@Mock
+	private GoalDto mockGoal;
+
+	@InjectMocks
+	private final ActivityUpdateCoalescer coalescer = new ActivityUpdateCoalescer();
+
+	private UUID deviceAnonymizedId;
+	private ActivityDto storedActivity;
+	private ZonedDateTime startTime;
+
+	@BeforeEach
+	public void setUp()
+	{
+		analysisServiceProperties.setUpdateCoalescingWindow("PT1M");
+		lenient().when(mockYonaProperties.getAnalysisService()).thenReturn(analysisServiceProperties);
+		lenient().when(mockUserAnonymized.getId()).thenReturn(userAnonymizedId);
+		lenient().when(mockUserAnonymized.getTimeZone()).thenReturn(ZONE);
+		lenient().when(mockGoal.getGoalId()).thenReturn(goalId);
+
+		DeviceAnonymized deviceAnonymizedEntity = DeviceAnonymized.createInstance(0, OperatingSystem.ANDROID, "Unknown", 0,
+				Optional.empty(), Translator.EN_US_LOCALE);
+		deviceAnonymizedId = deviceAnonymizedEntity.getId();
+		lenient().when(mockDeviceAnonymized.getId()).thenReturn(deviceAnonymizedId);
+
+		startTime = ZonedDateTime.of(LocalDateTime.of(2026, 3, 19, 20, 0), ZONE);
+		storedActivity = ActivityDto.createInstance(Activity.createInstance(deviceAnonymizedEntity, ZONE,
+				startTime.toLocalDateTime(), startTime.plusMinutes(1).toLocalDateTime(), Optional.of("Poker App")));
+	}
+
+	@Test
+	void isEnabled_zeroWindow_disabled()
+	{
+		analysisServiceProperties.setUpdateCoalescingWindow("PT0S");
+
+		assertThat(coalescer.isEnabled(), equalTo(false));
+	}
+
+	@Test
+	void isEnabled_distributedMode_disabled()
+	{
+		analysisServiceProperties.setDistributedModeEnabled(true);
+
+		assertThat(coalescer.isEnabled(), equalTo(false));
+	}
+
+	@Test
+	void bufferEndTimeExtension_multipleExtensions_pendingLastActivityExtendedAndDatabaseNotUpdated()
+	{
+		coalescer.bufferEndTimeExtension(createPayload(2), mockGoal, storedActivity);
+		coalescer.bufferEndTimeExtension(createPayload(3), mockGoal, storedActivity.withEndTime(startTime.plusMinutes(2)));
+
+		Optional<ActivityDto> pendingLastActivity = coalescer.getPendingLastActivity(userAnonymizedId, deviceAnonymizedId,
+				goalId);
+
+		assertThat(pendingLastActivity.get().getStartTime(), equalTo(startTime));
+		assertThat(pendingLastActivity.get().getEndTime(), equalTo(startTime.plusMinutes(3)));
+		verify(mockActivityUpdateService, never()).updateTimeLastActivity(any(), any(), any(), any());
+	}
+
+	@Test
+	void getPendingLastActivity_pendingUpdateApplied_returnsEmpty()
+	{
+		coalescer.bufferEndTimeExtension(createPayload(2), mockGoal, storedActivity);
+
+		coalescer.applyPendingUpdate(userAnonymizedId, deviceAnonymizedId, goalId,
+				IntervalActivityCache.createInstance(null, null, userAnonymizedId));
+
+		assertThat(coalescer.getPendingLastActivity(userAnonymizedId, deviceAnonymizedId, goalId).isPresent(), equalTo(false));
+	}
+
+	@Test
+	void applyPendingUpdate_multipleExtensionsBuffered_latestExtensionAppliedOnceToStoredActivity()
+	{
+		coalescer.bufferEndTimeExtension(createPayload(2), mockGoal, storedActivity);
+		ActivityPayload latestPayload = createPayload(3);
+		coalescer.bufferEndTimeExtension(latestPayload, mockGoal, storedActivity.withEndTime(startTime.plusMinutes(2)));
+
+		IntervalActivityCache intervalActivityCache = IntervalActivityCache.createInstance(null, null, userAnonymizedId);
+		coalescer.applyPendingUpdate(userAnonymizedId, deviceAnonymizedId, goalId, intervalActivityCache);
+		coalescer.applyPendingUpdate(userAnonymizedId, deviceAnonymizedId, goalId, intervalActivityCache);
+
+		verify(mockActivityUpdateService, times(1)).updateTimeLastActivity(latestPayload, mockGoal, storedActivity,
+				intervalActivityCache);
+	}
+
+	@Test
+	void applyPendingUpdate_otherGoal_nothingApplied()
+	{
+		coalescer.bufferEndTimeExtension(createPayload(2), mockGoal, storedActivity);
+
+		coalescer.applyPendingUpdate(userAnonymizedId, deviceAnonymizedId, UUID.randomUUID(),
+				IntervalActivityCache.createInstance(null, null, userAnonymizedId));
+
+		verify(mockActivityUpdateService, never()).updateTimeLastActivity(any(), any(), any(), any());
+	}
+
+	@Test
+	void flushAll_pendingUpdates_appliedInOneTransactionAndUserAnonymizedSavedOnce()
+	{
+		UserAnonymized userAnonymizedEntity = setUpFlushTransaction();
+		ActivityPayload latestPayload = createPayload(3);
+		coalescer.bufferEndTimeExtension(createPayload(2), mockGoal, storedActivity);
+		coalescer.bufferEndTimeExtension(latestPayload, mockGoal, storedActivity.withEndTime(startTime.plusMinutes(2)));
+
+		coalescer.flushAll();
+
+		verify(mockTransactionHelper, times(1)).executeInNewTransaction(any(Runnable.class));
+		ArgumentCaptor<ActivityPayload> payloadCaptor = ArgumentCaptor.forClass(ActivityPayload.class);
+		verify(mockActivityUpdateService, times(1)).updateTimeLastActivity(payloadCaptor.capture(), eq(mockGoal),
+				eq(storedActivity), any());
+		assertThat(payloadCaptor.getValue(), sameInstance(latestPayload));
+		verify(mockUserAnonymizedService, times(1)).updateUserAnonymized(userAnonymizedEntity);
+	}
+
+	@Test
+	void applyPendingUpdate_transactionRolledBack_updateRestoredAndAppliedByLaterFlush()
+	{
+		setUpFlushTransaction();
+		doThrow(new IllegalStateException("Simulated failure")).doNothing().when(mockActivityUpdateService)
+				.updateTimeLastActivity(any(), any(), any(), any());
+		ActivityPayload payload = createPayload(2);
+		coalescer.bufferEndTimeExtension(payload, mockGoal, storedActivity);
+
+		TransactionSynchronizationManager.initSynchronization();
+		try
+		{
+			assertThrows(IllegalStateException.class, () -> coalescer.applyPendingUpdate(userAnonymizedId, deviceAnonymizedId,
+					goalId, IntervalActivityCache.createInstance(null, null, userAnonymizedId)));
+			TransactionSynchronizationManager.getSynchronizations()
+					.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+		}
+		finally
+		{
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		assertThat(coalescer.getPendingLastActivity(userAnonymizedId, deviceAnonymizedId, goalId).get().getEndTime(),
+				equalTo(startTime.plusMinutes(2)));
+		coalescer.flushAll();
+
+		verify(mockActivityUpdateService, times(2)).updateTimeLastActivity(eq(payload), eq(mockGoal), eq(storedActivity), any());
+	}
+
+	@Test
+	void flushAll_applyFails_updateAppliedByNextFlush()
+	{
+		UserAnonymized userAnonymizedEntity = setUpFlushTransaction();
+		doThrow(new IllegalStateException("Simulated failure")).doNothing().when(mockActivityUpdateService)
+				.updateTimeLastActivity(any(), any(), any(), any());
+		ActivityPayload payload = createPayload(2);
+		coalescer.bufferEndTimeExtension(payload, mockGoal, storedActivity);
+
+		coalescer.flushAll();
+		coalescer.flushAll();
+
+		verify(mockActivityUpdateService, times(2)).updateTimeLastActivity(eq(payload), eq(mockGoal), eq(storedActivity), any());
+		verify(mockUserAnonymizedService, times(1)).updateUserAnonymized(userAnonymizedEntity);
+	}
+
+	private UserAnonymized setUpFlushTransaction()
+	{
+		doAnswer(invocation -> {
+			((Runnable) invocation.getArgument(0)).run();
+			return null;
+		}).when(mockTransactionHelper).executeInNewTransaction(any(Runnable.class));
+		UserAnonymized userAnonymizedEntity = UserAnonymized.createInstance(null, Collections.emptySet());
+		when(mockUserAnonymizedService.getUserAnonymizedEntity(userAnonymizedId)).thenReturn(Optional.of(userAnonymizedEntity));
+		return userAnonymizedEntity;
+	}
+
+	private ActivityPayload createPayload(int endMinutes)
+	{
+		return ActivityPayload.createInstance(mockUserAnonymized, mockDeviceAnonymized, startTime,
+				startTime.plusMinutes(endMinutes), "Poker App", Collections.emptySet());
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2018, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2018, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.service;
@@ -123,6 +123,8 @@ class ActivityUpdateServiceTest
 
 	private DeviceAnonymizedDto deviceAnonDto;
 
+	private IntervalActivityCache intervalActivityCache;
+
 	@BeforeEach
 	public void setUp()
 	{
@@ -164,6 +166,8 @@ class ActivityUpdateServiceTest
 		deviceAnonDto = DeviceAnonymizedDto.createInstance(deviceAnonEntity);
 		userAnonId = userAnonDto.getId();
 		userAnonZoneId = userAnonDto.getTimeZone();
+		intervalActivityCache = IntervalActivityCache.createInstance(mockDayActivityRepository, mockWeekActivityRepository,
+				userAnonId);
 
 		// Stub the GoalService to return our goals.
 		lenient().when(mockGoalService.getGoalEntityForUserAnonymizedId(userAnonId, gamblingGoal.getId()))
@@ -218,7 +222,8 @@ class ActivityUpdateServiceTest
 	{
 		ZonedDateTime t1 = now();
 
-		service.addActivity(userAnonEntity, createPayload(t1, t1), GoalDto.createInstance(gamblingGoal), Optional.empty());
+		service.addActivity(userAnonEntity, createPayload(t1, t1), GoalDto.createInstance(gamblingGoal), Optional.empty(),
+				intervalActivityCache);
 
 		verifyGoalConflictMessageCreated(gamblingGoal);
 	}
@@ -228,7 +233,8 @@ class ActivityUpdateServiceTest
 	{
 		ZonedDateTime t1 = now();
 
-		service.addActivity(userAnonEntity, createPayload(t1, t1), GoalDto.createInstance(shoppingGoal), Optional.empty());
+		service.addActivity(userAnonEntity, createPayload(t1, t1), GoalDto.createInstance(shoppingGoal), Optional.empty(),
+				intervalActivityCache);
 
 		verifyNoGoalConflictMessagesCreated();
 	}
@@ -238,7 +244,8 @@ class ActivityUpdateServiceTest
 	{
 		ZonedDateTime t1 = now();
 
-		service.addActivity(userAnonEntity, createPayload(t1, t1), GoalDto.createInstance(socialGoal), Optional.empty());
+		service.addActivity(userAnonEntity, createPayload(t1, t1), GoalDto.createInstance(socialGoal), Optional.empty(),
+				intervalActivityCache);
 
 		verifyNoGoalConflictMessagesCreated();
 	}
@@ -251,7 +258,7 @@ class ActivityUpdateServiceTest
 		ZonedDateTime t2 = t1.plus(mockYonaProperties.getAnalysisService().getConflictInterval()).plusSeconds(1);
 
 		service.addActivity(userAnonEntity, createPayload(t2, t2), GoalDto.createInstance(gamblingGoal),
-				Optional.of(lastRegisteredActivity));
+				Optional.of(lastRegisteredActivity), intervalActivityCache);
 
 		verifyGoalConflictMessageCreated(gamblingGoal);
 	}
@@ -264,7 +271,7 @@ class ActivityUpdateServiceTest
 		ZonedDateTime t2 = t1.plus(mockYonaProperties.getAnalysisService().getConflictInterval()).minusSeconds(1);
 
 		service.addActivity(userAnonEntity, createPayload(t2, t2), GoalDto.createInstance(gamblingGoal),
-				Optional.of(lastRegisteredActivity));
+				Optional.of(lastRegisteredActivity), intervalActivityCache);
 
 		verifyNoGoalConflictMessagesCreated();
 	}
@@ -277,7 +284,7 @@ class ActivityUpdateServiceTest
 		ActivityDto lastRegisteredActivity = ActivityDto.createInstance(createActivity(t2, t2));
 
 		service.addActivity(userAnonEntity, createPayload(t1, t1), GoalDto.createInstance(gamblingGoal),
-				Optional.of(lastRegisteredActivity));
+				Optional.of(lastRegisteredActivity), intervalActivityCache);
 
 		verifyNoGoalConflictMessagesCreated();
 	}
@@ -288,7 +295,8 @@ class ActivityUpdateServiceTest
 		ZonedDateTime t1 = now();
 		ZonedDateTime t2 = t1.plusMinutes(2);
 
-		service.addActivity(userAnonEntity, createPayload(t1, t2), GoalDto.createInstance(gamblingGoal), Optional.empty());
+		service.addActivity(userAnonEntity, createPayload(t1, t2), GoalDto.createInstance(gamblingGoal), Optional.empty(),
+				intervalActivityCache);
 
 		List<WeekActivity> weekActivities = gamblingGoal.getWeekActivities();
 		assertThat("One week activity present or created", weekActivities.size(), equalTo(1));
@@ -309,7 +317,8 @@ class ActivityUpdateServiceTest
 		ZonedDateTime t1 = now();
 		ZonedDateTime t2 = t1.plusSeconds(59);
 
-		service.addActivity(userAnonEntity, createPayload(t1, t2), GoalDto.createInstance(gamblingGoal), Optional.empty());
+		service.addActivity(userAnonEntity, createPayload(t1, t2), GoalDto.createInstance(gamblingGoal), Optional.empty(),
+				intervalActivityCache);
 
 		List<WeekActivity> weekActivities = gamblingGoal.getWeekActivities();
 		assertThat("One week activity present or created", weekActivities.size(), equalTo(1));
@@ -339,7 +348,7 @@ class ActivityUpdateServiceTest
 		ZonedDateTime endTime = today.withHour(0).withMinute(10);
 
 		service.addActivity(userAnonEntity, createPayload(startTime, endTime), GoalDto.createInstance(gamblingGoal),
-				Optional.of(lastRegisteredActivity));
+				Optional.of(lastRegisteredActivity), intervalActivityCache);
 
 		verifyNoGoalConflictMessagesCreated();
 
@@ -399,7 +408,8 @@ class ActivityUpdateServiceTest
 		Activity existingActivityEntity = existingDayActivityEntity.getLastActivity(deviceAnonId).get();
 		ActivityDto lastRegisteredActivity = ActivityDto.createInstance(existingActivityEntity);
 
-		service.updateTimeLastActivity(createPayload(t1, t2), GoalDto.createInstance(gamblingGoal), lastRegisteredActivity);
+		service.updateTimeLastActivity(createPayload(t1, t2), GoalDto.createInstance(gamblingGoal), lastRegisteredActivity,
+				intervalActivityCache);
 
 		assertThat("Expect start time updated", existingActivityEntity.getStartTimeAsZonedDateTime(), equalTo(t1));
 		assertThat("Expect end time same", existingActivityEntity.getEndTimeAsZonedDateTime(), equalTo(t3));
@@ -415,7 +425,8 @@ class ActivityUpdateServiceTest
 		Activity existingActivityEntity = existingDayActivityEntity.getLastActivity(deviceAnonId).get();
 		ActivityDto lastRegisteredActivity = ActivityDto.createInstance(existingActivityEntity);
 
-		service.updateTimeLastActivity(createPayload(t2, t3), GoalDto.createInstance(gamblingGoal), lastRegisteredActivity);
+		service.updateTimeLastActivity(createPayload(t2, t3), GoalDto.createInstance(gamblingGoal), lastRegisteredActivity,
+				intervalActivityCache);
 
 		assertThat("Expect start time same", existingActivityEntity.getStartTimeAsZonedDateTime(), equalTo(t1));
 		assertThat("Expect end time updated", existingActivityEntity.getEndTimeAsZonedDateTime(), equalTo(t3));
@@ -430,7 +441,8 @@ class ActivityUpdateServiceTest
 		Activity existingActivityEntity = existingDayActivityEntity.getLastActivity(deviceAnonId).get();
 		ActivityDto lastRegisteredActivity = ActivityDto.createInstance(existingActivityEntity);
 
-		service.updateTimeLastActivity(createPayload(t1, t2), GoalDto.createInstance(gamblingGoal), lastRegisteredActivity);
+		service.updateTimeLastActivity(createPayload(t1, t2), GoalDto.createInstance(gamblingGoal), lastRegisteredActivity,
+				intervalActivityCache);
 
 		verify(mockAnalysisEngineCacheService).updateLastActivityForUser(eq(userAnonId), eq(deviceAnonId),
 				eq(gamblingGoal.getId()), any());
@@ -445,7 +457,8 @@ class ActivityUpdateServiceTest
 		DayActivity existingDayActivity = mockExistingActivity(gamblingGoal, t2);
 		ActivityDto lastRegisteredActivity = ActivityDto.createInstance(existingDayActivity.getActivities().get(0));
 
-		service.updateTimeLastActivity(createPayload(t1, t3), GoalDto.createInstance(gamblingGoal), lastRegisteredActivity);
+		service.updateTimeLastActivity(createPayload(t1, t3), GoalDto.createInstance(gamblingGoal), lastRegisteredActivity,
+				intervalActivityCache);
 
 		verifyNoGoalConflictMessagesCreated();
 	}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.service;
@@ -7,10 +7,10 @@ package nu.yona.server.analysis.service;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -19,10 +19,12 @@ import static org.mockito.Mockito.when;
 
 import java.text.MessageFormat;
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -65,6 +67,7 @@ import nu.yona.server.device.entities.DeviceAnonymized.OperatingSystem;
 import nu.yona.server.device.entities.DeviceAnonymizedRepository;
 import nu.yona.server.device.service.DeviceAnonymizedDto;
 import nu.yona.server.device.service.DeviceService;
+import nu.yona.server.exceptions.InvalidDataException;
 import nu.yona.server.goals.entities.ActivityCategory;
 import nu.yona.server.goals.entities.BudgetGoal;
 import nu.yona.server.goals.entities.Goal;
@@ -129,6 +132,8 @@ class AnalysisEngineServiceTest
 	private Appender<ILoggingEvent> mockLogAppender;
 	@Mock
 	private ActivityUpdateService mockActivityUpdater;
+	@Mock
+	private ActivityUpdateCoalescer mockActivityUpdateCoalescer;
 
 	@InjectMocks
 	private final AnalysisEngineService service = new AnalysisEngineService();
@@ -148,6 +153,8 @@ class AnalysisEngineServiceTest
 
 	private DeviceAnonymizedDto deviceAnonDto;
 
+	private final List<DayActivity> existingDayActivities = new ArrayList<>();
+
 	@BeforeEach
 	public void setUp()
 	{
@@ -239,6 +246,16 @@ class AnalysisEngineServiceTest
 			}
 		}).when(transactionHelper).executeInNewTransaction(any(Runnable.class));
 
+		// Mock the prefetch of the day activities
+		lenient().when(mockDayActivityRepository.findAll(eq(userAnonId), anySet(), any(LocalDate.class), any(LocalDate.class)))
+				.thenAnswer(invocation -> {
+					Set<UUID> goalIds = invocation.getArgument(1);
+					LocalDate dateFrom = invocation.getArgument(2);
+					LocalDate dateUntil = invocation.getArgument(3);
+					return existingDayActivities.stream().filter(a -> goalIds.contains(a.getGoalId()))
+							.filter(a -> !a.getStartDate().isBefore(dateFrom) && a.getStartDate().isBefore(dateUntil)).toList();
+				});
+
 		// Mock device service and repo
 		lenient().when(mockDeviceService.getDeviceAnonymized(userAnonDto, -1)).thenReturn(deviceAnonDto);
 		lenient().when(mockDeviceService.getDeviceAnonymized(userAnonDto, deviceAnonId)).thenReturn(deviceAnonDto);
@@ -307,7 +324,8 @@ class AnalysisEngineServiceTest
 
 		service.analyze(userAnonId, createNetworkActivityForCategories("lotto"));
 
-		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), eq(GoalDto.createInstance(gamblingGoal)), any());
+		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), eq(GoalDto.createInstance(gamblingGoal)), any(),
+				any());
 	}
 
 	@Test
@@ -355,9 +373,44 @@ class AnalysisEngineServiceTest
 		// Verify that the cache is used to check existing activity
 		verify(mockAnalysisEngineCacheService, times(3)).fetchLastActivityForUser(userAnonId, deviceAnonId, gamblingGoal.getId());
 
-		verify(mockActivityUpdater, times(3)).updateTimeLastActivity(any(), eq(GoalDto.createInstance(gamblingGoal)), any());
+		verify(mockActivityUpdater, times(3)).updateTimeLastActivity(any(), eq(GoalDto.createInstance(gamblingGoal)), any(),
+				any());
 		verify(mockActivityUpdater, never()).updateTimeExistingActivity(any(), any());
-		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any());
+		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any(), any());
+	}
+
+	@Test
+	void analyzeBatch_multipleActivitiesOfSameUser_lockedOnceInOneTransaction()
+	{
+		NetworkActivitiesDto networkActivities = new NetworkActivitiesDto(
+				Arrays.asList(createBatchNetworkActivityForCategories(userAnonId, "lotto"),
+						createBatchNetworkActivityForCategories(userAnonId, "games")));
+
+		NetworkActivitiesResultDto result = service.analyze(networkActivities);
+
+		assertThat(result.getResults().stream().map(NetworkActivitiesResultDto.Result::getStatus).toList(),
+				contains(NetworkActivitiesResultDto.Status.ANALYZED, NetworkActivitiesResultDto.Status.ANALYZED));
+		verify(userAnonymizedSynchronizer, times(1)).lock(userAnonId);
+		verify(transactionHelper, times(1)).executeInNewTransaction(any(Runnable.class));
+		verifyAddActivity(gamblingGoal, gamingGoal);
+	}
+
+	@Test
+	void analyzeBatch_unknownUser_otherUsersAnalyzed()
+	{
+		UUID unknownUserAnonId = UUID.randomUUID();
+		when(mockUserAnonymizedService.getUserAnonymized(unknownUserAnonId)).thenThrow(
+				InvalidDataException.userAnonymizedIdNotFound(unknownUserAnonId));
+		NetworkActivitiesDto networkActivities = new NetworkActivitiesDto(
+				Arrays.asList(createBatchNetworkActivityForCategories(unknownUserAnonId, "lotto"),
+						createBatchNetworkActivityForCategories(userAnonId, "lotto")));
+
+		NetworkActivitiesResultDto result = service.analyze(networkActivities);
+
+		assertThat(result.getResults().stream().map(NetworkActivitiesResultDto.Result::getStatus).toList(),
+				contains(NetworkActivitiesResultDto.Status.FAILED, NetworkActivitiesResultDto.Status.ANALYZED));
+		verify(userAnonymizedSynchronizer, never()).lock(unknownUserAnonId);
+		verifyAddActivity(gamblingGoal);
 	}
 
 	@Test
@@ -368,8 +421,8 @@ class AnalysisEngineServiceTest
 		verify(mockAnalysisEngineCacheService, never()).fetchLastActivityForUser(eq(userAnonId), eq(deviceAnonId), any());
 
 		verify(mockActivityUpdater, never()).updateTimeExistingActivity(any(), any());
-		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any());
-		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any());
+		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any(), any());
+		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any(), any());
 	}
 
 	@Test
@@ -388,9 +441,9 @@ class AnalysisEngineServiceTest
 
 		service.analyze(userAnonId, deviceAnonId, createSingleAppActivity("Poker App", startTime, endTime));
 
-		verify(mockActivityUpdater).addActivity(any(), any(), eq(GoalDto.createInstance(gamblingGoal)), any());
+		verify(mockActivityUpdater).addActivity(any(), any(), eq(GoalDto.createInstance(gamblingGoal)), any(), any());
 		verify(mockActivityUpdater, never()).updateTimeExistingActivity(any(), any());
-		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any());
+		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any(), any());
 	}
 
 	@Test
@@ -410,7 +463,7 @@ class AnalysisEngineServiceTest
 
 		ArgumentCaptor<ActivityPayload> activityPayloadCaptor = ArgumentCaptor.forClass(ActivityPayload.class);
 		verify(mockActivityUpdater, times(2)).addActivity(any(), activityPayloadCaptor.capture(),
-				eq(GoalDto.createInstance(gamblingGoal)), any());
+				eq(GoalDto.createInstance(gamblingGoal)), any(), any());
 		List<ActivityPayload> payloads = activityPayloadCaptor.getAllValues();
 		assertThat(payloads.size(), equalTo(2));
 		assertThat(payloads.get(0).startTime, equalTo(t1));
@@ -418,7 +471,7 @@ class AnalysisEngineServiceTest
 		assertThat(payloads.get(1).startTime, equalTo(t3));
 		assertThat(payloads.get(1).endTime, equalTo(t4));
 		verify(mockActivityUpdater, never()).updateTimeExistingActivity(any(), any());
-		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any());
+		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any(), any());
 	}
 
 	@Test
@@ -436,9 +489,9 @@ class AnalysisEngineServiceTest
 
 		service.analyze(userAnonId, deviceAnonId, createSingleAppActivity("Poker App", startTime, endTime));
 
-		verify(mockActivityUpdater).addActivity(any(), any(), eq(GoalDto.createInstance(gamblingGoal)), any());
+		verify(mockActivityUpdater).addActivity(any(), any(), eq(GoalDto.createInstance(gamblingGoal)), any(), any());
 		verify(mockActivityUpdater, never()).updateTimeExistingActivity(any(), any());
-		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any());
+		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any(), any());
 	}
 
 	@Test
@@ -453,16 +506,6 @@ class AnalysisEngineServiceTest
 		Activity existingActivityTwo = createActivity(now, now, "Poker App");
 		mockExistingActivities(gamblingGoal, existingActivityOne, existingActivityTwo);
 
-		when(mockActivityRepository.findOverlappingOfSameApp(any(DayActivity.class), any(UUID.class), any(UUID.class),
-				any(String.class), any(LocalDateTime.class), any(LocalDateTime.class))).thenAnswer(new Answer<List<Activity>>()
-		{
-			@Override
-			public List<Activity> answer(InvocationOnMock invocation) throws Throwable
-			{
-				return List.of(existingActivityOne);
-			}
-		});
-
 		// Test an activity
 		ZonedDateTime startTime = existingActivityTimeStartTime.plusMinutes(5);
 		ZonedDateTime endTime = startTime.plusMinutes(7);
@@ -470,10 +513,11 @@ class AnalysisEngineServiceTest
 		service.analyze(userAnonId, deviceAnonId, createSingleAppActivity("Poker App", startTime, endTime));
 
 		// Verify that a database lookup was done finding the existing DayActivity to update
-		verify(mockDayActivityRepository).findOne(userAnonId, now.toLocalDate(), gamblingGoal.getId());
-		verify(mockActivityUpdater).updateTimeExistingActivity(any(), any());
-		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any());
-		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any());
+		verify(mockDayActivityRepository).findAll(userAnonId, Set.of(gamblingGoal.getId()), now.toLocalDate(),
+				now.toLocalDate().plusDays(1));
+		verify(mockActivityUpdater).updateTimeExistingActivity(any(), eq(existingActivityOne));
+		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any(), any());
+		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any(), any());
 	}
 
 	@Test
@@ -482,16 +526,8 @@ class AnalysisEngineServiceTest
 		ZonedDateTime now = now();
 		JUnitUtil.skipBefore("Skip shortly after midnight", now, 0, 11);
 		DayActivity existingDayActivity = mockExistingActivities(gamblingGoal,
-				createActivity(now.minusMinutes(10), now.minusMinutes(8)), createActivity(now.minusMinutes(1), now));
-		when(mockActivityRepository.findOverlappingOfSameApp(any(DayActivity.class), any(UUID.class), any(UUID.class), isNull(),
-				any(LocalDateTime.class), any(LocalDateTime.class))).thenAnswer(new Answer<List<Activity>>()
-		{
-			@Override
-			public List<Activity> answer(InvocationOnMock invocation) throws Throwable
-			{
-				return existingDayActivity.getActivities().stream().toList();
-			}
-		});
+				createActivity(now.minusMinutes(10), now.minusMinutes(8)), createActivity(now.minusMinutes(9), now.minusMinutes(6)),
+				createActivity(now.minusMinutes(1), now));
 		String expectedWarnMessage = MessageFormat.format(
 				"Multiple overlapping network activities found. The payload has start time {0} and end time {1}. The day activity ID is {2} and the activity category ID is {3}. The overlapping activities are: {4}, {5}.",
 				now.minusMinutes(9).toLocalDateTime(), now.minusMinutes(9).toLocalDateTime(), existingDayActivity.getId(),
@@ -500,18 +536,21 @@ class AnalysisEngineServiceTest
 
 		service.analyze(userAnonId, createNetworkActivityForCategories(now.minusMinutes(9), "poker"));
 
-		verify(mockActivityUpdater).updateTimeExistingActivity(any(), any());
-		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any());
-		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any());
+		verify(mockActivityUpdater).updateTimeExistingActivity(any(), eq(existingDayActivity.getActivities().get(0)));
+		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any(), any());
+		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any(), any());
 
 		List<Activity> activities = existingDayActivity.getActivities();
-		assertThat(activities.size(), equalTo(2));
+		assertThat(activities.size(), equalTo(3));
 		assertThat(activities.get(0).getApp(), equalTo(Optional.empty()));
 		assertThat(activities.get(0).getStartTimeAsZonedDateTime(), equalTo(now.minusMinutes(10)));
 		assertThat(activities.get(0).getEndTimeAsZonedDateTime(), equalTo(now.minusMinutes(8)));
 		assertThat(activities.get(1).getApp(), equalTo(Optional.empty()));
-		assertThat(activities.get(1).getStartTimeAsZonedDateTime(), equalTo(now.minusMinutes(1)));
-		assertThat(activities.get(1).getEndTimeAsZonedDateTime(), equalTo(now));
+		assertThat(activities.get(1).getStartTimeAsZonedDateTime(), equalTo(now.minusMinutes(9)));
+		assertThat(activities.get(1).getEndTimeAsZonedDateTime(), equalTo(now.minusMinutes(6)));
+		assertThat(activities.get(2).getApp(), equalTo(Optional.empty()));
+		assertThat(activities.get(2).getStartTimeAsZonedDateTime(), equalTo(now.minusMinutes(1)));
+		assertThat(activities.get(2).getEndTimeAsZonedDateTime(), equalTo(now));
 
 		ArgumentCaptor<ILoggingEvent> logEventCaptor = ArgumentCaptor.forClass(ILoggingEvent.class);
 		verify(mockLogAppender).doAppend(logEventCaptor.capture());
@@ -527,26 +566,17 @@ class AnalysisEngineServiceTest
 		DayActivity existingDayActivity = mockExistingActivities(gamblingGoal,
 				createActivity(now.minusMinutes(10), now.minusMinutes(8), "Lotto App"),
 				createActivity(now.minusMinutes(7), now.minusMinutes(5), "Lotto App"), createActivity(now, now, "Lotto App"));
-		when(mockActivityRepository.findOverlappingOfSameApp(any(DayActivity.class), any(UUID.class), any(UUID.class),
-				any(String.class), any(LocalDateTime.class), any(LocalDateTime.class))).thenAnswer(new Answer<List<Activity>>()
-		{
-			@Override
-			public List<Activity> answer(InvocationOnMock invocation) throws Throwable
-			{
-				return existingDayActivity.getActivities().stream().toList();
-			}
-		});
 		String expectedWarnMessage = MessageFormat.format(
-				"Multiple overlapping app activities of ''Lotto App'' found. The payload has start time {0} and end time {1}. The day activity ID is {2} and the activity category ID is {3}. The overlapping activities are: {4}, {5}, {6}.",
+				"Multiple overlapping app activities of ''Lotto App'' found. The payload has start time {0} and end time {1}. The day activity ID is {2} and the activity category ID is {3}. The overlapping activities are: {4}, {5}.",
 				now.minusMinutes(9).toLocalDateTime(), now.minusMinutes(2).toLocalDateTime(), existingDayActivity.getId(),
 				gamblingGoal.getActivityCategory().getId(), existingDayActivity.getActivities().get(0),
-				existingDayActivity.getActivities().get(1), existingDayActivity.getActivities().get(2));
+				existingDayActivity.getActivities().get(1));
 
 		service.analyze(userAnonId, deviceAnonId, createSingleAppActivity("Lotto App", now.minusMinutes(9), now.minusMinutes(2)));
 
 		verify(mockActivityUpdater).updateTimeExistingActivity(any(), any());
-		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any());
-		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any());
+		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any(), any());
+		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any(), any());
 
 		ArgumentCaptor<ILoggingEvent> logEventCaptor = ArgumentCaptor.forClass(ILoggingEvent.class);
 		verify(mockLogAppender).doAppend(logEventCaptor.capture());
@@ -569,9 +599,9 @@ class AnalysisEngineServiceTest
 
 		service.analyze(userAnonId, deviceAnonId, createSingleAppActivity("Poker App", startTime, endTime));
 
-		verify(mockActivityUpdater).updateTimeLastActivity(any(), eq(GoalDto.createInstance(gamblingGoal)), any());
+		verify(mockActivityUpdater).updateTimeLastActivity(any(), eq(GoalDto.createInstance(gamblingGoal)), any(), any());
 		verify(mockActivityUpdater, never()).updateTimeExistingActivity(any(), any());
-		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any());
+		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any(), any());
 	}
 
 	@Test
@@ -589,9 +619,9 @@ class AnalysisEngineServiceTest
 
 		service.analyze(userAnonId, deviceAnonId, createSingleAppActivity("Poker App", startTime, endTime));
 
-		verify(mockActivityUpdater).updateTimeLastActivity(any(), eq(GoalDto.createInstance(gamblingGoal)), any());
+		verify(mockActivityUpdater).updateTimeLastActivity(any(), eq(GoalDto.createInstance(gamblingGoal)), any(), any());
 		verify(mockActivityUpdater, never()).updateTimeExistingActivity(any(), any());
-		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any());
+		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any(), any());
 	}
 
 	@Test
@@ -608,11 +638,35 @@ class AnalysisEngineServiceTest
 		service.analyze(userAnonId, deviceAnonId, createSingleAppActivity("Poker App", startTime, endTime));
 
 		// Verify that a database lookup was done for yesterday
-		verify(mockDayActivityRepository).findOne(userAnonId, yesterdayNoon.toLocalDate(), gamblingGoal.getId());
+		verify(mockDayActivityRepository).findAll(userAnonId, Set.of(gamblingGoal.getId()), yesterdayNoon.toLocalDate(),
+				yesterdayNoon.toLocalDate().plusDays(1));
 
-		verify(mockActivityUpdater).addActivity(any(), any(), eq(GoalDto.createInstance(gamblingGoal)), any());
+		verify(mockActivityUpdater).addActivity(any(), any(), eq(GoalDto.createInstance(gamblingGoal)), any(), any());
 		verify(mockActivityUpdater, never()).updateTimeExistingActivity(any(), any());
-		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any());
+		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any(), any());
+	}
+
+	@Test
+	void analyze_multipleAppActivitiesPrecedingLastCachedActivity_dayActivitiesFetchedOnce()
+	{
+		ZonedDateTime now = now();
+		JUnitUtil.skipBefore("Skip shortly after midnight", now, 0, 30);
+		mockExistingActivity(gamblingGoal, now.minusMinutes(2), now.minusMinutes(1), "Poker App");
+		ZonedDateTime t1 = now.minusMinutes(25);
+		ZonedDateTime t2 = t1.plusMinutes(5);
+		ZonedDateTime t3 = t2.plusMinutes(5);
+
+		service.analyze(userAnonId, deviceAnonId,
+				new AppActivitiesDto(now(), new AppActivitiesDto.Activity[] {
+						new AppActivitiesDto.Activity("Poker App", t1, t1.plusMinutes(1)),
+						new AppActivitiesDto.Activity("Lotto App", t2, t2.plusMinutes(1)),
+						new AppActivitiesDto.Activity("Poker App", t3, t3.plusMinutes(1)) }));
+
+		// Verify that all lookups of the existing DayActivity were served by a single query
+		verify(mockDayActivityRepository, times(1)).findAll(eq(userAnonId), anySet(), any(LocalDate.class),
+				any(LocalDate.class));
+		verify(mockDayActivityRepository, never()).findOne(any(), any(), any());
+		verify(mockActivityUpdater, times(3)).addActivity(any(), any(), eq(GoalDto.createInstance(gamblingGoal)), any(), any());
 	}
 
 	@Test
@@ -626,7 +680,7 @@ class AnalysisEngineServiceTest
 
 		ArgumentCaptor<ActivityPayload> activityPayloadCaptor = ArgumentCaptor.forClass(ActivityPayload.class);
 		verify(mockActivityUpdater, times(2)).addActivity(any(), activityPayloadCaptor.capture(),
-				eq(GoalDto.createInstance(gamblingGoal)), any());
+				eq(GoalDto.createInstance(gamblingGoal)), any(), any());
 		List<ActivityPayload> payloads = activityPayloadCaptor.getAllValues();
 		assertThat(payloads.size(), equalTo(2));
 		assertThat(payloads.get(0).startTime, equalTo(startTime));
@@ -634,7 +688,7 @@ class AnalysisEngineServiceTest
 		assertThat(payloads.get(1).startTime, equalTo(endTime.truncatedTo(ChronoUnit.DAYS)));
 		assertThat(payloads.get(1).endTime, equalTo(endTime));
 		verify(mockActivityUpdater, never()).updateTimeExistingActivity(any(), any());
-		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any());
+		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any(), any());
 	}
 
 	@Test
@@ -646,9 +700,9 @@ class AnalysisEngineServiceTest
 
 		service.analyze(userAnonId, deviceAnonId, createSingleAppActivity("Lotto App", now.minusMinutes(4), now.minusMinutes(2)));
 
-		verify(mockActivityUpdater).addActivity(any(), any(), eq(GoalDto.createInstance(gamblingGoal)), any());
+		verify(mockActivityUpdater).addActivity(any(), any(), eq(GoalDto.createInstance(gamblingGoal)), any(), any());
 		verify(mockActivityUpdater, never()).updateTimeExistingActivity(any(), any());
-		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any());
+		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any(), any());
 	}
 
 	@Test
@@ -659,9 +713,9 @@ class AnalysisEngineServiceTest
 
 		service.analyze(userAnonId, createNetworkActivityForCategories("lotto"));
 
-		verify(mockActivityUpdater).addActivity(any(), any(), eq(GoalDto.createInstance(gamblingGoal)), any());
+		verify(mockActivityUpdater).addActivity(any(), any(), eq(GoalDto.createInstance(gamblingGoal)), any(), any());
 		verify(mockActivityUpdater, never()).updateTimeExistingActivity(any(), any());
-		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any());
+		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any(), any());
 	}
 
 	@Test
@@ -673,9 +727,9 @@ class AnalysisEngineServiceTest
 
 		service.analyze(userAnonId, deviceAnonId, createSingleAppActivity("Lotto App", now.minusMinutes(4), now.minusMinutes(2)));
 
-		verify(mockActivityUpdater).addActivity(any(), any(), eq(GoalDto.createInstance(gamblingGoal)), any());
+		verify(mockActivityUpdater).addActivity(any(), any(), eq(GoalDto.createInstance(gamblingGoal)), any(), any());
 		verify(mockActivityUpdater, never()).updateTimeExistingActivity(any(), any());
-		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any());
+		verify(mockActivityUpdater, never()).updateTimeLastActivity(any(), any(), any(), any());
 	}
 
 	@Test
@@ -689,9 +743,9 @@ class AnalysisEngineServiceTest
 		service.analyze(userAnonId, deviceAnonId,
 				createSingleAppActivity("Lotto App", existingActivityEndTime, now.minusMinutes(2)));
 
-		verify(mockActivityUpdater).updateTimeLastActivity(any(), eq(GoalDto.createInstance(gamblingGoal)), any());
+		verify(mockActivityUpdater).updateTimeLastActivity(any(), eq(GoalDto.createInstance(gamblingGoal)), any(), any());
 		verify(mockActivityUpdater, never()).updateTimeExistingActivity(any(), any());
-		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any());
+		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any(), any());
 	}
 
 	@Test
@@ -704,9 +758,9 @@ class AnalysisEngineServiceTest
 		service.analyze(userAnonId, deviceAnonId,
 				createSingleAppActivity("Lotto App", now.minusMinutes(5).minusSeconds(30), now.minusMinutes(2)));
 
-		verify(mockActivityUpdater).updateTimeLastActivity(any(), eq(GoalDto.createInstance(gamblingGoal)), any());
+		verify(mockActivityUpdater).updateTimeLastActivity(any(), eq(GoalDto.createInstance(gamblingGoal)), any(), any());
 		verify(mockActivityUpdater, never()).updateTimeExistingActivity(any(), any());
-		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any());
+		verify(mockActivityUpdater, never()).addActivity(any(), any(), any(), any(), any());
 	}
 
 	@Test
@@ -720,7 +774,7 @@ class AnalysisEngineServiceTest
 		service.analyze(userAnonId, deviceAnonId,
 				createSingleAppActivity("Lotto App", existingActivityEndTime.plusSeconds(1), now.minusMinutes(2)));
 
-		verify(mockActivityUpdater).addActivity(any(), any(), eq(GoalDto.createInstance(gamblingGoal)), any());
+		verify(mockActivityUpdater).addActivity(any(), any(), eq(GoalDto.createInstance(gamblingGoal)), any(), any());
 	}
 
 	private NetworkActivityDto createNetworkActivityForCategories(String... conflictCategories)
@@ -729,6 +783,13 @@ class AnalysisEngineServiceTest
 				"http://localhost/test" + new Random().nextInt(), Optional.empty());
 	}
 
+	private NetworkActivitiesDto.Activity createBatchNetworkActivityForCategories(UUID userAnonymizedId,
+			String... conflictCategories)
+	{
+		return new NetworkActivitiesDto.Activity(userAnonymizedId, -1, new HashSet<>(Arrays.asList(conflictCategories)),
+				"http://localhost/test" + new Random().nextInt(), Optional.empty());
+	}
+
 	private NetworkActivityDto createNetworkActivityForCategories(ZonedDateTime time, String... conflictCategories)
 	{
 		return new NetworkActivityDto(-1, new HashSet<>(Arrays.asList(conflictCategories)),
@@ -739,7 +800,7 @@ class AnalysisEngineServiceTest
 	{
 		for (Goal forGoal : forGoals)
 		{
-			verify(mockActivityUpdater).addActivity(any(), any(), eq(GoalDto.createInstance(forGoal)), any());
+			verify(mockActivityUpdater).addActivity(any(), any(), eq(GoalDto.createInstance(forGoal)), any(), any());
 		}
 	}
 
@@ -760,10 +821,7 @@ class AnalysisEngineServiceTest
 				startTime.truncatedTo(ChronoUnit.DAYS).toLocalDate());
 		Arrays.asList(activities).forEach(a -> dayActivity.addActivity(a));
 		ActivityDto existingActivity = ActivityDto.createInstance(activities[activities.length - 1]);
-		// The following mock is lenient because several tests are skipped around midnight
-		// If these are skipped, the below mock isn't used, causing the other tests to fail if strictness isn't set to lenient
-		lenient().when(mockDayActivityRepository.findOne(userAnonId, dayActivity.getStartDate(), forGoal.getId()))
-				.thenReturn(dayActivity);
+		existingDayActivities.add(dayActivity);
 		when(mockAnalysisEngineCacheService.fetchLastActivityForUser(userAnonId, deviceAnonId, forGoal.getId())).thenReturn(
 				Optional.of(existingActivity));
 		WeekActivity weekActivity = WeekActivity.createInstance(userAnonEntity, forGoal, userAnonZoneId,
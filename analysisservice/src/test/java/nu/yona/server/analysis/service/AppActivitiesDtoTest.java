@@ -1,18 +1,22 @@
 /*
- * Copyright (c) 2018, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2018, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.service;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.time.ZonedDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 
 import org.junit.jupiter.api.Test;
 
+import nu.yona.server.exceptions.AnalysisException;
+
 class AppActivitiesDtoTest
 {
 	@Test
@@ -32,4 +36,44 @@ class AppActivitiesDtoTest
 
 		assertThat(result, equalTo(Arrays.asList(new AppActivitiesDto.Activity[] { firstActivity, secondActivity })));
 	}
-}
\ No newline at end of file
+
+	@Test
+	void assertValidTimes_endBeforeStart_throws()
+	{
+		ZonedDateTime now = ZonedDateTime.now();
+		AppActivitiesDto appActivitiesDto = createAppActivities(now, now.minusMinutes(1), now.minusMinutes(2));
+
+		AnalysisException exception = assertThrows(AnalysisException.class,
+				() -> appActivitiesDto.assertValidTimes(UUID.randomUUID()));
+
+		assertThat(exception.getMessageId(), equalTo("error.analysis.invalid.app.activity.data.end.before.start"));
+	}
+
+	@Test
+	void assertValidTimes_startInFuture_throws()
+	{
+		ZonedDateTime now = ZonedDateTime.now();
+		AppActivitiesDto appActivitiesDto = createAppActivities(now, now.plusMinutes(1), now.plusMinutes(2));
+
+		AnalysisException exception = assertThrows(AnalysisException.class,
+				() -> appActivitiesDto.assertValidTimes(UUID.randomUUID()));
+
+		assertThat(exception.getMessageId(), equalTo("error.analysis.invalid.app.activity.data.starts.in.future"));
+	}
+
+	@Test
+	void assertValidTimes_deviceClockAheadAndTimesInPastAfterCorrection_doesNotThrow()
+	{
+		ZonedDateTime deviceNow = ZonedDateTime.now().plusHours(1);
+		AppActivitiesDto appActivitiesDto = createAppActivities(deviceNow, deviceNow.minusMinutes(2), deviceNow.minusMinutes(1));
+
+		appActivitiesDto.assertValidTimes(UUID.randomUUID());
+	}
+
+	private static AppActivitiesDto createAppActivities(ZonedDateTime deviceDateTime, ZonedDateTime startTime,
+			ZonedDateTime endTime)
+	{
+		return new AppActivitiesDto(deviceDateTime,
+				new AppActivitiesDto.Activity[] { new AppActivitiesDto.Activity("Poker App", startTime, endTime) });
+	}
+}
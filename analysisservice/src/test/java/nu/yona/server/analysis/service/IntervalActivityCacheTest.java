@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.analysis.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import nu.yona.server.analysis.entities.DayActivity;
+import nu.yona.server.analysis.entities.DayActivityRepository;
+import nu.yona.server.analysis.entities.WeekActivity;
+import nu.yona.server.analysis.entities.WeekActivityRepository;
+import nu.yona.server.goals.entities.ActivityCategory;
+import nu.yona.server.goals.entities.BudgetGoal;
+import nu.yona.server.goals.entities.Goal;
+import nu.yona.server.subscriptions.entities.UserAnonymized;
+
+@ExtendWith(MockitoExtension.class)
+class IntervalActivityCacheTest
+{
+	private static final ZoneId ZONE = ZoneId.of("Europe/Amsterdam");
+	private static final LocalDate TODAY = LocalDate.of(2026, 3, 19);
+
+	@Mock
+	private DayActivityRepository mockDayActivityRepository;
+	@Mock
+	private WeekActivityRepository mockWeekActivityRepository;
+
+	private final UUID userAnonymizedId = UUID.randomUUID();
+	private UserAnonymized userAnonymized;
+	private Goal goal;
+
+	@BeforeEach
+	public void setUp()
+	{
+		goal = BudgetGoal.createNoGoInstance(LocalDateTime.of(2026, 1, 1, 0, 0),
+				ActivityCategory.createInstance(UUID.randomUUID(), Collections.emptyMap(), false, Collections.emptySet(),
+						Collections.emptySet(), Collections.emptyMap()));
+		userAnonymized = UserAnonymized.createInstance(null, Collections.singleton(goal));
+	}
+
+	@Test
+	void findDayActivity_multipleLookupsWithinPrefetchRange_fetchedWithSingleQuery()
+	{
+		DayActivity dayActivity = DayActivity.createInstance(userAnonymized, goal, ZONE, TODAY);
+		when(mockDayActivityRepository.findAll(userAnonymizedId, Set.of(goal.getId()), TODAY.minusDays(1), TODAY.plusDays(1)))
+				.thenReturn(List.of(dayActivity));
+		IntervalActivityCache cache = createPrefetchingCache();
+
+		assertThat(cache.findDayActivity(goal.getId(), TODAY).get(), sameInstance(dayActivity));
+		assertThat(cache.findDayActivity(goal.getId(), TODAY).get(), sameInstance(dayActivity));
+		assertThat(cache.findDayActivity(goal.getId(), TODAY.minusDays(1)).isPresent(), equalTo(false));
+
+		verify(mockDayActivityRepository, times(1)).findAll(any(), any(), any(), any());
+		verify(mockDayActivityRepository, never()).findOne(any(), any(), any());
+	}
+
+	@Test
+	void findDayActivity_outsidePrefetchRange_fetchedIndividuallyOnce()
+	{
+		LocalDate lastWeek = TODAY.minusWeeks(1);
+		IntervalActivityCache cache = createPrefetchingCache();
+
+		assertThat(cache.findDayActivity(goal.getId(), lastWeek).isPresent(), equalTo(false));
+		assertThat(cache.findDayActivity(goal.getId(), lastWeek).isPresent(), equalTo(false));
+
+		verify(mockDayActivityRepository, times(1)).findOne(userAnonymizedId, lastWeek, goal.getId());
+		verify(mockDayActivityRepository, never()).findAll(any(), any(), any(), any());
+	}
+
+	@Test
+	void findWeekActivity_registeredActivity_returnedWithoutQuery()
+	{
+		WeekActivity weekActivity = WeekActivity.createInstance(userAnonymized, goal, ZONE, TODAY.minusWeeks(1));
+		IntervalActivityCache cache = IntervalActivityCache.createInstance(mockDayActivityRepository, mockWeekActivityRepository,
+				userAnonymizedId);
+
+		cache.registerWeekActivity(weekActivity);
+
+		assertThat(cache.findWeekActivity(goal.getId(), TODAY.minusWeeks(1)).get(), sameInstance(weekActivity));
+		verify(mockWeekActivityRepository, never()).findOne(any(UUID.class), any(UUID.class), any(LocalDate.class));
+	}
+
+	private IntervalActivityCache createPrefetchingCache()
+	{
+		return IntervalActivityCache.createInstance(mockDayActivityRepository, mockWeekActivityRepository, userAnonymizedId,
+				Set.of(goal.getId()), TODAY.minusDays(1), TODAY.plusDays(1));
+	}
+}
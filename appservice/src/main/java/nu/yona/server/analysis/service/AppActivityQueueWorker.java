@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.analysis.service;
+
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import nu.yona.server.properties.AnalysisServiceProperties;
+import nu.yona.server.properties.YonaProperties;
+
+/**
+ * Runs the worker threads that deliver the queued app activities to the analysis service. Every worker polls the queue with the
+ * configured interval and keeps delivering as long as it finds due items. Next to that, it periodically refreshes the queue
+ * depth.
+ */
+@Component
+@ConditionalOnProperty("yona.analysisService.appActivityQueue.enabled")
+public class AppActivityQueueWorker
+{
+	private static final Logger logger = LoggerFactory.getLogger(AppActivityQueueWorker.class);
+
+	@Autowired
+	private YonaProperties yonaProperties;
+
+	@Autowired
+	private AppActivityQueueService appActivityQueueService;
+
+	private Optional<ScheduledExecutorService> executor = Optional.empty();
+
+	@PostConstruct
+	public void start()
+	{
+		AnalysisServiceProperties.AppActivityQueue properties = yonaProperties.getAnalysisService().getAppActivityQueue();
+		ScheduledExecutorService scheduledExecutor = Executors.newScheduledThreadPool(properties.getWorkerCount() + 1);
+		long pollIntervalMillis = properties.getPollInterval().toMillis();
+		for (int i = 0; i < properties.getWorkerCount(); i++)
+		{
+			scheduledExecutor.scheduleWithFixedDelay(this::deliverDueItems, pollIntervalMillis, pollIntervalMillis,
+					TimeUnit.MILLISECONDS);
+		}
+		scheduledExecutor.scheduleWithFixedDelay(this::refreshQueueDepth, 0,
+				properties.getQueueDepthRefreshInterval().toMillis(), TimeUnit.MILLISECONDS);
+		executor = Optional.of(scheduledExecutor);
+	}
+
+	@PreDestroy
+	public void stop()
+	{
+		executor.ifPresent(ScheduledExecutorService::shutdown);
+	}
+
+	private void deliverDueItems()
+	{
+		try
+		{
+			// A claim returns at most one item per user, so a partial batch does not mean that the queue is drained
+			while (appActivityQueueService.deliverDueItems() > 0)
+			{
+				// Keep delivering till the queue is drained
+			}
+		}
+		catch (RuntimeException e)
+		{
+			// Catch everything, as an uncaught exception cancels all subsequent executions
+			logger.error("Unexpected exception while delivering queued app activities", e);
+		}
+	}
+
+	private void refreshQueueDepth()
+	{
+		try
+		{
+			appActivityQueueService.refreshQueueDepth();
+		}
+		catch (RuntimeException e)
+		{
+			// Catch everything, as an uncaught exception cancels all subsequent executions
+			logger.error("Unexpected exception while refreshing the app activity queue depth", e);
+		}
+	}
+}
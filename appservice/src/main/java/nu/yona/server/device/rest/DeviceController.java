@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2017, 2021 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2017, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.device.rest;
@@ -65,6 +65,7 @@ import jakarta.annotation.PostConstruct;
 import nu.yona.server.analysis.service.AnalysisEngineProxyService;
 import nu.yona.server.analysis.service.AppActivitiesDto;
 import nu.yona.server.analysis.service.AppActivitiesDto.Activity;
+import nu.yona.server.analysis.service.AppActivityQueueService;
 import nu.yona.server.crypto.seckey.CryptoSession;
 import nu.yona.server.device.entities.DeviceAnonymized.OperatingSystem;
 import nu.yona.server.device.rest.DeviceController.DeviceResource;
@@ -72,7 +73,6 @@ import nu.yona.server.device.service.AppOpenEventDto;
 import nu.yona.server.device.service.DeviceBaseDto;
 import nu.yona.server.device.service.DeviceRegistrationRequestDto;
 import nu.yona.server.device.service.DeviceService;
-import nu.yona.server.device.service.DeviceServiceException;
 import nu.yona.server.device.service.DeviceUpdateRequestDto;
 import nu.yona.server.device.service.UserDeviceDto;
 import nu.yona.server.exceptions.InvalidDataException;
@@ -87,7 +87,6 @@ import nu.yona.server.subscriptions.rest.UserController;
 import nu.yona.server.subscriptions.rest.UserController.UserResource;
 import nu.yona.server.subscriptions.service.NewDeviceRequestDto;
 import nu.yona.server.subscriptions.service.NewDeviceRequestService;
-import nu.yona.server.subscriptions.service.UserDto;
 import nu.yona.server.subscriptions.service.UserService;
 import nu.yona.server.subscriptions.service.VPNProfileDto;
 import nu.yona.server.util.Require;
@@ -133,6 +132,9 @@ public class DeviceController extends ControllerBase
 	@Autowired
 	private AnalysisEngineProxyService analysisEngineProxyService;
 
+	@Autowired(required = false)
+	private AppActivityQueueService appActivityQueueService;
+
 	@Autowired
 	@Qualifier("sslRootCertificate")
 	private X509Certificate sslRootCertificate;
@@ -299,7 +301,9 @@ public class DeviceController extends ControllerBase
 	}
 
 	/*
-	 * Adds app activity registered by the Yona app. This request is delegated to the analysis engine service.
+	 * Adds app activity registered by the Yona app. This request is delegated to the analysis engine service. If the app activity
+	 * queue is enabled, the activities are validated and then queued for asynchronous delivery and 202 (Accepted) is returned.
+	 * When the queue is full, the activities are delivered synchronously.
 	 * @param password User password, validated before adding the activity.
 	 * @param appActivities Because it may be that multiple app activities may have taken place during the time the network is
 	 * down, accept an array of activities.
@@ -317,10 +321,18 @@ public class DeviceController extends ControllerBase
 		try (CryptoSession ignored = CryptoSession.start(password,
 				() -> userService.doPreparationsAndCheckCanAccessPrivateData(userId)))
 		{
-			UserDto userDto = userService.getUser(userId);
-			autoregisterAndroid(userDto, deviceId);
-			UUID userAnonymizedId = userDto.getOwnPrivateData().getUserAnonymizedId();
-			UUID deviceAnonymizedId = deviceService.getDeviceAnonymizedId(userDto, deviceId);
+			// Do not fetch the user DTO, as that decrypts all private data of the user, including the buddies
+			UserDeviceDto device = deviceService.getOwnDevice(userId, deviceId);
+			autoregisterAndroid(userId, device);
+			UUID userAnonymizedId = userService.getUserAnonymizedId(userId);
+			UUID deviceAnonymizedId = device.getDeviceAnonymizedId();
+			// Reject invalid app activities before queueing them, as the analysis service would reject them after 202 was returned
+			appActivities.assertValidTimes(userAnonymizedId);
+			if (yonaProperties.getAnalysisService().getAppActivityQueue().isEnabled()
+					&& appActivityQueueService.enqueue(userAnonymizedId, deviceAnonymizedId, appActivities))
+			{
+				return createResponse(HttpStatus.ACCEPTED);
+			}
 			analysisEngineProxyService.analyzeAppActivity(userAnonymizedId, deviceAnonymizedId, appActivities);
 			return createNoContentResponse();
 		}
@@ -331,18 +343,16 @@ public class DeviceController extends ControllerBase
 	 * so if the operating system of the requesting device is marked as UNKNOWN, we can improve the registration and mark it as
 	 * ANDROID.
 	 *
-	 * @param userDto  The user sending the app activities
-	 * @param deviceId The ID of the device for which the app activities are being sent
+	 * @param userId The ID of the user sending the app activities
+	 * @param device The device for which the app activities are being sent
 	 */
-	private void autoregisterAndroid(UserDto userDto, UUID deviceId)
+	private void autoregisterAndroid(UUID userId, UserDeviceDto device)
 	{
-		UserDeviceDto device = userDto.getOwnPrivateData().getOwnDevices().stream().filter(d -> d.getId().equals(deviceId))
-				.findAny().orElseThrow(() -> DeviceServiceException.notFoundById(deviceId));
 		if (device.getOperatingSystem() == OperatingSystem.UNKNOWN)
 		{
 			// The device is registered as UNKNOWN, but given that it registers app activities, it's apparently ANDROID, so update
 			// the operating system
-			deviceService.updateOperatingSystem(userDto.getId(), deviceId, OperatingSystem.ANDROID);
+			deviceService.updateOperatingSystem(userId, device.getId(), OperatingSystem.ANDROID);
 		}
 	}
 
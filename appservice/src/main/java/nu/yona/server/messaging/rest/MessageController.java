@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2021 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.messaging.rest;
@@ -22,6 +22,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PagedResourcesAssembler;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
@@ -55,6 +56,7 @@ import nu.yona.server.analysis.rest.BuddyActivityController;
 import nu.yona.server.analysis.rest.UserActivityController;
 import nu.yona.server.crypto.seckey.CryptoSession;
 import nu.yona.server.messaging.service.MessageActionDto;
+import nu.yona.server.messaging.service.MessageCursor;
 import nu.yona.server.messaging.service.MessageDto;
 import nu.yona.server.messaging.service.MessageService;
 import nu.yona.server.rest.ControllerBase;
@@ -70,6 +72,10 @@ import nu.yona.server.subscriptions.service.UserService;
 @RequestMapping(value = "/users/{userId}/messages", produces = { MediaType.APPLICATION_JSON_VALUE })
 public class MessageController extends ControllerBase
 {
+	public static final LinkRelation MESSAGES_BY_CURSOR_REL = LinkRelation.of("messagesByCursor");
+	private static final int DEFAULT_CURSOR_PAGE_SIZE = 20;
+	private static final int MAX_CURSOR_PAGE_SIZE = 2000;
+
 	@Autowired
 	private MessageService messageService;
 
@@ -116,6 +122,49 @@ public class MessageController extends ControllerBase
 		return createOkResponse(user, messages, pagedResourcesAssembler);
 	}
 
+	/**
+	 * Returns the received messages using keyset paging. This is an alternative to {@link #getMessages}, for clients that page
+	 * deep into the messages. The response does not include the total number of messages. If there are more messages, it
+	 * includes a "next" link to fetch them.
+	 */
+	@GetMapping(value = "/cursor/")
+	@ResponseBody
+	public HttpEntity<CollectionModel<MessageDto>> getMessagesByCursor(
+			@RequestHeader(value = PASSWORD_HEADER) Optional<String> password,
+			@RequestParam(value = "onlyUnreadMessages", required = false, defaultValue = "false") String onlyUnreadMessagesStr,
+			@RequestParam(value = "after", required = false) String afterStr,
+			@RequestParam(value = "size", required = false) Integer sizeParam, @PathVariable UUID userId)
+	{
+		try (CryptoSession ignored = CryptoSession.start(password,
+				() -> userService.doPreparationsAndCheckCanAccessPrivateData(userId)))
+		{
+			boolean onlyUnreadMessages = Boolean.TRUE.toString().equals(onlyUnreadMessagesStr);
+			Optional<MessageCursor> after = Optional.ofNullable(afterStr).map(MessageCursor::decode);
+			int size = (sizeParam == null || sizeParam < 1) ? DEFAULT_CURSOR_PAGE_SIZE
+					: Math.min(sizeParam, MAX_CURSOR_PAGE_SIZE);
+
+			User user = userService.getValidatedUserEntity(userId);
+			Slice<MessageDto> messages = messageService.getReceivedMessages(user, onlyUnreadMessages, after, size);
+			return createOkResponse(user, messages, onlyUnreadMessagesStr, afterStr, size);
+		}
+	}
+
+	private HttpEntity<CollectionModel<MessageDto>> createOkResponse(User user, Slice<MessageDto> messages,
+			String onlyUnreadMessagesStr, String afterStr, int size)
+	{
+		CollectionModel<MessageDto> messagesResource = CollectionModel.of(
+				createResourceAssembler(createGoalIdMapping(user)).toCollectionModel(messages.getContent()),
+				getMessagesByCursorLinkBuilder(user.getId(), onlyUnreadMessagesStr, afterStr, size).withSelfRel().expand());
+		if (messages.hasNext())
+		{
+			String nextStr = MessageCursor.createInstance(messages.getContent().get(messages.getNumberOfElements() - 1))
+					.encode();
+			messagesResource.add(getMessagesByCursorLinkBuilder(user.getId(), onlyUnreadMessagesStr, nextStr, size)
+					.withRel(IanaLinkRelations.NEXT));
+		}
+		return new ResponseEntity<>(messagesResource, HttpStatus.OK);
+	}
+
 	@GetMapping(value = "/{messageId}")
 	@ResponseBody
 	public HttpEntity<MessageDto> getMessage(@RequestHeader(value = PASSWORD_HEADER) Optional<String> password,
@@ -199,6 +248,20 @@ public class MessageController extends ControllerBase
 		return linkBuilder.withRel("messages").expand();
 	}
 
+	public static Link getMessagesByCursorLink(UUID userId)
+	{
+		WebMvcLinkBuilder linkBuilder = linkTo(
+				methodOn(MessageController.class).getMessagesByCursor(Optional.empty(), null, null, null, userId));
+		return linkBuilder.withRel(MESSAGES_BY_CURSOR_REL).expand();
+	}
+
+	private static WebMvcLinkBuilder getMessagesByCursorLinkBuilder(UUID userId, String onlyUnreadMessagesStr, String afterStr,
+			int size)
+	{
+		MessageController methodOn = methodOn(MessageController.class);
+		return linkTo(methodOn.getMessagesByCursor(Optional.empty(), onlyUnreadMessagesStr, afterStr, size, userId));
+	}
+
 	UserActivityController getUserActivityController()
 	{
 		return userActivityController;
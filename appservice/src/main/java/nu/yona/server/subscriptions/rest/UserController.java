@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2021 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.subscriptions.rest;
@@ -746,6 +746,7 @@ public class UserController extends ControllerBase
 		private void addMessagesLink(UserResource userResource)
 		{
 			userResource.add(MessageController.getMessagesLink(userResource.getContent().getId()));
+			userResource.add(MessageController.getMessagesByCursorLink(userResource.getContent().getId()));
 		}
 
 		private void addNewDeviceRequestLink(UserResource userResource)
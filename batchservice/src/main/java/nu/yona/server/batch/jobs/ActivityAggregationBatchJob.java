@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2017, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * Copyright (c) 2017, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
  * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.batch.jobs;
@@ -122,7 +122,11 @@ public class ActivityAggregationBatchJob
 				DayActivity dayActivity = dayActivityRepository.findById(dayActivityId)
 						.orElseThrow(() -> InvalidDataException.missingEntity(DayActivity.class, dayActivityId));
 
-				dayActivity.computeAggregates();
+				if (!dayActivity.verifyAggregates())
+				{
+					logger.warn("Repaired the maintained aggregates of day activity with id {} and start date {}", dayActivityId,
+							dayActivity.getStartDate());
+				}
 				return dayActivity;
 			}
 		};
@@ -154,7 +158,11 @@ public class ActivityAggregationBatchJob
 				WeekActivity weekActivity = weekActivityRepository.findById(weekActivityId)
 						.orElseThrow(() -> InvalidDataException.missingEntity(WeekActivity.class, weekActivityId));
 
-				weekActivity.computeAggregates();
+				if (!weekActivity.verifyAggregates())
+				{
+					logger.warn("Repaired the maintained aggregates of week activity with id {} and start date {}", weekActivityId,
+							weekActivity.getStartDate());
+				}
 				return weekActivity;
 			}
 		};
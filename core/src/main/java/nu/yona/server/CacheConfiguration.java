@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2018-2022 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * Copyright (c) 2018-2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
  * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server;
@@ -8,19 +8,25 @@ import java.io.IOException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.CacheManager;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.hazelcast.client.HazelcastClient;
 import com.hazelcast.client.config.XmlClientConfigBuilder;
 import com.hazelcast.config.Config;
+import com.hazelcast.config.EvictionPolicy;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.MaxSizePolicy;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.spring.cache.HazelcastCacheManager;
 
 import nu.yona.server.exceptions.YonaException;
+import nu.yona.server.properties.DistributedCacheProperties;
+import nu.yona.server.properties.LocalCacheProperties;
 import nu.yona.server.properties.YonaProperties;
 
 @Configuration
@@ -33,9 +39,24 @@ public class CacheConfiguration
 	@Primary
 	public CacheManager cacheManager(HazelcastInstance hazelcastInstance)
 	{
+		yonaProperties.getDistributedCache().getCaches()
+				.forEach((name, bounds) -> hazelcastInstance.getConfig().addMapConfig(createMapConfig(name, bounds)));
 		return new HazelcastCacheManager(hazelcastInstance);
 	}
 
+	/**
+	 * Creates the configuration of the Hazelcast map that backs a distributed cache. It is added as dynamic configuration, so it
+	 * also applies when connecting as client to an external cluster, provided that the map was not created before.
+	 */
+	private static MapConfig createMapConfig(String name, DistributedCacheProperties.CacheBounds bounds)
+	{
+		MapConfig mapConfig = new MapConfig(name);
+		mapConfig.setMaxIdleSeconds((int) bounds.getMaxIdleTime().toSeconds());
+		mapConfig.getEvictionConfig().setEvictionPolicy(EvictionPolicy.LRU).setMaxSizePolicy(MaxSizePolicy.PER_NODE)
+				.setSize(bounds.getMaxEntriesPerMember());
+		return mapConfig;
+	}
+
 	@Bean
 	public HazelcastInstance hazelcastInstance()
 	{
@@ -74,9 +95,25 @@ public class CacheConfiguration
 		}
 	}
 
+	/**
+	 * Cache manager for caches that are local to a service instance. The caches are bounded in size and time, as configured in
+	 * {@link LocalCacheProperties}, and they record statistics, so their hits, misses and evictions can be published as metrics.
+	 *
+	 * @return The local cache manager
+	 */
 	@Bean
 	public CacheManager localCache()
 	{
-		return new ConcurrentMapCacheManager();
+		LocalCacheProperties localCacheProperties = yonaProperties.getLocalCache();
+		CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+		cacheManager.setCaffeine(createCacheBuilder(localCacheProperties.getDefaults()));
+		localCacheProperties.getCaches()
+				.forEach((name, bounds) -> cacheManager.registerCustomCache(name, createCacheBuilder(bounds).build()));
+		return cacheManager;
+	}
+
+	private static Caffeine<Object, Object> createCacheBuilder(LocalCacheProperties.CacheBounds bounds)
+	{
+		return Caffeine.newBuilder().maximumSize(bounds.getMaxEntries()).expireAfterWrite(bounds.getTimeToLive()).recordStats();
 	}
 }
\ No newline at end of file
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2021 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server;
@@ -35,8 +35,12 @@ import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.firebase.messaging.FirebaseMessaging;
 
+import jakarta.annotation.PostConstruct;
+import nu.yona.server.crypto.pubkey.PublicKeyDecryptor;
+import nu.yona.server.crypto.seckey.CryptoSession;
 import nu.yona.server.entities.RepositoryProvider;
 import nu.yona.server.exceptions.YonaException;
+import nu.yona.server.properties.SecurityProperties;
 import nu.yona.server.properties.YonaProperties;
 import nu.yona.server.rest.JsonRootLinkRelationProvider;
 
@@ -52,6 +56,42 @@ public class CoreConfiguration
 	@Autowired
 	private YonaProperties yonaProperties;
 
+	@PostConstruct
+	private void configureDecryptionInfoCache()
+	{
+		SecurityProperties securityProperties = yonaProperties.getSecurity();
+		if (securityProperties.isDecryptionInfoCacheEnabled())
+		{
+			logger.info("Caching decryption info for at most {} messages", securityProperties.getDecryptionInfoCacheMaxEntries());
+			PublicKeyDecryptor.enableDecryptionInfoCache(securityProperties.getDecryptionInfoCacheMaxEntries(),
+					securityProperties.getDecryptionInfoCacheTimeToLive());
+		}
+	}
+
+	@PostConstruct
+	private void configureDerivedKeyCache()
+	{
+		SecurityProperties securityProperties = yonaProperties.getSecurity();
+		if (securityProperties.isDerivedKeyCacheEnabled())
+		{
+			logger.info("Caching the derived secret keys of at most {} passwords",
+					securityProperties.getDerivedKeyCacheMaxEntries());
+			CryptoSession.enableDerivedKeyCache(securityProperties.getDerivedKeyCacheMaxEntries(),
+					securityProperties.getDerivedKeyCacheTimeToLive());
+		}
+	}
+
+	@PostConstruct
+	private void configureParallelDecryption()
+	{
+		int decryptionThreadCount = yonaProperties.getSecurity().getDecryptionThreadCount();
+		if (decryptionThreadCount > 0)
+		{
+			logger.info("Decrypting the decryption info of messages on {} threads", decryptionThreadCount);
+			PublicKeyDecryptor.enableParallelDecryption(decryptionThreadCount);
+		}
+	}
+
 	@Bean
 	LinkRelationProvider relProvider()
 	{
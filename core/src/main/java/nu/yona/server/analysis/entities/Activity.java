@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.entities;
@@ -91,13 +91,6 @@ public class Activity extends EntityWithId
 		return startTime.atZone(timeZone);
 	}
 
-	public void setStartTime(LocalDateTime startTime)
-	{
-		this.startTime = startTime;
-
-		dayActivity.resetAggregatesComputed();
-	}
-
 	public LocalDateTime getEndTime()
 	{
 		return endTime;
@@ -108,11 +101,16 @@ public class Activity extends EntityWithId
 		return endTime.atZone(timeZone);
 	}
 
-	public void setEndTime(LocalDateTime endTime)
+	/**
+	 * Sets the start and end time of this activity. Both are set at once, so the day activity updates its aggregates only once.
+	 */
+	public void setTimes(LocalDateTime startTime, LocalDateTime endTime)
 	{
+		LocalDateTime previousStartTime = this.startTime;
+		this.startTime = startTime;
 		this.endTime = endTime;
 
-		dayActivity.resetAggregatesComputed();
+		dayActivity.activityTimesChanged(this, previousStartTime);
 	}
 
 	public int getDurationMinutes()
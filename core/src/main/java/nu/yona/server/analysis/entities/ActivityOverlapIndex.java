@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.analysis.entities;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+import nu.yona.server.entities.EntityWithUuid;
+
+/**
+ * In-memory index of the activities of a day activity, to find the activities of the same device and app that overlap with a
+ * given interval. Per device and app, the activities are kept sorted by start time. Only activities that start between the start
+ * of the interval minus the longest indexed duration and the end of the interval can overlap, so a lookup only scans those.
+ * <br/>
+ * The index is not thread safe, just like the entity that holds it.
+ */
+class ActivityOverlapIndex
+{
+	private final Map<IndexKey, IndexEntry> entries = new HashMap<>();
+
+	private ActivityOverlapIndex()
+	{
+	}
+
+	static ActivityOverlapIndex createInstance(List<Activity> activities)
+	{
+		ActivityOverlapIndex index = new ActivityOverlapIndex();
+		activities.forEach(index::add);
+		return index;
+	}
+
+	void add(Activity activity)
+	{
+		entries.computeIfAbsent(IndexKey.createInstance(activity), k -> new IndexEntry()).add(activity);
+	}
+
+	/**
+	 * Repositions the given activity after its start or end time changed.
+	 */
+	void update(Activity activity, LocalDateTime previousStartTime)
+	{
+		IndexEntry entry = entries.get(IndexKey.createInstance(activity));
+		if (entry == null || !entry.remove(activity, previousStartTime))
+		{
+			throw new IllegalStateException("Activity " + activity + " is not indexed");
+		}
+		entry.add(activity);
+	}
+
+	/**
+	 * Returns the activities of the given device and app that overlap with the given interval, in order of start time. Activities
+	 * that only touch the interval are included.
+	 */
+	List<Activity> findOverlapping(UUID deviceAnonymizedId, Optional<String> app, LocalDateTime startTime,
+			LocalDateTime endTime)
+	{
+		IndexEntry entry = entries.get(new IndexKey(deviceAnonymizedId, app.orElse(null)));
+		if (entry == null)
+		{
+			return Collections.emptyList();
+		}
+		return entry.findOverlapping(startTime, endTime);
+	}
+
+	private static class IndexEntry
+	{
+		private final List<Activity> activitiesByStartTime = new ArrayList<>();
+		// Only grows, so after an update it can be longer than needed, which only widens the scanned range
+		private Duration maxDuration = Duration.ZERO;
+
+		void add(Activity activity)
+		{
+			activitiesByStartTime.add(findFirstIndexStartingAtOrAfter(activity.getStartTime()), activity);
+			Duration duration = Duration.between(activity.getStartTime(), activity.getEndTime());
+			if (duration.compareTo(maxDuration) > 0)
+			{
+				maxDuration = duration;
+			}
+		}
+
+		boolean remove(Activity activity, LocalDateTime startTime)
+		{
+			for (int i = findFirstIndexStartingAtOrAfter(startTime); i < activitiesByStartTime.size()
+					&& activitiesByStartTime.get(i).getStartTime().equals(startTime); i++)
+			{
+				if (activitiesByStartTime.get(i) == activity)
+				{
+					activitiesByStartTime.remove(i);
+					return true;
+				}
+			}
+			return false;
+		}
+
+		List<Activity> findOverlapping(LocalDateTime startTime, LocalDateTime endTime)
+		{
+			LocalDateTime earliestPossibleStartTime = startTime.minus(maxDuration);
+			List<Activity> result = new ArrayList<>(1);
+			for (int i = findFirstIndexStartingAtOrAfter(earliestPossibleStartTime); i < activitiesByStartTime.size(); i++)
+			{
+				Activity activity = activitiesByStartTime.get(i);
+				if (activity.getStartTime().isAfter(endTime))
+				{
+					break;
+				}
+				if (!activity.getEndTime().isBefore(startTime))
+				{
+					result.add(activity);
+				}
+			}
+			return result;
+		}
+
+		private int findFirstIndexStartingAtOrAfter(LocalDateTime startTime)
+		{
+			int low = 0;
+			int high = activitiesByStartTime.size();
+			while (low < high)
+			{
+				int middle = (low + high) >>> 1;
+				if (activitiesByStartTime.get(middle).getStartTime().isBefore(startTime))
+				{
+					low = middle + 1;
+				}
+				else
+				{
+					high = middle;
+				}
+			}
+			return low;
+		}
+	}
+
+	private static class IndexKey
+	{
+		private final UUID deviceAnonymizedId;
+		private final String app;
+
+		IndexKey(UUID deviceAnonymizedId, String app)
+		{
+			this.deviceAnonymizedId = deviceAnonymizedId;
+			this.app = app;
+		}
+
+		static IndexKey createInstance(Activity activity)
+		{
+			// Do not load the device, only its ID is needed
+			UUID deviceAnonymizedId = activity.getDeviceAnonymized().map(EntityWithUuid::getIdWithoutLoadingEntity)
+					.orElse(null);
+			return new IndexKey(deviceAnonymizedId, activity.getApp().orElse(null));
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if (this == other)
+			{
+				return true;
+			}
+			if (!(other instanceof IndexKey))
+			{
+				return false;
+			}
+			IndexKey otherKey = (IndexKey) other;
+			return Objects.equals(deviceAnonymizedId, otherKey.deviceAnonymizedId) && Objects.equals(app, otherKey.app);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash(deviceAnonymizedId, app);
+		}
+	}
+}
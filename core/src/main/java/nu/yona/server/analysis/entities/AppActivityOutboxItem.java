@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.analysis.entities;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.hibernate.annotations.JdbcTypeCode;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import nu.yona.server.entities.EntityWithId;
+import nu.yona.server.entities.RepositoryProvider;
+import nu.yona.server.util.TimeUtil;
+
+/*
+ * App activities received by the app service that still need to be delivered to the analysis service.
+ */
+@Entity
+@Table(name = "APP_ACTIVITY_OUTBOX")
+public class AppActivityOutboxItem extends EntityWithId
+{
+	@JdbcTypeCode(java.sql.Types.VARCHAR)
+	private UUID userAnonymizedId;
+
+	@JdbcTypeCode(java.sql.Types.VARCHAR)
+	private UUID deviceAnonymizedId;
+
+	@Lob
+	private String appActivitiesJson;
+
+	private LocalDateTime receivedTime;
+
+	private LocalDateTime nextAttemptTime;
+
+	private int attemptCount;
+
+	// Default constructor is required for JPA
+	public AppActivityOutboxItem()
+	{
+		super();
+	}
+
+	private AppActivityOutboxItem(UUID userAnonymizedId, UUID deviceAnonymizedId, String appActivitiesJson,
+			LocalDateTime receivedTime)
+	{
+		this.userAnonymizedId = userAnonymizedId;
+		this.deviceAnonymizedId = deviceAnonymizedId;
+		this.appActivitiesJson = appActivitiesJson;
+		this.receivedTime = receivedTime;
+		this.nextAttemptTime = receivedTime;
+	}
+
+	public static AppActivityOutboxItemRepository getRepository()
+	{
+		return (AppActivityOutboxItemRepository) RepositoryProvider.getRepository(AppActivityOutboxItem.class, Long.class);
+	}
+
+	public static AppActivityOutboxItem createInstance(UUID userAnonymizedId, UUID deviceAnonymizedId, String appActivitiesJson)
+	{
+		return new AppActivityOutboxItem(userAnonymizedId, deviceAnonymizedId, appActivitiesJson, TimeUtil.utcNow());
+	}
+
+	public UUID getUserAnonymizedId()
+	{
+		return userAnonymizedId;
+	}
+
+	public UUID getDeviceAnonymizedId()
+	{
+		return deviceAnonymizedId;
+	}
+
+	public String getAppActivitiesJson()
+	{
+		return appActivitiesJson;
+	}
+
+	/**
+	 * @return The UTC time at which the app activities were received from the app
+	 */
+	public LocalDateTime getReceivedTime()
+	{
+		return receivedTime;
+	}
+
+	public LocalDateTime getNextAttemptTime()
+	{
+		return nextAttemptTime;
+	}
+
+	public int getAttemptCount()
+	{
+		return attemptCount;
+	}
+
+	/**
+	 * Claims this item for delivery, preventing other workers from picking it up till the given time.
+	 *
+	 * @param leaseEndTime The UTC time till which this item is claimed
+	 */
+	public void claim(LocalDateTime leaseEndTime)
+	{
+		nextAttemptTime = leaseEndTime;
+	}
+
+	public void registerFailedAttempt(LocalDateTime nextAttemptTime)
+	{
+		this.attemptCount++;
+		this.nextAttemptTime = nextAttemptTime;
+	}
+}
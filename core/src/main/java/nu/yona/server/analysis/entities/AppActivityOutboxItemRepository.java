@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.analysis.entities;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface AppActivityOutboxItemRepository extends CrudRepository<AppActivityOutboxItem, Long>
+{
+	// A lock timeout of -2 makes Hibernate add SKIP LOCKED, so concurrent workers (also in other app service instances) each claim
+	// different items. Only the oldest item of a user is returned, so the items of a user are delivered one by one, in order.
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+	@Query("select i from AppActivityOutboxItem i where i.nextAttemptTime <= :now and not exists (select o from AppActivityOutboxItem o where o.userAnonymizedId = i.userAnonymizedId and o.id < i.id) order by i.id")
+	List<AppActivityOutboxItem> findDueForUpdate(@Param("now") LocalDateTime now, Pageable pageable);
+}
@@ -1,14 +1,12 @@
 /*
- * Copyright (c) 2016, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.entities;
 
-import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalUnit;
@@ -31,7 +29,6 @@ import nu.yona.server.entities.RepositoryProvider;
 import nu.yona.server.goals.entities.Goal;
 import nu.yona.server.goals.entities.IGoal;
 import nu.yona.server.subscriptions.entities.UserAnonymized;
-import nu.yona.server.util.TimeUtil;
 
 @Entity
 public class DayActivity extends IntervalActivity
@@ -48,7 +45,10 @@ public class DayActivity extends IntervalActivity
 	private int totalMinutesBeyondGoal;
 
 	@Transient
-	private List<ActivityInterval> nonoverlappingActivityIntervals;
+	private DaySpreadSweep daySpreadSweep;
+
+	@Transient
+	private ActivityOverlapIndex activityOverlapIndex;
 
 	// Default constructor is required for JPA
 	public DayActivity()
@@ -61,6 +61,7 @@ public class DayActivity extends IntervalActivity
 		super(userAnonymized, goal, timeZone, startOfDay);
 
 		activities = new ArrayList<>();
+		storeAggregates(); // From now on, the aggregates are maintained as activities are added or updated
 	}
 
 	public static DayActivityRepository getRepository()
@@ -102,7 +103,50 @@ public class DayActivity extends IntervalActivity
 		activity.setDayActivity(this);
 		activity.setActivityCategory(getGoal().getActivityCategory());
 		this.activities.add(activity);
+		if (activityOverlapIndex != null)
+		{
+			activityOverlapIndex.add(activity);
+		}
+
+		activitiesChanged();
+	}
+
+	/**
+	 * Returns the activities of the given device and app that overlap with the given interval, in order of start time. This is
+	 * answered from an index that is built on first use and kept up to date as activities are added or updated.
+	 */
+	public List<Activity> findOverlappingActivitiesOfSameApp(UUID deviceAnonymizedId, Optional<String> app,
+			LocalDateTime startTime, LocalDateTime endTime)
+	{
+		if (activityOverlapIndex == null)
+		{
+			activityOverlapIndex = ActivityOverlapIndex.createInstance(activities);
+		}
+		return activityOverlapIndex.findOverlapping(deviceAnonymizedId, app, startTime, endTime);
+	}
+
+	void activityTimesChanged(Activity activity, LocalDateTime previousStartTime)
+	{
+		if (activityOverlapIndex != null)
+		{
+			activityOverlapIndex.update(activity, previousStartTime);
+		}
+		activitiesChanged();
+	}
+
+	private void activitiesChanged()
+	{
+		if (areAggregatesStored())
+		{
+			storeAggregates();
+		}
+		else if (weekActivity != null)
+		{
+			// Day activity from before the aggregates were maintained, so the change cannot be applied to the week either
+			weekActivity.discardStoredAggregates();
+		}
 
+		// Have the batch job verify the aggregates once the day is over
 		this.resetAggregatesComputed();
 	}
 
@@ -110,6 +154,7 @@ public class DayActivity extends IntervalActivity
 	protected void resetAggregatesComputed()
 	{
 		super.resetAggregatesComputed();
+		daySpreadSweep = null;
 
 		if (weekActivity == null)
 		{
@@ -130,120 +175,90 @@ public class DayActivity extends IntervalActivity
 	}
 
 	@Override
-	protected List<Integer> computeSpread()
+	protected Spread computeSpread()
 	{
-		List<Integer> result = getEmptySpread();
-		getNonoverlappingActivityIntervals().forEach(ai -> addToSpread(result, ai.startTime, ai.endTime));
-		return result;
+		return getDaySpreadSweep().getSpread();
 	}
 
-	private void addToSpread(List<Integer> spread, ZonedDateTime startTime, ZonedDateTime endTime)
+	@Override
+	public void setGoal(Goal goal)
 	{
-		// assumption:
-		// - activities never start before or end after the day
-		int spreadStartIndex = getSpreadIndex(startTime);
-		int spreadEndIndex = getSpreadIndex(endTime);
-		for (int spreadItemIndex = spreadStartIndex; spreadItemIndex <= spreadEndIndex; spreadItemIndex++)
+		super.setGoal(goal);
+		if (areAggregatesStored())
 		{
-			if (spreadItemIndex > 95)
-			{
-				// if the activity ends at 00:00, this is counted as spread index 96
-				// also, if the day has more than 24 hours, we ignore those extra hours in the spread
-				break;
-			}
-
-			int durationInSpreadItem = getDurationInSpreadItem(startTime, endTime, spreadStartIndex, spreadEndIndex,
-					spreadItemIndex);
-			spread.set(spreadItemIndex, spread.get(spreadItemIndex) + durationInSpreadItem);
+			storeGoalAggregates(goal);
 		}
 	}
 
-	private int getDurationInSpreadItem(ZonedDateTime startTime, ZonedDateTime endTime, int spreadStartIndex, int spreadEndIndex,
-			int spreadItemIndex)
+	/**
+	 * Stores the aggregates computed from the activities of this day. If aggregates were stored before, the difference is applied
+	 * to the stored aggregates of the week, so the week does not need to be recomputed from all its days.
+	 */
+	@Override
+	protected void storeAggregates()
 	{
-		if (spreadStartIndex == spreadEndIndex)
+		if (!areAggregatesStored() || weekActivity == null)
 		{
-			// Activity starts and ends inside the spread item
-			return (int) startTime.until(endTime, ChronoUnit.MINUTES);
-		}
-		else if (spreadItemIndex == spreadStartIndex)
-		{
-			// Activity starts in the spread item and ends at the end of this item or after it
-			return 15 - (startTime.getMinute() % 15);
-		}
-		else if (spreadItemIndex == spreadEndIndex)
-		{
-			// Activity starts at the begin of the spread item or before it and ends in this spread item
-			return (endTime.getMinute() % 15);
-		}
-		else
-		{
-			// Activity starts at the begin of the spread item or before it and ends at the end of this item or after it
-			return 15;
+			storeAggregatesFromActivities();
+			return;
 		}
+
+		Spread previousSpread = getSpread();
+		int previousTotalActivityDurationMinutes = getTotalActivityDurationMinutes();
+		storeAggregatesFromActivities();
+		weekActivity.dayAggregatesChanged(getSpread().subtract(previousSpread),
+				getTotalActivityDurationMinutes() - previousTotalActivityDurationMinutes);
 	}
 
-	private int getSpreadIndex(ZonedDateTime atTime)
+	private void storeAggregatesFromActivities()
 	{
-		// Convert to local date/time first, to ensure we always have exactly 24 hours in a day
-		// Otherwise, the days we move in or out of daylight saving time would have 23 or 25 hours
-		LocalDateTime atLocalTime = atTime.toLocalDateTime();
-		return (int) (Duration.between(getStartTime().toLocalDateTime(), atLocalTime).toMinutes() / 15);
+		daySpreadSweep = null; // Ensure blank slate
+		super.storeAggregates();
+		daySpreadSweep = null; // Free up memory
+
+		storeGoalAggregates(getGoal());
 	}
 
-	@Override
-	public void computeAggregates()
+	private void storeGoalAggregates(Goal goal)
 	{
-		nonoverlappingActivityIntervals = null; // Ensure blank slate
-		Goal goal = getGoal();
+		// The spread and total are stored now, so the goal is evaluated on those
 		totalMinutesBeyondGoal = computeTotalMinutesBeyondGoal(goal);
 		goalAccomplished = computeGoalAccomplished(goal);
-
-		super.computeAggregates();
-		nonoverlappingActivityIntervals = null; // Free up memory
 	}
 
-	private List<ActivityInterval> getNonoverlappingActivityIntervals()
+	@Override
+	public boolean verifyAggregates()
 	{
-		if (nonoverlappingActivityIntervals == null)
+		if (!areAggregatesStored())
 		{
-			List<Activity> sortedActivities = activities.stream()
-					.sorted((a1, a2) -> a1.getStartTime().compareTo(a2.getStartTime())).toList();
-			nonoverlappingActivityIntervals = determineNonoverlappingActivityIntervals(sortedActivities);
+			return super.verifyAggregates();
 		}
-		return nonoverlappingActivityIntervals;
+
+		boolean storedGoalAccomplished = goalAccomplished;
+		int storedTotalMinutesBeyondGoal = totalMinutesBeyondGoal;
+		boolean areStoredAggregatesCorrect = super.verifyAggregates();
+		return areStoredAggregatesCorrect && storedGoalAccomplished == goalAccomplished
+				&& storedTotalMinutesBeyondGoal == totalMinutesBeyondGoal;
 	}
 
-	private static List<ActivityInterval> determineNonoverlappingActivityIntervals(List<Activity> sortedActivities)
+	private DaySpreadSweep getDaySpreadSweep()
 	{
-		// activities of different apps in the same activity category may overlap
-		// or network activity and app activity may overlap
-
-		List<ActivityInterval> result = new ArrayList<>(sortedActivities.size());
-		ZonedDateTime previousEndTime = ZonedDateTime.of(LocalDateTime.MIN, ZoneOffset.UTC);
-		for (Activity activity : sortedActivities)
+		if (daySpreadSweep == null)
 		{
-			ZonedDateTime startTime = TimeUtil.max(previousEndTime, activity.getStartTimeAsZonedDateTime());
-			if (!startTime.isBefore(activity.getEndTimeAsZonedDateTime()))
-			{
-				// Activity fully overlaps previous one
-				continue;
-			}
-			result.add(new ActivityInterval(startTime, activity.getEndTimeAsZonedDateTime()));
-			previousEndTime = activity.getEndTimeAsZonedDateTime();
+			daySpreadSweep = DaySpreadSweep.createInstance(getStartTime().toLocalDateTime(), activities);
 		}
-		return result;
+		return daySpreadSweep;
 	}
 
 	@Override
 	protected int computeTotalActivityDurationMinutes()
 	{
-		return getNonoverlappingActivityIntervals().stream().map(ActivityInterval::getDurationMinutes).reduce(0, Integer::sum);
+		return getDaySpreadSweep().getTotalActivityDurationMinutes();
 	}
 
 	public int getTotalMinutesBeyondGoal(IGoal goal)
 	{
-		if (areAggregatesComputed())
+		if (areAggregatesStored())
 		{
 			return totalMinutesBeyondGoal;
 		}
@@ -258,7 +273,7 @@ public class DayActivity extends IntervalActivity
 
 	public boolean isGoalAccomplished(IGoal goal)
 	{
-		if (areAggregatesComputed())
+		if (areAggregatesStored())
 		{
 			return goalAccomplished;
 		}
@@ -270,22 +285,4 @@ public class DayActivity extends IntervalActivity
 	{
 		return goal.isGoalAccomplished(this);
 	}
-
-	private static class ActivityInterval
-	{
-		private final ZonedDateTime startTime;
-		private final ZonedDateTime endTime;
-
-		ActivityInterval(ZonedDateTime startTime, ZonedDateTime endTime)
-		{
-			assert !startTime.isAfter(endTime);
-			this.startTime = startTime;
-			this.endTime = endTime;
-		}
-
-		int getDurationMinutes()
-		{
-			return (int) Duration.between(startTime, endTime).toMinutes();
-		}
-	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.entities;
@@ -35,6 +35,18 @@ public interface DayActivityRepository extends CrudRepository<DayActivity, Long>
 	List<DayActivity> findAll(@Param("userAnonymizedId") UUID userAnonymizedId, @Param("goalIds") Set<UUID> goalIds,
 			@Param("dateFrom") LocalDate dateFrom, @Param("dateUntil") LocalDate dateUntil);
 
+	@Query("select new nu.yona.server.analysis.entities.IntervalActivitySummary(a.id, a.goal.id, a.weekActivity.id, a.timeZone, a.startDate, a.spread, a.totalActivityDurationMinutes, a.goalAccomplished, a.totalMinutesBeyondGoal) from DayActivity a where a.userAnonymized.id = :userAnonymizedId and a.goal.id in :goalIds and a.startDate >= :dateFrom and a.startDate < :dateUntil")
+	List<IntervalActivitySummary> findSummaries(@Param("userAnonymizedId") UUID userAnonymizedId,
+			@Param("goalIds") Set<UUID> goalIds, @Param("dateFrom") LocalDate dateFrom, @Param("dateUntil") LocalDate dateUntil);
+
+	@Query("select new nu.yona.server.analysis.entities.IntervalActivitySummary(a.id, a.goal.id, a.weekActivity.id, a.timeZone, a.startDate, a.spread, a.totalActivityDurationMinutes, a.goalAccomplished, a.totalMinutesBeyondGoal) from DayActivity a where a.userAnonymized.id in :userAnonymizedIds and a.goal.id in :goalIds and a.startDate >= :dateFrom and a.startDate < :dateUntil")
+	List<IntervalActivitySummary> findSummariesOfUsers(@Param("userAnonymizedIds") Set<UUID> userAnonymizedIds,
+			@Param("goalIds") Set<UUID> goalIds, @Param("dateFrom") LocalDate dateFrom, @Param("dateUntil") LocalDate dateUntil);
+
+	@Query("select new nu.yona.server.analysis.entities.IntervalActivitySummary(a.id, a.goal.id, a.weekActivity.id, a.timeZone, a.startDate, a.spread, a.totalActivityDurationMinutes, a.goalAccomplished, a.totalMinutesBeyondGoal) from DayActivity a where a.userAnonymized.id = :userAnonymizedId and a.startDate >= :dateFrom and a.startDate < :dateUntil")
+	List<IntervalActivitySummary> findSummaries(@Param("userAnonymizedId") UUID userAnonymizedId,
+			@Param("dateFrom") LocalDate dateFrom, @Param("dateUntil") LocalDate dateUntil);
+
 	@Modifying
 	@Query("delete from DayActivity a where a.userAnonymized.id = :userAnonymizedId")
 	void deleteAllForUser(@Param("userAnonymizedId") UUID userAnonymizedId);
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.analysis.entities;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Computes the spread and the total duration of the activities of a day in a single sweep over the activities, sorted by start
+ * time. Activities may overlap (e.g. activities of different apps in the same activity category, or network and app activity),
+ * so the sweep counts the union of their intervals. The interval end points are kept as epoch seconds (for the durations) and
+ * local epoch seconds (for the spread cells), so no intermediate objects are created per activity.<br/>
+ * The results are the same as when converting the activity times to zoned date/times: times in a daylight saving gap are
+ * shifted forward and times in an overlap get the earlier offset. Durations are truncated to whole minutes per interval. The
+ * spread cells are determined on the local time, so every day has exactly 96 cells, and an interval ending at midnight or
+ * extending beyond the 24th hour of the day is cut off at the last cell.
+ */
+class DaySpreadSweep
+{
+	private static final Comparator<Activity> START_TIME_ORDER = Comparator.comparing(Activity::getStartTime);
+	private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+	private static final int MINUTES_PER_CELL = 15;
+
+	private final long dayStartLocalEpochSecond;
+	private final int[] cells = new int[Spread.CELL_COUNT];
+	private int totalActivityDurationMinutes;
+
+	private DaySpreadSweep(LocalDateTime dayStart)
+	{
+		dayStartLocalEpochSecond = dayStart.toEpochSecond(ZoneOffset.UTC);
+	}
+
+	/**
+	 * Sweeps the given activities.
+	 *
+	 * @param dayStart The local start time of the day, as it is in the time zone of the day
+	 * @param activities The activities of the day, in any order
+	 * @return The completed sweep
+	 */
+	static DaySpreadSweep createInstance(LocalDateTime dayStart, List<Activity> activities)
+	{
+		DaySpreadSweep sweep = new DaySpreadSweep(dayStart);
+		sweep.sweep(activities);
+		return sweep;
+	}
+
+	Spread getSpread()
+	{
+		return Spread.wrap(cells);
+	}
+
+	int getTotalActivityDurationMinutes()
+	{
+		return totalActivityDurationMinutes;
+	}
+
+	private void sweep(List<Activity> activities)
+	{
+		Activity[] sortedActivities = activities.toArray(new Activity[0]);
+		Arrays.sort(sortedActivities, START_TIME_ORDER); // Stable, so activities with the same start time keep their order
+
+		boolean hasPrevious = false;
+		long previousEndEpochSecond = 0;
+		int previousEndNano = 0;
+		long previousEndLocalEpochSecond = 0;
+		String previousEndZoneId = null;
+		for (Activity activity : sortedActivities)
+		{
+			ZoneRules rules = activity.getTimeZone().getRules();
+			String zoneId = activity.getTimeZone().getId();
+			LocalDateTime activityStartTime = activity.getStartTime();
+			LocalDateTime activityEndTime = activity.getEndTime();
+
+			long startEpochSecond = toEpochSecond(activityStartTime, rules);
+			int startNano = activityStartTime.getNano();
+			long startLocalEpochSecond = toLocalEpochSecond(activityStartTime, rules);
+			if (hasPrevious && isLater(previousEndEpochSecond, previousEndNano, previousEndLocalEpochSecond, previousEndZoneId,
+					startEpochSecond, startNano, startLocalEpochSecond, zoneId))
+			{
+				// Activity starts before the previous one ended, so only count the remainder
+				startEpochSecond = previousEndEpochSecond;
+				startNano = previousEndNano;
+				startLocalEpochSecond = previousEndLocalEpochSecond;
+			}
+
+			long endEpochSecond = toEpochSecond(activityEndTime, rules);
+			int endNano = activityEndTime.getNano();
+			if (compareInstants(startEpochSecond, startNano, endEpochSecond, endNano) >= 0)
+			{
+				// Activity fully overlaps previous one
+				continue;
+			}
+			long endLocalEpochSecond = toLocalEpochSecond(activityEndTime, rules);
+			addInterval(startEpochSecond, startNano, startLocalEpochSecond, endEpochSecond, endNano, endLocalEpochSecond);
+
+			hasPrevious = true;
+			previousEndEpochSecond = endEpochSecond;
+			previousEndNano = endNano;
+			previousEndLocalEpochSecond = endLocalEpochSecond;
+			previousEndZoneId = zoneId;
+		}
+	}
+
+	private void addInterval(long startEpochSecond, int startNano, long startLocalEpochSecond, long endEpochSecond, int endNano,
+			long endLocalEpochSecond)
+	{
+		int durationMinutes = (int) (((endEpochSecond - startEpochSecond) * 1_000_000_000L + (endNano - startNano))
+				/ NANOS_PER_MINUTE);
+		totalActivityDurationMinutes += durationMinutes;
+
+		int startCellIndex = getCellIndex(startLocalEpochSecond);
+		int endCellIndex = getCellIndex(endLocalEpochSecond);
+		// If the activity ends at 00:00, this is counted as cell index 96
+		// Also, if the day has more than 24 hours, we ignore those extra hours in the spread
+		for (int cellIndex = startCellIndex; cellIndex <= endCellIndex && cellIndex < Spread.CELL_COUNT; cellIndex++)
+		{
+			cells[cellIndex] += getDurationInCell(durationMinutes, startLocalEpochSecond, endLocalEpochSecond, startCellIndex,
+					endCellIndex, cellIndex);
+		}
+	}
+
+	private static int getDurationInCell(int durationMinutes, long startLocalEpochSecond, long endLocalEpochSecond,
+			int startCellIndex, int endCellIndex, int cellIndex)
+	{
+		if (startCellIndex == endCellIndex)
+		{
+			// Activity starts and ends inside the cell
+			return durationMinutes;
+		}
+		else if (cellIndex == startCellIndex)
+		{
+			// Activity starts in the cell and ends at the end of this cell or after it
+			return MINUTES_PER_CELL - (getMinuteOfHour(startLocalEpochSecond) % MINUTES_PER_CELL);
+		}
+		else if (cellIndex == endCellIndex)
+		{
+			// Activity starts at the begin of the cell or before it and ends in this cell
+			return getMinuteOfHour(endLocalEpochSecond) % MINUTES_PER_CELL;
+		}
+		else
+		{
+			// Activity starts at the begin of the cell or before it and ends at the end of this cell or after it
+			return MINUTES_PER_CELL;
+		}
+	}
+
+	private int getCellIndex(long localEpochSecond)
+	{
+		// Based on the local time, to ensure we always have exactly 24 hours in a day
+		// Otherwise, the days we move in or out of daylight saving time would have 23 or 25 hours
+		return (int) ((localEpochSecond - dayStartLocalEpochSecond) / 60 / MINUTES_PER_CELL);
+	}
+
+	private static int getMinuteOfHour(long localEpochSecond)
+	{
+		return (int) Math.floorMod(Math.floorDiv(localEpochSecond, 60), 60);
+	}
+
+	private static long toEpochSecond(LocalDateTime localDateTime, ZoneRules rules)
+	{
+		// In a gap, this is the offset before the transition, which gives the same instant as shifting the time forward
+		return localDateTime.toEpochSecond(rules.getOffset(localDateTime));
+	}
+
+	private static long toLocalEpochSecond(LocalDateTime localDateTime, ZoneRules rules)
+	{
+		long localEpochSecond = localDateTime.toEpochSecond(ZoneOffset.UTC);
+		ZoneOffsetTransition transition = rules.getTransition(localDateTime);
+		if (transition != null && transition.isGap())
+		{
+			// The local time does not exist, so it is shifted forward by the length of the gap
+			localEpochSecond += transition.getDuration().getSeconds();
+		}
+		return localEpochSecond;
+	}
+
+	/**
+	 * Returns whether the first time is later than the second one, in the order of zoned date/times: first on the instant, then on
+	 * the local time and then on the zone ID.
+	 */
+	private static boolean isLater(long epochSecond, int nano, long localEpochSecond, String zoneId, long otherEpochSecond,
+			int otherNano, long otherLocalEpochSecond, String otherZoneId)
+	{
+		int instantComparison = compareInstants(epochSecond, nano, otherEpochSecond, otherNano);
+		if (instantComparison != 0)
+		{
+			return instantComparison > 0;
+		}
+		if (localEpochSecond != otherLocalEpochSecond)
+		{
+			return localEpochSecond > otherLocalEpochSecond;
+		}
+		return zoneId.compareTo(otherZoneId) > 0;
+	}
+
+	private static int compareInstants(long epochSecond, int nano, long otherEpochSecond, int otherNano)
+	{
+		int comparison = Long.compare(epochSecond, otherEpochSecond);
+		return (comparison != 0) ? comparison : Integer.compare(nano, otherNano);
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.entities;
@@ -9,9 +9,7 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalUnit;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -45,7 +43,7 @@ public abstract class IntervalActivity extends EntityWithId
 {
 	private static final Logger logger = LoggerFactory.getLogger(IntervalActivity.class);
 
-	public static final int SPREAD_COUNT = 96;
+	public static final int SPREAD_COUNT = Spread.CELL_COUNT;
 
 	@ManyToOne(fetch = FetchType.LAZY)
 	private UserAnonymized userAnonymized;
@@ -62,11 +60,18 @@ public abstract class IntervalActivity extends EntityWithId
 	 */
 	private LocalDate startDate;
 
+	/*
+	 * The spread and total are maintained as the activities change. The spread is null for interval activities that were created
+	 * before that was done and that have not been aggregated since
+	 */
 	@Column(length = SPREAD_COUNT)
 	private byte[] spread;
 
 	private int totalActivityDurationMinutes;
 
+	/*
+	 * Set when the aggregates of the completed interval are verified by the aggregation batch job
+	 */
 	private boolean aggregatesComputed;
 
 	// Default constructor for JPA
@@ -89,7 +94,7 @@ public abstract class IntervalActivity extends EntityWithId
 
 	protected abstract TemporalUnit getTimeUnit();
 
-	protected abstract List<Integer> computeSpread();
+	protected abstract Spread computeSpread();
 
 	protected abstract int computeTotalActivityDurationMinutes();
 
@@ -165,67 +170,86 @@ public abstract class IntervalActivity extends EntityWithId
 		return aggregatesComputed;
 	}
 
+	protected boolean areAggregatesStored()
+	{
+		return spread != null;
+	}
+
 	public void computeAggregates()
 	{
-		spread = spreadIntegersAsByteArray(computeSpread());
-		totalActivityDurationMinutes = computeTotalActivityDurationMinutes();
+		storeAggregates();
 		aggregatesComputed = true;
 	}
 
-	protected void resetAggregatesComputed()
+	/**
+	 * Recomputes the aggregates from scratch, to repair any drift in the incrementally maintained ones.
+	 *
+	 * @return true if the stored aggregates were equal to the recomputed ones or if there were none, false if they were repaired
+	 */
+	public boolean verifyAggregates()
 	{
-		if (aggregatesComputed)
+		if (!areAggregatesStored())
 		{
-			logger.info("Resetting aggregates computed on {} interval activity with id {} and start date {}", this.getTimeUnit(),
-					this.getId(), this.startDate);
-			aggregatesComputed = false;
+			computeAggregates();
+			return true;
 		}
+
+		byte[] storedSpread = spread;
+		int storedTotalActivityDurationMinutes = totalActivityDurationMinutes;
+		computeAggregates();
+		return Arrays.equals(storedSpread, spread) && storedTotalActivityDurationMinutes == totalActivityDurationMinutes;
 	}
 
-	public List<Integer> getSpread()
+	protected void storeAggregates()
 	{
-		if (areAggregatesComputed())
-		{
-			return Collections.unmodifiableList(spreadBytesAsIntegerList());
-		}
-
-		return computeSpread();
+		spread = computeSpread().toBytes();
+		totalActivityDurationMinutes = computeTotalActivityDurationMinutes();
 	}
 
-	public int getTotalActivityDurationMinutes()
+	/**
+	 * Applies a change in the aggregates to the stored ones, so they stay up to date without recomputing them from all activities.
+	 */
+	protected void addToStoredAggregates(Spread spreadDelta, int totalActivityDurationMinutesDelta)
 	{
-		if (areAggregatesComputed())
-		{
-			return totalActivityDurationMinutes;
-		}
+		assert areAggregatesStored();
 
-		return computeTotalActivityDurationMinutes();
+		spread = Spread.fromBytes(spread).add(spreadDelta).toBytes();
+		totalActivityDurationMinutes += totalActivityDurationMinutesDelta;
 	}
 
-	private List<Integer> spreadBytesAsIntegerList()
+	protected void discardStoredAggregates()
 	{
-		assert spread.length == SPREAD_COUNT;
+		spread = null;
+		totalActivityDurationMinutes = 0;
+	}
 
-		List<Integer> integers = new ArrayList<>(spread.length);
-		for (int i = 0; (i < spread.length); i++)
+	protected void resetAggregatesComputed()
+	{
+		if (aggregatesComputed)
 		{
-			integers.add((int) spread[i]);
+			logger.info("Resetting aggregates computed on {} interval activity with id {} and start date {}", this.getTimeUnit(),
+					this.getId(), this.startDate);
+			aggregatesComputed = false;
 		}
-		return integers;
 	}
 
-	private static byte[] spreadIntegersAsByteArray(List<Integer> spread)
+	public Spread getSpread()
 	{
-		byte[] bytes = new byte[spread.size()];
-		for (int i = 0; i < spread.size(); i++)
+		if (areAggregatesStored())
 		{
-			bytes[i] = (byte) spread.get(i).intValue();
+			return Spread.fromBytes(spread);
 		}
-		return bytes;
+
+		return computeSpread();
 	}
 
-	protected static List<Integer> getEmptySpread()
+	public int getTotalActivityDurationMinutes()
 	{
-		return new ArrayList<>(Collections.nCopies(96, 0));
+		if (areAggregatesStored())
+		{
+			return totalActivityDurationMinutes;
+		}
+
+		return computeTotalActivityDurationMinutes();
 	}
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.analysis.entities;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * The stored aggregates of a day or week activity, as selected by the overview queries. These read the aggregate columns of the
+ * interval activity rows directly, so the entities, their goals and their activities are not loaded.
+ */
+public class IntervalActivitySummary
+{
+	private final long id;
+	private final UUID goalId;
+	private final Long weekActivityId;
+	private final ZoneId timeZone;
+	private final LocalDate startDate;
+	private final byte[] spread;
+	private final int totalActivityDurationMinutes;
+	private final boolean goalAccomplished;
+	private final int totalMinutesBeyondGoal;
+
+	/**
+	 * Creates the summary of a day activity.
+	 */
+	public IntervalActivitySummary(long id, UUID goalId, Long weekActivityId, ZoneId timeZone, LocalDate startDate,
+			byte[] spread, int totalActivityDurationMinutes, boolean goalAccomplished, int totalMinutesBeyondGoal)
+	{
+		this.id = id;
+		this.goalId = goalId;
+		this.weekActivityId = weekActivityId;
+		this.timeZone = timeZone;
+		this.startDate = startDate;
+		this.spread = spread;
+		this.totalActivityDurationMinutes = totalActivityDurationMinutes;
+		this.goalAccomplished = goalAccomplished;
+		this.totalMinutesBeyondGoal = totalMinutesBeyondGoal;
+	}
+
+	/**
+	 * Creates the summary of a week activity.
+	 */
+	public IntervalActivitySummary(long id, UUID goalId, ZoneId timeZone, LocalDate startDate, byte[] spread,
+			int totalActivityDurationMinutes)
+	{
+		this(id, goalId, null, timeZone, startDate, spread, totalActivityDurationMinutes, false, 0);
+	}
+
+	public long getId()
+	{
+		return id;
+	}
+
+	public UUID getGoalId()
+	{
+		return goalId;
+	}
+
+	public Optional<Long> getWeekActivityId()
+	{
+		return Optional.ofNullable(weekActivityId);
+	}
+
+	public LocalDate getStartDate()
+	{
+		return startDate;
+	}
+
+	public ZonedDateTime getStartTime()
+	{
+		return startDate.atStartOfDay().atZone(timeZone);
+	}
+
+	/**
+	 * Returns whether the aggregates are stored. If not, the interval activity was created before the aggregates were maintained
+	 * and it was not aggregated since, so the aggregates need to be computed from the entity.
+	 */
+	public boolean areAggregatesStored()
+	{
+		return spread != null;
+	}
+
+	public Spread getSpread()
+	{
+		return Spread.fromBytes(spread);
+	}
+
+	public int getTotalActivityDurationMinutes()
+	{
+		return totalActivityDurationMinutes;
+	}
+
+	public boolean isGoalAccomplished()
+	{
+		return goalAccomplished;
+	}
+
+	public int getTotalMinutesBeyondGoal()
+	{
+		return totalMinutesBeyondGoal;
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.analysis.entities;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable distribution of activity minutes over the 96 quarters of an hour of a day. For a week, the cells hold the sum over
+ * its days. The cells are held in a primitive array and all operations are plain counted loops over it, so they do not box and
+ * the JIT can vectorize them.
+ */
+public final class Spread
+{
+	public static final int CELL_COUNT = 96;
+
+	private static final Spread EMPTY = new Spread(new int[CELL_COUNT]);
+
+	private final int[] cells;
+
+	private Spread(int[] cells)
+	{
+		assert cells.length == CELL_COUNT;
+		this.cells = cells;
+	}
+
+	public static Spread empty()
+	{
+		return EMPTY;
+	}
+
+	public static Spread createInstance(int[] cells)
+	{
+		if (cells.length != CELL_COUNT)
+		{
+			throw new IllegalArgumentException("A spread must have " + CELL_COUNT + " cells, not " + cells.length);
+		}
+		return new Spread(cells.clone());
+	}
+
+	/**
+	 * Creates a spread that takes ownership of the given cells. The caller must not modify them anymore.
+	 */
+	static Spread wrap(int[] cells)
+	{
+		return new Spread(cells);
+	}
+
+	static Spread fromBytes(byte[] bytes)
+	{
+		assert bytes.length == CELL_COUNT;
+
+		int[] cells = new int[CELL_COUNT];
+		for (int i = 0; i < CELL_COUNT; i++)
+		{
+			cells[i] = bytes[i];
+		}
+		return new Spread(cells);
+	}
+
+	byte[] toBytes()
+	{
+		byte[] bytes = new byte[CELL_COUNT];
+		for (int i = 0; i < CELL_COUNT; i++)
+		{
+			bytes[i] = (byte) cells[i];
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns the cell-wise sum of the given spreads, accumulating in a single array.
+	 */
+	public static Spread sum(Collection<Spread> spreads)
+	{
+		int[] sum = new int[CELL_COUNT];
+		for (Spread spread : spreads)
+		{
+			int[] other = spread.cells;
+			for (int i = 0; i < CELL_COUNT; i++)
+			{
+				sum[i] += other[i];
+			}
+		}
+		return new Spread(sum);
+	}
+
+	public Spread add(Spread other)
+	{
+		int[] sum = new int[CELL_COUNT];
+		for (int i = 0; i < CELL_COUNT; i++)
+		{
+			sum[i] = cells[i] + other.cells[i];
+		}
+		return new Spread(sum);
+	}
+
+	public Spread subtract(Spread other)
+	{
+		int[] difference = new int[CELL_COUNT];
+		for (int i = 0; i < CELL_COUNT; i++)
+		{
+			difference[i] = cells[i] - other.cells[i];
+		}
+		return new Spread(difference);
+	}
+
+	/**
+	 * Returns a copy of this spread in which the cells with the given indexes are zero.
+	 *
+	 * @param cellIndexes The indexes of the cells to clear, as stored for time zone goals
+	 * @return The masked spread
+	 */
+	public Spread withCellsCleared(byte[] cellIndexes)
+	{
+		int[] masked = cells.clone();
+		for (byte cellIndex : cellIndexes)
+		{
+			masked[cellIndex] = 0;
+		}
+		return new Spread(masked);
+	}
+
+	public int get(int index)
+	{
+		return cells[index];
+	}
+
+	public int size()
+	{
+		return CELL_COUNT;
+	}
+
+	public int sum()
+	{
+		int sum = 0;
+		for (int i = 0; i < CELL_COUNT; i++)
+		{
+			sum += cells[i];
+		}
+		return sum;
+	}
+
+	public boolean isAnyCellPositive()
+	{
+		for (int i = 0; i < CELL_COUNT; i++)
+		{
+			if (cells[i] > 0)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int[] toArray()
+	{
+		return cells.clone();
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		return obj instanceof Spread other && Arrays.equals(cells, other.cells);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(cells);
+	}
+
+	@Override
+	public String toString()
+	{
+		return Arrays.toString(cells);
+	}
+}
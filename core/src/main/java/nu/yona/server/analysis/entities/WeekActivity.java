@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.entities;
@@ -42,6 +42,8 @@ public class WeekActivity extends IntervalActivity
 	private WeekActivity(UserAnonymized userAnonymized, Goal goal, ZoneId timeZone, LocalDate startOfWeek)
 	{
 		super(userAnonymized, goal, timeZone, startOfWeek);
+
+		storeAggregates(); // From now on, the aggregates are maintained as day activities are added or updated
 	}
 
 	public static WeekActivityRepository getRepository()
@@ -98,6 +100,7 @@ public class WeekActivity extends IntervalActivity
 
 		dayActivity.setWeekActivity(this);
 		dayActivities.add(dayActivity);
+		dayAggregatesChanged(dayActivity.getSpread(), dayActivity.getTotalActivityDurationMinutes());
 
 		this.resetAggregatesComputed();
 	}
@@ -106,22 +109,25 @@ public class WeekActivity extends IntervalActivity
 	{
 		dayActivities.forEach(da -> da.setWeekActivity(null));
 		dayActivities.clear();
-	}
 
-	@Override
-	protected List<Integer> computeSpread()
-	{
-		return getDayActivities().stream().map(DayActivity::getSpread).reduce(getEmptySpread(), this::sumSpread);
+		if (areAggregatesStored())
+		{
+			storeAggregates();
+		}
 	}
 
-	private List<Integer> sumSpread(List<Integer> one, List<Integer> other)
+	protected void dayAggregatesChanged(Spread spreadDelta, int totalActivityDurationMinutesDelta)
 	{
-		List<Integer> result = new ArrayList<>(IntervalActivity.SPREAD_COUNT);
-		for (int i = 0; i < IntervalActivity.SPREAD_COUNT; i++)
+		if (areAggregatesStored())
 		{
-			result.add(one.get(i) + other.get(i));
+			addToStoredAggregates(spreadDelta, totalActivityDurationMinutesDelta);
 		}
-		return result;
+	}
+
+	@Override
+	protected Spread computeSpread()
+	{
+		return Spread.sum(getDayActivities().stream().map(DayActivity::getSpread).toList());
 	}
 
 	@Override
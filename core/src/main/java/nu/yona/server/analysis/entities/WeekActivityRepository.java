@@ -1,10 +1,11 @@
 /*
- * Copyright (c) 2016, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.entities;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -33,6 +34,10 @@ public interface WeekActivityRepository extends CrudRepository<WeekActivity, Lon
 	Set<WeekActivity> findAll(@Param("userAnonymizedId") UUID userAnonymizedId, @Param("dateFrom") LocalDate dateFrom,
 			@Param("dateUntil") LocalDate dateUntil);
 
+	@Query("select new nu.yona.server.analysis.entities.IntervalActivitySummary(a.id, a.goal.id, a.timeZone, a.startDate, a.spread, a.totalActivityDurationMinutes) from WeekActivity a where a.userAnonymized.id = :userAnonymizedId and a.startDate >= :dateFrom and a.startDate < :dateUntil")
+	List<IntervalActivitySummary> findSummaries(@Param("userAnonymizedId") UUID userAnonymizedId,
+			@Param("dateFrom") LocalDate dateFrom, @Param("dateUntil") LocalDate dateUntil);
+
 	@Modifying
 	@Query("delete from WeekActivity a where a.userAnonymized.id = :userAnonymizedId")
 	void deleteAllForUser(@Param("userAnonymizedId") UUID userAnonymizedId);
@@ -1,9 +1,10 @@
 /*
- * Copyright (c) 2016, 2018 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.service;
 
+import java.io.Serializable;
 import java.time.ZonedDateTime;
 import java.util.Optional;
 import java.util.UUID;
@@ -21,20 +22,24 @@ import tools.jackson.databind.ValueSerializer;
 import tools.jackson.databind.annotation.JsonSerialize;
 
 @JsonRootName("activity")
-public class ActivityDto
+public class ActivityDto implements Serializable
 {
-	private final Optional<UUID> deviceAnonymizedId;
+	private static final long serialVersionUID = 5830231460536914342L;
+
+	// Stored as nullable values rather than optionals, as this DTO is cached in the distributed cache when the analysis service is
+	// scaled out
+	private final UUID deviceAnonymizedId;
 	private final ZonedDateTime startTime;
 	private final ZonedDateTime endTime;
-	private final Optional<String> app;
+	private final String app;
 
 	private ActivityDto(Optional<UUID> deviceAnonymizedId, ZonedDateTime startTime, ZonedDateTime endTime,
 			Optional<String> app)
 	{
-		this.deviceAnonymizedId = deviceAnonymizedId;
+		this.deviceAnonymizedId = deviceAnonymizedId.orElse(null);
 		this.startTime = startTime;
 		this.endTime = endTime;
-		this.app = app;
+		this.app = app.orElse(null);
 	}
 
 	static ActivityDto createInstance(Activity activity)
@@ -43,10 +48,15 @@ public class ActivityDto
 				activity.getStartTimeAsZonedDateTime(), activity.getEndTimeAsZonedDateTime(), activity.getApp());
 	}
 
+	ActivityDto withEndTime(ZonedDateTime endTime)
+	{
+		return new ActivityDto(getDeviceAnonymizedId(), startTime, endTime, getApp());
+	}
+
 	@JsonIgnore
 	public Optional<UUID> getDeviceAnonymizedId()
 	{
-		return deviceAnonymizedId;
+		return Optional.ofNullable(deviceAnonymizedId);
 	}
 
 	@JsonFormat(pattern = Constants.ISO_DATE_TIME_PATTERN)
@@ -64,7 +74,7 @@ public class ActivityDto
 	@JsonSerialize(using = EmptyOptionalAsEmptyStringSerializer.class)
 	public Optional<String> getApp()
 	{
-		return app;
+		return Optional.ofNullable(app);
 	}
 
 	public static class EmptyOptionalAsEmptyStringSerializer extends ValueSerializer<Optional<String>>
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.service;
@@ -13,6 +13,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +37,7 @@ import nu.yona.server.analysis.entities.ActivityCommentMessage;
 import nu.yona.server.analysis.entities.DayActivity;
 import nu.yona.server.analysis.entities.DayActivityRepository;
 import nu.yona.server.analysis.entities.IntervalActivity;
+import nu.yona.server.analysis.entities.IntervalActivitySummary;
 import nu.yona.server.analysis.entities.WeekActivity;
 import nu.yona.server.analysis.entities.WeekActivityRepository;
 import nu.yona.server.analysis.service.IntervalActivityDto.LevelOfDetail;
@@ -102,123 +104,76 @@ public class ActivityService
 	{
 		UserDto user = userService.getUser(userId);
 		LocalDate creationDate = getUserCreationDate(user);
-		return executeAndCreateInactivityEntries(
-				mia -> getWeekActivityOverviews(user.getOwnPrivateData().getUserAnonymizedId(), creationDate, pageable, mia));
+		return getWeekActivityOverviews(user.getOwnPrivateData().getUserAnonymizedId(), creationDate, pageable);
 	}
 
 	@Transactional
 	public WeekActivityOverviewDto getUserWeekActivityOverview(UUID userId, LocalDate date)
 	{
 		LocalDate creationDate = getUserCreationDate(userId);
-		return executeAndCreateInactivityEntries(
-				mia -> getWeekActivityOverview(userService.getUserAnonymizedId(userId), creationDate, date, mia));
+		return getWeekActivityOverview(userService.getUserAnonymizedId(userId), creationDate, date);
 	}
 
 	@Transactional
 	public Page<WeekActivityOverviewDto> getBuddyWeekActivityOverviews(BuddyDto buddy, Pageable pageable)
 	{
-		return executeAndCreateInactivityEntries(
-				mia -> getWeekActivityOverviews(getBuddyUserAnonymizedId(buddy), buddy.getLastStatusChangeTime().toLocalDate(),
-						pageable, mia));
+		return getWeekActivityOverviews(getBuddyUserAnonymizedId(buddy), buddy.getLastStatusChangeTime().toLocalDate(),
+				pageable);
 	}
 
 	@Transactional
 	public WeekActivityOverviewDto getBuddyWeekActivityOverview(BuddyDto buddy, LocalDate date)
 	{
-		return executeAndCreateInactivityEntries(
-				mia -> getWeekActivityOverview(getBuddyUserAnonymizedId(buddy), buddy.getLastStatusChangeTime().toLocalDate(),
-						date, mia));
-	}
-
-	private <T> T executeAndCreateInactivityEntries(Function<Set<IntervalInactivityDto>, T> executor)
-	{
-		Set<IntervalInactivityDto> missingInactivities = new HashSet<>();
-		// Execute the method that finds missing inactivities
-		T retVal = executor.apply(missingInactivities);
-
-		createInactivityEntities(missingInactivities);
-
-		return retVal;
-	}
-
-	private void createInactivityEntities(Set<IntervalInactivityDto> missingInactivities)
-	{
-		Map<UUID, Set<IntervalInactivityDto>> activitiesByUserAnonymizedId = missingInactivities.stream()
-				.collect(Collectors.groupingBy(mia -> mia.getUserAnonymizedId().get(), Collectors.toSet()));
-
-		activitiesByUserAnonymizedId.forEach((u, mias) -> analysisEngineProxyService.createInactivityEntities(u, mias));
+		return getWeekActivityOverview(getBuddyUserAnonymizedId(buddy), buddy.getLastStatusChangeTime().toLocalDate(), date);
 	}
 
 	private Page<WeekActivityOverviewDto> getWeekActivityOverviews(UUID userAnonymizedId, LocalDate earliestPossibleDate,
-			Pageable pageable, Set<IntervalInactivityDto> missingInactivities)
+			Pageable pageable)
 	{
 		UserAnonymizedDto userAnonymized = userAnonymizedService.getUserAnonymized(userAnonymizedId);
 		Interval interval = getInterval(earliestPossibleDate, getCurrentWeekDate(userAnonymized), pageable, ChronoUnit.WEEKS);
 
 		List<WeekActivityOverviewDto> weekActivityOverviews = getWeekActivityOverviews(userAnonymizedId, earliestPossibleDate,
-				missingInactivities, userAnonymized, interval);
+				userAnonymized, interval);
 		return new PageImpl<>(weekActivityOverviews, pageable,
 				getTotalPageableItems(userAnonymized, earliestPossibleDate, ChronoUnit.WEEKS));
 	}
 
 	private List<WeekActivityOverviewDto> getWeekActivityOverviews(UUID userAnonymizedId, LocalDate earliestPossibleDate,
-			Set<IntervalInactivityDto> missingInactivities, UserAnonymizedDto userAnonymized, Interval interval)
+			UserAnonymizedDto userAnonymized, Interval interval)
 	{
-		Map<LocalDate, Set<WeekActivity>> weekActivityEntitiesByLocalDate = getWeekActivitiesGroupedByDate(userAnonymizedId,
-				interval);
-		Map<ZonedDateTime, Set<WeekActivity>> weekActivityEntitiesByZonedDate = mapToZonedDateTime(
-				weekActivityEntitiesByLocalDate);
-		Map<ZonedDateTime, Set<WeekActivityDto>> weekActivityDtosByZonedDate = mapWeekActivitiesToDtos(earliestPossibleDate,
-				weekActivityEntitiesByZonedDate, userAnonymized);
+		Map<ZonedDateTime, Set<WeekActivityDto>> weekActivityDtosByZonedDate = groupByStartTime(
+				getWeekActivities(userAnonymizedId, earliestPossibleDate, userAnonymized, interval));
 		addMissingInactivity(userAnonymized.getGoalsIncludingHistoryItems(), weekActivityDtosByZonedDate, interval,
 				ChronoUnit.WEEKS, userAnonymized,
-				(goal, startOfWeek) -> createAndSaveWeekInactivity(userAnonymized, earliestPossibleDate, goal, startOfWeek,
-						LevelOfDetail.WEEK_OVERVIEW, missingInactivities), Optional.of(
-						(g, wa) -> createAndSaveInactivityDays(userAnonymized, earliestPossibleDate,
-								userAnonymized.getGoalsForActivityCategory(g.getActivityCategory()), wa, missingInactivities)));
+				(goal, startOfWeek) -> createWeekInactivity(userAnonymized, earliestPossibleDate, goal, startOfWeek,
+						LevelOfDetail.WEEK_OVERVIEW), Optional.of((g, wa) -> createInactivityDays(userAnonymized, earliestPossibleDate,
+						userAnonymized.getGoalsForActivityCategory(g.getActivityCategory()), wa)));
 		return weekActivityDtosByZonedDate.entrySet().stream().sorted((e1, e2) -> e2.getKey().compareTo(e1.getKey()))
 				.map(e -> WeekActivityOverviewDto.createInstance(e.getKey(), e.getValue())).toList();
 	}
 
-	private WeekActivityOverviewDto getWeekActivityOverview(UUID userAnonymizedId, LocalDate earliestPossibleDate, LocalDate date,
-			Set<IntervalInactivityDto> missingInactivities)
+	private WeekActivityOverviewDto getWeekActivityOverview(UUID userAnonymizedId, LocalDate earliestPossibleDate, LocalDate date)
 	{
 		Interval interval = Interval.createWeekInterval(date);
 		assertDateNotTooEarly(interval.endDate, earliestPossibleDate);
 		UserAnonymizedDto userAnonymized = userAnonymizedService.getUserAnonymized(userAnonymizedId);
 
 		List<WeekActivityOverviewDto> weekActivityOverviews = getWeekActivityOverviews(userAnonymizedId, earliestPossibleDate,
-				missingInactivities, userAnonymized, interval);
+				userAnonymized, interval);
 		return weekActivityOverviews.get(0);
 	}
 
-	private Map<ZonedDateTime, Set<WeekActivityDto>> mapWeekActivitiesToDtos(LocalDate earliestPossibleDate,
-			Map<ZonedDateTime, Set<WeekActivity>> weekActivityEntitiesByLocalDate, UserAnonymizedDto userAnonymized)
-	{
-		return weekActivityEntitiesByLocalDate.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey,
-				e -> mapWeekActivitiesToDtos(earliestPossibleDate, e.getValue(), userAnonymized)));
-	}
-
-	private Set<WeekActivityDto> mapWeekActivitiesToDtos(LocalDate earliestPossibleDate, Set<WeekActivity> weekActivityEntities,
-			UserAnonymizedDto userAnonymized)
-	{
-		return weekActivityEntities.stream()
-				.map(e -> WeekActivityDto.createInstance(earliestPossibleDate, e, LevelOfDetail.WEEK_OVERVIEW, userAnonymized))
-				.collect(Collectors.toSet());
-	}
-
-	private WeekActivityDto createAndSaveWeekInactivity(UserAnonymizedDto userAnonymized, LocalDate earliestPossibleDate,
-			Goal goal, ZonedDateTime startOfWeek, LevelOfDetail levelOfDetail, Set<IntervalInactivityDto> missingInactivities)
+	private WeekActivityDto createWeekInactivity(UserAnonymizedDto userAnonymized, LocalDate earliestPossibleDate, Goal goal,
+			ZonedDateTime startOfWeek, LevelOfDetail levelOfDetail)
 	{
-		return WeekActivityDto.createInstanceInactivity(userAnonymized, earliestPossibleDate, goal, startOfWeek, levelOfDetail,
-				missingInactivities);
+		return WeekActivityDto.createInstanceInactivity(userAnonymized, earliestPossibleDate, goal, startOfWeek, levelOfDetail);
 	}
 
-	private void createAndSaveInactivityDays(UserAnonymizedDto userAnonymized, LocalDate earliestPossibleDate, Set<GoalDto> goals,
-			WeekActivityDto weekActivity, Set<IntervalInactivityDto> missingInactivities)
+	private void createInactivityDays(UserAnonymizedDto userAnonymized, LocalDate earliestPossibleDate, Set<GoalDto> goals,
+			WeekActivityDto weekActivity)
 	{
-		weekActivity.createRequiredInactivityDays(userAnonymized, earliestPossibleDate, goals, LevelOfDetail.WEEK_OVERVIEW,
-				missingInactivities);
+		weekActivity.createRequiredInactivityDays(userAnonymized, earliestPossibleDate, goals, LevelOfDetail.WEEK_OVERVIEW);
 	}
 
 	private long getTotalPageableItems(UserAnonymizedDto userAnonymized, Set<BuddyDto> buddies, ChronoUnit timeUnit)
@@ -252,18 +207,46 @@ public class ActivityService
 		}
 	}
 
-	private <T extends IntervalActivity> Map<ZonedDateTime, Set<T>> mapToZonedDateTime(
-			Map<LocalDate, Set<T>> intervalActivityEntitiesByLocalDate)
+	private <T extends IntervalActivityDto> Map<ZonedDateTime, Set<T>> groupByStartTime(Collection<T> intervalActivities)
 	{
-		return intervalActivityEntitiesByLocalDate.entrySet().stream()
-				.collect(Collectors.toMap(e -> e.getValue().iterator().next().getStartTime(), Map.Entry::getValue));
+		// Group by date first, so activities of goals that were recorded in different time zones end up in the same group
+		Map<LocalDate, Set<T>> intervalActivitiesByLocalDate = intervalActivities.stream()
+				.collect(Collectors.groupingBy(a -> a.getStartTime().toLocalDate(), Collectors.toSet()));
+		return intervalActivitiesByLocalDate.values().stream()
+				.collect(Collectors.toMap(a -> a.iterator().next().getStartTime(), Function.identity()));
 	}
 
-	private Map<LocalDate, Set<WeekActivity>> getWeekActivitiesGroupedByDate(UUID userAnonymizedId, Interval interval)
+	private List<WeekActivityDto> getWeekActivities(UUID userAnonymizedId, LocalDate earliestPossibleDate,
+			UserAnonymizedDto userAnonymized, Interval interval)
 	{
-		Set<WeekActivity> weekActivityEntities = weekActivityRepository.findAll(userAnonymizedId, interval.startDate,
+		List<IntervalActivitySummary> weekActivities = weekActivityRepository.findSummaries(userAnonymizedId, interval.startDate,
 				interval.endDate);
-		return weekActivityEntities.stream().collect(Collectors.groupingBy(IntervalActivity::getStartDate, Collectors.toSet()));
+		if (weekActivities.isEmpty())
+		{
+			return Collections.emptyList();
+		}
+		// The interval starts at the start of a week, so it covers all days of the weeks in it
+		Map<Long, List<DayActivityDto>> dayActivitiesByWeekActivityId = dayActivityRepository
+				.findSummaries(userAnonymizedId, interval.startDate, interval.endDate).stream()
+				.filter(d -> d.getWeekActivityId().isPresent()).collect(Collectors.groupingBy(d -> d.getWeekActivityId().get(),
+						Collectors.mapping(d -> createDayActivityDto(earliestPossibleDate, d, LevelOfDetail.WEEK_OVERVIEW,
+								userAnonymized), Collectors.toList())));
+		return weekActivities.stream().map(w -> WeekActivityDto.createInstance(earliestPossibleDate, w,
+				dayActivitiesByWeekActivityId.getOrDefault(w.getId(), Collections.emptyList()), LevelOfDetail.WEEK_OVERVIEW,
+				userAnonymized)).toList();
+	}
+
+	private DayActivityDto createDayActivityDto(LocalDate earliestPossibleDate, IntervalActivitySummary dayActivity,
+			LevelOfDetail levelOfDetail, UserAnonymizedDto userAnonymized)
+	{
+		if (dayActivity.areAggregatesStored())
+		{
+			return DayActivityDto.createInstance(earliestPossibleDate, dayActivity, levelOfDetail, userAnonymized);
+		}
+		// Created before the aggregates were maintained and not aggregated since, so compute them from the entity
+		DayActivity dayActivityEntity = dayActivityRepository.findById(dayActivity.getId())
+				.orElseThrow(() -> InvalidDataException.missingEntity(DayActivity.class, dayActivity.getId()));
+		return DayActivityDto.createInstance(earliestPossibleDate, dayActivityEntity, levelOfDetail, userAnonymized);
 	}
 
 	@Transactional
@@ -271,15 +254,13 @@ public class ActivityService
 	{
 		UserDto user = userService.getUser(userId);
 		LocalDate creationDate = getUserCreationDate(user);
-		return executeAndCreateInactivityEntries(
-				mia -> getDayActivityOverviews(user.getOwnPrivateData().getUserAnonymizedId(), creationDate, pageable, mia));
+		return getDayActivityOverviews(user.getOwnPrivateData().getUserAnonymizedId(), creationDate, pageable);
 	}
 
 	@Transactional
 	public DayActivityOverviewDto<DayActivityDto> getUserDayActivityOverview(UUID userId, LocalDate date)
 	{
-		return executeAndCreateInactivityEntries(
-				mia -> getDayActivityOverview(userService.getUserAnonymizedId(userId), getUserCreationDate(userId), date, mia));
+		return getDayActivityOverview(userService.getUserAnonymizedId(userId), getUserCreationDate(userId), date);
 	}
 
 	@Transactional
@@ -318,8 +299,8 @@ public class ActivityService
 				.map(b -> b.getUser().getPrivateData().getGoalsIncludingHistoryItems().orElse(Collections.emptySet()))
 				.flatMap(Set::stream).map(GoalDto::getActivityCategoryId).collect(Collectors.toSet());
 
-		Map<ZonedDateTime, Set<DayActivityDto>> dayActivityDtosByZonedDate = executeAndCreateInactivityEntries(
-				mia -> getDayActivitiesForUserAnonymizedIdsInInterval(userInfo, activityCategoryIdsUsedByBuddies, interval, mia));
+		Map<ZonedDateTime, Set<DayActivityDto>> dayActivityDtosByZonedDate = getDayActivitiesForUserAnonymizedIdsInInterval(
+				userInfo, activityCategoryIdsUsedByBuddies, interval);
 		return dayActivityEntitiesToOverviewsUserWithBuddies(dayActivityDtosByZonedDate);
 	}
 
@@ -339,42 +320,42 @@ public class ActivityService
 	}
 
 	private Map<ZonedDateTime, Set<DayActivityDto>> getDayActivitiesForUserAnonymizedIdsInInterval(
-			List<UserAnonymizedIdWithEarliestPossibleDate> userInfo, Set<UUID> relevantActivityCategoryIds, Interval interval,
-			Set<IntervalInactivityDto> mia)
-	{
-		return userInfo.stream()
-				.map(ui -> getDayActivitiesForCategories(userAnonymizedService.getUserAnonymized(ui.id), ui.earliestPossibleDate,
-						relevantActivityCategoryIds, interval.limit(ui.earliestPossibleDate), mia)).map(Map::entrySet)
-				.flatMap(Collection::stream).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> {
-					Set<DayActivityDto> allActivities = new HashSet<>(a);
-					allActivities.addAll(b);
-					return allActivities;
-				}));
+			List<UserAnonymizedIdWithEarliestPossibleDate> userInfo, Set<UUID> relevantActivityCategoryIds, Interval interval)
+	{
+		Map<UUID, UserAnonymizedDto> userAnonymizedById = userInfo.stream()
+				.map(ui -> userAnonymizedService.getUserAnonymized(ui.id))
+				.collect(Collectors.toMap(UserAnonymizedDto::getId, Function.identity(), (a, b) -> a));
+		Map<UUID, Set<GoalDto>> relevantGoalsByUserAnonymizedId = userAnonymizedById.values().stream().collect(
+				Collectors.toMap(UserAnonymizedDto::getId, ua -> getGoalsForCategories(ua, relevantActivityCategoryIds)));
+		// Fetch the day activities of the user and all buddies at once, rather than with a query per buddy
+		Map<UUID, List<IntervalActivitySummary>> dayActivitiesByGoalId = findAllActivitiesForUsersInInterval(
+				relevantGoalsByUserAnonymizedId, interval).stream()
+				.collect(Collectors.groupingBy(IntervalActivitySummary::getGoalId));
+
+		Map<ZonedDateTime, Set<DayActivityDto>> dayActivityDtosByZonedDate = new HashMap<>();
+		userInfo.forEach(ui -> getDayActivities(userAnonymizedById.get(ui.id), ui.earliestPossibleDate,
+				relevantGoalsByUserAnonymizedId.get(ui.id), interval.limit(ui.earliestPossibleDate), dayActivitiesByGoalId)
+				.forEach((d, a) -> dayActivityDtosByZonedDate.computeIfAbsent(d, k -> new HashSet<>()).addAll(a)));
+		return dayActivityDtosByZonedDate;
 	}
 
-	private Map<ZonedDateTime, Set<DayActivityDto>> getDayActivitiesForCategories(UserAnonymizedDto userAnonymizedDto,
-			LocalDate earliestPossibleDate, Set<UUID> relevantActivityCategoryIds, Interval interval,
-			Set<IntervalInactivityDto> mia)
+	private Set<GoalDto> getGoalsForCategories(UserAnonymizedDto userAnonymized, Set<UUID> activityCategoryIds)
 	{
-		Set<GoalDto> relevantGoals = userAnonymizedDto.getGoalsIncludingHistoryItems().stream()
-				.filter(g -> relevantActivityCategoryIds.contains(g.getActivityCategoryId())).collect(Collectors.toSet());
-		return getDayActivities(userAnonymizedDto, earliestPossibleDate, relevantGoals, interval, mia);
+		return userAnonymized.getGoalsIncludingHistoryItems().stream()
+				.filter(g -> activityCategoryIds.contains(g.getActivityCategoryId())).collect(Collectors.toSet());
 	}
 
 	@Transactional
 	public Page<DayActivityOverviewDto<DayActivityDto>> getBuddyDayActivityOverviews(BuddyDto buddy, Pageable pageable)
 	{
-		return executeAndCreateInactivityEntries(
-				mia -> getDayActivityOverviews(getBuddyUserAnonymizedId(buddy), buddy.getLastStatusChangeTime().toLocalDate(),
-						pageable, mia));
+		return getDayActivityOverviews(getBuddyUserAnonymizedId(buddy), buddy.getLastStatusChangeTime().toLocalDate(),
+				pageable);
 	}
 
 	@Transactional
 	public DayActivityOverviewDto<DayActivityDto> getBuddyDayActivityOverview(BuddyDto buddy, LocalDate date)
 	{
-		return executeAndCreateInactivityEntries(
-				mia -> getDayActivityOverview(getBuddyUserAnonymizedId(buddy), buddy.getLastStatusChangeTime().toLocalDate(),
-						date, mia));
+		return getDayActivityOverview(getBuddyUserAnonymizedId(buddy), buddy.getLastStatusChangeTime().toLocalDate(), date);
 	}
 
 	private UUID getBuddyUserAnonymizedId(BuddyDto buddy)
@@ -384,81 +365,77 @@ public class ActivityService
 	}
 
 	private Page<DayActivityOverviewDto<DayActivityDto>> getDayActivityOverviews(UUID userAnonymizedId,
-			LocalDate earliestPossibleDate, Pageable pageable, Set<IntervalInactivityDto> missingInactivities)
+			LocalDate earliestPossibleDate, Pageable pageable)
 	{
 		UserAnonymizedDto userAnonymized = userAnonymizedService.getUserAnonymized(userAnonymizedId);
 		Interval interval = getInterval(earliestPossibleDate, getCurrentDayDate(userAnonymized), pageable, ChronoUnit.DAYS);
 
 		List<DayActivityOverviewDto<DayActivityDto>> dayActivityOverviews = getDayActivityOverviews(earliestPossibleDate,
-				missingInactivities, userAnonymized, interval);
+				userAnonymized, interval);
 
 		return new PageImpl<>(dayActivityOverviews, pageable,
 				getTotalPageableItems(userAnonymized, earliestPossibleDate, ChronoUnit.DAYS));
 	}
 
 	private DayActivityOverviewDto<DayActivityDto> getDayActivityOverview(UUID userAnonymizedId, LocalDate earliestPossibleDate,
-			LocalDate date, Set<IntervalInactivityDto> missingInactivities)
+			LocalDate date)
 	{
 		UserAnonymizedDto userAnonymized = userAnonymizedService.getUserAnonymized(userAnonymizedId);
 		assertDateNotTooEarly(date, earliestPossibleDate);
 		Interval interval = Interval.createDayInterval(date);
 
 		List<DayActivityOverviewDto<DayActivityDto>> dayActivityOverviews = getDayActivityOverviews(earliestPossibleDate,
-				missingInactivities, userAnonymized, interval);
+				userAnonymized, interval);
 
 		return dayActivityOverviews.get(0);
 	}
 
 	private List<DayActivityOverviewDto<DayActivityDto>> getDayActivityOverviews(LocalDate earliestPossibleDate,
-			Set<IntervalInactivityDto> missingInactivities, UserAnonymizedDto userAnonymized, Interval interval)
+			UserAnonymizedDto userAnonymized, Interval interval)
 	{
 		Map<ZonedDateTime, Set<DayActivityDto>> dayActivitiesByZonedDate = getDayActivities(userAnonymized, earliestPossibleDate,
-				interval, missingInactivities);
+				interval);
 		return dayActivityDtosToOverviews(dayActivitiesByZonedDate);
 	}
 
 	private Map<ZonedDateTime, Set<DayActivityDto>> getDayActivities(UserAnonymizedDto userAnonymized,
-			LocalDate earliestPossibleDate, Interval interval, Set<IntervalInactivityDto> missingInactivities)
+			LocalDate earliestPossibleDate, Interval interval)
 	{
-		return getDayActivities(userAnonymized, earliestPossibleDate, userAnonymized.getGoalsIncludingHistoryItems(), interval,
-				missingInactivities);
+		return getDayActivities(userAnonymized, earliestPossibleDate, userAnonymized.getGoalsIncludingHistoryItems(), interval);
 	}
 
 	private Map<ZonedDateTime, Set<DayActivityDto>> getDayActivities(UserAnonymizedDto userAnonymized,
-			LocalDate earliestPossibleDate, Set<GoalDto> relevantGoals, Interval interval,
-			Set<IntervalInactivityDto> missingInactivities)
+			LocalDate earliestPossibleDate, Set<GoalDto> relevantGoals, Interval interval)
 	{
-		Map<LocalDate, Set<DayActivity>> dayActivityEntitiesByLocalDate = getDayActivitiesGroupedByDate(userAnonymized.getId(),
-				relevantGoals, interval);
-		Map<ZonedDateTime, Set<DayActivity>> dayActivityEntitiesByZonedDate = mapToZonedDateTime(dayActivityEntitiesByLocalDate);
-		Map<ZonedDateTime, Set<DayActivityDto>> dayActivityDtosByZonedDate = mapDayActivitiesToDtos(earliestPossibleDate,
-				dayActivityEntitiesByZonedDate, userAnonymized);
-		addMissingInactivity(relevantGoals, dayActivityDtosByZonedDate, interval, ChronoUnit.DAYS, userAnonymized,
-				(goal, startOfDay) -> createDayInactivity(userAnonymized, goal, startOfDay, LevelOfDetail.DAY_OVERVIEW,
-						missingInactivities), Optional.empty());
-		return dayActivityDtosByZonedDate;
+		return getDayActivities(userAnonymized, earliestPossibleDate, relevantGoals, interval,
+				findAllActivitiesForUserInInterval(userAnonymized.getId(), relevantGoals, interval));
 	}
 
-	private Map<ZonedDateTime, Set<DayActivityDto>> mapDayActivitiesToDtos(LocalDate earliestPossibleDate,
-			Map<ZonedDateTime, Set<DayActivity>> dayActivityEntitiesByZonedDate, UserAnonymizedDto userAnonymized)
+	private Map<ZonedDateTime, Set<DayActivityDto>> getDayActivities(UserAnonymizedDto userAnonymized,
+			LocalDate earliestPossibleDate, Set<GoalDto> relevantGoals, Interval interval,
+			Map<UUID, List<IntervalActivitySummary>> dayActivitiesByGoalId)
 	{
-		return dayActivityEntitiesByZonedDate.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey,
-				e -> mapDayActivitiesToDtos(earliestPossibleDate, e.getValue(), userAnonymized)));
+		List<IntervalActivitySummary> dayActivities = relevantGoals.stream()
+				.map(g -> dayActivitiesByGoalId.getOrDefault(g.getGoalId(), Collections.emptyList())).flatMap(List::stream)
+				.filter(d -> !d.getStartDate().isBefore(interval.startDate)).toList();
+		return getDayActivities(userAnonymized, earliestPossibleDate, relevantGoals, interval, dayActivities);
 	}
 
-	private Set<DayActivityDto> mapDayActivitiesToDtos(LocalDate earliestPossibleDate, Set<DayActivity> dayActivityEntities,
-			UserAnonymizedDto userAnonymized)
+	private Map<ZonedDateTime, Set<DayActivityDto>> getDayActivities(UserAnonymizedDto userAnonymized,
+			LocalDate earliestPossibleDate, Set<GoalDto> relevantGoals, Interval interval,
+			List<IntervalActivitySummary> dayActivitySummaries)
 	{
-		return dayActivityEntities.stream()
-				.map(e -> DayActivityDto.createInstance(earliestPossibleDate, e, LevelOfDetail.DAY_OVERVIEW, userAnonymized))
-				.collect(Collectors.toSet());
+		List<DayActivityDto> dayActivities = dayActivitySummaries.stream()
+				.map(d -> createDayActivityDto(earliestPossibleDate, d, LevelOfDetail.DAY_OVERVIEW, userAnonymized)).toList();
+		Map<ZonedDateTime, Set<DayActivityDto>> dayActivityDtosByZonedDate = groupByStartTime(dayActivities);
+		addMissingInactivity(relevantGoals, dayActivityDtosByZonedDate, interval, ChronoUnit.DAYS, userAnonymized,
+				(goal, startOfDay) -> createDayInactivity(goal, startOfDay, LevelOfDetail.DAY_OVERVIEW), Optional.empty());
+		return dayActivityDtosByZonedDate;
 	}
 
-	private DayActivityDto createDayInactivity(UserAnonymizedDto userAnonymized, Goal goal, ZonedDateTime startOfDay,
-			LevelOfDetail levelOfDetail, Set<IntervalInactivityDto> missingInactivities)
+	private DayActivityDto createDayInactivity(Goal goal, ZonedDateTime startOfDay, LevelOfDetail levelOfDetail)
 	{
-		return DayActivityDto.createInstanceInactivity(userAnonymized, GoalDto.createInstance(goal), startOfDay, levelOfDetail,
-				missingInactivities);
+		return DayActivityDto.createInstanceInactivity(GoalDto.createInstance(goal), startOfDay, levelOfDetail);
 	}
 
 	private List<DayActivityOverviewDto<DayActivityDto>> dayActivityDtosToOverviews(
@@ -475,24 +452,32 @@ public class ActivityService
 				.map(e -> DayActivityOverviewDto.createInstanceForUserWithBuddies(e.getKey(), e.getValue())).toList();
 	}
 
-	private Map<LocalDate, Set<DayActivity>> getDayActivitiesGroupedByDate(UUID userAnonymizedId, Set<GoalDto> relevantGoals,
+	private List<IntervalActivitySummary> findAllActivitiesForUserInInterval(UUID userAnonymizedId, Set<GoalDto> relevantGoals,
 			Interval interval)
 	{
-		List<DayActivity> dayActivityEntities = findAllActivitiesForUserInInterval(userAnonymizedId, relevantGoals, interval);
-		return dayActivityEntities.stream().collect(Collectors.groupingBy(IntervalActivity::getStartDate, Collectors.toSet()));
+		if (relevantGoals.isEmpty())
+		{
+			// SQL in-query fails when the list is empty, so don't go to the
+			// repository with an empty list
+			return Collections.emptyList();
+		}
+		return dayActivityRepository.findSummaries(userAnonymizedId,
+				relevantGoals.stream().map(GoalDto::getGoalId).collect(Collectors.toSet()), interval.startDate, interval.endDate);
 	}
 
-	private List<DayActivity> findAllActivitiesForUserInInterval(UUID userAnonymizedId, Set<GoalDto> relevantGoals,
-			Interval interval)
+	private List<IntervalActivitySummary> findAllActivitiesForUsersInInterval(
+			Map<UUID, Set<GoalDto>> relevantGoalsByUserAnonymizedId, Interval interval)
 	{
-		if (relevantGoals.isEmpty())
+		Set<UUID> relevantGoalIds = relevantGoalsByUserAnonymizedId.values().stream().flatMap(Set::stream)
+				.map(GoalDto::getGoalId).collect(Collectors.toSet());
+		if (relevantGoalIds.isEmpty())
 		{
 			// SQL in-query fails when the list is empty, so don't go to the
 			// repository with an empty list
 			return Collections.emptyList();
 		}
-		return dayActivityRepository.findAll(userAnonymizedId,
-				relevantGoals.stream().map(GoalDto::getGoalId).collect(Collectors.toSet()), interval.startDate, interval.endDate);
+		return dayActivityRepository.findSummariesOfUsers(relevantGoalsByUserAnonymizedId.keySet(), relevantGoalIds,
+				interval.startDate, interval.endDate);
 	}
 
 	private Interval getInterval(LocalDate earliestPossibleDate, LocalDate currentUnitDate, Pageable pageable,
@@ -607,8 +592,7 @@ public class ActivityService
 	public WeekActivityDto getUserWeekActivityDetail(UUID userId, LocalDate date, UUID goalId)
 	{
 		LocalDate creationDate = getUserCreationDate(userId);
-		return executeAndCreateInactivityEntries(
-				mia -> getWeekActivityDetail(userId, userService.getUserAnonymizedId(userId), creationDate, date, goalId, mia));
+		return getWeekActivityDetail(userId, userService.getUserAnonymizedId(userId), creationDate, date, goalId);
 	}
 
 	private LocalDate getUserCreationDate(UUID userId)
@@ -634,13 +618,12 @@ public class ActivityService
 	@Transactional
 	public WeekActivityDto getBuddyWeekActivityDetail(BuddyDto buddy, LocalDate date, UUID goalId)
 	{
-		return executeAndCreateInactivityEntries(
-				mia -> getWeekActivityDetail(buddy.getUser().getId(), getBuddyUserAnonymizedId(buddy),
-						buddy.getLastStatusChangeTime().toLocalDate(), date, goalId, mia));
+		return getWeekActivityDetail(buddy.getUser().getId(), getBuddyUserAnonymizedId(buddy),
+				buddy.getLastStatusChangeTime().toLocalDate(), date, goalId);
 	}
 
 	private WeekActivityDto getWeekActivityDetail(UUID userId, UUID userAnonymizedId, LocalDate earliestPossibleDate,
-			LocalDate date, UUID goalId, Set<IntervalInactivityDto> missingInactivities)
+			LocalDate date, UUID goalId)
 	{
 		assertDateNotTooEarly(Interval.createWeekInterval(date).endDate, earliestPossibleDate);
 		UserAnonymizedDto userAnonymized = userAnonymizedService.getUserAnonymized(userAnonymizedId);
@@ -648,14 +631,14 @@ public class ActivityService
 		if (weekActivityEntity == null)
 		{
 			return getMissingInactivity(userId, date, goalId, userAnonymized, ChronoUnit.WEEKS,
-					(goal, startOfWeek) -> createAndSaveWeekInactivity(userAnonymized, earliestPossibleDate, goal, startOfWeek,
-							LevelOfDetail.WEEK_DETAIL, missingInactivities));
+					(goal, startOfWeek) -> createWeekInactivity(userAnonymized, earliestPossibleDate, goal, startOfWeek,
+							LevelOfDetail.WEEK_DETAIL));
 		}
 		WeekActivityDto weekActivityDto = WeekActivityDto.createInstance(earliestPossibleDate, weekActivityEntity,
 				LevelOfDetail.WEEK_DETAIL, userAnonymized);
 		weekActivityDto.createRequiredInactivityDays(userAnonymized, earliestPossibleDate,
 				userAnonymized.getGoalsForActivityCategory(weekActivityEntity.getGoal().getActivityCategory()),
-				LevelOfDetail.WEEK_DETAIL, missingInactivities);
+				LevelOfDetail.WEEK_DETAIL);
 		return weekActivityDto;
 	}
 
@@ -679,21 +662,19 @@ public class ActivityService
 	@Transactional
 	public DayActivityDto getUserDayActivityDetail(UUID userId, LocalDate date, UUID goalId)
 	{
-		return executeAndCreateInactivityEntries(
-				mia -> getDayActivityDetail(userId, userService.getUserAnonymizedId(userId), getUserCreationDate(userId), date,
-						goalId, mia));
+		return getDayActivityDetail(userId, userService.getUserAnonymizedId(userId), getUserCreationDate(userId), date,
+				goalId);
 	}
 
 	@Transactional
 	public DayActivityDto getBuddyDayActivityDetail(BuddyDto buddy, LocalDate date, UUID goalId)
 	{
-		return executeAndCreateInactivityEntries(
-				mia -> getDayActivityDetail(buddy.getUser().getId(), getBuddyUserAnonymizedId(buddy),
-						buddy.getLastStatusChangeTime().toLocalDate(), date, goalId, mia));
+		return getDayActivityDetail(buddy.getUser().getId(), getBuddyUserAnonymizedId(buddy),
+				buddy.getLastStatusChangeTime().toLocalDate(), date, goalId);
 	}
 
 	private DayActivityDto getDayActivityDetail(UUID userId, UUID userAnonymizedId, LocalDate earliestPossibleDate,
-			LocalDate date, UUID goalId, Set<IntervalInactivityDto> missingInactivities)
+			LocalDate date, UUID goalId)
 	{
 		assertDateNotTooEarly(date, earliestPossibleDate);
 		UserAnonymizedDto userAnonymized = userAnonymizedService.getUserAnonymized(userAnonymizedId);
@@ -701,8 +682,7 @@ public class ActivityService
 		if (dayActivityEntity == null)
 		{
 			return getMissingInactivity(userId, date, goalId, userAnonymized, ChronoUnit.DAYS,
-					(goal, startOfDay) -> createDayInactivity(userAnonymized, goal, startOfDay, LevelOfDetail.DAY_DETAIL,
-							missingInactivities));
+					(goal, startOfDay) -> createDayInactivity(goal, startOfDay, LevelOfDetail.DAY_DETAIL));
 		}
 		return DayActivityDto.createInstance(earliestPossibleDate, dayActivityEntity, LevelOfDetail.DAY_DETAIL, userAnonymized);
 	}
@@ -742,15 +722,21 @@ public class ActivityService
 
 	public List<ActivityDto> getRawActivities(UUID userId, LocalDate date, UUID goalId)
 	{
-		return dayActivityRepository.findOne(userService.getUserAnonymizedId(userId), date, goalId).getActivities().stream()
-				.map(ActivityDto::createInstance).toList();
+		DayActivity dayActivity = dayActivityRepository.findOne(userService.getUserAnonymizedId(userId), date, goalId);
+		if (dayActivity == null)
+		{
+			// Inactivity is not persisted when reading, so days without activity often have no day activity
+			return Collections.emptyList();
+		}
+		return dayActivity.getActivities().stream().map(ActivityDto::createInstance).toList();
 	}
 
 	@Transactional
 	public MessageDto addMessageToDayActivity(UUID userId, UUID buddyId, LocalDate date, UUID goalId,
 			PostPutActivityCommentMessageDto message)
 	{
-		ActivitySupplier activitySupplier = (b, d, g) -> dayActivityRepository.findOne(getBuddyUserAnonymizedId(b), d, g);
+		ActivitySupplier activitySupplier = (b, d, g) -> findOrCreateInactivity(b, d, g, ChronoUnit.DAYS,
+				() -> dayActivityRepository.findOne(getBuddyUserAnonymizedId(b), d, g));
 		return addMessageToActivity(userId, buddyId, date, goalId, activitySupplier, message);
 	}
 
@@ -758,10 +744,38 @@ public class ActivityService
 	public MessageDto addMessageToWeekActivity(UUID userId, UUID buddyId, LocalDate date, UUID goalId,
 			PostPutActivityCommentMessageDto message)
 	{
-		ActivitySupplier activitySupplier = (b, d, g) -> weekActivityRepository.findOne(getBuddyUserAnonymizedId(b), d, g);
+		ActivitySupplier activitySupplier = (b, d, g) -> findOrCreateInactivity(b, d, g, ChronoUnit.WEEKS,
+				() -> weekActivityRepository.findOne(getBuddyUserAnonymizedId(b), d, g));
 		return addMessageToActivity(userId, buddyId, date, goalId, activitySupplier, message);
 	}
 
+	/**
+	 * Finds the interval activity of the buddy, creating it if the buddy was inactive during the interval. Inactivity is not
+	 * persisted when reading the activities, but a comment needs an entity to refer to.
+	 */
+	private IntervalActivity findOrCreateInactivity(BuddyDto buddy, LocalDate date, UUID goalId, ChronoUnit timeUnit,
+			Supplier<IntervalActivity> activityFinder)
+	{
+		IntervalActivity intervalActivity = activityFinder.get();
+		if (intervalActivity != null)
+		{
+			return intervalActivity;
+		}
+		UserAnonymizedDto userAnonymized = userAnonymizedService.getUserAnonymized(getBuddyUserAnonymizedId(buddy));
+		ZonedDateTime dateAtStartOfInterval = date.atStartOfDay(userAnonymized.getTimeZone());
+		boolean wasGoalActive = userAnonymized.getGoalsIncludingHistoryItems().stream()
+				.anyMatch(g -> g.getGoalId().equals(goalId) && g.wasActiveAtInterval(dateAtStartOfInterval, timeUnit));
+		if (!wasGoalActive)
+		{
+			return null;
+		}
+		IntervalInactivityDto inactivity = (timeUnit == ChronoUnit.WEEKS)
+				? IntervalInactivityDto.createWeekInstance(userAnonymized.getId(), goalId, dateAtStartOfInterval)
+				: IntervalInactivityDto.createDayInstance(userAnonymized.getId(), goalId, dateAtStartOfInterval);
+		analysisEngineProxyService.createInactivityEntities(userAnonymized.getId(), Collections.singleton(inactivity));
+		return activityFinder.get();
+	}
+
 	@Transactional
 	public MessageDto addMessageToActivity(UUID userId, UUID buddyId, LocalDate date, UUID goalId,
 			ActivitySupplier activitySupplier, PostPutActivityCommentMessageDto message)
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2018 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
  * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.service;
@@ -31,24 +31,17 @@ public class AnalysisEngineProxyService
 		analysisEngineUrl = yonaProperties.getAnalysisService().getServiceUrl();
 	}
 
+	// The URI templates are expanded by the REST template, so the metrics of the requests are tagged with the template rather
+	// than with a URI per user
 	public void createInactivityEntities(UUID userAnonymizedId, Set<IntervalInactivityDto> intervalInactivities)
 	{
-		restTemplate.postForEntity(buildBaseUrl(userAnonymizedId) + "/inactivity/", intervalInactivities, String.class);
+		restTemplate.postForEntity(analysisEngineUrl + "/userAnonymized/{userAnonymizedId}/inactivity/", intervalInactivities,
+				String.class, userAnonymizedId);
 	}
 
 	public void analyzeAppActivity(UUID userAnonymizedId, UUID deviceAnonyizedId, AppActivitiesDto appActivities)
 	{
-		restTemplate.postForEntity(buildBaseUrl(userAnonymizedId, deviceAnonyizedId) + "/appActivity/", appActivities,
-				String.class);
-	}
-
-	private String buildBaseUrl(UUID userAnonymizedId)
-	{
-		return analysisEngineUrl + "/userAnonymized/" + userAnonymizedId;
-	}
-
-	private String buildBaseUrl(UUID userAnonymizedId, UUID deviceAnonyizedId)
-	{
-		return analysisEngineUrl + "/userAnonymized/" + userAnonymizedId + "/" + deviceAnonyizedId;
+		restTemplate.postForEntity(analysisEngineUrl + "/userAnonymized/{userAnonymizedId}/{deviceAnonymizedId}/appActivity/",
+				appActivities, String.class, userAnonymizedId, deviceAnonyizedId);
 	}
 }
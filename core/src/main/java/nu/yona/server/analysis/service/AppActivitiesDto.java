@@ -1,12 +1,14 @@
 /*
- * Copyright (c) 2016, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.service;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonFormat;
@@ -15,6 +17,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonRootName;
 
 import nu.yona.server.Constants;
+import nu.yona.server.exceptions.AnalysisException;
 
 /*
  * Offline activity for applications registered by the Yona app.
@@ -25,6 +28,7 @@ import nu.yona.server.Constants;
 public class AppActivitiesDto
 {
 	public static final AppActivitiesDto DUMMY = new AppActivitiesDto();
+	public static final Duration DEVICE_TIME_INACCURACY_MARGIN = Duration.ofSeconds(10);
 
 	@JsonRootName("activity")
 	public static class Activity
@@ -59,6 +63,25 @@ public class AppActivitiesDto
 		{
 			return endTime;
 		}
+
+		private void assertValidTimes(UUID userAnonymizedId, Duration deviceTimeOffset)
+		{
+			ZonedDateTime correctedStartTime = startTime.minus(deviceTimeOffset);
+			ZonedDateTime correctedEndTime = endTime.minus(deviceTimeOffset);
+			if (correctedEndTime.isBefore(correctedStartTime))
+			{
+				throw AnalysisException.appActivityStartAfterEnd(userAnonymizedId, application, correctedStartTime,
+						correctedEndTime);
+			}
+			if (correctedStartTime.isAfter(ZonedDateTime.now().plus(DEVICE_TIME_INACCURACY_MARGIN)))
+			{
+				throw AnalysisException.appActivityStartsInFuture(userAnonymizedId, application, correctedStartTime);
+			}
+			if (correctedEndTime.isAfter(ZonedDateTime.now().plus(DEVICE_TIME_INACCURACY_MARGIN)))
+			{
+				throw AnalysisException.appActivityEndsInFuture(userAnonymizedId, application, correctedEndTime);
+			}
+		}
 	}
 
 	private final ZonedDateTime deviceDateTime;
@@ -96,4 +119,30 @@ public class AppActivitiesDto
 	{
 		return Arrays.stream(activities).sorted((a1, a2) -> a1.getStartTime().compareTo(a2.getStartTime())).toList();
 	}
+
+	/**
+	 * Determines the offset of the device clock, from the difference between the device time and the current time. Offsets within
+	 * the inaccuracy margin of 10 seconds are ignored.
+	 *
+	 * @return The offset to subtract from the device times to get the actual times
+	 */
+	public Duration determineDeviceTimeOffset()
+	{
+		Duration offset = Duration.between(ZonedDateTime.now(), deviceDateTime);
+		return (offset.abs().compareTo(DEVICE_TIME_INACCURACY_MARGIN) > 0) ? offset : Duration.ZERO;
+	}
+
+	/**
+	 * Asserts that none of the activities ends before it starts or starts or ends in the future, after correcting the times for
+	 * the offset of the device clock. This is done before the activities are analyzed or queued for analysis, so invalid
+	 * activities are rejected right away.
+	 *
+	 * @param userAnonymizedId The ID of the user anonymized that sent the activities, to include in the exception
+	 * @throws AnalysisException if the times of an activity are invalid
+	 */
+	public void assertValidTimes(UUID userAnonymizedId)
+	{
+		Duration deviceTimeOffset = determineDeviceTimeOffset();
+		Arrays.stream(activities).forEach(a -> a.assertValidTimes(userAnonymizedId, deviceTimeOffset));
+	}
 }
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.analysis.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import nu.yona.server.analysis.entities.AppActivityOutboxItem;
+import nu.yona.server.analysis.entities.AppActivityOutboxItemRepository;
+import nu.yona.server.exceptions.ResourceBasedException;
+import nu.yona.server.properties.AnalysisServiceProperties;
+import nu.yona.server.properties.YonaProperties;
+import nu.yona.server.util.TimeUtil;
+import nu.yona.server.util.TransactionHelper;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Durable queue for handing off app activities from the app service to the analysis service. App activities are stored in an
+ * outbox table, from which worker threads deliver them to the analysis service. Delivery is at least once: if delivery fails,
+ * it is retried with exponential backoff, till the maximum number of attempts is reached. Failures that retrying cannot resolve,
+ * like app activities rejected by the analysis service, are not retried.<br/>
+ * The app activities of a user are delivered in the order in which they were received: an item is only claimed when no older
+ * item of the same user is queued, so a failing item holds up the later items of its user till it is delivered or dropped.<br/>
+ * This service only exists when the queue is enabled.
+ */
+@Service
+@ConditionalOnProperty("yona.analysisService.appActivityQueue.enabled")
+public class AppActivityQueueService implements MeterBinder
+{
+	private static final Logger logger = LoggerFactory.getLogger(AppActivityQueueService.class);
+
+	@Autowired
+	private YonaProperties yonaProperties;
+
+	@Autowired
+	private AnalysisEngineProxyService analysisEngineProxyService;
+
+	@Autowired
+	private TransactionHelper transactionHelper;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired(required = false)
+	private AppActivityOutboxItemRepository outboxItemRepository;
+
+	/**
+	 * The outbox table is shared by all app service instances, so this is periodically refreshed with the number of items in the
+	 * table and maintained locally in between. The backpressure therefore applies to the overall queue depth, but it can overshoot
+	 * the maximum by the items that the other instances enqueued since the last refresh.
+	 */
+	private final AtomicLong queueDepth = new AtomicLong();
+	private final LongAdder deliveredCount = new LongAdder();
+	private final LongAdder totalDeliveryLatencyNanos = new LongAdder();
+	private final LongAdder failedAttemptCount = new LongAdder();
+	private final LongAdder droppedCount = new LongAdder();
+	private final LongAdder rejectedCount = new LongAdder();
+
+	/**
+	 * Stores the given app activities in the queue, for later delivery to the analysis service.
+	 *
+	 * @return false if the queue is full, in which case the caller must deliver the app activities itself
+	 */
+	public boolean enqueue(UUID userAnonymizedId, UUID deviceAnonymizedId, AppActivitiesDto appActivities)
+	{
+		if (queueDepth.get() >= getProperties().getMaxQueueDepth())
+		{
+			return false;
+		}
+		String appActivitiesJson = objectMapper.writeValueAsString(appActivities);
+		transactionHelper.executeInNewTransaction(() -> outboxItemRepository.save(
+				AppActivityOutboxItem.createInstance(userAnonymizedId, deviceAnonymizedId, appActivitiesJson)));
+		queueDepth.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Claims a batch of due items and delivers these to the analysis service.
+	 *
+	 * @return The number of items claimed
+	 */
+	public int deliverDueItems()
+	{
+		List<AppActivityOutboxItem> items = transactionHelper.executeInNewTransaction(this::claimDueItems);
+		items.forEach(this::deliver);
+		return items.size();
+	}
+
+	/**
+	 * Refreshes the queue depth with the number of items in the queue, including the ones enqueued by other app service instances.
+	 * This counts all rows of the outbox table, so it is called with the queue depth refresh interval rather than on every poll.
+	 */
+	public void refreshQueueDepth()
+	{
+		queueDepth.set(outboxItemRepository.count());
+	}
+
+	private List<AppActivityOutboxItem> claimDueItems()
+	{
+		LocalDateTime now = TimeUtil.utcNow();
+		List<AppActivityOutboxItem> items = outboxItemRepository.findDueForUpdate(now,
+				PageRequest.of(0, getProperties().getBatchSize()));
+		items.forEach(i -> i.claim(now.plus(getProperties().getLeaseTime())));
+		return items;
+	}
+
+	private void deliver(AppActivityOutboxItem item)
+	{
+		try
+		{
+			AppActivitiesDto appActivities = objectMapper.readValue(item.getAppActivitiesJson(), AppActivitiesDto.class);
+			analysisEngineProxyService.analyzeAppActivity(item.getUserAnonymizedId(), item.getDeviceAnonymizedId(),
+					correctDeviceDateTimeForDelay(appActivities, item.getReceivedTime()));
+			delete(item);
+			deliveredCount.increment();
+			totalDeliveryLatencyNanos.add(Duration.between(item.getReceivedTime(), TimeUtil.utcNow()).toNanos());
+		}
+		catch (RuntimeException e)
+		{
+			handleFailedDelivery(item, e);
+		}
+	}
+
+	/**
+	 * The analysis service derives the offset of the device clock from the difference between the device time and the current
+	 * time. As the app activities are delivered later than they were received, the device time is moved forward with that delay.
+	 */
+	private AppActivitiesDto correctDeviceDateTimeForDelay(AppActivitiesDto appActivities, LocalDateTime receivedTime)
+	{
+		Duration delay = Duration.between(receivedTime, TimeUtil.utcNow());
+		return new AppActivitiesDto(appActivities.getDeviceDateTime().plus(delay), appActivities.getActivities());
+	}
+
+	private void handleFailedDelivery(AppActivityOutboxItem item, RuntimeException exception)
+	{
+		failedAttemptCount.increment();
+		if (!isRetryable(exception))
+		{
+			logger.error("Rejecting app activities for user anonymized ID {} and device anonymized ID {} without retrying",
+					item.getUserAnonymizedId(), item.getDeviceAnonymizedId(), exception);
+			delete(item);
+			rejectedCount.increment();
+			return;
+		}
+		int attemptCount = item.getAttemptCount() + 1;
+		if (attemptCount >= getProperties().getMaxAttempts())
+		{
+			logger.error("Dropping app activities for user anonymized ID {} and device anonymized ID {} after {} attempts",
+					item.getUserAnonymizedId(), item.getDeviceAnonymizedId(), attemptCount, exception);
+			delete(item);
+			droppedCount.increment();
+			return;
+		}
+		LocalDateTime nextAttemptTime = TimeUtil.utcNow().plus(determineRetryDelay(attemptCount));
+		logger.warn("Delivery of app activities for user anonymized ID {} failed (attempt {}), retrying at {}",
+				item.getUserAnonymizedId(), attemptCount, nextAttemptTime, exception);
+		transactionHelper.executeInNewTransaction(() -> outboxItemRepository.findById(item.getId())
+				.ifPresent(i -> i.registerFailedAttempt(nextAttemptTime)));
+	}
+
+	private void delete(AppActivityOutboxItem item)
+	{
+		transactionHelper.executeInNewTransaction(() -> outboxItemRepository.deleteById(item.getId()));
+		queueDepth.decrementAndGet();
+	}
+
+	/**
+	 * Client errors of the analysis service, except for timeouts and throttling, are permanent: the analysis service rejects the
+	 * app activities, for instance because their times are invalid, so it will reject them again. The same holds for stored app
+	 * activities that cannot be parsed. Other failures, like an unreachable analysis service, are transient.
+	 */
+	private static boolean isRetryable(RuntimeException exception)
+	{
+		if (exception instanceof JacksonException)
+		{
+			return false;
+		}
+		if (exception instanceof ResourceBasedException resourceBasedException)
+		{
+			HttpStatusCode statusCode = resourceBasedException.getStatusCode();
+			return !statusCode.is4xxClientError() || statusCode.isSameCodeAs(HttpStatus.REQUEST_TIMEOUT)
+					|| statusCode.isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS);
+		}
+		return true;
+	}
+
+	private Duration determineRetryDelay(int attemptCount)
+	{
+		Duration maxRetryDelay = getProperties().getMaxRetryDelay();
+		// Cap the shift to prevent overflow
+		Duration retryDelay = getProperties().getInitialRetryDelay().multipliedBy(1L << Math.min(attemptCount - 1, 20));
+		return (retryDelay.compareTo(maxRetryDelay) > 0) ? maxRetryDelay : retryDelay;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry)
+	{
+		Gauge.builder("yona.appactivity.queue.depth", queueDepth, AtomicLong::get)
+				.description("Number of app activity batches waiting for delivery to the analysis service").register(registry);
+		FunctionTimer.builder("yona.appactivity.queue.delivery", this, s -> s.deliveredCount.sum(),
+						s -> s.totalDeliveryLatencyNanos.sum(), TimeUnit.NANOSECONDS)
+				.description("Time between receiving app activities and delivering them to the analysis service").register(registry);
+		FunctionCounter.builder("yona.appactivity.queue.failed.attempts", failedAttemptCount, LongAdder::sum)
+				.description("Number of failed delivery attempts").register(registry);
+		FunctionCounter.builder("yona.appactivity.queue.dropped", droppedCount, LongAdder::sum)
+				.description("Number of app activity batches dropped after the maximum number of attempts").register(registry);
+		FunctionCounter.builder("yona.appactivity.queue.rejected", rejectedCount, LongAdder::sum)
+				.description("Number of app activity batches dropped without retrying, as retrying cannot resolve the failure")
+				.register(registry);
+	}
+
+	private AnalysisServiceProperties.AppActivityQueue getProperties()
+	{
+		return yonaProperties.getAnalysisService().getAppActivityQueue();
+	}
+}
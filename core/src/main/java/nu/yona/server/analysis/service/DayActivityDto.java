@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.service;
@@ -10,11 +10,7 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalUnit;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 import java.util.UUID;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -22,6 +18,8 @@ import com.fasterxml.jackson.annotation.JsonRootName;
 
 import nu.yona.server.analysis.entities.DayActivity;
 import nu.yona.server.analysis.entities.IntervalActivity;
+import nu.yona.server.analysis.entities.IntervalActivitySummary;
+import nu.yona.server.analysis.entities.Spread;
 import nu.yona.server.exceptions.InvalidDataException;
 import nu.yona.server.goals.service.GoalDto;
 import nu.yona.server.goals.service.TimeZoneGoalDto;
@@ -38,7 +36,7 @@ public class DayActivityDto extends IntervalActivityDto
 	private final UUID activityCategoryId;
 
 	private DayActivityDto(UUID goalId, UUID activityCategoryId, ZonedDateTime startTime, boolean shouldSerializeDate,
-			List<Integer> spread, int totalActivityDurationMinutes, boolean goalAccomplished, int totalMinutesBeyondGoal,
+			Optional<Spread> spread, int totalActivityDurationMinutes, boolean goalAccomplished, int totalMinutesBeyondGoal,
 			boolean hasPrevious, boolean hasNext)
 	{
 		super(goalId, startTime, shouldSerializeDate, spread, Optional.of(totalActivityDurationMinutes), hasPrevious, hasNext);
@@ -97,27 +95,37 @@ public class DayActivityDto extends IntervalActivityDto
 	{
 		UUID goalId = dayActivity.getGoalId();
 		GoalDto goal = userAnonymized.getGoal(goalId);
-		List<Integer> spread = includeSpread(goal, levelOfDetail) ? dayActivity.getSpread() : Collections.emptyList();
+		Optional<Spread> spread = includeSpread(goal, levelOfDetail) ? Optional.of(dayActivity.getSpread()) : Optional.empty();
 		return new DayActivityDto(goalId, goal.getActivityCategoryId(), dayActivity.getStartTime(),
 				levelOfDetail == LevelOfDetail.DAY_DETAIL, spread, dayActivity.getTotalActivityDurationMinutes(),
 				dayActivity.isGoalAccomplished(goal), dayActivity.getTotalMinutesBeyondGoal(goal),
 				dayActivity.hasPrevious(earliestPossibleDate, goal), dayActivity.hasNext());
 	}
 
-	static DayActivityDto createInstanceInactivity(UserAnonymizedDto userAnonymized, GoalDto goal, ZonedDateTime startTime,
-			LevelOfDetail levelOfDetail, Set<IntervalInactivityDto> missingInactivities)
+	/**
+	 * Creates the DTO from the stored aggregates of the day activity. The summary must have stored aggregates.
+	 */
+	static DayActivityDto createInstance(LocalDate earliestPossibleDate, IntervalActivitySummary dayActivity,
+			LevelOfDetail levelOfDetail, UserAnonymizedDto userAnonymized)
 	{
-		missingInactivities.add(IntervalInactivityDto.createDayInstance(userAnonymized.getId(), goal.getGoalId(), startTime));
-		return new DayActivityDto(goal.getGoalId(), goal.getActivityCategoryId(), startTime,
-				levelOfDetail == LevelOfDetail.DAY_DETAIL,
-				includeSpread(goal, levelOfDetail) ? createInactiveSpread() : Collections.emptyList(), 0, true, 0,
-				IntervalActivityDto.hasPrevious(goal, startTime, ChronoUnit.DAYS),
+		UUID goalId = dayActivity.getGoalId();
+		GoalDto goal = userAnonymized.getGoal(goalId);
+		ZonedDateTime startTime = dayActivity.getStartTime();
+		Optional<Spread> spread = includeSpread(goal, levelOfDetail) ? Optional.of(dayActivity.getSpread()) : Optional.empty();
+		return new DayActivityDto(goalId, goal.getActivityCategoryId(), startTime, levelOfDetail == LevelOfDetail.DAY_DETAIL,
+				spread, dayActivity.getTotalActivityDurationMinutes(), dayActivity.isGoalAccomplished(),
+				dayActivity.getTotalMinutesBeyondGoal(),
+				IntervalActivity.hasPrevious(earliestPossibleDate, goal, startTime, ChronoUnit.DAYS),
 				IntervalActivity.hasNext(startTime, ChronoUnit.DAYS));
 	}
 
-	static List<Integer> createInactiveSpread()
+	static DayActivityDto createInstanceInactivity(GoalDto goal, ZonedDateTime startTime, LevelOfDetail levelOfDetail)
 	{
-		return new ArrayList<>(Collections.nCopies(96, 0));
+		return new DayActivityDto(goal.getGoalId(), goal.getActivityCategoryId(), startTime,
+				levelOfDetail == LevelOfDetail.DAY_DETAIL,
+				includeSpread(goal, levelOfDetail) ? Optional.of(Spread.empty()) : Optional.empty(), 0, true, 0,
+				IntervalActivityDto.hasPrevious(goal, startTime, ChronoUnit.DAYS),
+				IntervalActivity.hasNext(startTime, ChronoUnit.DAYS));
 	}
 
 	private static boolean includeSpread(GoalDto goal, LevelOfDetail levelOfDetail)
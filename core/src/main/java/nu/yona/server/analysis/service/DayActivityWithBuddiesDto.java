@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016 Stichting Yona Foundation
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation
  *
  * This Source Code Form is subject to the terms of the Mozilla Public
  * License, v. 2.0. If a copy of the MPL was not distributed with this
@@ -9,14 +9,17 @@ package nu.yona.server.analysis.service;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonRootName;
 
+import nu.yona.server.analysis.entities.Spread;
+
 @JsonRootName("dayActivityWithBuddies")
 public class DayActivityWithBuddiesDto
 {
@@ -52,11 +55,11 @@ public class DayActivityWithBuddiesDto
 	{
 		private final boolean goalAccomplished;
 		private final int totalMinutesBeyondGoal;
-		private final List<Integer> spread;
+		private final Optional<Spread> spread;
 		private final int totalActivityDurationMinutes;
 		private final UUID goalId;
 
-		private ActivityForOneUser(UUID goalId, List<Integer> spread, int totalActivityDurationMinutes, boolean goalAccomplished,
+		private ActivityForOneUser(UUID goalId, Optional<Spread> spread, int totalActivityDurationMinutes, boolean goalAccomplished,
 				int totalMinutesBeyondGoal)
 		{
 			this.goalId = goalId;
@@ -89,7 +92,14 @@ public class DayActivityWithBuddiesDto
 		}
 
 		@JsonInclude(Include.NON_EMPTY)
-		public List<Integer> getSpread()
+		@JsonProperty("spread")
+		public int[] getSpreadIfIncluded()
+		{
+			return spread.map(Spread::toArray).orElse(null);
+		}
+
+		@JsonIgnore
+		public Optional<Spread> getSpread()
 		{
 			return spread;
 		}
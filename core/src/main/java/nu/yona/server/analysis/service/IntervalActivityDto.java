@@ -1,13 +1,12 @@
 /*
- * Copyright (c) 2016, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
- * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.service;
 
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.time.temporal.TemporalUnit;
-import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -17,6 +16,7 @@ import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import nu.yona.server.analysis.entities.IntervalActivity;
+import nu.yona.server.analysis.entities.Spread;
 import nu.yona.server.goals.service.GoalDto;
 
 public abstract class IntervalActivityDto
@@ -30,13 +30,13 @@ public abstract class IntervalActivityDto
 	private final ZonedDateTime startTime;
 	private final boolean shouldSerializeDate;
 
-	private final List<Integer> spread;
+	private final Optional<Spread> spread;
 	private final Optional<Integer> totalActivityDurationMinutes;
 
 	private final boolean hasPrevious;
 	private final boolean hasNext;
 
-	protected IntervalActivityDto(UUID goalId, ZonedDateTime startTime, boolean shouldSerializeDate, List<Integer> spread,
+	protected IntervalActivityDto(UUID goalId, ZonedDateTime startTime, boolean shouldSerializeDate, Optional<Spread> spread,
 			Optional<Integer> totalActivityDurationMinutes, boolean hasPrevious, boolean hasNext)
 	{
 		this.goalId = goalId;
@@ -140,8 +140,18 @@ public abstract class IntervalActivityDto
 		return goalId;
 	}
 
+	/**
+	 * The spread, or {@code null} if it should not be serialized.
+	 */
 	@JsonInclude(Include.NON_EMPTY)
-	public List<Integer> getSpread()
+	@JsonProperty("spread")
+	public int[] getSpreadIfIncluded()
+	{
+		return spread.map(Spread::toArray).orElse(null);
+	}
+
+	@JsonIgnore
+	public Optional<Spread> getSpread()
 	{
 		return spread;
 	}
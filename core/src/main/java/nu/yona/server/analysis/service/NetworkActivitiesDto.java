@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.analysis.service;
+
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+import nu.yona.server.Constants;
+import tools.jackson.databind.annotation.JsonDeserialize;
+
+/*
+ * Batch of online activities detected by Smoothwall, possibly for multiple users.
+ * @see AnalysisEngineService
+ * @see NetworkActivityDto
+ */
+@JsonRootName("networkActivities")
+public class NetworkActivitiesDto
+{
+	@JsonRootName("activity")
+	public static class Activity
+	{
+		private final UUID userAnonymizedId;
+		private final NetworkActivityDto networkActivity;
+
+		@JsonCreator
+		public Activity(@JsonProperty(value = "userAnonymizedId", required = true) UUID userAnonymizedId,
+				@JsonProperty("deviceIndex") int deviceIndex,
+				@JsonProperty("categories") @JsonDeserialize(as = TreeSet.class, contentAs = String.class) Set<String> categories,
+				@JsonProperty("url") String url,
+				@JsonFormat(pattern = Constants.ISO_DATE_TIME_PATTERN) @JsonProperty("eventTime") Optional<ZonedDateTime> eventTime)
+		{
+			this.userAnonymizedId = userAnonymizedId;
+			this.networkActivity = new NetworkActivityDto(deviceIndex, categories, url, eventTime);
+		}
+
+		public UUID getUserAnonymizedId()
+		{
+			return userAnonymizedId;
+		}
+
+		public NetworkActivityDto getNetworkActivity()
+		{
+			return networkActivity;
+		}
+	}
+
+	private final List<Activity> activities;
+
+	@JsonCreator
+	public NetworkActivitiesDto(@JsonProperty(value = "activities", required = true) List<Activity> activities)
+	{
+		this.activities = activities;
+	}
+
+	public List<Activity> getActivities()
+	{
+		return Collections.unmodifiableList(activities);
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.service;
@@ -16,13 +16,13 @@ import java.time.temporal.ChronoUnit;
 import java.time.temporal.IsoFields;
 import java.time.temporal.TemporalUnit;
 import java.time.temporal.WeekFields;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.EnumMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -31,6 +31,8 @@ import com.fasterxml.jackson.annotation.JsonRootName;
 
 import nu.yona.server.Translator;
 import nu.yona.server.analysis.entities.IntervalActivity;
+import nu.yona.server.analysis.entities.IntervalActivitySummary;
+import nu.yona.server.analysis.entities.Spread;
 import nu.yona.server.analysis.entities.WeekActivity;
 import nu.yona.server.exceptions.InvalidDataException;
 import nu.yona.server.goals.entities.Goal;
@@ -47,7 +49,7 @@ public class WeekActivityDto extends IntervalActivityDto
 
 	private final Map<DayOfWeek, DayActivityDto> dayActivities;
 
-	private WeekActivityDto(UUID goalId, ZonedDateTime startTime, boolean shouldSerializeDate, List<Integer> spread,
+	private WeekActivityDto(UUID goalId, ZonedDateTime startTime, boolean shouldSerializeDate, Optional<Spread> spread,
 			Optional<Integer> totalActivityDurationMinutes, Map<DayOfWeek, DayActivityDto> dayActivities, boolean hasPrevious,
 			boolean hasNext)
 	{
@@ -106,7 +108,7 @@ public class WeekActivityDto extends IntervalActivityDto
 		boolean includeDetail = levelOfDetail == LevelOfDetail.WEEK_DETAIL;
 		Goal goal = weekActivity.getGoal();
 		return new WeekActivityDto(goal.getId(), weekActivity.getStartTime(), includeDetail,
-				includeDetail ? weekActivity.getSpread() : Collections.emptyList(),
+				includeDetail ? Optional.of(weekActivity.getSpread()) : Optional.empty(),
 				includeDetail ? Optional.of(weekActivity.getTotalActivityDurationMinutes()) : Optional.empty(),
 				weekActivity.getDayActivities().stream().collect(
 						Collectors.toMap(dayActivity -> dayActivity.getStartDate().getDayOfWeek(),
@@ -115,23 +117,41 @@ public class WeekActivityDto extends IntervalActivityDto
 				weekActivity.hasNext());
 	}
 
+	/**
+	 * Creates the DTO from the stored aggregates of the week activity and the DTOs of its days. When the detail is included, the
+	 * summary must have stored aggregates.
+	 */
+	static WeekActivityDto createInstance(LocalDate earliestPossibleDate, IntervalActivitySummary weekActivity,
+			Collection<DayActivityDto> dayActivities, LevelOfDetail levelOfDetail, UserAnonymizedDto userAnonymized)
+	{
+		boolean includeDetail = levelOfDetail == LevelOfDetail.WEEK_DETAIL;
+		GoalDto goal = userAnonymized.getGoal(weekActivity.getGoalId());
+		ZonedDateTime startTime = weekActivity.getStartTime();
+		return new WeekActivityDto(goal.getGoalId(), startTime, includeDetail,
+				includeDetail ? Optional.of(weekActivity.getSpread()) : Optional.empty(),
+				includeDetail ? Optional.of(weekActivity.getTotalActivityDurationMinutes()) : Optional.empty(),
+				dayActivities.stream().collect(
+						Collectors.toMap(dayActivity -> dayActivity.getStartTime().getDayOfWeek(), Function.identity())),
+				IntervalActivity.hasPrevious(earliestPossibleDate, goal, startTime, ChronoUnit.WEEKS),
+				IntervalActivity.hasNext(startTime, ChronoUnit.WEEKS));
+	}
+
 	public static WeekActivityDto createInstanceInactivity(UserAnonymizedDto userAnonymized, LocalDate earliestPossibleDate,
-			Goal goal, ZonedDateTime startOfWeek, LevelOfDetail levelOfDetail, Set<IntervalInactivityDto> missingInactivities)
+			Goal goal, ZonedDateTime startOfWeek, LevelOfDetail levelOfDetail)
 	{
-		missingInactivities.add(IntervalInactivityDto.createWeekInstance(userAnonymized.getId(), goal.getId(), startOfWeek));
 		boolean includeDetail = levelOfDetail == LevelOfDetail.WEEK_DETAIL;
 		WeekActivityDto weekActivity = new WeekActivityDto(goal.getId(), startOfWeek, includeDetail,
-				includeDetail ? DayActivityDto.createInactiveSpread() : Collections.emptyList(),
+				includeDetail ? Optional.of(Spread.empty()) : Optional.empty(),
 				includeDetail ? Optional.of(0) : Optional.empty(), new EnumMap<>(DayOfWeek.class),
 				IntervalActivity.hasPrevious(earliestPossibleDate, goal, startOfWeek, ChronoUnit.WEEKS),
 				IntervalActivity.hasNext(startOfWeek, ChronoUnit.WEEKS));
 		weekActivity.createRequiredInactivityDays(userAnonymized, earliestPossibleDate,
-				userAnonymized.getGoalsForActivityCategory(goal.getActivityCategory()), levelOfDetail, missingInactivities);
+				userAnonymized.getGoalsForActivityCategory(goal.getActivityCategory()), levelOfDetail);
 		return weekActivity;
 	}
 
 	public void createRequiredInactivityDays(UserAnonymizedDto userAnonymized, LocalDate earliestPossibleDate, Set<GoalDto> goals,
-			LevelOfDetail levelOfDetail, Set<IntervalInactivityDto> missingInactivities)
+			LevelOfDetail levelOfDetail)
 	{
 		// if the batch job has already run, skip
 		if (dayActivities.size() == 7)
@@ -145,7 +165,7 @@ public class WeekActivityDto extends IntervalActivityDto
 		// so for consistency it is important that the batch script adding inactivity does so
 		IntStream.range(0, 7).mapToObj(startTime::plusDays).filter(t -> !t.isBefore(earliestPossibleDateTime))
 				.filter(t -> !isInFuture(t, zone)).forEach(t -> determineApplicableGoalForDay(goals, t).ifPresent(
-						g -> addInactiveDayIfNoActivity(userAnonymized, g, t, levelOfDetail, missingInactivities)));
+						g -> addInactiveDayIfNoActivity(g, t, levelOfDetail)));
 	}
 
 	private static boolean isInFuture(ZonedDateTime startOfDay, ZoneId zone)
@@ -158,15 +178,13 @@ public class WeekActivityDto extends IntervalActivityDto
 		return goals.stream().filter(g -> g.wasActiveAtInterval(startOfDay, ChronoUnit.DAYS)).findAny();
 	}
 
-	private void addInactiveDayIfNoActivity(UserAnonymizedDto userAnonymized, GoalDto goal, ZonedDateTime startOfDay,
-			LevelOfDetail levelOfDetail, Set<IntervalInactivityDto> missingInactivities)
+	private void addInactiveDayIfNoActivity(GoalDto goal, ZonedDateTime startOfDay, LevelOfDetail levelOfDetail)
 	{
 		DayOfWeek dayOfWeek = startOfDay.getDayOfWeek();
 		if (dayActivities.containsKey(dayOfWeek))
 		{
 			return;
 		}
-		dayActivities.put(dayOfWeek,
-				DayActivityDto.createInstanceInactivity(userAnonymized, goal, startOfDay, levelOfDetail, missingInactivities));
+		dayActivities.put(dayOfWeek, DayActivityDto.createInstanceInactivity(goal, startOfDay, levelOfDetail));
 	}
 }
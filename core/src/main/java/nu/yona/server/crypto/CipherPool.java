@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.crypto;
+
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Thread-confined pool of cipher instances, so the expensive provider lookup of {@link Cipher#getInstance(String)} is done once
+ * per thread and transformation, rather than for every crypto session or message. A borrowed cipher is exclusively owned by the
+ * borrower until it is returned, so nested crypto sessions on the same thread each get their own instance. A returned cipher is
+ * re-initialized with a throwaway key, so the pool does not keep the keys of its previous borrowers in memory for the life of the
+ * thread. Ciphers of which the key cannot be cleared are not pooled. Borrowers must always initialize the cipher before using it.
+ */
+public class CipherPool
+{
+	private static final int MAX_POOLED_PER_TRANSFORMATION = 4;
+	private static final ThreadLocal<Map<String, Deque<Cipher>>> pooledCiphers = ThreadLocal.withInitial(HashMap::new);
+
+	private CipherPool()
+	{
+		// No instances
+	}
+
+	public static Cipher borrow(String transformation)
+	{
+		Cipher cipher = pooledCiphers.get().computeIfAbsent(transformation, k -> new ArrayDeque<>()).pollFirst();
+		if (cipher != null)
+		{
+			return cipher;
+		}
+		try
+		{
+			return Cipher.getInstance(transformation);
+		}
+		catch (NoSuchAlgorithmException | NoSuchPaddingException e)
+		{
+			throw CryptoException.gettingCipher(e, transformation);
+		}
+	}
+
+	/**
+	 * Returns the given cipher to the pool of the current thread. The cipher must not be used anymore by the caller.
+	 */
+	public static void giveBack(Cipher cipher)
+	{
+		if (cipher == null)
+		{
+			return;
+		}
+		// The algorithm of a cipher is the transformation it was created for
+		Deque<Cipher> ciphers = pooledCiphers.get().computeIfAbsent(cipher.getAlgorithm(), k -> new ArrayDeque<>());
+		if (ciphers.size() < MAX_POOLED_PER_TRANSFORMATION && clearKey(cipher))
+		{
+			ciphers.addFirst(cipher);
+		}
+	}
+
+	private static boolean clearKey(Cipher cipher)
+	{
+		Optional<Key> throwawayKey = getThrowawayKey(cipher.getAlgorithm());
+		if (throwawayKey.isEmpty())
+		{
+			return false;
+		}
+		try
+		{
+			cipher.init(Cipher.ENCRYPT_MODE, throwawayKey.get());
+			return true;
+		}
+		catch (InvalidKeyException e)
+		{
+			return false;
+		}
+	}
+
+	private static Optional<Key> getThrowawayKey(String transformation)
+	{
+		String keyAlgorithm = transformation.split("/", 2)[0];
+		return switch (keyAlgorithm)
+		{
+			case "AES" -> Optional.of(AesThrowawayKeyHolder.KEY);
+			case "RSA" -> Optional.of(RsaThrowawayKeyHolder.KEY);
+			default -> Optional.empty();
+		};
+	}
+
+	private static class AesThrowawayKeyHolder
+	{
+		private static final Key KEY = new SecretKeySpec(new byte[16], "AES");
+	}
+
+	/**
+	 * Generating an RSA key pair is expensive, so this is done once, the first time an RSA cipher is returned. Only the public key is
+	 * used, so the private key is garbage right away.
+	 */
+	private static class RsaThrowawayKeyHolder
+	{
+		private static final Key KEY = generateKey();
+
+		private static Key generateKey()
+		{
+			try
+			{
+				KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
+				keyGen.initialize(2048);
+				return keyGen.generateKeyPair().getPublic();
+			}
+			catch (NoSuchAlgorithmException e)
+			{
+				throw CryptoException.generatingKey(e);
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2017, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2017, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.crypto;
@@ -21,6 +21,10 @@ import org.apache.commons.lang3.StringUtils;
 public class CryptoUtil
 {
 	public static final int CRYPTO_VARIANT_NUMBER_LENGTH = 1;
+	/**
+	 * SHA1PRNG is synchronized, so each thread gets its own instance rather than sharing one.
+	 */
+	private static final ThreadLocal<SecureRandom> secureRandom = ThreadLocal.withInitial(CryptoUtil::createSecureRandom);
 
 	private CryptoUtil()
 	{
@@ -47,7 +51,15 @@ public class CryptoUtil
 		return StringUtils.leftPad(Integer.toString(random.nextInt((int) Math.pow(10, length))), length, '0');
 	}
 
+	/**
+	 * Returns the secure random instance of the current thread. The instance must not be passed to other threads.
+	 */
 	public static SecureRandom getSecureRandomInstance()
+	{
+		return secureRandom.get();
+	}
+
+	private static SecureRandom createSecureRandom()
 	{
 		try
 		{
@@ -66,17 +78,28 @@ public class CryptoUtil
 	 * @return the encrypted bytes, with the crypto variant number prepended to it.
 	 */
 	public static byte[] encrypt(byte cryptoVariantNumber, Cipher cipher, byte[] plaintext)
+	{
+		byte[] ciphertext = new byte[getMaxCiphertextLength(cipher, plaintext.length)];
+		int ciphertextLength = encrypt(cryptoVariantNumber, cipher, plaintext, 0, plaintext.length, ciphertext, 0);
+		return (ciphertextLength == ciphertext.length) ? ciphertext : Arrays.copyOf(ciphertext, ciphertextLength);
+	}
+
+	/**
+	 * Encrypts the given plaintext bytes into the given buffer, without allocating.
+	 *
+	 * @param plaintext the buffer holding the bytes to be encrypted
+	 * @param ciphertext the buffer to store the crypto variant number and the encrypted bytes in. It must hold at least
+	 *            {@link #getMaxCiphertextLength(Cipher, int)} bytes from the given offset.
+	 * @return the number of bytes stored in the ciphertext buffer, including the crypto variant number
+	 */
+	public static int encrypt(byte cryptoVariantNumber, Cipher cipher, byte[] plaintext, int plaintextOffset,
+			int plaintextLength, byte[] ciphertext, int ciphertextOffset)
 	{
 		try
 		{
-			byte[] ciphertext = new byte[cipher.getOutputSize(plaintext.length) + CRYPTO_VARIANT_NUMBER_LENGTH];
-			setCryptoVariantNumber(cryptoVariantNumber, ciphertext);
-			int bytesStored = cipher.doFinal(plaintext, 0, plaintext.length, ciphertext, 1);
-			if (bytesStored != ciphertext.length - CRYPTO_VARIANT_NUMBER_LENGTH)
-			{
-				ciphertext = Arrays.copyOf(ciphertext, ciphertext.length + CRYPTO_VARIANT_NUMBER_LENGTH);
-			}
-			return ciphertext;
+			ciphertext[ciphertextOffset] = cryptoVariantNumber;
+			return cipher.doFinal(plaintext, plaintextOffset, plaintextLength, ciphertext,
+					ciphertextOffset + CRYPTO_VARIANT_NUMBER_LENGTH) + CRYPTO_VARIANT_NUMBER_LENGTH;
 		}
 		catch (IllegalBlockSizeException | BadPaddingException | ShortBufferException e)
 		{
@@ -84,6 +107,11 @@ public class CryptoUtil
 		}
 	}
 
+	public static int getMaxCiphertextLength(Cipher cipher, int plaintextLength)
+	{
+		return cipher.getOutputSize(plaintextLength) + CRYPTO_VARIANT_NUMBER_LENGTH;
+	}
+
 	public static SecretKeySpec secretKeyFromBytes(byte[] secretKeyBytes)
 	{
 		return new SecretKeySpec(secretKeyBytes, "AES");
@@ -96,18 +124,28 @@ public class CryptoUtil
 	 * @return the decrypted bytes
 	 */
 	public static byte[] decrypt(byte cryptoVariantNumber, Cipher cipher, byte[] ciphertext)
+	{
+		byte[] plaintext = new byte[getMaxPlaintextLength(cipher, ciphertext.length)];
+		int plaintextLength = decrypt(cryptoVariantNumber, cipher, ciphertext, 0, ciphertext.length, plaintext, 0);
+		return (plaintextLength == plaintext.length) ? plaintext : Arrays.copyOf(plaintext, plaintextLength);
+	}
+
+	/**
+	 * Decrypts the given ciphertext bytes into the given buffer, without allocating.
+	 *
+	 * @param ciphertext the buffer holding the bytes to be decrypted, with a leading crypto variant number
+	 * @param plaintext the buffer to store the decrypted bytes in. It must hold at least
+	 *            {@link #getMaxPlaintextLength(Cipher, int)} bytes from the given offset.
+	 * @return the number of bytes stored in the plaintext buffer
+	 */
+	public static int decrypt(byte cryptoVariantNumber, Cipher cipher, byte[] ciphertext, int ciphertextOffset,
+			int ciphertextLength, byte[] plaintext, int plaintextOffset)
 	{
 		try
 		{
-			assertValidCryptoVariantNumber(cryptoVariantNumber, ciphertext);
-			byte[] plaintext = new byte[cipher.getOutputSize(ciphertext.length)];
-			int bytesStored = cipher.doFinal(ciphertext, CRYPTO_VARIANT_NUMBER_LENGTH,
-					ciphertext.length - CRYPTO_VARIANT_NUMBER_LENGTH, plaintext, 0);
-			if (bytesStored != plaintext.length)
-			{
-				plaintext = Arrays.copyOf(plaintext, bytesStored);
-			}
-			return plaintext;
+			assertValidCryptoVariantNumber(cryptoVariantNumber, ciphertext[ciphertextOffset]);
+			return cipher.doFinal(ciphertext, ciphertextOffset + CRYPTO_VARIANT_NUMBER_LENGTH,
+					ciphertextLength - CRYPTO_VARIANT_NUMBER_LENGTH, plaintext, plaintextOffset);
 		}
 		catch (IllegalBlockSizeException | BadPaddingException | ShortBufferException e)
 		{
@@ -115,14 +153,14 @@ public class CryptoUtil
 		}
 	}
 
-	private static void setCryptoVariantNumber(byte cryptoVariantNumber, byte[] ciphertext)
+	public static int getMaxPlaintextLength(Cipher cipher, int ciphertextLength)
 	{
-		ciphertext[0] = cryptoVariantNumber;
+		return cipher.getOutputSize(ciphertextLength);
 	}
 
-	private static void assertValidCryptoVariantNumber(byte cryptoVariantNumber, byte[] ciphertext)
+	private static void assertValidCryptoVariantNumber(byte cryptoVariantNumber, byte actualCryptoVariantNumber)
 	{
-		if (ciphertext[0] != cryptoVariantNumber)
+		if (actualCryptoVariantNumber != cryptoVariantNumber)
 		{
 			throw CryptoException.decryptingData();
 		}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.crypto;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+/**
+ * Keyed hash with a random hash key that only lives in the memory of this process, to identify secrets (like passwords or private
+ * keys) without keeping them. The hashes are only comparable within the same instance, so they must never be persisted or shared
+ * with other nodes.
+ */
+public class KeyedHash
+{
+	private static final String KEYED_HASH_ALGORITHM = "HmacSHA256";
+
+	private final SecretKey hashKey;
+
+	private KeyedHash()
+	{
+		hashKey = createHashKey();
+	}
+
+	public static KeyedHash createInstance()
+	{
+		return new KeyedHash();
+	}
+
+	public byte[] hash(byte[] bytes)
+	{
+		try
+		{
+			Mac mac = Mac.getInstance(KEYED_HASH_ALGORITHM);
+			mac.init(hashKey);
+			return mac.doFinal(bytes);
+		}
+		catch (NoSuchAlgorithmException | InvalidKeyException e)
+		{
+			throw CryptoException.creatingSecretKey(e);
+		}
+	}
+
+	private static SecretKey createHashKey()
+	{
+		try
+		{
+			KeyGenerator keyGenerator = KeyGenerator.getInstance(KEYED_HASH_ALGORITHM);
+			keyGenerator.init(256, new SecureRandom());
+			return keyGenerator.generateKey();
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw CryptoException.creatingSecretKey(e);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.crypto;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.function.Function;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Bounded, short-lived cache of secret bytes in the memory of this process. The lookup keys are not kept: the cache is keyed by a
+ * {@link KeyedHash} of the lookup key. The secret bytes of evicted entries are overwritten with zeros.
+ */
+public class ZeroizingCache
+{
+	private final KeyedHash keyedHash = KeyedHash.createInstance();
+	private final Cache<String, Entry> cache;
+
+	private ZeroizingCache(int maxEntries, Duration timeToLive)
+	{
+		// Zeroize on the evicting thread, rather than asynchronously on the common pool
+		cache = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(timeToLive).executor(Runnable::run)
+				.<String, Entry> removalListener((k, v, c) -> {
+					if (v != null)
+					{
+						v.destroy();
+					}
+				}).build();
+	}
+
+	public static ZeroizingCache createInstance(int maxEntries, Duration timeToLive)
+	{
+		return new ZeroizingCache(maxEntries, timeToLive);
+	}
+
+	/**
+	 * Returns the value that the given reader creates from the cached bytes. The bytes are zeroized when the entry is evicted, so
+	 * the reader must copy whatever it keeps of them.
+	 */
+	public <T> Optional<T> get(byte[] key, Function<byte[], Optional<T>> reader)
+	{
+		Entry entry = cache.getIfPresent(hash(key));
+		// The entry might have been destroyed after the lookup, then it's just a miss
+		return (entry == null) ? Optional.empty() : entry.read(reader);
+	}
+
+	/**
+	 * Caches the given secret bytes. The cache takes ownership of the array, so the caller must not use it anymore.
+	 */
+	public void put(byte[] key, byte[] secretBytes)
+	{
+		cache.put(hash(key), new Entry(secretBytes));
+	}
+
+	public void invalidate(byte[] key)
+	{
+		cache.invalidate(hash(key));
+	}
+
+	public void invalidateAll()
+	{
+		cache.invalidateAll();
+		cache.cleanUp();
+	}
+
+	private String hash(byte[] key)
+	{
+		return Base64.getEncoder().encodeToString(keyedHash.hash(key));
+	}
+
+	private static class Entry
+	{
+		private final byte[] secretBytes;
+		private boolean isDestroyed;
+
+		Entry(byte[] secretBytes)
+		{
+			this.secretBytes = secretBytes;
+		}
+
+		synchronized <T> Optional<T> read(Function<byte[], Optional<T>> reader)
+		{
+			return isDestroyed ? Optional.empty() : reader.apply(secretBytes);
+		}
+
+		synchronized void destroy()
+		{
+			Arrays.fill(secretBytes, (byte) 0);
+			isDestroyed = true;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.crypto.pubkey;
+
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+import nu.yona.server.crypto.KeyedHash;
+import nu.yona.server.crypto.ZeroizingCache;
+
+/**
+ * Bounded, short-lived cache of the decryption info decrypted with a private key, so polling the same messages repeatedly does
+ * not repeat the expensive private key operations. Entries are keyed by the encrypted decryption info and can only be retrieved
+ * by the holder of the private key that decrypted them: each entry starts with a keyed hash of that private key as fingerprint,
+ * followed by the decrypted bytes. The cache is not shared with other nodes and it is never persisted.
+ */
+class DecryptionInfoCache
+{
+	private static final KeyedHash privateKeyHash = KeyedHash.createInstance();
+
+	private final ZeroizingCache cache;
+
+	private DecryptionInfoCache(int maxEntries, Duration timeToLive)
+	{
+		cache = ZeroizingCache.createInstance(maxEntries, timeToLive);
+	}
+
+	static DecryptionInfoCache createInstance(int maxEntries, Duration timeToLive)
+	{
+		return new DecryptionInfoCache(maxEntries, timeToLive);
+	}
+
+	/**
+	 * Returns the fingerprint of the given private key. This encodes the private key, so call this once per private key rather than
+	 * once per lookup.
+	 */
+	static byte[] getFingerprint(PrivateKey privateKey)
+	{
+		byte[] encodedPrivateKey = privateKey.getEncoded();
+		try
+		{
+			return privateKeyHash.hash(encodedPrivateKey);
+		}
+		finally
+		{
+			Arrays.fill(encodedPrivateKey, (byte) 0);
+		}
+	}
+
+	Optional<DecryptionInfo> get(byte[] privateKeyFingerprint, byte[] decryptionInfoBytes)
+	{
+		return cache.get(decryptionInfoBytes, b -> toDecryptionInfo(privateKeyFingerprint, b));
+	}
+
+	/**
+	 * Caches the given decrypted bytes. These are overwritten with zeros, so the caller must not use them anymore.
+	 */
+	void put(byte[] privateKeyFingerprint, byte[] decryptionInfoBytes, byte[] decryptedBytes)
+	{
+		byte[] entryBytes = new byte[privateKeyFingerprint.length + decryptedBytes.length];
+		System.arraycopy(privateKeyFingerprint, 0, entryBytes, 0, privateKeyFingerprint.length);
+		System.arraycopy(decryptedBytes, 0, entryBytes, privateKeyFingerprint.length, decryptedBytes.length);
+		Arrays.fill(decryptedBytes, (byte) 0);
+		cache.put(decryptionInfoBytes, entryBytes);
+	}
+
+	void invalidate(byte[] decryptionInfoBytes)
+	{
+		cache.invalidate(decryptionInfoBytes);
+	}
+
+	void invalidateAll()
+	{
+		cache.invalidateAll();
+	}
+
+	private static Optional<DecryptionInfo> toDecryptionInfo(byte[] privateKeyFingerprint, byte[] entryBytes)
+	{
+		int fingerprintLength = privateKeyFingerprint.length;
+		if (!MessageDigest.isEqual(Arrays.copyOf(entryBytes, fingerprintLength), privateKeyFingerprint))
+		{
+			return Optional.empty();
+		}
+		byte[] decryptedBytes = Arrays.copyOfRange(entryBytes, fingerprintLength, entryBytes.length);
+		try
+		{
+			// The decryption info copies the bytes, so zeroizing them does not affect decryption info that is in use
+			return Optional.of(new DecryptionInfo(decryptedBytes));
+		}
+		finally
+		{
+			Arrays.fill(decryptedBytes, (byte) 0);
+		}
+	}
+}
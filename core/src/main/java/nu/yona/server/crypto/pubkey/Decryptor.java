@@ -1,11 +1,28 @@
 /*
- * Copyright (c) 2015, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.crypto.pubkey;
 
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
 @FunctionalInterface
 public interface Decryptor
 {
 	void executeInCryptoSession(byte[] decryptionInfo, Runnable runnable);
+
+	/**
+	 * Executes the given action for each of the given items, in the crypto session of the decryption info of that item. The
+	 * actions are executed on the calling thread, in the order of the items.
+	 *
+	 * @param items The items to execute the action for
+	 * @param decryptionInfoGetter Returns the decryption info of an item
+	 * @param action The action to execute in the crypto session of the item
+	 */
+	default <T> void executeInCryptoSessions(Collection<T> items, Function<T, byte[]> decryptionInfoGetter, Consumer<T> action)
+	{
+		items.forEach(i -> executeInCryptoSession(decryptionInfoGetter.apply(i), () -> action.accept(i)));
+	}
 }
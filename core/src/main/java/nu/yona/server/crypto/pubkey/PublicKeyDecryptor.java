@@ -1,21 +1,40 @@
 /*
- * Copyright (c) 2015, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.crypto.pubkey;
 
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.security.PrivateKey;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import javax.crypto.Cipher;
 
+import nu.yona.server.crypto.CipherPool;
 import nu.yona.server.crypto.CryptoException;
 import nu.yona.server.crypto.CryptoUtil;
 import nu.yona.server.crypto.seckey.CryptoSession;
 
 public class PublicKeyDecryptor implements Decryptor
 {
+	private static volatile Optional<DecryptionInfoCache> decryptionInfoCache = Optional.empty();
+	private static volatile Optional<ExecutorService> decryptionExecutor = Optional.empty();
 	private final PrivateKey privateKey;
+	private volatile byte[] privateKeyFingerprint;
 
 	private PublicKeyDecryptor(PrivateKey privateKey)
 	{
@@ -32,6 +51,64 @@ public class PublicKeyDecryptor implements Decryptor
 		return new PublicKeyDecryptor(privateKey);
 	}
 
+	/**
+	 * Enables caching the decrypted decryption info in the memory of this process, so decrypting the same data again does not
+	 * repeat the private key operations. The cache is disabled by default.
+	 *
+	 * @param maxEntries The maximum number of cached decryption infos
+	 * @param timeToLive The time after which a cached decryption info is evicted
+	 */
+	public static void enableDecryptionInfoCache(int maxEntries, Duration timeToLive)
+	{
+		disableDecryptionInfoCache();
+		decryptionInfoCache = Optional.of(DecryptionInfoCache.createInstance(maxEntries, timeToLive));
+	}
+
+	public static void disableDecryptionInfoCache()
+	{
+		Optional<DecryptionInfoCache> previousDecryptionInfoCache = decryptionInfoCache;
+		decryptionInfoCache = Optional.empty();
+		previousDecryptionInfoCache.ifPresent(DecryptionInfoCache::invalidateAll);
+	}
+
+	/**
+	 * Enables decrypting the distinct decryption infos of a batch of items in parallel, on a dedicated pool with the given number
+	 * of threads. Parallel decryption is disabled by default, then these are decrypted on the calling thread.
+	 *
+	 * @param threadCount The number of threads that decrypt decryption infos
+	 */
+	public static void enableParallelDecryption(int threadCount)
+	{
+		disableParallelDecryption();
+		decryptionExecutor = Optional.of(Executors.newFixedThreadPool(threadCount, r -> {
+			Thread thread = new Thread(r, "publicKeyDecryptor");
+			// Do not block shutdown, the calling threads wait for the decryptions anyway
+			thread.setDaemon(true);
+			return thread;
+		}));
+	}
+
+	public static void disableParallelDecryption()
+	{
+		Optional<ExecutorService> previousDecryptionExecutor = decryptionExecutor;
+		decryptionExecutor = Optional.empty();
+		previousDecryptionExecutor.ifPresent(ExecutorService::shutdown);
+	}
+
+	/**
+	 * Evicts the given decryption info from the cache, if the cache is enabled. To be called when the data encrypted with it is
+	 * deleted.
+	 *
+	 * @param decryptionInfoBytes The encrypted decryption info
+	 */
+	public static void evictCachedDecryptionInfo(byte[] decryptionInfoBytes)
+	{
+		if (decryptionInfoBytes != null)
+		{
+			decryptionInfoCache.ifPresent(c -> c.invalidate(decryptionInfoBytes));
+		}
+	}
+
 	byte[] decrypt(byte[] ciphertext)
 	{
 		try
@@ -40,10 +117,17 @@ public class PublicKeyDecryptor implements Decryptor
 			{
 				return null;
 			}
-			Cipher decryptCipher = Cipher.getInstance(PublicKeyUtil.CIPHER_TYPE);
-			decryptCipher.init(Cipher.DECRYPT_MODE, privateKey);
+			Cipher decryptCipher = CipherPool.borrow(PublicKeyUtil.CIPHER_TYPE);
+			try
+			{
+				decryptCipher.init(Cipher.DECRYPT_MODE, privateKey);
 
-			return CryptoUtil.decrypt(PublicKeyUtil.CURRENT_SMALL_PLAINTEXT_CRYPTO_VARIANT_NUMBER, decryptCipher, ciphertext);
+				return CryptoUtil.decrypt(PublicKeyUtil.CURRENT_SMALL_PLAINTEXT_CRYPTO_VARIANT_NUMBER, decryptCipher, ciphertext);
+			}
+			finally
+			{
+				CipherPool.giveBack(decryptCipher);
+			}
 		}
 		catch (GeneralSecurityException e)
 		{
@@ -54,7 +138,108 @@ public class PublicKeyDecryptor implements Decryptor
 	@Override
 	public void executeInCryptoSession(byte[] decryptionInfoBytes, Runnable runnable)
 	{
-		DecryptionInfo decryptionInfo = new DecryptionInfo(decrypt(decryptionInfoBytes));
+		if (decryptionInfoBytes == null)
+		{
+			throw CryptoException.decryptingData();
+		}
+		Optional<DecryptionInfoCache> cache = decryptionInfoCache;
+		executeInCryptoSession(getDecryptionInfo(cache, getFingerprint(cache), decryptionInfoBytes), runnable);
+	}
+
+	/**
+	 * Executes the action for each of the given items in its crypto session. The private key operations dominate the cost, so
+	 * these are done only once per distinct decryption info, and in parallel if parallel decryption is enabled. The crypto
+	 * sessions themselves are bound to the calling thread, so the actions are executed sequentially on that thread. If any of the
+	 * items lacks decryption info, this fails before executing any action.
+	 */
+	@Override
+	public <T> void executeInCryptoSessions(Collection<T> items, Function<T, byte[]> decryptionInfoGetter, Consumer<T> action)
+	{
+		List<byte[]> decryptionInfoBytes = items.stream().map(decryptionInfoGetter).toList();
+		if (decryptionInfoBytes.stream().anyMatch(Objects::isNull))
+		{
+			throw CryptoException.decryptingData();
+		}
+		Optional<DecryptionInfoCache> cache = decryptionInfoCache;
+		Optional<byte[]> privateKeyFingerprint = getFingerprint(cache);
+		// A byte buffer compares the contents of the array it wraps
+		List<ByteBuffer> distinctDecryptionInfoBytes = decryptionInfoBytes.stream().map(ByteBuffer::wrap).distinct().toList();
+		Map<ByteBuffer, DecryptionInfo> decryptionInfos = getDecryptionInfos(distinctDecryptionInfoBytes,
+				b -> getDecryptionInfo(cache, privateKeyFingerprint, b.array()));
+		items.forEach(i -> executeInCryptoSession(decryptionInfos.get(ByteBuffer.wrap(decryptionInfoGetter.apply(i))),
+				() -> action.accept(i)));
+	}
+
+	private static Map<ByteBuffer, DecryptionInfo> getDecryptionInfos(List<ByteBuffer> decryptionInfoBytes,
+			Function<ByteBuffer, DecryptionInfo> decryptionInfoGetter)
+	{
+		Optional<ExecutorService> executor = decryptionExecutor;
+		if (executor.isEmpty() || decryptionInfoBytes.size() < 2)
+		{
+			return decryptionInfoBytes.stream().collect(Collectors.toMap(Function.identity(), decryptionInfoGetter));
+		}
+		Map<ByteBuffer, CompletableFuture<DecryptionInfo>> futures = decryptionInfoBytes.stream().collect(Collectors.toMap(
+				Function.identity(), b -> CompletableFuture.supplyAsync(() -> decryptionInfoGetter.apply(b), executor.get())));
+		Map<ByteBuffer, DecryptionInfo> decryptionInfos = new HashMap<>();
+		futures.forEach((b, f) -> decryptionInfos.put(b, join(f)));
+		return decryptionInfos;
+	}
+
+	private static DecryptionInfo join(CompletableFuture<DecryptionInfo> future)
+	{
+		try
+		{
+			return future.join();
+		}
+		catch (CompletionException e)
+		{
+			// Rethrow the original exception, as if the decryption was done on the calling thread
+			if (e.getCause() instanceof RuntimeException cause)
+			{
+				throw cause;
+			}
+			throw e;
+		}
+	}
+
+	private Optional<byte[]> getFingerprint(Optional<DecryptionInfoCache> cache)
+	{
+		return cache.map(c -> getPrivateKeyFingerprint());
+	}
+
+	private byte[] getPrivateKeyFingerprint()
+	{
+		// Concurrent callers compute the same fingerprint, so there is no need to synchronize
+		byte[] fingerprint = privateKeyFingerprint;
+		if (fingerprint == null)
+		{
+			fingerprint = DecryptionInfoCache.getFingerprint(privateKey);
+			privateKeyFingerprint = fingerprint;
+		}
+		return fingerprint;
+	}
+
+	private DecryptionInfo getDecryptionInfo(Optional<DecryptionInfoCache> cache, Optional<byte[]> privateKeyFingerprint,
+			byte[] decryptionInfoBytes)
+	{
+		if (cache.isEmpty() || privateKeyFingerprint.isEmpty())
+		{
+			return new DecryptionInfo(decrypt(decryptionInfoBytes));
+		}
+		Optional<DecryptionInfo> cachedDecryptionInfo = cache.get().get(privateKeyFingerprint.get(), decryptionInfoBytes);
+		if (cachedDecryptionInfo.isPresent())
+		{
+			return cachedDecryptionInfo.get();
+		}
+		byte[] decryptedBytes = decrypt(decryptionInfoBytes);
+		// Create the decryption info before caching the bytes, as caching zeroizes these
+		DecryptionInfo decryptionInfo = new DecryptionInfo(decryptedBytes);
+		cache.get().put(privateKeyFingerprint.get(), decryptionInfoBytes, decryptedBytes);
+		return decryptionInfo;
+	}
+
+	private void executeInCryptoSession(DecryptionInfo decryptionInfo, Runnable runnable)
+	{
 		try (CryptoSession cryptoSession = CryptoSession.start(decryptionInfo.getSecretKey()))
 		{
 			cryptoSession.setInitializationVector(decryptionInfo.getInitializationVector());
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.crypto.pubkey;
@@ -10,6 +10,7 @@ import java.security.PublicKey;
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 
+import nu.yona.server.crypto.CipherPool;
 import nu.yona.server.crypto.CryptoException;
 import nu.yona.server.crypto.CryptoUtil;
 import nu.yona.server.crypto.seckey.CryptoSession;
@@ -42,10 +43,17 @@ public class PublicKeyEncryptor implements Encryptor
 			{
 				return null;
 			}
-			Cipher encryptCipher = Cipher.getInstance(PublicKeyUtil.CIPHER_TYPE);
-			encryptCipher.init(Cipher.ENCRYPT_MODE, publicKey);
+			Cipher encryptCipher = CipherPool.borrow(PublicKeyUtil.CIPHER_TYPE);
+			try
+			{
+				encryptCipher.init(Cipher.ENCRYPT_MODE, publicKey);
 
-			return CryptoUtil.encrypt(PublicKeyUtil.CURRENT_SMALL_PLAINTEXT_CRYPTO_VARIANT_NUMBER, encryptCipher, plaintext);
+				return CryptoUtil.encrypt(PublicKeyUtil.CURRENT_SMALL_PLAINTEXT_CRYPTO_VARIANT_NUMBER, encryptCipher, plaintext);
+			}
+			finally
+			{
+				CipherPool.giveBack(encryptCipher);
+			}
 		}
 		catch (GeneralSecurityException e)
 		{
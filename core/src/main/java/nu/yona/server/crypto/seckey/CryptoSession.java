@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2018 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.crypto.seckey;
@@ -10,12 +10,12 @@ import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.InvalidParameterSpecException;
 import java.security.spec.KeySpec;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Optional;
 
 import javax.crypto.Cipher;
-import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.IvParameterSpec;
@@ -24,6 +24,7 @@ import javax.crypto.spec.PBEKeySpec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import nu.yona.server.crypto.CipherPool;
 import nu.yona.server.crypto.CryptoException;
 import nu.yona.server.crypto.CryptoUtil;
 import nu.yona.server.exceptions.YonaException;
@@ -43,6 +44,7 @@ public class CryptoSession implements AutoCloseable
 	private static final Logger logger = LoggerFactory.getLogger(CryptoSession.class);
 	private static final int ITERATIONS_FOR_MULTIUSE_KEY = 1000;
 	private static final ThreadLocal<CryptoSession> threadLocal = new ThreadLocal<>();
+	private static volatile Optional<DerivedKeyCache> derivedKeyCache = Optional.empty();
 	private Cipher encryptionCipher;
 	private Optional<byte[]> initializationVector = Optional.empty();
 	private final SecretKey secretKey;
@@ -60,6 +62,10 @@ public class CryptoSession implements AutoCloseable
 	public void close()
 	{
 		logger.debug("Closing crypto session on thread {}", Thread.currentThread());
+		CipherPool.giveBack(encryptionCipher);
+		encryptionCipher = null;
+		CipherPool.giveBack(decryptionCipher);
+		decryptionCipher = null;
 		if (previousCryptoSession == null)
 		{
 			threadLocal.remove();
@@ -83,22 +89,34 @@ public class CryptoSession implements AutoCloseable
 	{
 		try
 		{
-			encryptionCipher = Cipher.getInstance(CIPHER_TYPE);
-			if (!isInitializationVectorSet())
-			{
-				encryptionCipher.init(Cipher.ENCRYPT_MODE, secretKey);
-			}
-			else
-			{
-				encryptionCipher.init(Cipher.ENCRYPT_MODE, secretKey, new IvParameterSpec(initializationVector.get()));
-			}
+			encryptionCipher = borrowInitializedCipher(Cipher.ENCRYPT_MODE, initializationVector.map(IvParameterSpec::new));
 		}
-		catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException | InvalidAlgorithmParameterException e)
+		catch (InvalidKeyException | InvalidAlgorithmParameterException e)
 		{
 			throw CryptoException.gettingCipher(e, CIPHER_TYPE);
 		}
 	}
 
+	/**
+	 * Enables caching the secret keys derived from passwords in the memory of this process, so starting a session with the same
+	 * password again does not repeat the key derivation. The cache is disabled by default.
+	 *
+	 * @param maxEntries The maximum number of cached secret keys
+	 * @param timeToLive The time after which a cached secret key is evicted
+	 */
+	public static void enableDerivedKeyCache(int maxEntries, Duration timeToLive)
+	{
+		disableDerivedKeyCache();
+		derivedKeyCache = Optional.of(DerivedKeyCache.createInstance(maxEntries, timeToLive));
+	}
+
+	public static void disableDerivedKeyCache()
+	{
+		Optional<DerivedKeyCache> previousDerivedKeyCache = derivedKeyCache;
+		derivedKeyCache = Optional.empty();
+		previousDerivedKeyCache.ifPresent(DerivedKeyCache::invalidateAll);
+	}
+
 	public static CryptoSession start(String password)
 	{
 		return start(Optional.of(password), null);
@@ -107,13 +125,20 @@ public class CryptoSession implements AutoCloseable
 	public static CryptoSession start(Optional<String> optionalPassword, VoidPredicate passwordChecker)
 	{
 		String password = getPassword(optionalPassword);
-		CryptoSession session = start(getSecretKey(password));
+		Optional<SecretKey> cachedSecretKey = getCachedSecretKey(password);
+		SecretKey secretKey = cachedSecretKey.orElseGet(() -> getSecretKey(password));
+		CryptoSession session = start(secretKey);
 		try
 		{
 			if (passwordChecker != null && !passwordChecker.test())
 			{
 				throw CryptoException.decryptingData();
 			}
+			if (cachedSecretKey.isEmpty() && !passwordIsAesKey(password))
+			{
+				// Only cache keys of passwords that passed the check, so wrong passwords cannot flush the cache
+				derivedKeyCache.ifPresent(c -> c.put(password, secretKey));
+			}
 		}
 		catch (Exception e)
 		{
@@ -130,6 +155,17 @@ public class CryptoSession implements AutoCloseable
 		return new CryptoSession(secretKey, threadLocal.get());
 	}
 
+	/**
+	 * Starts a crypto session with the key and initialization vector of the given one, to decrypt data that was loaded in that
+	 * session while another one is current.
+	 */
+	static CryptoSession startWithKeyOf(CryptoSession cryptoSession)
+	{
+		CryptoSession newCryptoSession = start(cryptoSession.secretKey);
+		cryptoSession.initializationVector.ifPresent(newCryptoSession::setInitializationVector);
+		return newCryptoSession;
+	}
+
 	public static boolean isActive()
 	{
 		return threadLocal.get() != null;
@@ -161,6 +197,23 @@ public class CryptoSession implements AutoCloseable
 		return CryptoUtil.encrypt(CURRENT_CRYPTO_VARIANT_NUMBER, getEncryptionCipher(), plaintext);
 	}
 
+	/**
+	 * Encrypts the given plaintext bytes into the given buffer. See
+	 * {@link CryptoUtil#encrypt(byte, Cipher, byte[], int, int, byte[], int)}.
+	 *
+	 * @return the number of bytes stored in the ciphertext buffer, including the crypto variant number
+	 */
+	public int encrypt(byte[] plaintext, int plaintextOffset, int plaintextLength, byte[] ciphertext, int ciphertextOffset)
+	{
+		return CryptoUtil.encrypt(CURRENT_CRYPTO_VARIANT_NUMBER, getEncryptionCipher(), plaintext, plaintextOffset,
+				plaintextLength, ciphertext, ciphertextOffset);
+	}
+
+	public int getMaxCiphertextLength(int plaintextLength)
+	{
+		return CryptoUtil.getMaxCiphertextLength(getEncryptionCipher(), plaintextLength);
+	}
+
 	/**
 	 * Decrypts the given ciphertext bytes.
 	 *
@@ -172,6 +225,33 @@ public class CryptoSession implements AutoCloseable
 		return CryptoUtil.decrypt(CURRENT_CRYPTO_VARIANT_NUMBER, getDecryptionCipher(), ciphertext);
 	}
 
+	/**
+	 * Decrypts the given ciphertext bytes into the given buffer. See
+	 * {@link CryptoUtil#decrypt(byte, Cipher, byte[], int, int, byte[], int)}.
+	 *
+	 * @return the number of bytes stored in the plaintext buffer
+	 */
+	public int decrypt(byte[] ciphertext, int ciphertextOffset, int ciphertextLength, byte[] plaintext, int plaintextOffset)
+	{
+		return CryptoUtil.decrypt(CURRENT_CRYPTO_VARIANT_NUMBER, getDecryptionCipher(), ciphertext, ciphertextOffset,
+				ciphertextLength, plaintext, plaintextOffset);
+	}
+
+	public int getMaxPlaintextLength(int ciphertextLength)
+	{
+		return CryptoUtil.getMaxPlaintextLength(getDecryptionCipher(), ciphertextLength);
+	}
+
+	private static Optional<SecretKey> getCachedSecretKey(String password)
+	{
+		if (passwordIsAesKey(password))
+		{
+			// Decoding is cheap, so no need to cache these
+			return Optional.empty();
+		}
+		return derivedKeyCache.flatMap(c -> c.get(password));
+	}
+
 	public static SecretKey getSecretKey(String password)
 	{
 		return getSecretKey(password, ITERATIONS_FOR_MULTIUSE_KEY);
@@ -279,17 +359,48 @@ public class CryptoSession implements AutoCloseable
 				{
 					throw CryptoException.initializationVectorNotSet();
 				}
-				decryptionCipher = Cipher.getInstance(CIPHER_TYPE);
-				decryptionCipher.init(Cipher.DECRYPT_MODE, secretKey, new IvParameterSpec(getInitializationVector()));
+				decryptionCipher = borrowInitializedCipher(Cipher.DECRYPT_MODE,
+						Optional.of(new IvParameterSpec(getInitializationVector())));
 			}
 			return decryptionCipher;
 		}
-		catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException | InvalidAlgorithmParameterException e)
+		catch (InvalidKeyException | InvalidAlgorithmParameterException e)
 		{
 			throw CryptoException.gettingCipher(e, CIPHER_TYPE);
 		}
 	}
 
+	/**
+	 * Borrows a cipher and initializes it with the secret key of this session. If the initialization fails, the cipher is given back
+	 * right away, as the caller never gets hold of it.
+	 */
+	private Cipher borrowInitializedCipher(int mode, Optional<IvParameterSpec> initializationVectorSpec)
+			throws InvalidKeyException, InvalidAlgorithmParameterException
+	{
+		Cipher cipher = CipherPool.borrow(CIPHER_TYPE);
+		boolean isInitialized = false;
+		try
+		{
+			if (initializationVectorSpec.isPresent())
+			{
+				cipher.init(mode, secretKey, initializationVectorSpec.get());
+			}
+			else
+			{
+				cipher.init(mode, secretKey);
+			}
+			isInitialized = true;
+			return cipher;
+		}
+		finally
+		{
+			if (!isInitialized)
+			{
+				CipherPool.giveBack(cipher);
+			}
+		}
+	}
+
 	private static String getPassword(Optional<String> password)
 	{
 		return password.orElseThrow(WrongPasswordException::passwordHeaderNotProvided);
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.crypto.seckey;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+
+import javax.crypto.SecretKey;
+
+import nu.yona.server.crypto.CryptoUtil;
+import nu.yona.server.crypto.ZeroizingCache;
+
+/**
+ * Bounded, short-lived cache of the secret keys derived from passwords, so the expensive key derivation is not repeated on every
+ * request of the same user. The passwords themselves are not kept and the key bytes of evicted entries are overwritten with
+ * zeros.
+ */
+class DerivedKeyCache
+{
+	private final ZeroizingCache cache;
+
+	private DerivedKeyCache(int maxEntries, Duration timeToLive)
+	{
+		cache = ZeroizingCache.createInstance(maxEntries, timeToLive);
+	}
+
+	static DerivedKeyCache createInstance(int maxEntries, Duration timeToLive)
+	{
+		return new DerivedKeyCache(maxEntries, timeToLive);
+	}
+
+	Optional<SecretKey> get(String password)
+	{
+		// The key spec copies the bytes, so zeroizing them later does not affect keys that are in use
+		return cache.get(toBytes(password), b -> Optional.of(CryptoUtil.secretKeyFromBytes(b)));
+	}
+
+	void put(String password, SecretKey secretKey)
+	{
+		cache.put(toBytes(password), secretKey.getEncoded());
+	}
+
+	void invalidateAll()
+	{
+		cache.invalidateAll();
+	}
+
+	private static byte[] toBytes(String password)
+	{
+		return password.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.crypto.seckey;
+
+import java.util.Base64;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Value of an encrypted entity attribute that is decrypted when it is first accessed, rather than when the entity is loaded. The
+ * crypto session that was current while loading the entity is remembered, so the value is decrypted with the right key, even if
+ * it is accessed while another crypto session is current (e.g. while processing a message of a buddy).<br/>
+ * Instances are never modified after they are created (the memoized plaintext aside), so to change an attribute, a new instance
+ * must be assigned. Hibernate therefore detects changes by comparing instances, which does not require decryption.<br/>
+ * An unchanged value is written back as it was loaded, unless another crypto session is current by then. In that case, it is
+ * re-encrypted with the key of the current crypto session, as required when changing the password of a user.
+ */
+@Immutable
+public final class EncryptedValue<T>
+{
+	private final String loadedCiphertext;
+	private final Optional<CryptoSession> loadingCryptoSession;
+	private final Function<byte[], T> decryptor;
+	private T plaintext;
+	private boolean isDecrypted;
+
+	private EncryptedValue(String loadedCiphertext, Optional<CryptoSession> loadingCryptoSession, Function<byte[], T> decryptor,
+			T plaintext, boolean isDecrypted)
+	{
+		this.loadedCiphertext = loadedCiphertext;
+		this.loadingCryptoSession = loadingCryptoSession;
+		this.decryptor = decryptor;
+		this.plaintext = plaintext;
+		this.isDecrypted = isDecrypted;
+	}
+
+	public static <T> EncryptedValue<T> createInstance(T plaintext)
+	{
+		return new EncryptedValue<>(null, Optional.empty(), null, plaintext, true);
+	}
+
+	static <T> EncryptedValue<T> createLoadedInstance(String ciphertext, Function<byte[], T> decryptor)
+	{
+		Optional<CryptoSession> loadingCryptoSession = CryptoSession.isActive() ?
+				Optional.of(CryptoSession.getCurrent()) :
+				Optional.empty();
+		return new EncryptedValue<>(ciphertext, loadingCryptoSession, decryptor, null, false);
+	}
+
+	/**
+	 * Returns the plaintext of the given value, or null if the value is null.
+	 */
+	public static <T> T plaintextOf(EncryptedValue<T> value)
+	{
+		return (value == null) ? null : value.get();
+	}
+
+	public synchronized T get()
+	{
+		if (!isDecrypted)
+		{
+			plaintext = decrypt();
+			isDecrypted = true;
+		}
+		return plaintext;
+	}
+
+	synchronized String toDatabaseColumn(Function<T, byte[]> encryptor)
+	{
+		if (loadedCiphertext != null && isLoadingCryptoSessionCurrent())
+		{
+			return loadedCiphertext;
+		}
+		T value = get();
+		return (value == null) ? null : Base64.getEncoder().encodeToString(encryptor.apply(value));
+	}
+
+	private T decrypt()
+	{
+		if (loadingCryptoSession.isEmpty())
+		{
+			// Just like the eagerly decrypted attributes, data loaded without crypto session reads as null
+			return null;
+		}
+		try
+		{
+			byte[] ciphertext = Base64.getDecoder().decode(loadedCiphertext);
+			if (isLoadingCryptoSessionCurrent())
+			{
+				return decryptor.apply(ciphertext);
+			}
+			try (CryptoSession cryptoSession = CryptoSession.startWithKeyOf(loadingCryptoSession.get()))
+			{
+				return decryptor.apply(ciphertext);
+			}
+		}
+		catch (RuntimeException e)
+		{
+			// Just like the eagerly decrypted attributes, data that cannot be decrypted reads as null
+			return null;
+		}
+	}
+
+	private boolean isLoadingCryptoSessionCurrent()
+	{
+		if (!CryptoSession.isActive())
+		{
+			return loadingCryptoSession.isEmpty();
+		}
+		return loadingCryptoSession.isPresent() && loadingCryptoSession.get() == CryptoSession.getCurrent();
+	}
+}
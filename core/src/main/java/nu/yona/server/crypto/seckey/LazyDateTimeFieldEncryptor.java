@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.crypto.seckey;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Lazily decrypting variant of {@link DateTimeFieldEncryptor}, see {@link EncryptedValue}.
+ */
+@Converter
+public class LazyDateTimeFieldEncryptor implements AttributeConverter<EncryptedValue<LocalDateTime>, String>
+{
+	@Override
+	public String convertToDatabaseColumn(EncryptedValue<LocalDateTime> attribute)
+	{
+		return (attribute == null) ? null : attribute.toDatabaseColumn(SecretKeyUtil::encryptDateTime);
+	}
+
+	@Override
+	public EncryptedValue<LocalDateTime> convertToEntityAttribute(String dbData)
+	{
+		return (dbData == null) ? null : EncryptedValue.createLoadedInstance(dbData, SecretKeyUtil::decryptDateTime);
+	}
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.crypto.seckey;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Lazily decrypting variant of {@link StringFieldEncryptor}, see {@link EncryptedValue}.
+ */
+@Converter
+public class LazyStringFieldEncryptor implements AttributeConverter<EncryptedValue<String>, String>
+{
+	@Override
+	public String convertToDatabaseColumn(EncryptedValue<String> attribute)
+	{
+		return (attribute == null) ? null : attribute.toDatabaseColumn(SecretKeyUtil::encryptString);
+	}
+
+	@Override
+	public EncryptedValue<String> convertToEntityAttribute(String dbData)
+	{
+		return (dbData == null) ? null : EncryptedValue.createLoadedInstance(dbData, SecretKeyUtil::decryptString);
+	}
+}
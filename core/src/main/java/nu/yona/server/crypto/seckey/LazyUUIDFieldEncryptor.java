@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.crypto.seckey;
+
+import java.util.UUID;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Lazily decrypting variant of {@link UUIDFieldEncryptor}, see {@link EncryptedValue}.
+ */
+@Converter
+public class LazyUUIDFieldEncryptor implements AttributeConverter<EncryptedValue<UUID>, String>
+{
+	@Override
+	public String convertToDatabaseColumn(EncryptedValue<UUID> attribute)
+	{
+		return (attribute == null) ? null : attribute.toDatabaseColumn(SecretKeyUtil::encryptUuid);
+	}
+
+	@Override
+	public EncryptedValue<UUID> convertToEntityAttribute(String dbData)
+	{
+		return (dbData == null) ? null : EncryptedValue.createLoadedInstance(dbData, SecretKeyUtil::decryptUuid);
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.crypto.seckey;
@@ -10,7 +10,10 @@ import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
@@ -20,6 +23,12 @@ import nu.yona.server.crypto.CryptoException;
 public class SecretKeyUtil
 {
 	public static final int INITIALIZATION_VECTOR_LENGTH = 16;
+	private static final int NUMBER_PLAINTEXT_LENGTH = 16;
+	private static final int SCRATCH_BUFFER_LENGTH = 64;
+	/**
+	 * Holds the plaintext of UUIDs and longs while encrypting or decrypting them, so they do not need intermediate arrays.
+	 */
+	private static final ThreadLocal<byte[]> scratchBuffer = ThreadLocal.withInitial(() -> new byte[SCRATCH_BUFFER_LENGTH]);
 
 	private SecretKeyUtil()
 	{
@@ -32,10 +41,10 @@ public class SecretKeyUtil
 		{
 			return null;
 		}
-		ByteBuffer bb = ByteBuffer.wrap(new byte[16]);
-		bb.putLong(plaintext.getMostSignificantBits());
-		bb.putLong(plaintext.getLeastSignificantBits());
-		return encryptBytes(bb.array());
+		return encryptNumber(bb -> {
+			bb.putLong(plaintext.getMostSignificantBits());
+			bb.putLong(plaintext.getLeastSignificantBits());
+		});
 	}
 
 	public static byte[] encryptString(String plaintext)
@@ -53,9 +62,7 @@ public class SecretKeyUtil
 		{
 			return null;
 		}
-		ByteBuffer bb = ByteBuffer.wrap(new byte[16]);
-		bb.putLong(plaintext);
-		return encryptBytes(bb.array());
+		return encryptNumber(bb -> bb.putLong(plaintext));
 	}
 
 	public static byte[] encryptBytes(byte[] plaintext)
@@ -91,10 +98,11 @@ public class SecretKeyUtil
 		{
 			return null;
 		}
-		ByteBuffer bb = ByteBuffer.wrap(decryptBytes(ciphertext));
-		long firstLong = bb.getLong();
-		long secondLong = bb.getLong();
-		return new UUID(firstLong, secondLong);
+		return decryptNumber(ciphertext, bb -> {
+			long firstLong = bb.getLong();
+			long secondLong = bb.getLong();
+			return new UUID(firstLong, secondLong);
+		});
 	}
 
 	public static String decryptString(byte[] ciphertext)
@@ -112,8 +120,7 @@ public class SecretKeyUtil
 		{
 			return null;
 		}
-		ByteBuffer bb = ByteBuffer.wrap(decryptBytes(ciphertext));
-		return bb.getLong();
+		return decryptNumber(ciphertext, ByteBuffer::getLong);
 	}
 
 	public static byte[] decryptBytes(byte[] ciphertext)
@@ -144,6 +151,42 @@ public class SecretKeyUtil
 		return LocalDate.parse(new String(decryptBytes(ciphertext), StandardCharsets.UTF_8), DateTimeFormatter.ISO_LOCAL_DATE);
 	}
 
+	private static byte[] encryptNumber(Consumer<ByteBuffer> writer)
+	{
+		byte[] plaintext = scratchBuffer.get();
+		try
+		{
+			writer.accept(ByteBuffer.wrap(plaintext, 0, NUMBER_PLAINTEXT_LENGTH));
+			CryptoSession cryptoSession = CryptoSession.getCurrent();
+			byte[] ciphertext = new byte[cryptoSession.getMaxCiphertextLength(NUMBER_PLAINTEXT_LENGTH)];
+			int ciphertextLength = cryptoSession.encrypt(plaintext, 0, NUMBER_PLAINTEXT_LENGTH, ciphertext, 0);
+			return (ciphertextLength == ciphertext.length) ? ciphertext : Arrays.copyOf(ciphertext, ciphertextLength);
+		}
+		finally
+		{
+			Arrays.fill(plaintext, (byte) 0);
+		}
+	}
+
+	private static <T> T decryptNumber(byte[] ciphertext, Function<ByteBuffer, T> reader)
+	{
+		CryptoSession cryptoSession = CryptoSession.getCurrent();
+		if (cryptoSession.getMaxPlaintextLength(ciphertext.length) > SCRATCH_BUFFER_LENGTH)
+		{
+			return reader.apply(ByteBuffer.wrap(decryptBytes(ciphertext)));
+		}
+		byte[] plaintext = scratchBuffer.get();
+		try
+		{
+			int plaintextLength = cryptoSession.decrypt(ciphertext, 0, ciphertext.length, plaintext, 0);
+			return reader.apply(ByteBuffer.wrap(plaintext, 0, plaintextLength));
+		}
+		finally
+		{
+			Arrays.fill(plaintext, (byte) 0);
+		}
+	}
+
 	public static SecretKey generateRandomSecretKey()
 	{
 		try
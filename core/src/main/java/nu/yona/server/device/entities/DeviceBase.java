@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2017, 2018 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2017, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.device.entities;
@@ -12,8 +12,9 @@ import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Inheritance;
 import jakarta.persistence.InheritanceType;
-import nu.yona.server.crypto.seckey.StringFieldEncryptor;
-import nu.yona.server.crypto.seckey.UUIDFieldEncryptor;
+import nu.yona.server.crypto.seckey.EncryptedValue;
+import nu.yona.server.crypto.seckey.LazyStringFieldEncryptor;
+import nu.yona.server.crypto.seckey.LazyUUIDFieldEncryptor;
 import nu.yona.server.subscriptions.entities.EntityWithUuidAndTouchVersion;
 
 @Entity
@@ -23,11 +24,11 @@ public abstract class DeviceBase extends EntityWithUuidAndTouchVersion
 	public static final int MAX_NAME_LENGTH = 20;
 	public static final String DEVICE_NAMES_SEPARATOR = ":";
 
-	@Convert(converter = StringFieldEncryptor.class)
-	private String name;
+	@Convert(converter = LazyStringFieldEncryptor.class)
+	private EncryptedValue<String> name;
 
-	@Convert(converter = UUIDFieldEncryptor.class)
-	private UUID deviceAnonymizedId;
+	@Convert(converter = LazyUUIDFieldEncryptor.class)
+	private EncryptedValue<UUID> deviceAnonymizedId;
 
 	// Default constructor is required for JPA
 	protected DeviceBase()
@@ -38,18 +39,18 @@ public abstract class DeviceBase extends EntityWithUuidAndTouchVersion
 	protected DeviceBase(UUID id, String name, UUID deviceAnonymizedId)
 	{
 		super(id);
-		this.name = Objects.requireNonNull(name);
-		this.deviceAnonymizedId = Objects.requireNonNull(deviceAnonymizedId);
+		this.name = EncryptedValue.createInstance(Objects.requireNonNull(name));
+		this.deviceAnonymizedId = EncryptedValue.createInstance(Objects.requireNonNull(deviceAnonymizedId));
 	}
 
 	public String getName()
 	{
-		return name;
+		return EncryptedValue.plaintextOf(name);
 	}
 
 	public void setName(String name)
 	{
-		this.name = name;
+		this.name = EncryptedValue.createInstance(name);
 	}
 
 	public boolean isVpnConnected()
@@ -62,17 +63,17 @@ public abstract class DeviceBase extends EntityWithUuidAndTouchVersion
 
 	public UUID getDeviceAnonymizedId()
 	{
-		return deviceAnonymizedId;
+		return EncryptedValue.plaintextOf(deviceAnonymizedId);
 	}
 
 	public DeviceAnonymized getDeviceAnonymized()
 	{
 		return getDeviceAnonymizedIfExisting().orElseThrow(
-				() -> new IllegalStateException("DeviceAnonymized with ID " + deviceAnonymizedId + " not found"));
+				() -> new IllegalStateException("DeviceAnonymized with ID " + getDeviceAnonymizedId() + " not found"));
 	}
 
 	private Optional<DeviceAnonymized> getDeviceAnonymizedIfExisting()
 	{
-		return DeviceAnonymized.getRepository().findById(deviceAnonymizedId);
+		return DeviceAnonymized.getRepository().findById(getDeviceAnonymizedId());
 	}
 }
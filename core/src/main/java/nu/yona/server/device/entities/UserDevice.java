@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2017, 2018 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2017, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.device.entities;
@@ -15,9 +15,10 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
-import nu.yona.server.crypto.seckey.DateFieldEncryptor;
-import nu.yona.server.crypto.seckey.DateTimeFieldEncryptor;
-import nu.yona.server.crypto.seckey.StringFieldEncryptor;
+import nu.yona.server.crypto.seckey.EncryptedValue;
+import nu.yona.server.crypto.seckey.LazyDateFieldEncryptor;
+import nu.yona.server.crypto.seckey.LazyDateTimeFieldEncryptor;
+import nu.yona.server.crypto.seckey.LazyStringFieldEncryptor;
 import nu.yona.server.subscriptions.entities.User;
 import nu.yona.server.util.TimeUtil;
 
@@ -31,14 +32,14 @@ public class UserDevice extends DeviceBase
 
 	private boolean isLegacyVpnAccount;
 
-	@Convert(converter = StringFieldEncryptor.class)
-	private String vpnPassword;
+	@Convert(converter = LazyStringFieldEncryptor.class)
+	private EncryptedValue<String> vpnPassword;
 
-	@Convert(converter = DateTimeFieldEncryptor.class)
-	private LocalDateTime registrationTime;
+	@Convert(converter = LazyDateTimeFieldEncryptor.class)
+	private EncryptedValue<LocalDateTime> registrationTime;
 
-	@Convert(converter = DateFieldEncryptor.class)
-	private LocalDate appLastOpenedDate;
+	@Convert(converter = LazyDateFieldEncryptor.class)
+	private EncryptedValue<LocalDate> appLastOpenedDate;
 
 	// Default constructor is required for JPA
 	public UserDevice()
@@ -48,8 +49,8 @@ public class UserDevice extends DeviceBase
 	private UserDevice(UUID id, String name, UUID deviceAnonymizedId, String vpnPassword, LocalDateTime registrationTime)
 	{
 		super(id, name, deviceAnonymizedId);
-		this.registrationTime = registrationTime;
-		this.vpnPassword = Objects.requireNonNull(vpnPassword);
+		this.registrationTime = EncryptedValue.createInstance(registrationTime);
+		this.vpnPassword = EncryptedValue.createInstance(Objects.requireNonNull(vpnPassword));
 	}
 
 	public static UserDevice createInstance(User userEntity, String name, UUID deviceAnonymizedId, String vpnPassword)
@@ -82,35 +83,35 @@ public class UserDevice extends DeviceBase
 
 	public String getVpnPassword()
 	{
-		return vpnPassword;
+		return EncryptedValue.plaintextOf(vpnPassword);
 	}
 
 	public void setLegacyVpnAccountPassword(String vpnPassword)
 	{
-		this.vpnPassword = vpnPassword;
+		this.vpnPassword = EncryptedValue.createInstance(vpnPassword);
 		this.isLegacyVpnAccount = true;
 	}
 
 	public LocalDateTime getRegistrationTime()
 	{
-		return registrationTime;
+		return EncryptedValue.plaintextOf(registrationTime);
 	}
 
 	public void setRegistrationTime(LocalDateTime registrationTime)
 	{
-		this.registrationTime = Objects.requireNonNull(registrationTime);
+		this.registrationTime = EncryptedValue.createInstance(Objects.requireNonNull(registrationTime));
 	}
 
 	public LocalDate getAppLastOpenedDate()
 	{
-		return appLastOpenedDate;
+		return EncryptedValue.plaintextOf(appLastOpenedDate);
 	}
 
 	public void setAppLastOpenedDateToNow(User userEntity)
 	{
 		LocalDate today = userEntity.getDateInUserTimezone(TimeUtil.utcNow());
 
-		this.appLastOpenedDate = Objects.requireNonNull(today);
+		this.appLastOpenedDate = EncryptedValue.createInstance(Objects.requireNonNull(today));
 		userEntity.setAppLastOpenedDate(today);
 	}
 }
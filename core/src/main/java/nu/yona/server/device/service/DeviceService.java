@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2017, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2017, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.device.service;
@@ -104,6 +104,18 @@ public class DeviceService
 		return getDevice(deviceEntity, userAnonymizedDto);
 	}
 
+	/**
+	 * Returns the given device of the given user. Unlike fetching the user DTO, this only decrypts the data of that device.
+	 */
+	@Transactional
+	public UserDeviceDto getOwnDevice(UUID userId, UUID deviceId)
+	{
+		User userEntity = userService.getUserEntityById(userId);
+		UserDevice deviceEntity = userEntity.getDevices().stream().filter(d -> d.getId().equals(deviceId)).findAny()
+				.orElseThrow(() -> DeviceServiceException.notFoundById(deviceId));
+		return getDevice(deviceEntity, userAnonymizedService.getUserAnonymized(userEntity.getUserAnonymizedId()));
+	}
+
 	private UserDevice getDeviceEntity(UUID deviceId)
 	{
 		return userDeviceRepository.findById(deviceId).orElseThrow(() -> DeviceServiceException.notFoundById(deviceId));
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.goals.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Immutable index of the activity categories by application and by Smoothwall category. It is built from one version of the
+ * activity category set and replaced as a whole when that set changes.
+ */
+class ActivityCategoryIndex
+{
+	private final UUID version;
+	private final Map<String, Set<ActivityCategoryDto>> categoriesByApplication;
+	private final Map<String, Set<ActivityCategoryDto>> categoriesBySmoothwallCategory;
+
+	private ActivityCategoryIndex(UUID version, Map<String, Set<ActivityCategoryDto>> categoriesByApplication,
+			Map<String, Set<ActivityCategoryDto>> categoriesBySmoothwallCategory)
+	{
+		this.version = version;
+		this.categoriesByApplication = categoriesByApplication;
+		this.categoriesBySmoothwallCategory = categoriesBySmoothwallCategory;
+	}
+
+	static ActivityCategoryIndex createInstance(UUID version, Set<ActivityCategoryDto> activityCategories)
+	{
+		return new ActivityCategoryIndex(version, buildIndex(activityCategories, ActivityCategoryDto::getApplications),
+				buildIndex(activityCategories, ActivityCategoryDto::getSmoothwallCategories));
+	}
+
+	private static Map<String, Set<ActivityCategoryDto>> buildIndex(Set<ActivityCategoryDto> activityCategories,
+			Function<ActivityCategoryDto, Collection<String>> keyExtractor)
+	{
+		Map<String, Set<ActivityCategoryDto>> index = new HashMap<>();
+		for (ActivityCategoryDto activityCategory : activityCategories)
+		{
+			keyExtractor.apply(activityCategory).forEach(k -> index.computeIfAbsent(k, x -> new HashSet<>()).add(activityCategory));
+		}
+		index.replaceAll((k, v) -> Collections.unmodifiableSet(v));
+		// Not Map.copyOf, as the resulting map throws on lookups of null keys
+		return Collections.unmodifiableMap(index);
+	}
+
+	UUID getVersion()
+	{
+		return version;
+	}
+
+	Set<ActivityCategoryDto> getMatchingCategoriesForApp(String application)
+	{
+		return categoriesByApplication.getOrDefault(application, Collections.emptySet());
+	}
+
+	Set<ActivityCategoryDto> getMatchingCategoriesForSmoothwallCategories(Set<String> smoothwallCategories)
+	{
+		// Only allocate a new set if multiple Smoothwall categories match
+		Set<ActivityCategoryDto> firstMatch = Collections.emptySet();
+		Set<ActivityCategoryDto> union = null;
+		for (String smoothwallCategory : smoothwallCategories)
+		{
+			Set<ActivityCategoryDto> match = categoriesBySmoothwallCategory.get(smoothwallCategory);
+			if (match == null)
+			{
+				continue;
+			}
+			if (firstMatch.isEmpty())
+			{
+				firstMatch = match;
+			}
+			else
+			{
+				if (union == null)
+				{
+					union = new HashSet<>(firstMatch);
+				}
+				union.addAll(match);
+			}
+		}
+		return (union == null) ? firstMatch : Collections.unmodifiableSet(union);
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.goals.service;
@@ -48,19 +48,32 @@ public class ActivityCategoryService
 		@Autowired
 		private ActivityCategoryService activityCategoryService;
 
+		private volatile ActivityCategoryIndex index;
+
 		public Set<ActivityCategoryDto> getMatchingCategoriesForSmoothwallCategories(Set<String> smoothwallCategories)
 		{
-			return activityCategoryService.getAllActivityCategories().stream().filter(ac -> {
-				Set<String> acSmoothwallCategories = new HashSet<>(ac.getSmoothwallCategories());
-				acSmoothwallCategories.retainAll(smoothwallCategories);
-				return !acSmoothwallCategories.isEmpty();
-			}).collect(Collectors.toSet());
+			return getIndex().getMatchingCategoriesForSmoothwallCategories(smoothwallCategories);
 		}
 
 		public Set<ActivityCategoryDto> getMatchingCategoriesForApp(String application)
 		{
-			return activityCategoryService.getAllActivityCategories().stream()
-					.filter(ac -> ac.getApplications().contains(application)).collect(Collectors.toSet());
+			return getIndex().getMatchingCategoriesForApp(application);
+		}
+
+		/**
+		 * Returns the index of the current activity category set. Fetching the version from the cache is cheap compared to fetching
+		 * the entire set, so the index is only rebuilt if the version shows that the set was evicted from the cache.
+		 */
+		private ActivityCategoryIndex getIndex()
+		{
+			UUID version = activityCategoryService.getActivityCategorySetVersion();
+			ActivityCategoryIndex currentIndex = index;
+			if (currentIndex == null || !currentIndex.getVersion().equals(version))
+			{
+				currentIndex = ActivityCategoryIndex.createInstance(version, activityCategoryService.getAllActivityCategories());
+				index = currentIndex;
+			}
+			return currentIndex;
 		}
 	}
 
@@ -104,7 +117,17 @@ public class ActivityCategoryService
 						(Comparator<ActivityCategoryDto> & Serializable) (l, r) -> l.getName().compareTo(r.getName()))));
 	}
 
-	@CacheEvict(key = "'instance'")
+	/**
+	 * Returns an identifier of the cached activity category set. It is evicted along with that set, so a different identifier
+	 * indicates that the set might have changed.
+	 */
+	@Cacheable(key = "'version'")
+	public UUID getActivityCategorySetVersion()
+	{
+		return UUID.randomUUID();
+	}
+
+	@CacheEvict(allEntries = true)
 	@Transactional
 	public ActivityCategoryDto addActivityCategory(ActivityCategoryDto activityCategoryDto)
 	{
@@ -114,7 +137,7 @@ public class ActivityCategoryService
 		return ActivityCategoryDto.createInstance(repository.save(activityCategoryDto.createActivityCategoryEntity()));
 	}
 
-	@CacheEvict(key = "'instance'")
+	@CacheEvict(allEntries = true)
 	@Transactional
 	public ActivityCategoryDto updateActivityCategory(UUID id, ActivityCategoryDto activityCategoryDto)
 	{
@@ -124,7 +147,7 @@ public class ActivityCategoryService
 		return ActivityCategoryDto.createInstance(updateActivityCategory(originalEntity, activityCategoryDto));
 	}
 
-	@CacheEvict(key = "'instance'")
+	@CacheEvict(allEntries = true)
 	@Transactional
 	public void updateActivityCategorySet(Set<ActivityCategoryDto> activityCategoryDtos)
 	{
@@ -136,7 +159,7 @@ public class ActivityCategoryService
 		logger.info("Activity category set update completed");
 	}
 
-	@CacheEvict(key = "'instance'")
+	@CacheEvict(allEntries = true)
 	@Transactional
 	public void deleteActivityCategory(UUID id)
 	{
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.messaging.entities;
@@ -7,6 +7,7 @@ package nu.yona.server.messaging.entities;
 import java.lang.reflect.InvocationTargetException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
@@ -24,6 +25,7 @@ import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import nu.yona.server.crypto.pubkey.Decryptor;
 import nu.yona.server.crypto.pubkey.Encryptor;
+import nu.yona.server.crypto.pubkey.PublicKeyDecryptor;
 import nu.yona.server.entities.EntityWithId;
 import nu.yona.server.entities.RepositoryProvider;
 import nu.yona.server.exceptions.YonaException;
@@ -117,6 +119,11 @@ public abstract class Message extends EntityWithId
 		decryptor.executeInCryptoSession(decryptionInfo, this::decrypt);
 	}
 
+	public static void decryptMessages(Collection<Message> messages, Decryptor decryptor)
+	{
+		decryptor.executeInCryptoSessions(messages, m -> m.decryptionInfo, Message::decrypt);
+	}
+
 	public MessageDestination getMessageDestination()
 	{
 		return messageDestination;
@@ -206,6 +213,7 @@ public abstract class Message extends EntityWithId
 
 	public void prepareForDelete()
 	{
+		PublicKeyDecryptor.evictCachedDecryptionInfo(decryptionInfo);
 		clearThreadHeadSelfReference();
 		threadHeadMessage = null;
 	}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.messaging.entities;
@@ -12,7 +12,9 @@ import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
@@ -101,6 +103,18 @@ public class MessageDestination extends EntityWithUuid
 		return Message.getRepository().findReceivedMessagesFromDestinationSinceDate(this, earliestDateTime, pageable);
 	}
 
+	public Slice<Message> getFirstReceivedMessages(int size, boolean onlyUnreadMessages)
+	{
+		return Message.getRepository().findFirstReceivedMessagesFromDestination(this, onlyUnreadMessages,
+				PageRequest.of(0, size));
+	}
+
+	public Slice<Message> getReceivedMessagesBefore(LocalDateTime creationTime, long id, int size, boolean onlyUnreadMessages)
+	{
+		return Message.getRepository().findReceivedMessagesFromDestinationBefore(this, onlyUnreadMessages, creationTime, id,
+				PageRequest.of(0, size));
+	}
+
 	private PublicKey loadPublicKey()
 	{
 		if (publicKey == null)
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.messaging.entities;
@@ -12,6 +12,7 @@ import java.util.UUID;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -25,13 +26,34 @@ public interface MessageRepository extends JpaRepository<Message, Long>
 	@Query("select m from Message m, MessageDestination d where d = :destination and m member of d.messages order by m.creationTime desc")
 	Page<Message> findFromDestination(@Param("destination") MessageDestination destination, Pageable pageable);
 
-	@Query("select m from Message m, MessageDestination d where d = :destination and m.isSentItem = false and m member of d.messages order by m.creationTime desc")
+	@Query("select m from Message m where m.messageDestination = :destination and m.isSentItem = false order by m.creationTime desc, m.id desc")
 	Page<Message> findReceivedMessagesFromDestination(@Param("destination") MessageDestination destination, Pageable pageable);
 
-	@Query("select m from Message m, MessageDestination d where d = :destination and m.isRead = false and m.isSentItem = false and m member of d.messages order by m.creationTime desc")
+	@Query("select m from Message m where m.messageDestination = :destination and m.isRead = false and m.isSentItem = false order by m.creationTime desc, m.id desc")
 	Page<Message> findUnreadReceivedMessagesFromDestination(@Param("destination") MessageDestination destination,
 			Pageable pageable);
 
+	/**
+	 * Returns the first slice of the received messages, for keyset paging. The slice is not counted. Continue with
+	 * {@link #findReceivedMessagesFromDestinationBefore(MessageDestination, boolean, LocalDateTime, long, Pageable)}, passing the
+	 * creation time and ID of the last message of the slice. The pageable must request page 0.
+	 */
+	@Query("select m from Message m where m.messageDestination = :destination and m.isSentItem = false and (:onlyUnreadMessages = false or m.isRead = false)"
+			+ " order by m.creationTime desc, m.id desc")
+	Slice<Message> findFirstReceivedMessagesFromDestination(@Param("destination") MessageDestination destination,
+			@Param("onlyUnreadMessages") boolean onlyUnreadMessages, Pageable pageable);
+
+	/**
+	 * Returns the slice of the received messages that follow the message with the given creation time and ID, for keyset paging.
+	 * The slice is not counted. The pageable must request page 0.
+	 */
+	@Query("select m from Message m where m.messageDestination = :destination and m.isSentItem = false and (:onlyUnreadMessages = false or m.isRead = false)"
+			+ " and (m.creationTime < :creationTime or (m.creationTime = :creationTime and m.id < :id))"
+			+ " order by m.creationTime desc, m.id desc")
+	Slice<Message> findReceivedMessagesFromDestinationBefore(@Param("destination") MessageDestination destination,
+			@Param("onlyUnreadMessages") boolean onlyUnreadMessages, @Param("creationTime") LocalDateTime creationTime,
+			@Param("id") long id, Pageable pageable);
+
 	@Query("select m from Message m, MessageDestination d, Message threadHeadMessage"
 			+ " where d = :destination and m member of d.messages and m.intervalActivity = :intervalActivity and threadHeadMessage = m.threadHeadMessage"
 			+ " order by threadHeadMessage.creationTime asc, m.creationTime asc")
@@ -41,7 +63,7 @@ public interface MessageRepository extends JpaRepository<Message, Long>
 	@Query("select m from Message m where m.intervalActivity in :intervalActivities")
 	Set<Message> findByIntervalActivity(@Param("intervalActivities") Collection<IntervalActivity> intervalActivities);
 
-	@Query("select m from Message m, MessageDestination d where d = :destination and m.creationTime >= :earliestDateTime and m.isSentItem = false and m member of d.messages order by m.creationTime desc")
+	@Query("select m from Message m where m.messageDestination = :destination and m.creationTime >= :earliestDateTime and m.isSentItem = false order by m.creationTime desc, m.id desc")
 	Page<Message> findReceivedMessagesFromDestinationSinceDate(@Param("destination") MessageDestination destination,
 			@Param("earliestDateTime") LocalDateTime earliestDateTime, Pageable pageable);
 
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.messaging.entities;
@@ -13,6 +13,7 @@ import java.util.UUID;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
@@ -104,10 +105,24 @@ public class MessageSource extends EntityWithUuid
 		return messages;
 	}
 
-	private void decryptMessagePage(Page<Message> messages)
+	public Slice<Message> getFirstReceivedMessages(int size, boolean onlyUnreadMessages)
+	{
+		Slice<Message> messages = messageDestination.getFirstReceivedMessages(size, onlyUnreadMessages);
+		decryptMessagePage(messages);
+		return messages;
+	}
+
+	public Slice<Message> getReceivedMessagesBefore(LocalDateTime creationTime, long id, int size, boolean onlyUnreadMessages)
+	{
+		Slice<Message> messages = messageDestination.getReceivedMessagesBefore(creationTime, id, size, onlyUnreadMessages);
+		decryptMessagePage(messages);
+		return messages;
+	}
+
+	private void decryptMessagePage(Slice<Message> messages)
 	{
 		PublicKeyDecryptor decryptor = PublicKeyDecryptor.createInstance(loadPrivateKey());
-		messages.forEach(m -> m.decryptMessage(decryptor));
+		Message.decryptMessages(messages.getContent(), decryptor);
 	}
 
 	private PrivateKey loadPrivateKey()
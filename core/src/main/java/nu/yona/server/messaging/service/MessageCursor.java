@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.messaging.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the received messages of a user, for keyset paging. The messages are ordered by creation time and ID, both
+ * descending, so the cursor holds the creation time and ID of the last message of a page. Clients receive it as an opaque string.
+ */
+public class MessageCursor
+{
+	private static final String SEPARATOR = "_";
+
+	private final LocalDateTime creationTime;
+	private final long messageId;
+
+	private MessageCursor(LocalDateTime creationTime, long messageId)
+	{
+		this.creationTime = creationTime;
+		this.messageId = messageId;
+	}
+
+	public static MessageCursor createInstance(MessageDto message)
+	{
+		return new MessageCursor(message.getCreationTime(), message.getMessageId());
+	}
+
+	public static MessageCursor decode(String cursor)
+	{
+		try
+		{
+			String decodedCursor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			int separatorIndex = decodedCursor.indexOf(SEPARATOR);
+			if (separatorIndex < 0)
+			{
+				throw MessageServiceException.invalidCursor(cursor);
+			}
+			return new MessageCursor(LocalDateTime.parse(decodedCursor.substring(0, separatorIndex)),
+					Long.parseLong(decodedCursor.substring(separatorIndex + 1)));
+		}
+		catch (IllegalArgumentException | DateTimeParseException e)
+		{
+			throw MessageServiceException.invalidCursor(cursor);
+		}
+	}
+
+	public LocalDateTime getCreationTime()
+	{
+		return creationTime;
+	}
+
+	public long getMessageId()
+	{
+		return messageId;
+	}
+
+	public String encode()
+	{
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString((creationTime + SEPARATOR + messageId).getBytes(StandardCharsets.UTF_8));
+	}
+}
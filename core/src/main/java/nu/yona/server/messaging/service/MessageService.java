@@ -1,17 +1,20 @@
 /*
- * Copyright (c) 2015, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.messaging.service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -21,8 +24,12 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import jakarta.transaction.Transactional;
 import nu.yona.server.LocaleContextHelper;
@@ -62,6 +69,10 @@ public class MessageService
 	@Autowired(required = false)
 	private TheDtoManager dtoManager;
 
+	@Autowired(required = false)
+	@Lazy
+	private SenderInfo.Factory senderInfoFactory;
+
 	@Autowired(required = false)
 	private MessageSourceRepository messageSourceRepository;
 
@@ -84,6 +95,29 @@ public class MessageService
 				pageable);
 	}
 
+	/**
+	 * Returns a slice of the received messages, using keyset paging. Unlike with offset paging, fetching deep slices is not slower
+	 * than fetching the first one, and the messages are not counted. Pass a cursor created from the last message of a slice to
+	 * fetch the next slice.
+	 *
+	 * @param user The user to fetch the messages of
+	 * @param onlyUnreadMessages Whether to return only unread messages
+	 * @param after The cursor of the last message of the previous slice, if any
+	 * @param size The maximum number of messages to return
+	 * @return The slice of messages
+	 */
+	@Transactional
+	public Slice<MessageDto> getReceivedMessages(User user, boolean onlyUnreadMessages, Optional<MessageCursor> after, int size)
+	{
+		MessageSource messageSource = getAnonymousMessageSource(userService.createUserDto(user));
+		Slice<Message> messageEntities = after
+				.map(c -> messageSource.getReceivedMessagesBefore(c.getCreationTime(), c.getMessageId(), size,
+						onlyUnreadMessages))
+				.orElseGet(() -> messageSource.getFirstReceivedMessages(size, onlyUnreadMessages));
+		return new SliceImpl<>(wrapMessagesAsDtos(user, messageEntities.getContent()), messageEntities.getPageable(),
+				messageEntities.hasNext());
+	}
+
 	@Transactional
 	public Page<Message> getReceivedMessageEntities(UUID userId, Pageable pageable)
 	{
@@ -105,6 +139,15 @@ public class MessageService
 		return messageSource.getReceivedMessages(pageable, earliestDateTime);
 	}
 
+	/**
+	 * Returns whether {@link #prepareMessageCollection(User)} has anything to do for the given user. This is a read-only check.
+	 */
+	@Transactional
+	public boolean isMessageCollectionPreparationNeeded(User user)
+	{
+		return mustTransferDirectMessagesToAnonymousDestination(user) || mustProcessUnprocessedMessages(user);
+	}
+
 	@Transactional
 	public boolean prepareMessageCollection(User user)
 	{
@@ -278,7 +321,11 @@ public class MessageService
 
 	private List<MessageDto> wrapMessagesAsDtos(User user, List<? extends Message> messageEntities)
 	{
-		return messageEntities.stream().map(m -> messageToDto(user, m)).toList();
+		// Messages on a page are typically sent by a few buddies, so load these at once and resolve each of them once
+		buddyService.loadBuddiesAtOnce(user, messageEntities.stream().map(Message::getRelatedUserAnonymizedId)
+				.flatMap(Optional::stream).collect(Collectors.toSet()));
+		return senderInfoFactory
+				.executeResolvingEachSenderOnce(() -> messageEntities.stream().map(m -> messageToDto(user, m)).toList());
 	}
 
 	public MessageDto messageToDto(User user, Message message)
@@ -389,11 +436,55 @@ public class MessageService
 		deleteMessages(destinationEntity.getMessagesFromUser(sentByUserAnonymizedId));
 	}
 
+	/**
+	 * Sends a message to each of the buddies of the given user. The destinations of the buddies are loaded at once and the
+	 * messages are flushed to the database at once. The notifications are sent once the transaction is committed, so the
+	 * messages are available when the buddies fetch them.
+	 *
+	 * @param userAnonymized The user whose buddies receive the message
+	 * @param messageSupplier Supplier of the (saved) message to send to a buddy, called once for every buddy
+	 */
 	@Transactional
 	public void broadcastMessageToBuddies(UserAnonymizedDto userAnonymized, Supplier<Message> messageSupplier)
 	{
-		buddyService.getBuddyUsersAnonymized(userAnonymized)
-				.forEach(buddyUserAnonymized -> sendMessage(messageSupplier.get(), buddyUserAnonymized));
+		Set<UserAnonymizedDto> buddyUsersAnonymized = buddyService.getBuddyUsersAnonymized(userAnonymized);
+		if (buddyUsersAnonymized.isEmpty())
+		{
+			return;
+		}
+		Map<UUID, MessageDestination> destinationsById = messageDestinationRepository
+				.findAllById(buddyUsersAnonymized.stream().map(bua -> bua.getAnonymousDestination().getId()).toList()).stream()
+				.collect(Collectors.toMap(MessageDestination::getId, Function.identity()));
+		List<Runnable> notifications = new ArrayList<>();
+		for (UserAnonymizedDto buddyUserAnonymized : buddyUsersAnonymized)
+		{
+			UUID destinationId = buddyUserAnonymized.getAnonymousDestination().getId();
+			MessageDestination destination = Optional.ofNullable(destinationsById.get(destinationId))
+					.orElseThrow(() -> InvalidDataException.missingEntity(MessageDestination.class, destinationId));
+			Message message = messageSupplier.get();
+			destination.send(message);
+			messageRepository.save(message);
+			notifications.add(() -> sendFirebaseNotification(message, buddyUserAnonymized));
+		}
+		messageDestinationRepository.flush();
+		executeAfterCommit(() -> notifications.forEach(Runnable::run));
+	}
+
+	private static void executeAfterCommit(Runnable action)
+	{
+		if (!TransactionSynchronizationManager.isSynchronizationActive())
+		{
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+		{
+			@Override
+			public void afterCommit()
+			{
+				action.run();
+			}
+		});
 	}
 
 	@Transactional
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.messaging.service;
@@ -32,4 +32,9 @@ public class MessageServiceException extends YonaException
 	{
 		return new MessageServiceException("error.message.action.missing.property", action, propertyName);
 	}
+
+	public static MessageServiceException invalidCursor(String cursor)
+	{
+		return new MessageServiceException("error.message.invalid.cursor", cursor);
+	}
 }
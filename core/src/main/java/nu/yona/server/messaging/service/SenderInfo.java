@@ -1,14 +1,19 @@
 /*
- * Copyright (c) 2016, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.messaging.service;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NamedThreadLocal;
 import org.springframework.stereotype.Component;
 
 import nu.yona.server.Translator;
@@ -69,6 +74,8 @@ public final class SenderInfo
 	@Component
 	public static class Factory
 	{
+		private final ThreadLocal<ResolvedSenders> resolvedSenders = new NamedThreadLocal<>("ResolvedSenders");
+
 		@Autowired
 		private BuddyService buddyService;
 
@@ -78,10 +85,36 @@ public final class SenderInfo
 		@Autowired
 		private Translator translator;
 
+		/**
+		 * Executes the given supplier, resolving each buddy or self sender only once. Use this when creating the DTOs of a page of
+		 * messages, which typically are sent by a few senders.
+		 *
+		 * @param supplier The supplier to execute
+		 * @return The result of the supplier
+		 */
+		public <T> T executeResolvingEachSenderOnce(Supplier<T> supplier)
+		{
+			if (resolvedSenders.get() != null)
+			{
+				// Nested, so the senders are already reused
+				return supplier.get();
+			}
+			resolvedSenders.set(new ResolvedSenders());
+			try
+			{
+				return supplier.get();
+			}
+			finally
+			{
+				resolvedSenders.remove();
+			}
+		}
+
 		public SenderInfo createInstanceForBuddy(UUID userId, String nickname, Optional<UUID> userPhoto, UUID buddyId)
 		{
-			return new SenderInfo(Optional.of(userService.getUserWithoutPrivateData(userId)), nickname, userPhoto, true,
-					Optional.of(buddyService.getBuddy(buddyId)));
+			return resolve(r -> r.buddies, buddyId,
+					() -> new SenderInfo(Optional.of(userService.getUserWithoutPrivateData(userId)), nickname, userPhoto, true,
+							Optional.of(buddyService.getBuddy(buddyId))));
 		}
 
 		public SenderInfo createInstanceForDetachedBuddy(Optional<UserDto> user, BuddyUserPrivateDataDto buddyData)
@@ -103,8 +136,11 @@ public final class SenderInfo
 
 		public SenderInfo createInstanceForSelf(UUID userId, String nickname, Optional<UUID> userPhoto)
 		{
-			String selfNickname = translator.getLocalizedMessage("message.self.nickname", nickname);
-			return new SenderInfo(Optional.of(userService.getUser(userId)), selfNickname, userPhoto, false, Optional.empty());
+			return resolve(r -> r.selves, userId, () -> {
+				String selfNickname = translator.getLocalizedMessage("message.self.nickname", nickname);
+				return new SenderInfo(Optional.of(userService.getUser(userId)), selfNickname, userPhoto, false,
+						Optional.empty());
+			});
 		}
 
 		public SenderInfo createInstanceForSystem()
@@ -112,5 +148,22 @@ public final class SenderInfo
 			String systemNickname = translator.getLocalizedMessage("message.system.nickname");
 			return new SenderInfo(Optional.empty(), systemNickname, Optional.empty(), false, Optional.empty());
 		}
+
+		private SenderInfo resolve(Function<ResolvedSenders, Map<UUID, SenderInfo>> senderInfosGetter, UUID id,
+				Supplier<SenderInfo> senderInfoCreator)
+		{
+			ResolvedSenders resolvedSendersOfThread = resolvedSenders.get();
+			if (resolvedSendersOfThread == null)
+			{
+				return senderInfoCreator.get();
+			}
+			return senderInfosGetter.apply(resolvedSendersOfThread).computeIfAbsent(id, k -> senderInfoCreator.get());
+		}
+
+		private static class ResolvedSenders
+		{
+			private final Map<UUID, SenderInfo> buddies = new HashMap<>();
+			private final Map<UUID, SenderInfo> selves = new HashMap<>();
+		}
 	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.properties;
@@ -8,11 +8,144 @@ import java.time.Duration;
 
 public class AnalysisServiceProperties
 {
+	private final AppActivityQueue appActivityQueue = new AppActivityQueue();
 	private Duration conflictInterval = Duration.ofMinutes(15);
 	private Duration updateSkipWindow = Duration.ofSeconds(5);
 	private Duration activityMemory = Duration.ofDays(490);
 	private String serviceUrl = "http://localhost:8081";
 	private int appActivityCountIgnoreThreshold = 200;
+	private boolean isDistributedModeEnabled;
+	private Duration updateCoalescingWindow = Duration.ZERO;
+
+	/**
+	 * Configuration of the queue through which the app service can asynchronously hand off app activities to the analysis service.
+	 */
+	public static class AppActivityQueue
+	{
+		private boolean isEnabled;
+		private int maxQueueDepth = 10000;
+		private int workerCount = 2;
+		private int batchSize = 50;
+		private int maxAttempts = 10;
+		private Duration pollInterval = Duration.ofSeconds(1);
+		private Duration leaseTime = Duration.ofMinutes(1);
+		private Duration initialRetryDelay = Duration.ofSeconds(5);
+		private Duration maxRetryDelay = Duration.ofMinutes(10);
+		private Duration queueDepthRefreshInterval = Duration.ofMinutes(1);
+
+		public boolean isEnabled()
+		{
+			return isEnabled;
+		}
+
+		public void setEnabled(boolean isEnabled)
+		{
+			this.isEnabled = isEnabled;
+		}
+
+		/**
+		 * @return The number of queued app activity batches from which on app activities are delivered synchronously. This applies
+		 *         to the queue as a whole, but each app service instance only sees the enqueues of the others once per queue depth
+		 *         refresh interval, so the actual depth can exceed this a bit.
+		 */
+		public int getMaxQueueDepth()
+		{
+			return maxQueueDepth;
+		}
+
+		public void setMaxQueueDepth(int maxQueueDepth)
+		{
+			this.maxQueueDepth = maxQueueDepth;
+		}
+
+		public int getWorkerCount()
+		{
+			return workerCount;
+		}
+
+		public void setWorkerCount(int workerCount)
+		{
+			this.workerCount = workerCount;
+		}
+
+		public int getBatchSize()
+		{
+			return batchSize;
+		}
+
+		public void setBatchSize(int batchSize)
+		{
+			this.batchSize = batchSize;
+		}
+
+		public int getMaxAttempts()
+		{
+			return maxAttempts;
+		}
+
+		public void setMaxAttempts(int maxAttempts)
+		{
+			this.maxAttempts = maxAttempts;
+		}
+
+		public Duration getPollInterval()
+		{
+			return pollInterval;
+		}
+
+		public void setPollInterval(String pollInterval)
+		{
+			this.pollInterval = Duration.parse(pollInterval);
+		}
+
+		public Duration getLeaseTime()
+		{
+			return leaseTime;
+		}
+
+		public void setLeaseTime(String leaseTime)
+		{
+			this.leaseTime = Duration.parse(leaseTime);
+		}
+
+		public Duration getInitialRetryDelay()
+		{
+			return initialRetryDelay;
+		}
+
+		public void setInitialRetryDelay(String initialRetryDelay)
+		{
+			this.initialRetryDelay = Duration.parse(initialRetryDelay);
+		}
+
+		public Duration getMaxRetryDelay()
+		{
+			return maxRetryDelay;
+		}
+
+		public void setMaxRetryDelay(String maxRetryDelay)
+		{
+			this.maxRetryDelay = Duration.parse(maxRetryDelay);
+		}
+
+		/**
+		 * @return The interval with which the queue depth is refreshed with the queued items of all app service instances
+		 */
+		public Duration getQueueDepthRefreshInterval()
+		{
+			return queueDepthRefreshInterval;
+		}
+
+		public void setQueueDepthRefreshInterval(String queueDepthRefreshInterval)
+		{
+			this.queueDepthRefreshInterval = Duration.parse(queueDepthRefreshInterval);
+		}
+	}
+
+	public AppActivityQueue getAppActivityQueue()
+	{
+		return appActivityQueue;
+	}
 
 	public Duration getActivityMemory()
 	{
@@ -63,4 +196,40 @@ public class AnalysisServiceProperties
 	{
 		this.appActivityCountIgnoreThreshold = appActivityCountIgnoreThreshold;
 	}
+
+	/**
+	 * Whether the analysis service runs in distributed mode. In that mode, the per-user lock and the last activity cache are shared
+	 * across all analysis service instances through Hazelcast, so the analysis service can be scaled out.
+	 *
+	 * @return true if the analysis service runs in distributed mode
+	 */
+	public boolean isDistributedModeEnabled()
+	{
+		return isDistributedModeEnabled;
+	}
+
+	public void setDistributedModeEnabled(boolean isDistributedModeEnabled)
+	{
+		this.isDistributedModeEnabled = isDistributedModeEnabled;
+	}
+
+	/**
+	 * The time during which extensions of the end time of the last activity are buffered in memory before they are written to the
+	 * database. This turns the stream of small update transactions caused by apps that post frequently into one transaction per
+	 * user per window. New activities and goal conflict messages are not delayed.<br/>
+	 * The trade-off is durability and freshness: buffered extensions are lost if the analysis service stops abruptly, and the
+	 * activity overviews can lag behind by at most this window. A zero window disables coalescing. Coalescing is not done in
+	 * distributed mode, as the buffer is local to an analysis service instance.
+	 *
+	 * @return The coalescing window
+	 */
+	public Duration getUpdateCoalescingWindow()
+	{
+		return updateCoalescingWindow;
+	}
+
+	public void setUpdateCoalescingWindow(String updateCoalescingWindow)
+	{
+		this.updateCoalescingWindow = Duration.parse(updateCoalescingWindow);
+	}
 }
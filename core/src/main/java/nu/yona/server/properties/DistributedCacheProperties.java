@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.properties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounds of the caches of the distributed (Hazelcast) cache manager. Caches without configured bounds are unbounded, so every
+ * distributed cache that can grow with the number of users should be configured here.
+ */
+public class DistributedCacheProperties
+{
+	private final Map<String, CacheBounds> caches = new HashMap<>();
+
+	public static class CacheBounds
+	{
+		private int maxEntriesPerMember = 10000;
+		private Duration maxIdleTime = Duration.ofHours(1);
+
+		/**
+		 * @return The maximum number of entries each cluster member holds, before the least recently used ones are evicted
+		 */
+		public int getMaxEntriesPerMember()
+		{
+			return maxEntriesPerMember;
+		}
+
+		public void setMaxEntriesPerMember(int maxEntriesPerMember)
+		{
+			this.maxEntriesPerMember = maxEntriesPerMember;
+		}
+
+		/**
+		 * @return The time after which an entry expires, counted from the moment it was last read or written
+		 */
+		public Duration getMaxIdleTime()
+		{
+			return maxIdleTime;
+		}
+
+		public void setMaxIdleTime(String maxIdleTime)
+		{
+			this.maxIdleTime = Duration.parse(maxIdleTime);
+		}
+	}
+
+	public Map<String, CacheBounds> getCaches()
+	{
+		return caches;
+	}
+}
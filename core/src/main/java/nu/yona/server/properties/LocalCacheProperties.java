@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.properties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounds of the caches of the local (non-distributed) cache manager. The defaults apply to all caches that do not have their
+ * own bounds configured.
+ */
+public class LocalCacheProperties
+{
+	private final CacheBounds defaults = new CacheBounds();
+	private final Map<String, CacheBounds> caches = new HashMap<>();
+
+	public static class CacheBounds
+	{
+		private long maxEntries = 10000;
+		private Duration timeToLive = Duration.ofHours(1);
+
+		public long getMaxEntries()
+		{
+			return maxEntries;
+		}
+
+		public void setMaxEntries(long maxEntries)
+		{
+			this.maxEntries = maxEntries;
+		}
+
+		/**
+		 * @return The time after which an entry expires, counted from the moment it was last written
+		 */
+		public Duration getTimeToLive()
+		{
+			return timeToLive;
+		}
+
+		public void setTimeToLive(String timeToLive)
+		{
+			this.timeToLive = Duration.parse(timeToLive);
+		}
+	}
+
+	public CacheBounds getDefaults()
+	{
+		return defaults;
+	}
+
+	public Map<String, CacheBounds> getCaches()
+	{
+		return caches;
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.properties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the HTTP client used for the calls between the Yona services.
+ */
+public class RestClientProperties
+{
+	private int maxConnectionsTotal = 100;
+	private int maxConnectionsPerRoute = 50;
+	private Duration connectTimeout = Duration.ofSeconds(5);
+	private Duration readTimeout = Duration.ofSeconds(30);
+	private Duration keepAliveTime = Duration.ofMinutes(1);
+	private boolean isHttp2Enabled;
+
+	public int getMaxConnectionsTotal()
+	{
+		return maxConnectionsTotal;
+	}
+
+	public void setMaxConnectionsTotal(int maxConnectionsTotal)
+	{
+		this.maxConnectionsTotal = maxConnectionsTotal;
+	}
+
+	public int getMaxConnectionsPerRoute()
+	{
+		return maxConnectionsPerRoute;
+	}
+
+	public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute)
+	{
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+	}
+
+	public Duration getConnectTimeout()
+	{
+		return connectTimeout;
+	}
+
+	public void setConnectTimeout(String connectTimeout)
+	{
+		this.connectTimeout = Duration.parse(connectTimeout);
+	}
+
+	public Duration getReadTimeout()
+	{
+		return readTimeout;
+	}
+
+	public void setReadTimeout(String readTimeout)
+	{
+		this.readTimeout = Duration.parse(readTimeout);
+	}
+
+	/**
+	 * @return The time an idle connection is kept alive for reuse
+	 */
+	public Duration getKeepAliveTime()
+	{
+		return keepAliveTime;
+	}
+
+	public void setKeepAliveTime(String keepAliveTime)
+	{
+		this.keepAliveTime = Duration.parse(keepAliveTime);
+	}
+
+	/**
+	 * @return true if the JDK HTTP client with HTTP/2 should be used rather than the pooled HTTP/1.1 client. The JDK client
+	 *         multiplexes requests over a single connection per target, so the connection limits do not apply to it.
+	 */
+	public boolean isHttp2Enabled()
+	{
+		return isHttp2Enabled;
+	}
+
+	public void setHttp2Enabled(boolean isHttp2Enabled)
+	{
+		this.isHttp2Enabled = isHttp2Enabled;
+	}
+}
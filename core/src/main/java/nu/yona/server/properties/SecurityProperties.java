@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.properties;
@@ -28,6 +28,23 @@ public class SecurityProperties
 
 	private int maxRequestOverwriteUserConfirmationCodeAttemptsPerTimeWindow = 3;
 
+	/**
+	 * If true, the decryption info of messages is cached in memory, so repeatedly fetching the same messages does not repeat the
+	 * private key operations.
+	 */
+	private boolean isDecryptionInfoCacheEnabled = false;
+	private int decryptionInfoCacheMaxEntries = 100_000;
+	private Duration decryptionInfoCacheTimeToLive = Duration.ofMinutes(15);
+	private boolean isDerivedKeyCacheEnabled = true;
+	private int derivedKeyCacheMaxEntries = 10_000;
+	private Duration derivedKeyCacheTimeToLive = Duration.ofMinutes(5);
+
+	/**
+	 * The number of threads that decrypt the decryption info of a batch of messages in parallel. If zero, these are decrypted on
+	 * the requesting thread.
+	 */
+	private int decryptionThreadCount = 4;
+
 	public int getConfirmationCodeDigits()
 	{
 		return confirmationCodeDigits;
@@ -168,4 +185,74 @@ public class SecurityProperties
 	{
 		this.maxRequestOverwriteUserConfirmationCodeAttemptsPerTimeWindow = maxRequestOverwriteUserConfirmationCodeAttemptsPerTimeWindow;
 	}
+
+	public void setDecryptionInfoCacheEnabled(boolean isDecryptionInfoCacheEnabled)
+	{
+		this.isDecryptionInfoCacheEnabled = isDecryptionInfoCacheEnabled;
+	}
+
+	public boolean isDecryptionInfoCacheEnabled()
+	{
+		return isDecryptionInfoCacheEnabled;
+	}
+
+	public int getDecryptionInfoCacheMaxEntries()
+	{
+		return decryptionInfoCacheMaxEntries;
+	}
+
+	public void setDecryptionInfoCacheMaxEntries(int decryptionInfoCacheMaxEntries)
+	{
+		this.decryptionInfoCacheMaxEntries = decryptionInfoCacheMaxEntries;
+	}
+
+	public Duration getDecryptionInfoCacheTimeToLive()
+	{
+		return decryptionInfoCacheTimeToLive;
+	}
+
+	public void setDecryptionInfoCacheTimeToLive(String decryptionInfoCacheTimeToLive)
+	{
+		this.decryptionInfoCacheTimeToLive = Duration.parse(decryptionInfoCacheTimeToLive);
+	}
+
+	public void setDerivedKeyCacheEnabled(boolean isDerivedKeyCacheEnabled)
+	{
+		this.isDerivedKeyCacheEnabled = isDerivedKeyCacheEnabled;
+	}
+
+	public boolean isDerivedKeyCacheEnabled()
+	{
+		return isDerivedKeyCacheEnabled;
+	}
+
+	public int getDerivedKeyCacheMaxEntries()
+	{
+		return derivedKeyCacheMaxEntries;
+	}
+
+	public void setDerivedKeyCacheMaxEntries(int derivedKeyCacheMaxEntries)
+	{
+		this.derivedKeyCacheMaxEntries = derivedKeyCacheMaxEntries;
+	}
+
+	public Duration getDerivedKeyCacheTimeToLive()
+	{
+		return derivedKeyCacheTimeToLive;
+	}
+
+	public void setDerivedKeyCacheTimeToLive(String derivedKeyCacheTimeToLive)
+	{
+		this.derivedKeyCacheTimeToLive = Duration.parse(derivedKeyCacheTimeToLive);
+	}
+
+	public int getDecryptionThreadCount()
+	{
+		return decryptionThreadCount;
+	}
+
+	public void setDecryptionThreadCount(int decryptionThreadCount)
+	{
+		this.decryptionThreadCount = decryptionThreadCount;
+	}
 }
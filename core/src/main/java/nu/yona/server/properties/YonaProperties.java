@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.properties;
@@ -44,6 +44,15 @@ public class YonaProperties
 	@NestedConfigurationProperty
 	private final FirebaseProperties firebase = new FirebaseProperties();
 
+	@NestedConfigurationProperty
+	private final RestClientProperties restClient = new RestClientProperties();
+
+	@NestedConfigurationProperty
+	private final LocalCacheProperties localCache = new LocalCacheProperties();
+
+	@NestedConfigurationProperty
+	private final DistributedCacheProperties distributedCache = new DistributedCacheProperties();
+
 	private final Set<Locale> supportedLocales = new HashSet<>();
 
 	private Set<Integer> supportedCountryCodes = new HashSet<>();
@@ -106,6 +115,21 @@ public class YonaProperties
 		return firebase;
 	}
 
+	public RestClientProperties getRestClient()
+	{
+		return restClient;
+	}
+
+	public LocalCacheProperties getLocalCache()
+	{
+		return localCache;
+	}
+
+	public DistributedCacheProperties getDistributedCache()
+	{
+		return distributedCache;
+	}
+
 	public void setDefaultLocale(String defaultLocale)
 	{
 		this.defaultLocale = Locale.forLanguageTag(defaultLocale);
@@ -1,26 +1,48 @@
 /*
- * Copyright (c) 2019, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
- * v.2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ * Copyright (c) 2019, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.rest;
 
+import java.net.http.HttpClient;
 import java.util.Collections;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import io.micrometer.observation.ObservationRegistry;
+import nu.yona.server.properties.RestClientProperties;
+import nu.yona.server.properties.YonaProperties;
 import tools.jackson.databind.ObjectMapper;
 
 @Configuration
 public class Config implements WebMvcConfigurer
 {
+	private static final String HTTP2_ENABLED_PROPERTY = "yona.restClient.http2Enabled";
+
 	@Autowired
 	private PassThroughHeadersHolder headersHolder;
 
+	@Autowired
+	private YonaProperties yonaProperties;
+
 	@Override
 	public void addInterceptors(InterceptorRegistry registry)
 	{
@@ -33,12 +55,62 @@ public class Config implements WebMvcConfigurer
 		return new HeadersClientInterceptor(headersHolder);
 	}
 
+	/**
+	 * The connection pool of the HTTP/1.1 client. It is not created when HTTP/2 is enabled, as the JDK HTTP client used then
+	 * manages its own connections.
+	 *
+	 * @return The connection manager
+	 */
 	@Bean
-	public RestTemplate restTemplate(ObjectMapper objectMapper)
+	@ConditionalOnProperty(name = HTTP2_ENABLED_PROPERTY, havingValue = "false", matchIfMissing = true)
+	public PoolingHttpClientConnectionManager restClientConnectionManager()
 	{
-		RestTemplate restTemplate = new RestTemplate();
+		RestClientProperties properties = yonaProperties.getRestClient();
+		return PoolingHttpClientConnectionManagerBuilder.create().setMaxConnTotal(properties.getMaxConnectionsTotal())
+				.setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+				.setDefaultConnectionConfig(createConnectionConfig(properties)).build();
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = HTTP2_ENABLED_PROPERTY, havingValue = "false", matchIfMissing = true)
+	public MeterBinder restClientConnectionPoolMetrics(PoolingHttpClientConnectionManager restClientConnectionManager)
+	{
+		return new PoolingHttpClientConnectionManagerMetricsBinder(restClientConnectionManager, "restClient");
+	}
+
+	@Bean
+	public RestTemplate restTemplate(ObjectMapper objectMapper,
+			ObjectProvider<PoolingHttpClientConnectionManager> restClientConnectionManager,
+			ObjectProvider<ObservationRegistry> observationRegistry)
+	{
+		RestTemplate restTemplate = new RestTemplate(createRequestFactory(restClientConnectionManager));
 		restTemplate.setErrorHandler(new RestClientErrorHandler(objectMapper));
 		restTemplate.setInterceptors(Collections.singletonList(getHeadersClientInterceptor()));
+		// Publishes the http.client.requests metrics, tagged with the target service host
+		observationRegistry.ifAvailable(restTemplate::setObservationRegistry);
 		return restTemplate;
 	}
-}
\ No newline at end of file
+
+	static ConnectionConfig createConnectionConfig(RestClientProperties properties)
+	{
+		return ConnectionConfig.custom().setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+				.setSocketTimeout(Timeout.of(properties.getReadTimeout())).build();
+	}
+
+	ClientHttpRequestFactory createRequestFactory(ObjectProvider<PoolingHttpClientConnectionManager> connectionManager)
+	{
+		RestClientProperties properties = yonaProperties.getRestClient();
+		if (properties.isHttp2Enabled())
+		{
+			HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2)
+					.connectTimeout(properties.getConnectTimeout()).build();
+			JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+			requestFactory.setReadTimeout(properties.getReadTimeout());
+			return requestFactory;
+		}
+		TimeValue keepAliveTime = TimeValue.of(properties.getKeepAliveTime());
+		return new HttpComponentsClientHttpRequestFactory(HttpClients.custom().setConnectionManager(connectionManager.getObject())
+				.setKeepAliveStrategy((response, context) -> keepAliveTime).evictIdleConnections(keepAliveTime)
+				.evictExpiredConnections().build());
+	}
+}
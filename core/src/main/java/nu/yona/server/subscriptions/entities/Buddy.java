@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2021 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.subscriptions.entities;
@@ -25,8 +25,9 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import nu.yona.server.Translator;
-import nu.yona.server.crypto.seckey.DateTimeFieldEncryptor;
-import nu.yona.server.crypto.seckey.UUIDFieldEncryptor;
+import nu.yona.server.crypto.seckey.EncryptedValue;
+import nu.yona.server.crypto.seckey.LazyDateTimeFieldEncryptor;
+import nu.yona.server.crypto.seckey.LazyUUIDFieldEncryptor;
 import nu.yona.server.device.entities.BuddyDevice;
 import nu.yona.server.entities.RepositoryProvider;
 import nu.yona.server.exceptions.InvalidDataException;
@@ -45,14 +46,14 @@ public class Buddy extends PrivateUserProperties
 	@Column(name = "owning_user_private_id")
 	private UUID owningUserPrivateId;
 
-	@Convert(converter = UUIDFieldEncryptor.class)
-	private UUID userId;
+	@Convert(converter = LazyUUIDFieldEncryptor.class)
+	private EncryptedValue<UUID> userId;
 
-	@Convert(converter = UUIDFieldEncryptor.class)
-	private UUID buddyAnonymizedId;
+	@Convert(converter = LazyUUIDFieldEncryptor.class)
+	private EncryptedValue<UUID> buddyAnonymizedId;
 
-	@Convert(converter = DateTimeFieldEncryptor.class)
-	private LocalDateTime lastStatusChangeTime;
+	@Convert(converter = LazyDateTimeFieldEncryptor.class)
+	private EncryptedValue<LocalDateTime> lastStatusChangeTime;
 
 	/**
 	 * The BuddyDevice entities owned by this user
@@ -71,8 +72,8 @@ public class Buddy extends PrivateUserProperties
 			UUID buddyAnonymizedId)
 	{
 		super(id, firstName, lastName, Objects.requireNonNull(nickname), userPhotoId);
-		this.userId = Objects.requireNonNull(userId);
-		this.buddyAnonymizedId = Objects.requireNonNull(buddyAnonymizedId);
+		this.userId = EncryptedValue.createInstance(Objects.requireNonNull(userId));
+		this.buddyAnonymizedId = EncryptedValue.createInstance(Objects.requireNonNull(buddyAnonymizedId));
 		this.devices = new HashSet<>();
 
 		setLastStatusChangeTimeToNow();
@@ -98,28 +99,29 @@ public class Buddy extends PrivateUserProperties
 
 	public UUID getBuddyAnonymizedId()
 	{
-		return buddyAnonymizedId;
+		return EncryptedValue.plaintextOf(buddyAnonymizedId);
 	}
 
 	public BuddyAnonymized getBuddyAnonymized()
 	{
+		UUID buddyAnonymizedId = getBuddyAnonymizedId();
 		return BuddyAnonymized.getRepository().findById(buddyAnonymizedId)
 				.orElseThrow(() -> InvalidDataException.missingEntity(BuddyAnonymized.class, buddyAnonymizedId));
 	}
 
 	public UUID getUserId()
 	{
-		return userId;
+		return EncryptedValue.plaintextOf(userId);
 	}
 
 	public User getUser()
 	{
-		return getUserIfExisting().orElseThrow(() -> UserServiceException.notFoundById(userId));
+		return getUserIfExisting().orElseThrow(() -> UserServiceException.notFoundById(getUserId()));
 	}
 
 	public Optional<User> getUserIfExisting()
 	{
-		return User.getRepository().findById(userId);
+		return User.getRepository().findById(getUserId());
 	}
 
 	public Optional<UUID> getUserAnonymizedId()
@@ -157,12 +159,12 @@ public class Buddy extends PrivateUserProperties
 
 	public LocalDateTime getLastStatusChangeTime()
 	{
-		return lastStatusChangeTime;
+		return EncryptedValue.plaintextOf(lastStatusChangeTime);
 	}
 
 	private void setLastStatusChangeTimeToNow()
 	{
-		lastStatusChangeTime = TimeUtil.utcNow();
+		lastStatusChangeTime = EncryptedValue.createInstance(TimeUtil.utcNow());
 	}
 
 	public void setUserAnonymizedId(UUID userAnonymizedId)
@@ -181,7 +183,7 @@ public class Buddy extends PrivateUserProperties
 
 	public void setLastStatusChangeTime(LocalDateTime lastStatusChangeTime)
 	{
-		this.lastStatusChangeTime = lastStatusChangeTime;
+		this.lastStatusChangeTime = EncryptedValue.createInstance(lastStatusChangeTime);
 	}
 
 	public void addDevice(BuddyDevice device)
@@ -1,9 +1,11 @@
 /*
- * Copyright (c) 2015, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.subscriptions.entities;
 
+import java.util.Collection;
+import java.util.Set;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.Query;
@@ -12,7 +14,12 @@ import org.springframework.data.repository.query.Param;
 
 public interface BuddyAnonymizedRepository extends CrudRepository<BuddyAnonymized, UUID>
 {
-	@Query("select count(b) > 0 from BuddyAnonymized b where b.owningUserAnonymized.id = :owningUserAnonymizedId and (userAnonymizedId = :userAnonymizedId or receivingStatus = 1)")
-	boolean existsPendingOrEstablishedBuddyRelationship(@Param("owningUserAnonymizedId") UUID owningUserAnonymizedId,
+	/**
+	 * Returns which of the given owning users anonymized have a pending or established buddy relationship with the given user
+	 * anonymized.
+	 */
+	@Query("select distinct b.owningUserAnonymized.id from BuddyAnonymized b where b.owningUserAnonymized.id in :owningUserAnonymizedIds and (userAnonymizedId = :userAnonymizedId or receivingStatus = 1)")
+	Set<UUID> findOwningUserAnonymizedIdsWithPendingOrEstablishedBuddyRelationship(
+			@Param("owningUserAnonymizedIds") Collection<UUID> owningUserAnonymizedIds,
 			@Param("userAnonymizedId") UUID userAnonymizedId);
 }
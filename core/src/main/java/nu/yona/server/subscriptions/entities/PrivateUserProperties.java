@@ -1,6 +1,6 @@
 /*
- * Copyright (c) 2018 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
- * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ * Copyright (c) 2018, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.subscriptions.entities;
 
@@ -10,24 +10,25 @@ import java.util.UUID;
 
 import jakarta.persistence.Convert;
 import jakarta.persistence.MappedSuperclass;
-import nu.yona.server.crypto.seckey.StringFieldEncryptor;
-import nu.yona.server.crypto.seckey.UUIDFieldEncryptor;
+import nu.yona.server.crypto.seckey.EncryptedValue;
+import nu.yona.server.crypto.seckey.LazyStringFieldEncryptor;
+import nu.yona.server.crypto.seckey.LazyUUIDFieldEncryptor;
 
 @MappedSuperclass
 public abstract class PrivateUserProperties extends EntityWithUuidAndTouchVersion
 {
 
-	@Convert(converter = StringFieldEncryptor.class)
-	private String firstName;
+	@Convert(converter = LazyStringFieldEncryptor.class)
+	private EncryptedValue<String> firstName;
 
-	@Convert(converter = StringFieldEncryptor.class)
-	private String lastName;
+	@Convert(converter = LazyStringFieldEncryptor.class)
+	private EncryptedValue<String> lastName;
 
-	@Convert(converter = StringFieldEncryptor.class)
-	private String nickname;
+	@Convert(converter = LazyStringFieldEncryptor.class)
+	private EncryptedValue<String> nickname;
 
-	@Convert(converter = UUIDFieldEncryptor.class)
-	private UUID userPhotoId;
+	@Convert(converter = LazyUUIDFieldEncryptor.class)
+	private EncryptedValue<UUID> userPhotoId;
 
 	// Default constructor is required for JPA
 	protected PrivateUserProperties()
@@ -38,49 +39,49 @@ public abstract class PrivateUserProperties extends EntityWithUuidAndTouchVersio
 	protected PrivateUserProperties(UUID id, String firstName, String lastName, String nickname, Optional<UUID> userPhotoId)
 	{
 		super(id);
-		this.firstName = Objects.requireNonNull(firstName);
-		this.lastName = Objects.requireNonNull(lastName);
-		this.nickname = nickname;
-		this.userPhotoId = userPhotoId.orElse(null);
+		this.firstName = EncryptedValue.createInstance(Objects.requireNonNull(firstName));
+		this.lastName = EncryptedValue.createInstance(Objects.requireNonNull(lastName));
+		this.nickname = EncryptedValue.createInstance(nickname);
+		this.userPhotoId = EncryptedValue.createInstance(userPhotoId.orElse(null));
 	}
 
 	public String getFirstName()
 	{
-		return firstName;
+		return EncryptedValue.plaintextOf(firstName);
 	}
 
 	public void setFirstName(String firstName)
 	{
-		this.firstName = firstName;
+		this.firstName = EncryptedValue.createInstance(firstName);
 	}
 
 	public String getLastName()
 	{
-		return lastName;
+		return EncryptedValue.plaintextOf(lastName);
 	}
 
 	public void setLastName(String lastName)
 	{
-		this.lastName = lastName;
+		this.lastName = EncryptedValue.createInstance(lastName);
 	}
 
 	public String getNickname()
 	{
-		return nickname;
+		return EncryptedValue.plaintextOf(nickname);
 	}
 
 	public void setNickname(String nickname)
 	{
-		this.nickname = nickname;
+		this.nickname = EncryptedValue.createInstance(nickname);
 	}
 
 	public Optional<UUID> getUserPhotoId()
 	{
-		return Optional.ofNullable(userPhotoId);
+		return Optional.ofNullable(EncryptedValue.plaintextOf(userPhotoId));
 	}
 
 	public void setUserPhotoId(Optional<UUID> userPhotoId)
 	{
-		this.userPhotoId = userPhotoId.orElse(null);
+		this.userPhotoId = EncryptedValue.createInstance(userPhotoId.orElse(null));
 	}
 }
\ No newline at end of file
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.subscriptions.entities;
@@ -25,9 +25,10 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import nu.yona.server.crypto.CryptoUtil;
-import nu.yona.server.crypto.seckey.DateTimeFieldEncryptor;
-import nu.yona.server.crypto.seckey.StringFieldEncryptor;
-import nu.yona.server.crypto.seckey.UUIDFieldEncryptor;
+import nu.yona.server.crypto.seckey.EncryptedValue;
+import nu.yona.server.crypto.seckey.LazyDateTimeFieldEncryptor;
+import nu.yona.server.crypto.seckey.LazyStringFieldEncryptor;
+import nu.yona.server.crypto.seckey.LazyUUIDFieldEncryptor;
 import nu.yona.server.device.entities.UserDevice;
 import nu.yona.server.exceptions.InvalidDataException;
 import nu.yona.server.messaging.entities.MessageSource;
@@ -38,29 +39,29 @@ public class UserPrivate extends PrivateUserProperties
 {
 	private static final String DECRYPTION_CHECK_STRING = "Decrypted properly#";
 
-	@Convert(converter = StringFieldEncryptor.class)
-	private String decryptionCheck;
+	@Convert(converter = LazyStringFieldEncryptor.class)
+	private EncryptedValue<String> decryptionCheck;
 
-	@Convert(converter = DateTimeFieldEncryptor.class)
-	private LocalDateTime creationTime;
+	@Convert(converter = LazyDateTimeFieldEncryptor.class)
+	private EncryptedValue<LocalDateTime> creationTime;
 
-	@Convert(converter = UUIDFieldEncryptor.class)
-	private UUID userAnonymizedId;
+	@Convert(converter = LazyUUIDFieldEncryptor.class)
+	private EncryptedValue<UUID> userAnonymizedId;
 
 	@OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
 	@JoinColumn(name = "owning_user_private_id", referencedColumnName = "id")
 	@Fetch(FetchMode.JOIN)
 	private Set<Buddy> buddies;
 
-	@Convert(converter = UUIDFieldEncryptor.class)
-	private UUID anonymousMessageSourceId;
+	@Convert(converter = LazyUUIDFieldEncryptor.class)
+	private EncryptedValue<UUID> anonymousMessageSourceId;
 
-	@Convert(converter = UUIDFieldEncryptor.class)
-	private UUID namedMessageSourceId;
+	@Convert(converter = LazyUUIDFieldEncryptor.class)
+	private EncryptedValue<UUID> namedMessageSourceId;
 
 	// YD-542 Remove this property
-	@Convert(converter = StringFieldEncryptor.class)
-	private String vpnPassword;
+	@Convert(converter = LazyStringFieldEncryptor.class)
+	private EncryptedValue<String> vpnPassword;
 
 	@OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
 	@JoinColumn(name = "user_private_id", referencedColumnName = "id")
@@ -77,12 +78,12 @@ public class UserPrivate extends PrivateUserProperties
 			UUID userAnonymizedId, UUID anonymousMessageSourceId, UUID namedMessageSourceId)
 	{
 		super(id, firstName, lastName, nickname, Optional.empty());
-		this.decryptionCheck = buildDecryptionCheck();
-		this.creationTime = creationTime;
-		this.userAnonymizedId = userAnonymizedId;
+		this.decryptionCheck = EncryptedValue.createInstance(buildDecryptionCheck());
+		this.creationTime = EncryptedValue.createInstance(creationTime);
+		this.userAnonymizedId = EncryptedValue.createInstance(userAnonymizedId);
 		this.buddies = new HashSet<>();
-		this.anonymousMessageSourceId = anonymousMessageSourceId;
-		this.namedMessageSourceId = namedMessageSourceId;
+		this.anonymousMessageSourceId = EncryptedValue.createInstance(anonymousMessageSourceId);
+		this.namedMessageSourceId = EncryptedValue.createInstance(namedMessageSourceId);
 		this.devices = new HashSet<>();
 	}
 
@@ -100,11 +101,12 @@ public class UserPrivate extends PrivateUserProperties
 
 	public boolean isDecryptedProperly()
 	{
-		return isDecrypted() && decryptionCheck.startsWith(DECRYPTION_CHECK_STRING);
+		return isDecrypted() && decryptionCheck.get().startsWith(DECRYPTION_CHECK_STRING);
 	}
 
 	UserAnonymized getUserAnonymized()
 	{
+		UUID userAnonymizedId = getUserAnonymizedId();
 		return UserAnonymized.getRepository().findById(userAnonymizedId)
 				.orElseThrow(() -> InvalidDataException.userAnonymizedIdNotFound(userAnonymizedId));
 	}
@@ -126,38 +128,38 @@ public class UserPrivate extends PrivateUserProperties
 
 	public UUID getAnonymousMessageSourceId()
 	{
-		return anonymousMessageSourceId;
+		return EncryptedValue.plaintextOf(anonymousMessageSourceId);
 	}
 
 	public UUID getNamedMessageSourceId()
 	{
-		return namedMessageSourceId;
+		return EncryptedValue.plaintextOf(namedMessageSourceId);
 	}
 
 	public Optional<String> getAndClearVpnPassword()
 	{
-		if (vpnPassword == null)
+		String plaintextVpnPassword = EncryptedValue.plaintextOf(vpnPassword);
+		if (plaintextVpnPassword == null)
 		{
 			return Optional.empty();
 		}
-		Optional<String> retVal = Optional.of(vpnPassword);
 		vpnPassword = null;
-		return retVal;
+		return Optional.of(plaintextVpnPassword);
 	}
 
 	public LocalDateTime getCreationTime()
 	{
-		return this.creationTime;
+		return EncryptedValue.plaintextOf(creationTime);
 	}
 
 	public void setCreationTime(LocalDateTime creationTime)
 	{
-		this.creationTime = creationTime;
+		this.creationTime = EncryptedValue.createInstance(creationTime);
 	}
 
 	private boolean isDecrypted()
 	{
-		return decryptionCheck != null;
+		return EncryptedValue.plaintextOf(decryptionCheck) != null;
 	}
 
 	@Override
@@ -169,7 +171,7 @@ public class UserPrivate extends PrivateUserProperties
 
 	public UUID getUserAnonymizedId()
 	{
-		return userAnonymizedId;
+		return EncryptedValue.plaintextOf(userAnonymizedId);
 	}
 
 	public Set<Buddy> getBuddiesRelatedToRemovedUsers()
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2021 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2015, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.subscriptions.service;
@@ -509,20 +509,26 @@ public class BuddyService
 
 	public Set<UserAnonymizedDto> getBuddyUsersAnonymized(UserAnonymizedDto userAnonymized)
 	{
-		return userAnonymized.getBuddiesAnonymized().stream().filter(ba -> ba.getSendingStatus() == Status.ACCEPTED)
-				.map(BuddyAnonymizedDto::getUserAnonymizedId).filter(Optional::isPresent).map(Optional::get)
-				.filter(buddyUserAnonymizedId -> otherBuddyAnonymizedStillExists(userAnonymized, buddyUserAnonymizedId))
+		Set<UUID> buddyUserAnonymizedIds = userAnonymized.getBuddiesAnonymized().stream()
+				.filter(ba -> ba.getSendingStatus() == Status.ACCEPTED).map(BuddyAnonymizedDto::getUserAnonymizedId)
+				.filter(Optional::isPresent).map(Optional::get).collect(Collectors.toSet());
+		return getBuddyUsersAnonymizedWithOtherBuddyAnonymized(userAnonymized, buddyUserAnonymizedIds).stream()
 				.map(buaid -> userAnonymizedService.getUserAnonymized(buaid)).collect(Collectors.toSet());
 	}
 
-	private boolean otherBuddyAnonymizedStillExists(UserAnonymizedDto userAnonymized, UUID buddyUserAnonymizedId)
+	private Set<UUID> getBuddyUsersAnonymizedWithOtherBuddyAnonymized(UserAnonymizedDto userAnonymized,
+			Set<UUID> buddyUserAnonymizedIds)
 	{
+		if (buddyUserAnonymizedIds.isEmpty())
+		{
+			return buddyUserAnonymizedIds;
+		}
 		// If a user overwrites their account, the user anonymized entity will continue to exist. If a device still uses the old
 		// VPN account after overwriting their user account, the analysis engine might still create goal conflict messages for
 		// buddies, though the buddies do not know the user anymore. To prevent that, we should filter out the buddy anonymized
 		// entities that do not have a corresponding buddy anonymized entity at the receiving end.
-		return buddyAnonymizedRepository.existsPendingOrEstablishedBuddyRelationship(buddyUserAnonymizedId,
-				userAnonymized.getId());
+		return buddyAnonymizedRepository.findOwningUserAnonymizedIdsWithPendingOrEstablishedBuddyRelationship(
+				buddyUserAnonymizedIds, userAnonymized.getId());
 	}
 
 	public Set<MessageDestination> getBuddyDestinations(UserAnonymized userAnonymized)
@@ -722,6 +728,31 @@ public class BuddyService
 		}
 	}
 
+	/**
+	 * Loads the buddies of the given user that have any of the given user anonymized IDs, along with their users, in one query for
+	 * the anonymized buddies and one for the users. Subsequent lookups of these buddies, e.g. through
+	 * {@link #getBuddyOfUserByUserAnonymizedId(User, UUID)}, are then served from the persistence context.
+	 *
+	 * @param user The user owning the buddies
+	 * @param userAnonymizedIds The user anonymized IDs of the buddies to load
+	 */
+	public void loadBuddiesAtOnce(User user, Set<UUID> userAnonymizedIds)
+	{
+		if (userAnonymizedIds.isEmpty())
+		{
+			return;
+		}
+		Set<Buddy> buddies = user.getBuddies();
+		buddyAnonymizedRepository.findAllById(buddies.stream().map(Buddy::getBuddyAnonymizedId).toList());
+		List<UUID> userIds = buddies.stream()
+				.filter(b -> b.getUserAnonymizedId().filter(userAnonymizedIds::contains).isPresent()).map(Buddy::getUserId)
+				.toList();
+		if (!userIds.isEmpty())
+		{
+			User.getRepository().findAllById(userIds);
+		}
+	}
+
 	public Optional<Buddy> getBuddyOfUserByUserAnonymizedId(User user, UUID userAnonymizedId)
 	{
 		Set<Buddy> buddies = user.getBuddies();
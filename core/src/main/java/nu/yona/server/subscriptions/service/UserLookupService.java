@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2019, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.subscriptions.service;
@@ -53,6 +53,28 @@ public class UserLookupService
 
 	@Transactional
 	public boolean doPreparationsAndCheckCanAccessPrivateData(UUID id)
+	{
+		// In the steady state, there is nothing to prepare, so first check that without locking the user. This way, the
+		// requests of a user (e.g. the app activity posts of all devices) are not serialized on the user row.
+		User user = getUserEntityById(id);
+		if (!user.canAccessPrivateData())
+		{
+			return false;
+		}
+		if (!isPreparationNeeded(user))
+		{
+			return true;
+		}
+		return doPreparationsWithLockAndCheckCanAccessPrivateData(id);
+	}
+
+	private boolean isPreparationNeeded(User user)
+	{
+		return !user.getBuddiesRelatedToRemovedUsers().isEmpty() || !privateUserDataMigrationService.isUpToDate(user)
+				|| messageService.isMessageCollectionPreparationNeeded(user);
+	}
+
+	private boolean doPreparationsWithLockAndCheckCanAccessPrivateData(UUID id)
 	{
 		// We add a lock here to prevent concurrent user updates. The lock is per user, so concurrency is not an issue.
 		return withLockOnUser(id, user -> {
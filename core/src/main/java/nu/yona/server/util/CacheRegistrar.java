@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2021 Stichting Yona Foundation
+ * Copyright (c) 2021, 2026 Stichting Yona Foundation
  * This Source Code Form is subject to the terms of the Mozilla Public License, v.2.0.
  * If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
@@ -24,9 +24,14 @@ public class CacheRegistrar
 	private CacheManager cacheManager;
 
 	public void registerCacheForMetrics(String cacheName)
+	{
+		registerCacheForMetrics(cacheManager, "cacheManager", cacheName);
+	}
+
+	public void registerCacheForMetrics(CacheManager cacheManager, String cacheManagerName, String cacheName)
 	{
 		Cache cache = cacheManager.getCache(cacheName);
-		Tag t = Tag.of("cacheManager", "cacheManager");
+		Tag t = Tag.of("cacheManager", cacheManagerName);
 		this.cacheMetricsRegistrar.bindCacheToRegistry(cache, t);
 	}
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.util;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+
+import nu.yona.server.exceptions.YonaException;
+
+/**
+ * Lock pool that, on top of the JVM-local lock, takes a cluster-wide lock on the ID. The cluster-wide locks are the key locks of a
+ * Hazelcast map, so they are partitioned over the cluster members the same way as the map entries are. The local lock is taken
+ * first, so threads of the same JVM queue locally and only one of them at a time interacts with the cluster.
+ */
+public class HazelcastLockPool<T> extends LockPool<T>
+{
+	private static final String MAP_NAME_PREFIX = "lockPool-";
+
+	private final IMap<T, Boolean> lockMap;
+
+	HazelcastLockPool(String name, HazelcastInstance hazelcastInstance)
+	{
+		super(name);
+		this.lockMap = hazelcastInstance.getMap(MAP_NAME_PREFIX + name);
+	}
+
+	@Override
+	public Lock lock(T id)
+	{
+		Lock localLock = super.lock(id);
+		try
+		{
+			lockMap.lock(id);
+			return createLock(id, localLock);
+		}
+		catch (RuntimeException e)
+		{
+			localLock.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public Optional<Lock> tryLock(T id, Duration timeout)
+	{
+		long startTime = System.nanoTime();
+		Optional<Lock> localLock = super.tryLock(id, timeout);
+		if (!localLock.isPresent())
+		{
+			return Optional.empty();
+		}
+		try
+		{
+			long remainingTimeNanos = Math.max(0, timeout.toNanos() - (System.nanoTime() - startTime));
+			if (lockMap.tryLock(id, remainingTimeNanos, TimeUnit.NANOSECONDS))
+			{
+				return Optional.of(createLock(id, localLock.get()));
+			}
+			localLock.get().close();
+			return Optional.empty();
+		}
+		catch (InterruptedException e)
+		{
+			localLock.get().close();
+			Thread.currentThread().interrupt();
+			throw YonaException.unexpected(e);
+		}
+		catch (RuntimeException e)
+		{
+			localLock.get().close();
+			throw e;
+		}
+	}
+
+	private Lock createLock(T id, Lock localLock)
+	{
+		return new Lock(() -> {
+			try
+			{
+				lockMap.unlock(id);
+			}
+			finally
+			{
+				localLock.close();
+			}
+		});
+	}
+}
@@ -1,97 +1,207 @@
 /*
- * Copyright (c) 2016, 2017 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
  * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.util;
 
-import java.util.HashMap;
+import java.time.Duration;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 import nu.yona.server.exceptions.YonaException;
 
+/**
+ * Pool of reentrant locks, one per ID. A lock is created lazily when it is first requested and it is removed from the pool again
+ * as soon as no thread holds or waits for it anymore. Threads waiting for a lock are only woken up when that specific lock is
+ * released, so unrelated IDs never contend with each other.<br/>
+ * The pool keeps track of the number of contended lock requests and the time spent waiting for them. These statistics are
+ * published through {@link LockPoolMetricsBinder}.
+ */
 public class LockPool<T>
 {
-	private enum LockStatus
+	private final String name;
+	private final Map<T, LockEntry> pool = new ConcurrentHashMap<>();
+	private final LongAdder contentionCount = new LongAdder();
+	private final LongAdder totalWaitTimeNanos = new LongAdder();
+	private final LongAdder timeoutCount = new LongAdder();
+
+	public LockPool()
 	{
-		FREE, LOCKED, LOCKED_BY_ME
+		this("default");
 	}
 
-	private final Map<T, Thread> pool = new HashMap<>();
+	public LockPool(String name)
+	{
+		this.name = name;
+	}
 
+	/**
+	 * Acquires the lock for the given ID, waiting as long as needed. The lock is held by the calling thread, so it must be closed on
+	 * that same thread.
+	 *
+	 * @param id The ID to lock
+	 * @return The lock
+	 */
 	public Lock lock(T id)
 	{
+		LockEntry entry = retainEntry(id);
 		try
 		{
-			synchronized (pool)
+			if (!entry.lock.tryLock())
 			{
-				LockStatus lockStatus;
-				while ((lockStatus = getLockStatus(id)) == LockStatus.LOCKED)
-				{
-					pool.wait();
-				}
-				if (lockStatus == LockStatus.FREE)
-				{
-					storeLock(id);
-				}
-				return new Lock(id, lockStatus == LockStatus.FREE);
+				long startTime = System.nanoTime();
+				entry.lock.lockInterruptibly();
+				registerWait(startTime);
 			}
+			return new Lock(() -> unlock(id, entry));
 		}
 		catch (InterruptedException e)
 		{
+			releaseEntry(id);
 			Thread.currentThread().interrupt();
 			throw YonaException.unexpected(e);
 		}
 	}
 
-	private LockStatus getLockStatus(T id)
+	/**
+	 * Tries to acquire the lock for the given ID, waiting at most the given timeout. The lock is held by the calling thread, so it
+	 * must be closed on that same thread.
+	 *
+	 * @param id The ID to lock
+	 * @param timeout The maximum time to wait for the lock
+	 * @return The lock, or an empty optional if the lock could not be acquired within the given timeout
+	 */
+	public Optional<Lock> tryLock(T id, Duration timeout)
 	{
-		Thread thread = pool.get(id);
-		if (thread == null)
+		LockEntry entry = retainEntry(id);
+		try
 		{
-			return LockStatus.FREE;
+			if (entry.lock.tryLock())
+			{
+				return Optional.of(new Lock(() -> unlock(id, entry)));
+			}
+			long startTime = System.nanoTime();
+			boolean isLocked = entry.lock.tryLock(timeout.toNanos(), TimeUnit.NANOSECONDS);
+			registerWait(startTime);
+			if (!isLocked)
+			{
+				timeoutCount.increment();
+				releaseEntry(id);
+				return Optional.empty();
+			}
+			return Optional.of(new Lock(() -> unlock(id, entry)));
 		}
-		if (thread == Thread.currentThread())
+		catch (InterruptedException e)
 		{
-			return LockStatus.LOCKED_BY_ME;
+			releaseEntry(id);
+			Thread.currentThread().interrupt();
+			throw YonaException.unexpected(e);
 		}
-		return LockStatus.LOCKED;
 	}
 
-	private void storeLock(T id)
+	private LockEntry retainEntry(T id)
 	{
-		if (pool.put(id, Thread.currentThread()) != null)
-		{
-			throw new IllegalStateException("Map already contains a locking thread for ID " + id);
-		}
+		return pool.compute(id, (k, existingEntry) -> {
+			LockEntry entry = (existingEntry == null) ? new LockEntry() : existingEntry;
+			entry.referenceCount++;
+			return entry;
+		});
+	}
+
+	private void releaseEntry(T id)
+	{
+		// Returning null from the remapping function removes the entry from the pool
+		pool.computeIfPresent(id, (k, entry) -> (--entry.referenceCount == 0) ? null : entry);
+	}
+
+	private void registerWait(long startTime)
+	{
+		contentionCount.increment();
+		totalWaitTimeNanos.add(System.nanoTime() - startTime);
 	}
 
-	private void unlock(T id)
+	private void unlock(T id, LockEntry entry)
 	{
-		synchronized (pool)
+		if (!entry.lock.isHeldByCurrentThread())
 		{
-			pool.remove(id);
-			pool.notifyAll();
+			throw YonaException.illegalState("Lock for ID " + id + " of lock pool " + name
+					+ " must be closed on the thread that acquired it, not on " + Thread.currentThread());
 		}
+		entry.lock.unlock();
+		releaseEntry(id);
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * @return The number of IDs for which a lock is currently held or waited for
+	 */
+	public int getSize()
+	{
+		return pool.size();
+	}
+
+	/**
+	 * @return The number of lock requests that had to wait because the lock was held by another thread
+	 */
+	public long getContentionCount()
+	{
+		return contentionCount.sum();
+	}
+
+	/**
+	 * @return The total time spent waiting for contended locks, in nanoseconds
+	 */
+	public long getTotalWaitTimeNanos()
+	{
+		return totalWaitTimeNanos.sum();
+	}
+
+	/**
+	 * @return The number of {@link #tryLock(Object, Duration)} requests that timed out
+	 */
+	public long getTimeoutCount()
+	{
+		return timeoutCount.sum();
+	}
+
+	private static class LockEntry
+	{
+		private final ReentrantLock lock = new ReentrantLock();
+
+		// Only accessed inside the remapping functions of the pool, which are executed atomically per ID
+		private int referenceCount;
 	}
 
+	/**
+	 * Lock on an ID, to be closed on the thread that acquired it.
+	 */
 	public class Lock implements AutoCloseable
 	{
-		private final T id;
-		private final boolean mustUnlock;
+		private final Runnable unlocker;
+		private boolean isClosed;
 
-		private Lock(T id, boolean mustUnlock)
+		protected Lock(Runnable unlocker)
 		{
-			this.id = id;
-			this.mustUnlock = mustUnlock;
+			this.unlocker = unlocker;
 		}
 
 		@Override
 		public void close()
 		{
-			if (mustUnlock)
+			if (isClosed)
 			{
-				unlock(id);
+				return;
 			}
+			unlocker.run();
+			isClosed = true;
 		}
 	}
 }
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.util;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.hazelcast.core.HazelcastInstance;
+
+@Component
+public class LockPoolFactory
+{
+	@Autowired
+	private HazelcastInstance hazelcastInstance;
+
+	/**
+	 * Creates a lock pool.
+	 *
+	 * @param name The name of the lock pool, used for metrics and, for distributed lock pools, to identify the pool in the cluster
+	 * @param isDistributed Whether the locks must be held cluster-wide rather than only within this JVM
+	 * @return The new lock pool
+	 */
+	public <T> LockPool<T> createInstance(String name, boolean isDistributed)
+	{
+		return isDistributed ? new HazelcastLockPool<>(name, hazelcastInstance) : new LockPool<>(name);
+	}
+}
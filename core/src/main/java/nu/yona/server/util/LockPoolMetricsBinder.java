@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Component
+public class LockPoolMetricsBinder implements MeterBinder
+{
+	private static final String NAME_TAG = "name";
+
+	@Autowired(required = false)
+	private List<LockPool<?>> lockPools = Collections.emptyList();
+
+	@Override
+	public void bindTo(MeterRegistry registry)
+	{
+		lockPools.forEach(p -> bindTo(registry, p));
+	}
+
+	private void bindTo(MeterRegistry registry, LockPool<?> lockPool)
+	{
+		Gauge.builder("yona.lockpool.size", lockPool, LockPool::getSize).tag(NAME_TAG, lockPool.getName())
+				.description("Number of IDs for which a lock is held or waited for").register(registry);
+		FunctionTimer.builder("yona.lockpool.wait", lockPool, LockPool::getContentionCount, LockPool::getTotalWaitTimeNanos,
+						TimeUnit.NANOSECONDS).tag(NAME_TAG, lockPool.getName())
+				.description("Time spent waiting for contended locks").register(registry);
+		FunctionCounter.builder("yona.lockpool.timeouts", lockPool, LockPool::getTimeoutCount).tag(NAME_TAG, lockPool.getName())
+				.description("Number of lock requests that timed out").register(registry);
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.lenient;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import com.github.benmanes.caffeine.cache.Policy;
+import com.hazelcast.config.Config;
+import com.hazelcast.config.EvictionPolicy;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.MaxSizePolicy;
+import com.hazelcast.core.HazelcastInstance;
+
+import nu.yona.server.properties.DistributedCacheProperties;
+import nu.yona.server.properties.LocalCacheProperties;
+import nu.yona.server.properties.YonaProperties;
+
+@ExtendWith(MockitoExtension.class)
+class CacheConfigurationTest
+{
+	private final LocalCacheProperties localCacheProperties = new LocalCacheProperties();
+	private final DistributedCacheProperties distributedCacheProperties = new DistributedCacheProperties();
+	private final Config hazelcastConfig = new Config();
+
+	@Mock
+	private YonaProperties mockYonaProperties;
+
+	@Mock
+	private HazelcastInstance mockHazelcastInstance;
+
+	@InjectMocks
+	private final CacheConfiguration cacheConfiguration = new CacheConfiguration();
+
+	@BeforeEach
+	public void setUp()
+	{
+		lenient().when(mockYonaProperties.getLocalCache()).thenReturn(localCacheProperties);
+		lenient().when(mockYonaProperties.getDistributedCache()).thenReturn(distributedCacheProperties);
+		lenient().when(mockHazelcastInstance.getConfig()).thenReturn(hazelcastConfig);
+		localCacheProperties.getDefaults().setMaxEntries(100);
+		localCacheProperties.getDefaults().setTimeToLive("PT1H");
+		LocalCacheProperties.CacheBounds lastActivityBounds = new LocalCacheProperties.CacheBounds();
+		lastActivityBounds.setMaxEntries(5);
+		lastActivityBounds.setTimeToLive("PT10M");
+		localCacheProperties.getCaches().put("lastActivity", lastActivityBounds);
+		DistributedCacheProperties.CacheBounds distributedLastActivityBounds = new DistributedCacheProperties.CacheBounds();
+		distributedLastActivityBounds.setMaxEntriesPerMember(5);
+		distributedLastActivityBounds.setMaxIdleTime("PT10M");
+		distributedCacheProperties.getCaches().put("lastActivity", distributedLastActivityBounds);
+	}
+
+	@Test
+	void cacheManager_cacheWithBounds_mapConfigWithExpiryAndEvictionAdded()
+	{
+		cacheConfiguration.cacheManager(mockHazelcastInstance);
+
+		MapConfig mapConfig = hazelcastConfig.getMapConfigOrNull("lastActivity");
+		assertThat(mapConfig.getMaxIdleSeconds(), equalTo(600));
+		assertThat(mapConfig.getEvictionConfig().getEvictionPolicy(), equalTo(EvictionPolicy.LRU));
+		assertThat(mapConfig.getEvictionConfig().getMaxSizePolicy(), equalTo(MaxSizePolicy.PER_NODE));
+		assertThat(mapConfig.getEvictionConfig().getSize(), equalTo(5));
+	}
+
+	@Test
+	void localCache_cacheWithOwnBounds_ownBoundsApplied()
+	{
+		Policy<Object, Object> policy = getPolicy(cacheConfiguration.localCache(), "lastActivity");
+
+		assertThat(policy.eviction().get().getMaximum(), equalTo(5L));
+		assertThat(policy.expireAfterWrite().get().getExpiresAfter(), equalTo(Duration.ofMinutes(10)));
+	}
+
+	@Test
+	void localCache_cacheWithoutOwnBounds_defaultBoundsApplied()
+	{
+		Policy<Object, Object> policy = getPolicy(cacheConfiguration.localCache(), "otherCache");
+
+		assertThat(policy.eviction().get().getMaximum(), equalTo(100L));
+		assertThat(policy.expireAfterWrite().get().getExpiresAfter(), equalTo(Duration.ofHours(1)));
+	}
+
+	@Test
+	void localCache_maxEntriesExceeded_entriesEvicted()
+	{
+		CaffeineCache cache = (CaffeineCache) cacheConfiguration.localCache().getCache("lastActivity");
+
+		for (int i = 0; i < 50; i++)
+		{
+			cache.put(i, i);
+		}
+		cache.getNativeCache().cleanUp();
+
+		assertThat(cache.getNativeCache().estimatedSize(), equalTo(5L));
+	}
+
+	private Policy<Object, Object> getPolicy(CacheManager cacheManager, String cacheName)
+	{
+		return ((CaffeineCache) cacheManager.getCache(cacheName)).getNativeCache().policy();
+	}
+}
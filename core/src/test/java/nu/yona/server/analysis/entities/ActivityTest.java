@@ -1,15 +1,16 @@
 /*
- * Copyright (c) 2016, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.entities;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
-import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -39,16 +40,16 @@ class ActivityTest
 	}
 
 	@Test
-	void setEndTime_afterComputeAggregates_resetsAreAggregatesComputed()
+	void setTimes_startAndEndTimeChanged_notifiesDayActivityOnce()
 	{
 		DayActivity dayActivityMock = mock(DayActivity.class);
 		Activity activity = createActivity("21:30", "21:31");
 		activity.setDayActivity(dayActivityMock);
-		dayActivityMock.computeAggregates();
+		LocalDateTime previousStartTime = activity.getStartTime();
 
-		activity.setEndTime(activity.getEndTime().plusMinutes(5));
+		activity.setTimes(previousStartTime.minusMinutes(5), activity.getEndTime().plusMinutes(5));
 
-		verify(dayActivityMock, atLeastOnce()).resetAggregatesComputed();
+		verify(dayActivityMock, times(1)).activityTimesChanged(activity, previousStartTime);
 	}
 
 	@ParameterizedTest
@@ -1,19 +1,33 @@
 /*
- * Copyright (c) 2016, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.entities;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 
 import nu.yona.server.goals.entities.Goal;
 import nu.yona.server.goals.entities.IGoal;
+import nu.yona.server.util.TimeUtil;
 
 class DayActivityTest extends IntervalActivityTestBase
 {
@@ -332,6 +346,200 @@ class DayActivityTest extends IntervalActivityTestBase
 		assertThat(result, equalTo(true));
 	}
 
+	@Test
+	void getSpreadGetTotalActivityDurationMinutes_afterComputeAggregatesSetEndTime_returnsUpdatedResults()
+	{
+		DayActivity d = createDayActivity();
+		Activity activity = addAppActivity(d, "19:00", "19:31", "Poker");
+		d.computeAggregates();
+
+		activity.setTimes(activity.getStartTime(), getTimeOnDay(d, "20:05").toLocalDateTime());
+
+		IGoal goal = d.getGoal();
+		assertThat(d.isGoalAccomplished(goal), equalTo(false));
+		assertThat(d.getTotalMinutesBeyondGoal(goal), equalTo(5));
+		assertSpreadItemsAndTotal(d, "75=0,76=15,77=15,78=15,79=15,80=5,81=0", 65);
+	}
+
+	@Test
+	void verifyAggregates_afterAddingAndUpdatingActivities_returnsTrue()
+	{
+		DayActivity d = createDayActivityTimeZoneGoal();
+		addActivity(d, "04:59", "05:30");
+		Activity activity = addAppActivity(d, "11:00", "13:00", "Facebook");
+		activity.setTimes(getTimeOnDay(d, "10:40").toLocalDateTime(), activity.getEndTime());
+
+		boolean result = d.verifyAggregates();
+
+		assertThat(result, equalTo(true));
+		assertThat(d.areAggregatesComputed(), equalTo(true));
+	}
+
+	@Test
+	void findOverlappingActivitiesOfSameApp_variousActivities_returnsOverlappingOfSameDeviceAndAppInOrderOfStartTime()
+	{
+		DayActivity d = createDayActivity();
+		Activity touchingStart = addAppActivity(d, "10:00", "10:05", "Poker App");
+		Activity inside = addAppActivity(d, "10:07", "10:08", "Poker App");
+		Activity touchingEnd = addAppActivity(d, "10:10", "10:20", "Poker App");
+		addAppActivity(d, "10:21", "10:25", "Poker App");
+		addAppActivity(d, "10:06", "10:09", "Lotto App");
+		addActivity(d, "10:06", "10:09");
+
+		List<Activity> result = d.findOverlappingActivitiesOfSameApp(deviceAnonEntity.getId(), Optional.of("Poker App"),
+				getTimeOnDay(d, "10:05").toLocalDateTime(), getTimeOnDay(d, "10:10").toLocalDateTime());
+
+		assertThat(result, contains(touchingStart, inside, touchingEnd));
+		assertThat(d.findOverlappingActivitiesOfSameApp(UUID.randomUUID(), Optional.of("Poker App"),
+				getTimeOnDay(d, "10:05").toLocalDateTime(), getTimeOnDay(d, "10:10").toLocalDateTime()).isEmpty(), equalTo(true));
+	}
+
+	@Test
+	void findOverlappingActivitiesOfSameApp_activitiesAddedAndUpdatedAfterFirstLookup_returnsCurrentOverlaps()
+	{
+		DayActivity d = createDayActivity();
+		Activity moved = addAppActivity(d, "08:00", "08:05", "Poker App");
+		Activity extended = addAppActivity(d, "09:00", "09:01", "Poker App");
+		LocalDateTime startTime = getTimeOnDay(d, "12:00").toLocalDateTime();
+		LocalDateTime endTime = getTimeOnDay(d, "12:30").toLocalDateTime();
+		assertThat(d.findOverlappingActivitiesOfSameApp(deviceAnonEntity.getId(), Optional.of("Poker App"), startTime, endTime)
+				.isEmpty(), equalTo(true));
+
+		moved.setTimes(getTimeOnDay(d, "12:20").toLocalDateTime(), getTimeOnDay(d, "12:40").toLocalDateTime());
+		extended.setTimes(extended.getStartTime(), getTimeOnDay(d, "11:59").toLocalDateTime());
+		Activity added = addAppActivity(d, "12:10", "12:15", "Poker App");
+
+		assertThat(d.findOverlappingActivitiesOfSameApp(deviceAnonEntity.getId(), Optional.of("Poker App"), startTime, endTime),
+				contains(added, moved));
+		extended.setTimes(extended.getStartTime(), getTimeOnDay(d, "12:00").toLocalDateTime());
+		assertThat(d.findOverlappingActivitiesOfSameApp(deviceAnonEntity.getId(), Optional.of("Poker App"), startTime, endTime),
+				contains(extended, added, moved));
+	}
+
+	@Test
+	void findOverlappingActivitiesOfSameApp_offlineBackFillOfMaximumBatchSize_sameResultAsFullScan()
+	{
+		// Replays a back-fill of 200 app activities (the default app activity count ignore threshold) in random order, where
+		// every activity is first checked for overlaps and then either merged into the first overlapping one or added
+		DayActivity d = createDayActivity();
+		Random random = new Random(20260319);
+		for (int i = 0; i < 200; i++)
+		{
+			LocalDateTime startTime = d.getStartTime().toLocalDateTime().plusMinutes(random.nextInt(1380));
+			LocalDateTime endTime = startTime.plusMinutes(1 + random.nextInt(30));
+			Optional<String> app = Optional.of(random.nextBoolean() ? "Poker App" : "Lotto App");
+
+			List<Activity> result = d.findOverlappingActivitiesOfSameApp(deviceAnonEntity.getId(), app, startTime, endTime);
+
+			// Activities with the same start time may be returned in any order
+			assertThat(new HashSet<>(result), equalTo(findOverlappingByFullScan(d, app, startTime, endTime)));
+			assertThat(result.stream().map(Activity::getStartTime).sorted().toList(),
+					equalTo(result.stream().map(Activity::getStartTime).toList()));
+			if (result.isEmpty())
+			{
+				d.addActivity(Activity.createInstance(deviceAnonEntity, testZone, startTime, endTime, app));
+			}
+			else
+			{
+				Activity overlapping = result.get(0);
+				overlapping.setTimes(startTime.isBefore(overlapping.getStartTime()) ? startTime : overlapping.getStartTime(),
+						endTime.isAfter(overlapping.getEndTime()) ? endTime : overlapping.getEndTime());
+			}
+		}
+	}
+
+	@Test
+	void getSpreadGetTotalActivityDurationMinutes_randomActivities_sameAsZonedDateTimeBasedComputation()
+	{
+		Random random = new Random(20260402);
+		ZoneId[] zones = { testZone, testZone, testZone, ZoneId.of("Europe/London"), ZoneId.of("Asia/Kolkata") };
+		LocalDate[] dates = { LocalDate.of(2017, 2, 28), LocalDate.of(2018, 3, 25), LocalDate.of(2018, 10, 28) };
+		for (int i = 0; i < 1000; i++)
+		{
+			DayActivity d = DayActivity.createInstance(userAnonEntity, budgetGoal, testZone, dates[random.nextInt(dates.length)]);
+			LocalDateTime dayStart = d.getStartTime().toLocalDateTime();
+			int activityCount = random.nextInt(12);
+			for (int j = 0; j < activityCount; j++)
+			{
+				// Start anywhere in the day, end at most a few hours later, possibly after midnight
+				LocalDateTime startTime = dayStart.plusSeconds(random.nextInt(24 * 3600 - 1))
+						.plusNanos(random.nextBoolean() ? 0 : random.nextInt(1_000_000_000));
+				LocalDateTime endTime = startTime.plusSeconds(1 + random.nextInt(random.nextBoolean() ? 1200 : 4 * 3600))
+						.plusNanos(random.nextBoolean() ? 0 : random.nextInt(1_000_000_000));
+				d.addActivity(Activity.createInstance(deviceAnonEntity, zones[random.nextInt(zones.length)], startTime, endTime,
+						Optional.empty()));
+			}
+
+			int[] expectedSpread = new int[Spread.CELL_COUNT];
+			int expectedTotal = computeSpreadAndTotalWithZonedDateTimes(d, expectedSpread);
+
+			assertThat(d.getSpread().toArray(), equalTo(expectedSpread));
+			assertThat(d.getTotalActivityDurationMinutes(), equalTo(expectedTotal));
+		}
+	}
+
+	/**
+	 * Straightforward computation of the spread and total duration on zoned date/times, to verify the optimized one against.
+	 */
+	private static int computeSpreadAndTotalWithZonedDateTimes(DayActivity d, int[] spread)
+	{
+		LocalDateTime dayStart = d.getStartTime().toLocalDateTime();
+		List<Activity> sortedActivities = d.getActivities().stream()
+				.sorted((a1, a2) -> a1.getStartTime().compareTo(a2.getStartTime())).toList();
+		int total = 0;
+		ZonedDateTime previousEndTime = ZonedDateTime.of(LocalDateTime.MIN, ZoneOffset.UTC);
+		for (Activity activity : sortedActivities)
+		{
+			ZonedDateTime startTime = TimeUtil.max(previousEndTime, activity.getStartTimeAsZonedDateTime());
+			ZonedDateTime endTime = activity.getEndTimeAsZonedDateTime();
+			if (!startTime.isBefore(endTime))
+			{
+				continue;
+			}
+			total += (int) Duration.between(startTime, endTime).toMinutes();
+			int startIndex = (int) (Duration.between(dayStart, startTime.toLocalDateTime()).toMinutes() / 15);
+			int endIndex = (int) (Duration.between(dayStart, endTime.toLocalDateTime()).toMinutes() / 15);
+			for (int index = startIndex; index <= endIndex && index < Spread.CELL_COUNT; index++)
+			{
+				if (startIndex == endIndex)
+				{
+					spread[index] += (int) startTime.until(endTime, ChronoUnit.MINUTES);
+				}
+				else if (index == startIndex)
+				{
+					spread[index] += 15 - (startTime.getMinute() % 15);
+				}
+				else if (index == endIndex)
+				{
+					spread[index] += endTime.getMinute() % 15;
+				}
+				else
+				{
+					spread[index] += 15;
+				}
+			}
+			previousEndTime = endTime;
+		}
+		return total;
+	}
+
+	private Set<Activity> findOverlappingByFullScan(DayActivity d, Optional<String> app, LocalDateTime startTime,
+			LocalDateTime endTime)
+	{
+		return d.getActivities().stream().filter(a -> a.getApp().equals(app))
+				.filter(a -> !a.getStartTime().isAfter(endTime) && !a.getEndTime().isBefore(startTime))
+				.collect(Collectors.toSet());
+	}
+
+	private Activity addAppActivity(DayActivity d, String startTimeString, String endTimeString, String app)
+	{
+		Activity activity = Activity.createInstance(deviceAnonEntity, testZone,
+				getTimeOnDay(d, startTimeString).toLocalDateTime(), getTimeOnDay(d, endTimeString).toLocalDateTime(),
+				Optional.of(app));
+		d.addActivity(activity);
+		return activity;
+	}
+
 	private void assertGoalMinutesBeyondAndAccomplished(DayActivity d, int expectedTotalBeyondGoal,
 			boolean expectedGoalAccomplished)
 	{
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2017, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2017, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.entities;
@@ -16,7 +16,6 @@ import java.time.temporal.TemporalAccessor;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.Set;
@@ -92,13 +91,13 @@ public abstract class IntervalActivityTestBase
 		assertThat(intervalActivity.getTotalActivityDurationMinutes(), equalTo(expectedTotalActivityDurationMinutes));
 	}
 
-	protected void assertSpreadItems(List<Integer> actualSpread, String expectedSpreadItems)
+	protected void assertSpreadItems(Spread actualSpread, String expectedSpreadItems)
 	{
 		Arrays.stream(expectedSpreadItems.split(","))
 				.forEach(expectedSpreadItem -> assertSpreadItem(actualSpread, expectedSpreadItem));
 	}
 
-	protected void assertSpreadItem(List<Integer> actualSpread, String expectedSpreadItem)
+	protected void assertSpreadItem(Spread actualSpread, String expectedSpreadItem)
 	{
 		int separatorIndex = expectedSpreadItem.indexOf('=');
 		int spreadIndex = Integer.parseInt(expectedSpreadItem.substring(0, separatorIndex));
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.analysis.entities;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class SpreadTest
+{
+	@Test
+	void sum_multipleSpreads_cellwiseSum()
+	{
+		Spread one = spreadWith(4, 15, 5, 3);
+		Spread other = spreadWith(4, 2, 6, 7);
+
+		Spread sum = Spread.sum(Arrays.asList(one, other, Spread.empty()));
+
+		assertThat(sum, equalTo(spreadWith(4, 17, 5, 3, 6, 7)));
+		assertThat(sum, equalTo(one.add(other)));
+		assertThat(sum.sum(), equalTo(27));
+	}
+
+	@Test
+	void withCellsCleared_someCells_onlyThoseCellsCleared()
+	{
+		Spread spread = spreadWith(4, 15, 5, 3, 6, 7);
+
+		Spread masked = spread.withCellsCleared(new byte[] { 4, 6 });
+
+		assertThat(masked, equalTo(spreadWith(5, 3)));
+		assertThat(spread.sum(), equalTo(25));
+		assertThat(masked.isAnyCellPositive(), equalTo(true));
+		assertThat(masked.withCellsCleared(new byte[] { 5 }).isAnyCellPositive(), equalTo(false));
+	}
+
+	@Test
+	void toBytesFromBytes_weekSpread_roundTrips()
+	{
+		Spread spread = spreadWith(0, 105, 95, 1);
+
+		assertThat(Spread.fromBytes(spread.toBytes()), equalTo(spread));
+	}
+
+	@Test
+	void createInstance_callerModifiesArray_spreadUnchanged()
+	{
+		int[] cells = new int[Spread.CELL_COUNT];
+		cells[3] = 10;
+		Spread spread = Spread.createInstance(cells);
+
+		cells[3] = 0;
+		spread.toArray()[3] = 0;
+
+		assertThat(spread.get(3), equalTo(10));
+	}
+
+	@Test
+	void createInstance_wrongCellCount_exception()
+	{
+		assertThrows(IllegalArgumentException.class, () -> Spread.createInstance(new int[24]));
+	}
+
+	private static Spread spreadWith(int... indexValuePairs)
+	{
+		int[] cells = new int[Spread.CELL_COUNT];
+		for (int i = 0; i < indexValuePairs.length; i += 2)
+		{
+			cells[indexValuePairs[i]] = indexValuePairs[i + 1];
+		}
+		return Spread.wrap(cells);
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.entities;
@@ -7,7 +7,13 @@ package nu.yona.server.analysis.entities;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
 
 import org.junit.jupiter.api.Test;
 
@@ -67,4 +73,69 @@ class WeekActivityTest extends IntervalActivityTestBase
 
 		assertThat(w.areAggregatesComputed(), equalTo(false));
 	}
+
+	@Test
+	void verifyAggregates_syntheticYearOfIncrementalUpdates_storedAggregatesEqualRecomputedOnes()
+	{
+		Random random = new Random(20260414);
+		List<WeekActivity> weeks = new ArrayList<>();
+		List<DayActivity> days = new ArrayList<>();
+		List<DayActivity> daysNotInWeek = new ArrayList<>();
+		LocalDate startOfWeek = LocalDate.of(2017, 1, 1);
+		for (int i = 0; i < 52; i++)
+		{
+			WeekActivity w = WeekActivity.createInstance(userAnonEntity, budgetGoal, testZone, startOfWeek.plusWeeks(i));
+			weeks.add(w);
+			for (int j = 0; j < 7; j++)
+			{
+				DayActivity d = createDayActivity(w, j);
+				days.add(d);
+				if (random.nextBoolean())
+				{
+					w.addDayActivity(d);
+				}
+				else
+				{
+					// Added to the week after it got activities
+					daysNotInWeek.add(d);
+				}
+			}
+		}
+
+		// Activities arrive in random order of day, some extend earlier ones
+		for (int i = 0; i < 20000; i++)
+		{
+			DayActivity d = days.get(random.nextInt(days.size()));
+			List<Activity> activities = d.getActivities();
+			if (activities.isEmpty() || random.nextInt(3) > 0)
+			{
+				LocalDateTime startTime = d.getStartTime().toLocalDateTime().plusSeconds(random.nextInt(24 * 3600 - 60));
+				d.addActivity(Activity.createInstance(deviceAnonEntity, testZone, startTime,
+						startTime.plusSeconds(60 + random.nextInt(3600)), Optional.empty()));
+			}
+			else
+			{
+				Activity activity = activities.get(random.nextInt(activities.size()));
+				LocalDateTime endTime = activity.getEndTime().plusSeconds(random.nextInt(900));
+				LocalDateTime startTime = activity.getStartTime().minusSeconds(random.nextInt(300));
+				activity.setTimes(startTime.isBefore(d.getStartTime().toLocalDateTime()) ? activity.getStartTime() : startTime,
+						endTime);
+			}
+			if (!daysNotInWeek.isEmpty() && random.nextInt(50) == 0)
+			{
+				DayActivity dayToAdd = daysNotInWeek.remove(random.nextInt(daysNotInWeek.size()));
+				weeks.get(days.indexOf(dayToAdd) / 7).addDayActivity(dayToAdd);
+			}
+		}
+		daysNotInWeek.forEach(d -> weeks.get(days.indexOf(d) / 7).addDayActivity(d));
+
+		for (DayActivity d : days)
+		{
+			assertThat("Aggregates of day " + d.getStartDate(), d.verifyAggregates(), equalTo(true));
+		}
+		for (WeekActivity w : weeks)
+		{
+			assertThat("Aggregates of week " + w.getStartDate(), w.verifyAggregates(), equalTo(true));
+		}
+	}
 }
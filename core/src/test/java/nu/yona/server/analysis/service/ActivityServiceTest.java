@@ -1,14 +1,18 @@
 /*
- * Copyright (c) 2016, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.analysis.service;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.lang.reflect.Field;
@@ -19,18 +23,21 @@ import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
-import org.apache.commons.lang3.ArrayUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -47,6 +54,8 @@ import nu.yona.server.Translator;
 import nu.yona.server.analysis.entities.Activity;
 import nu.yona.server.analysis.entities.DayActivity;
 import nu.yona.server.analysis.entities.DayActivityRepository;
+import nu.yona.server.analysis.entities.IntervalActivitySummary;
+import nu.yona.server.analysis.entities.Spread;
 import nu.yona.server.analysis.entities.WeekActivity;
 import nu.yona.server.analysis.entities.WeekActivityRepository;
 import nu.yona.server.crypto.pubkey.PublicKeyUtil;
@@ -62,10 +71,13 @@ import nu.yona.server.messaging.entities.MessageDestination;
 import nu.yona.server.properties.AnalysisServiceProperties;
 import nu.yona.server.properties.YonaProperties;
 import nu.yona.server.subscriptions.entities.UserAnonymized;
+import nu.yona.server.subscriptions.service.BuddyDto;
+import nu.yona.server.subscriptions.service.BuddyService;
 import nu.yona.server.subscriptions.service.OwnUserPrivateDataDto;
 import nu.yona.server.subscriptions.service.UserAnonymizedDto;
 import nu.yona.server.subscriptions.service.UserAnonymizedService;
 import nu.yona.server.subscriptions.service.UserDto;
+import nu.yona.server.subscriptions.service.UserPrivateDataBaseDto;
 import nu.yona.server.subscriptions.service.UserService;
 import nu.yona.server.test.util.JUnitUtil;
 import nu.yona.server.util.TimeUtil;
@@ -79,6 +91,7 @@ class ActivityServiceTest
 	private static final Field userCreationTimeField = JUnitUtil.getAccessibleField(UserDto.class, "creationTime");
 
 	private final Map<String, Goal> goalMap = new HashMap<>();
+	private final List<BuddyDto> buddies = new ArrayList<>();
 
 	@Mock
 	private UserService mockUserService;
@@ -98,6 +111,8 @@ class ActivityServiceTest
 	private Repositories mockRepositories;
 	@Mock
 	private AnalysisEngineProxyService analysisEngineProxyService;
+	@Mock
+	private BuddyService mockBuddyService;
 
 	@InjectMocks
 	private final ActivityService service = new ActivityService();
@@ -171,7 +186,7 @@ class ActivityServiceTest
 		Mockito.lenient().when(mockUserService.getUser(userId)).thenReturn(user);
 
 		// Stub the UserAnonymizedService to return our user.
-		when(mockUserAnonymizedService.getUserAnonymized(userAnonId)).thenReturn(userAnon);
+		lenient().when(mockUserAnonymizedService.getUserAnonymized(userAnonId)).thenReturn(userAnon);
 
 		// Stub the GoalService to return our goals.
 		lenient().when(mockGoalService.getGoalEntityForUserAnonymizedId(userAnonId, gamblingGoal.getId()))
@@ -202,14 +217,15 @@ class ActivityServiceTest
 				yesterday.plusHours(21).plusMinutes(00).toLocalDateTime(), Optional.empty());
 		yesterdayRecordedActivity.addActivity(recordedActivity);
 		Set<UUID> relevantGoalIds = userAnonEntity.getGoals().stream().map(Goal::getId).collect(Collectors.toSet());
-		when(mockDayActivityRepository.findAll(userAnonId, relevantGoalIds, today.minusDays(2).toLocalDate(),
-				today.plusDays(1).toLocalDate())).thenReturn(Arrays.asList(yesterdayRecordedActivity));
+		when(mockDayActivityRepository.findSummaries(userAnonId, relevantGoalIds, today.minusDays(2).toLocalDate(),
+				today.plusDays(1).toLocalDate())).thenReturn(
+				Arrays.asList(createDaySummary(yesterdayRecordedActivity, 1, Optional.empty())));
 
 		Page<DayActivityOverviewDto<DayActivityDto>> dayOverviews = service.getUserDayActivityOverviews(userId,
 				PageRequest.of(0, 3));
 
 		// assert that the right retrieve from database was done
-		verify(mockDayActivityRepository, times(1)).findAll(userAnonId, relevantGoalIds, today.minusDays(2).toLocalDate(),
+		verify(mockDayActivityRepository, times(1)).findSummaries(userAnonId, relevantGoalIds, today.minusDays(2).toLocalDate(),
 				today.plusDays(1).toLocalDate());
 
 		// because the gambling goal was added with creation date two weeks ago, there are multiple days, equal to the limit of
@@ -235,6 +251,36 @@ class ActivityServiceTest
 		assertThat(dayActivityForGambling.getTotalMinutesBeyondGoal(), equalTo(2));
 	}
 
+	@Test
+	void getUserDayActivityOverviews_aggregatesNotStored_computesFromEntity()
+	{
+		ZonedDateTime today = getDayStartTime(ZonedDateTime.now(userAnonZone));
+		ZonedDateTime yesterday = today.minusDays(1);
+
+		DayActivity yesterdayRecordedActivity = DayActivity.createInstance(userAnonEntity, gamblingGoal, userAnonZone,
+				yesterday.toLocalDate());
+		Activity recordedActivity = Activity.createInstance(deviceAnonEntity, userAnonZone,
+				yesterday.plusHours(20).plusMinutes(58).toLocalDateTime(),
+				yesterday.plusHours(21).plusMinutes(00).toLocalDateTime(), Optional.empty());
+		yesterdayRecordedActivity.addActivity(recordedActivity);
+		Set<UUID> relevantGoalIds = userAnonEntity.getGoals().stream().map(Goal::getId).collect(Collectors.toSet());
+		long dayActivityId = 1;
+		when(mockDayActivityRepository.findSummaries(userAnonId, relevantGoalIds, today.minusDays(2).toLocalDate(),
+				today.plusDays(1).toLocalDate())).thenReturn(Arrays.asList(
+				new IntervalActivitySummary(dayActivityId, gamblingGoal.getId(), null, userAnonZone, yesterday.toLocalDate(), null,
+						0, false, 0)));
+		when(mockDayActivityRepository.findById(dayActivityId)).thenReturn(Optional.of(yesterdayRecordedActivity));
+
+		Page<DayActivityOverviewDto<DayActivityDto>> dayOverviews = service.getUserDayActivityOverviews(userId,
+				PageRequest.of(0, 3));
+
+		verify(mockDayActivityRepository, times(1)).findById(dayActivityId);
+		DayActivityDto dayActivityForGambling = dayOverviews.getContent().get(1).getDayActivities().stream()
+				.filter(a -> a.getGoalId().equals(gamblingGoal.getId())).findAny().get();
+		assertThat(dayActivityForGambling.getTotalActivityDurationMinutes().get(), equalTo(2));
+		assertThat(dayActivityForGambling.getTotalMinutesBeyondGoal(), equalTo(2));
+	}
+
 	@Test
 	void getUserWeekActivityOverviews_activityPresent_resultsWithActivity()
 	{
@@ -265,14 +311,22 @@ class ActivityServiceTest
 				getWeekStartTime(today).minusDays(2).toLocalDate()));
 		previousWeekRecordedActivity.addDayActivity(previousWeekSaturdayRecordedActivity);
 
-		when(mockWeekActivityRepository.findAll(userAnonId, getWeekStartTime(today.minusWeeks(4)).toLocalDate(),
+		long weekActivityId = 1;
+		when(mockWeekActivityRepository.findSummaries(userAnonId, getWeekStartTime(today.minusWeeks(4)).toLocalDate(),
 				getWeekStartTime(today).plusWeeks(1).toLocalDate())).thenReturn(
-				new HashSet<>(Arrays.asList(previousWeekRecordedActivity)));
+				Arrays.asList(createWeekSummary(previousWeekRecordedActivity, weekActivityId)));
+		AtomicLong dayActivityId = new AtomicLong(weekActivityId);
+		when(mockDayActivityRepository.findSummaries(userAnonId, getWeekStartTime(today.minusWeeks(4)).toLocalDate(),
+				getWeekStartTime(today).plusWeeks(1).toLocalDate())).thenReturn(
+				previousWeekRecordedActivity.getDayActivities().stream()
+						.map(d -> createDaySummary(d, dayActivityId.incrementAndGet(), Optional.of(weekActivityId))).toList());
 
 		Page<WeekActivityOverviewDto> weekOverviews = service.getUserWeekActivityOverviews(userId, PageRequest.of(0, 5));
 
 		// assert that the right retrieve from database was done
-		verify(mockWeekActivityRepository, times(1)).findAll(userAnonId, getWeekStartTime(today.minusWeeks(4)).toLocalDate(),
+		verify(mockWeekActivityRepository, times(1)).findSummaries(userAnonId,
+				getWeekStartTime(today.minusWeeks(4)).toLocalDate(), getWeekStartTime(today).plusWeeks(1).toLocalDate());
+		verify(mockDayActivityRepository, times(1)).findSummaries(userAnonId, getWeekStartTime(today.minusWeeks(4)).toLocalDate(),
 				getWeekStartTime(today).plusWeeks(1).toLocalDate());
 
 		// because the gambling goal was added with creation date two weeks ago, there are multiple weeks
@@ -325,6 +379,9 @@ class ActivityServiceTest
 		Page<DayActivityOverviewDto<DayActivityDto>> inactivityDayOverviews = service.getUserDayActivityOverviews(userId,
 				PageRequest.of(0, 3));
 
+		// inactivity is not persisted when reading
+		verifyNoInteractions(analysisEngineProxyService);
+
 		// because the gambling goal was added with creation date two weeks ago, there are multiple days
 		assertThat(inactivityDayOverviews.getNumberOfElements(), equalTo(3));
 		// the other goals were created today, so get the most recent (first) element
@@ -337,12 +394,54 @@ class ActivityServiceTest
 		assertThat(inactivityDayForGambling.getTotalMinutesBeyondGoal(), equalTo(0));
 	}
 
+	@Test
+	void getUserDayActivityOverviewsWithBuddies_activityPresent_singleQueryAndActivitiesOfEachUserFromOwnEarliestDate()
+	{
+		ZonedDateTime today = getDayStartTime(ZonedDateTime.now(userAnonZone));
+		LocalDate yesterday = today.minusDays(1).toLocalDate();
+		LocalDate dayBeforeYesterday = today.minusDays(2).toLocalDate();
+
+		// buddy 1 became a buddy the day before yesterday, buddy 2 yesterday
+		Goal buddy1GamblingGoal = BudgetGoal.createNoGoInstance(TimeUtil.utcNow().minusWeeks(2),
+				gamblingGoal.getActivityCategory());
+		Goal buddy2GamblingGoal = BudgetGoal.createNoGoInstance(TimeUtil.utcNow().minusWeeks(2),
+				gamblingGoal.getActivityCategory());
+		UUID buddy1AnonId = createBuddyWithGoal(buddy1GamblingGoal, dayBeforeYesterday);
+		UUID buddy2AnonId = createBuddyWithGoal(buddy2GamblingGoal, yesterday);
+		when(mockBuddyService.getBuddiesOfUserThatAcceptedSending(userId)).thenReturn(new HashSet<>(buddies));
+
+		// buddy 2 has activity before becoming a buddy, which must not be shown
+		Set<UUID> relevantGoalIds = Set.of(gamblingGoal.getId(), buddy1GamblingGoal.getId(), buddy2GamblingGoal.getId());
+		when(mockDayActivityRepository.findSummariesOfUsers(Set.of(userAnonId, buddy1AnonId, buddy2AnonId), relevantGoalIds,
+				dayBeforeYesterday, today.plusDays(1).toLocalDate())).thenReturn(
+				Arrays.asList(createDaySummary(1, gamblingGoal, yesterday, 2),
+						createDaySummary(2, buddy1GamblingGoal, dayBeforeYesterday, 5),
+						createDaySummary(3, buddy2GamblingGoal, dayBeforeYesterday, 11),
+						createDaySummary(4, buddy2GamblingGoal, yesterday, 7)));
+
+		Page<DayActivityOverviewDto<DayActivityWithBuddiesDto>> dayOverviews = service.getUserDayActivityOverviewsWithBuddies(
+				userId, PageRequest.of(0, 3));
+
+		// assert that the activities of the user and the buddies were retrieved at once
+		verify(mockDayActivityRepository, times(1)).findSummariesOfUsers(any(), any(), any(), any());
+		verify(mockDayActivityRepository, never()).findSummaries(any(), any(), any(), any());
+
+		assertThat(dayOverviews.getNumberOfElements(), equalTo(3));
+		assertThat(getMinutesByGoalId(dayOverviews.getContent().get(1)),
+				equalTo(Map.of(gamblingGoal.getId(), 2, buddy1GamblingGoal.getId(), 0, buddy2GamblingGoal.getId(), 7)));
+		assertThat(getMinutesByGoalId(dayOverviews.getContent().get(2)),
+				equalTo(Map.of(gamblingGoal.getId(), 0, buddy1GamblingGoal.getId(), 5)));
+	}
+
 	@Test
 	void getUserWeekActivityOverviews_noActivityPresent_resultsWithInactivity()
 	{
 		Page<WeekActivityOverviewDto> inactivityWeekOverviews = service.getUserWeekActivityOverviews(userId,
 				PageRequest.of(0, 5));
 
+		// inactivity is not persisted when reading
+		verifyNoInteractions(analysisEngineProxyService);
+
 		// because the gambling goal was added with creation date two weeks ago, there are multiple weeks
 		assertThat(inactivityWeekOverviews.getNumberOfElements(), equalTo(3));
 		// the other goals were created today, so get the most recent (first) element
@@ -365,7 +464,7 @@ class ActivityServiceTest
 		DayActivityDto inactivityDay = service.getUserDayActivityDetail(userId, LocalDate.now(userAnonZone),
 				gamblingGoal.getId());
 
-		assertThat(inactivityDay.getSpread().size(), equalTo(96));
+		assertThat(inactivityDay.getSpread().get().size(), equalTo(96));
 		assertThat(inactivityDay.getStartTime(), equalTo(today));
 		assertThat(inactivityDay.getTimeZoneId(), equalTo(userAnonZone.getId()));
 		assertThat(inactivityDay.getTotalActivityDurationMinutes().get(), equalTo(0));
@@ -378,7 +477,7 @@ class ActivityServiceTest
 		WeekActivityDto inactivityWeek = service.getUserWeekActivityDetail(userId, getWeekStartDate(LocalDate.now(userAnonZone)),
 				gamblingGoal.getId());
 
-		assertThat(inactivityWeek.getSpread().size(), equalTo(96));
+		assertThat(inactivityWeek.getSpread().get().size(), equalTo(96));
 		assertThat(inactivityWeek.getStartTime(), equalTo(getWeekStartTime(ZonedDateTime.now(userAnonZone))));
 		assertThat(inactivityWeek.getTimeZoneId(), equalTo(userAnonZone.getId()));
 		assertThat(inactivityWeek.getTotalActivityDurationMinutes().get(), equalTo(0));
@@ -415,7 +514,76 @@ class ActivityServiceTest
 		DayActivityDto activityDay = service.getUserDayActivityDetail(userId, yesterday.toLocalDate(), gamblingGoal.getId());
 
 		verify(mockDayActivityRepository, times(1)).findOne(userAnonId, yesterday.toLocalDate(), gamblingGoal.getId());
-		assertThat(activityDay.getSpread(), equalTo(Arrays.asList(ArrayUtils.toObject((expectedSpread)))));
+		assertThat(activityDay.getSpread().get().toArray(), equalTo(expectedSpread));
+	}
+
+	@Test
+	void getRawActivities_noDayActivityPresent_emptyResult()
+	{
+		LocalDate yesterday = LocalDate.now(userAnonZone).minusDays(1);
+
+		List<ActivityDto> rawActivities = service.getRawActivities(userId, yesterday, gamblingGoal.getId());
+
+		verify(mockDayActivityRepository, times(1)).findOne(userAnonId, yesterday, gamblingGoal.getId());
+		assertThat(rawActivities.isEmpty(), equalTo(true));
+	}
+
+	private UUID createBuddyWithGoal(Goal goal, LocalDate buddySinceDate)
+	{
+		UserAnonymized buddyUserAnonEntity = UserAnonymized.createInstance(
+				MessageDestination.createInstance(PublicKeyUtil.generateKeyPair().getPublic()), Set.of(goal));
+		UserAnonymizedDto buddyUserAnon = UserAnonymizedDto.createInstance(buddyUserAnonEntity);
+		UUID buddyUserAnonId = buddyUserAnon.getId();
+		lenient().when(mockUserAnonymizedService.getUserAnonymized(buddyUserAnonId)).thenReturn(buddyUserAnon);
+		lenient().when(mockGoalService.getGoalEntityForUserAnonymizedId(buddyUserAnonId, goal.getId())).thenReturn(goal);
+
+		UserPrivateDataBaseDto buddyUserPrivateData = mock(UserPrivateDataBaseDto.class);
+		lenient().when(buddyUserPrivateData.getGoalsIncludingHistoryItems())
+				.thenReturn(Optional.of(buddyUserAnon.getGoalsIncludingHistoryItems()));
+		UserDto buddyUser = mock(UserDto.class);
+		lenient().when(buddyUser.getPrivateData()).thenReturn(buddyUserPrivateData);
+		BuddyDto buddy = mock(BuddyDto.class);
+		lenient().when(buddy.getUser()).thenReturn(buddyUser);
+		lenient().when(buddy.getUserAnonymized()).thenReturn(Optional.of(buddyUserAnon));
+		lenient().when(buddy.getLastStatusChangeTime()).thenReturn(buddySinceDate.atTime(LocalTime.NOON));
+		buddies.add(buddy);
+		return buddyUserAnonId;
+	}
+
+	private Map<UUID, Integer> getMinutesByGoalId(DayActivityOverviewDto<DayActivityWithBuddiesDto> dayOverview)
+	{
+		return dayOverview.getDayActivities().stream().map(DayActivityWithBuddiesDto::getDayActivitiesForUsers)
+				.flatMap(Collection::stream).collect(Collectors.toMap(DayActivityWithBuddiesDto.ActivityForOneUser::getGoalId,
+						DayActivityWithBuddiesDto.ActivityForOneUser::getTotalActivityDurationMinutes));
+	}
+
+	private IntervalActivitySummary createDaySummary(long id, Goal goal, LocalDate date, int totalActivityDurationMinutes)
+	{
+		return new IntervalActivitySummary(id, goal.getId(), null, userAnonZone, date, new byte[96],
+				totalActivityDurationMinutes, false, totalActivityDurationMinutes);
+	}
+
+	private IntervalActivitySummary createDaySummary(DayActivity dayActivity, long id, Optional<Long> weekActivityId)
+	{
+		return new IntervalActivitySummary(id, dayActivity.getGoalId(), weekActivityId.orElse(null), dayActivity.getTimeZone(),
+				dayActivity.getStartDate(), toBytes(dayActivity.getSpread()), dayActivity.getTotalActivityDurationMinutes(),
+				dayActivity.isGoalAccomplished(dayActivity.getGoal()), dayActivity.getTotalMinutesBeyondGoal(dayActivity.getGoal()));
+	}
+
+	private IntervalActivitySummary createWeekSummary(WeekActivity weekActivity, long id)
+	{
+		return new IntervalActivitySummary(id, weekActivity.getGoalId(), weekActivity.getTimeZone(), weekActivity.getStartDate(),
+				toBytes(weekActivity.getSpread()), weekActivity.getTotalActivityDurationMinutes());
+	}
+
+	private byte[] toBytes(Spread spread)
+	{
+		byte[] bytes = new byte[spread.size()];
+		for (int i = 0; i < bytes.length; i++)
+		{
+			bytes[i] = (byte) spread.get(i);
+		}
+		return bytes;
 	}
 
 	private int[] getEmptySpread()
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.analysis.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+
+import nu.yona.server.analysis.entities.AppActivityOutboxItem;
+import nu.yona.server.analysis.entities.AppActivityOutboxItemRepository;
+import nu.yona.server.exceptions.UpstreamException;
+import nu.yona.server.properties.AnalysisServiceProperties;
+import nu.yona.server.properties.YonaProperties;
+import nu.yona.server.test.util.JUnitUtil;
+import nu.yona.server.util.TransactionHelper;
+import tools.jackson.databind.ObjectMapper;
+
+@ExtendWith(MockitoExtension.class)
+class AppActivityQueueServiceTest
+{
+	private static final String APP_ACTIVITIES_JSON = "{}";
+
+	private final UUID userAnonymizedId = UUID.randomUUID();
+	private final UUID deviceAnonymizedId = UUID.randomUUID();
+	private final AnalysisServiceProperties analysisServiceProperties = new AnalysisServiceProperties();
+
+	@Mock
+	private YonaProperties mockYonaProperties;
+	@Mock
+	private AnalysisEngineProxyService mockAnalysisEngineProxyService;
+	@Mock
+	private ObjectMapper mockObjectMapper;
+	@Mock
+	private AppActivityOutboxItemRepository mockOutboxItemRepository;
+	@Spy
+	private TransactionHelper transactionHelper = new TransactionHelper();
+
+	@InjectMocks
+	private final AppActivityQueueService service = new AppActivityQueueService();
+
+	@BeforeEach
+	public void setUp()
+	{
+		lenient().when(mockYonaProperties.getAnalysisService()).thenReturn(analysisServiceProperties);
+	}
+
+	@Test
+	void enqueue_queueFull_notStored()
+	{
+		analysisServiceProperties.getAppActivityQueue().setMaxQueueDepth(0);
+
+		boolean isEnqueued = service.enqueue(userAnonymizedId, deviceAnonymizedId, createAppActivities(ZonedDateTime.now()));
+
+		assertThat(isEnqueued, equalTo(false));
+		verify(mockOutboxItemRepository, never()).save(any());
+	}
+
+	@Test
+	void enqueue_queueDepthRefreshedToMax_notStored()
+	{
+		analysisServiceProperties.getAppActivityQueue().setMaxQueueDepth(2);
+		when(mockOutboxItemRepository.count()).thenReturn(2L);
+		service.refreshQueueDepth();
+
+		boolean isEnqueued = service.enqueue(userAnonymizedId, deviceAnonymizedId, createAppActivities(ZonedDateTime.now()));
+
+		assertThat(isEnqueued, equalTo(false));
+		verify(mockOutboxItemRepository, never()).save(any());
+	}
+
+	@Test
+	void enqueue_itemDeliveredFromFullQueue_storedWithoutCountingQueue()
+	{
+		LocalDateTime now = JUnitUtil.mockCurrentTime("2026-03-19T20:47:00.000");
+		analysisServiceProperties.getAppActivityQueue().setMaxQueueDepth(1);
+		when(mockOutboxItemRepository.count()).thenReturn(1L);
+		service.refreshQueueDepth();
+		AppActivityOutboxItem item = AppActivityOutboxItem.createInstance(userAnonymizedId, deviceAnonymizedId,
+				APP_ACTIVITIES_JSON);
+		when(mockObjectMapper.readValue(anyString(), eq(AppActivitiesDto.class)))
+				.thenReturn(createAppActivities(now.atZone(ZoneOffset.UTC)));
+		when(mockOutboxItemRepository.findDueForUpdate(any(), any())).thenReturn(Collections.singletonList(item));
+		service.deliverDueItems();
+
+		boolean isEnqueued = service.enqueue(userAnonymizedId, deviceAnonymizedId, createAppActivities(ZonedDateTime.now()));
+
+		assertThat(isEnqueued, equalTo(true));
+		verify(mockOutboxItemRepository).save(any());
+		verify(mockOutboxItemRepository, times(1)).count();
+	}
+
+	@Test
+	void deliverDueItems_delayedDelivery_deviceDateTimeMovedForwardWithDelay()
+	{
+		LocalDateTime receivedTime = JUnitUtil.mockCurrentTime("2026-03-19T20:47:00.000");
+		ZonedDateTime deviceDateTime = receivedTime.atZone(ZoneOffset.UTC).plusMinutes(3);
+		AppActivityOutboxItem item = AppActivityOutboxItem.createInstance(userAnonymizedId, deviceAnonymizedId,
+				APP_ACTIVITIES_JSON);
+		when(mockObjectMapper.readValue(APP_ACTIVITIES_JSON, AppActivitiesDto.class))
+				.thenReturn(createAppActivities(deviceDateTime));
+		JUnitUtil.mockCurrentTime(receivedTime.plusMinutes(10));
+		when(mockOutboxItemRepository.findDueForUpdate(any(), any())).thenReturn(Collections.singletonList(item));
+
+		service.deliverDueItems();
+
+		ArgumentCaptor<AppActivitiesDto> appActivitiesCaptor = ArgumentCaptor.forClass(AppActivitiesDto.class);
+		verify(mockAnalysisEngineProxyService).analyzeAppActivity(eq(userAnonymizedId), eq(deviceAnonymizedId),
+				appActivitiesCaptor.capture());
+		assertThat(appActivitiesCaptor.getValue().getDeviceDateTime(), equalTo(deviceDateTime.plusMinutes(10)));
+		verify(mockOutboxItemRepository).deleteById(item.getId());
+	}
+
+	@Test
+	void deliverDueItems_deliveryFailsRepeatedly_retryDelayDoubled()
+	{
+		LocalDateTime now = JUnitUtil.mockCurrentTime("2026-03-19T20:47:00.000");
+		AppActivityOutboxItem item = AppActivityOutboxItem.createInstance(userAnonymizedId, deviceAnonymizedId,
+				APP_ACTIVITIES_JSON);
+		item.registerFailedAttempt(now);
+		item.registerFailedAttempt(now);
+		when(mockObjectMapper.readValue(anyString(), eq(AppActivitiesDto.class)))
+				.thenReturn(createAppActivities(now.atZone(ZoneOffset.UTC)));
+		doThrow(new IllegalStateException("Analysis service unavailable")).when(mockAnalysisEngineProxyService)
+				.analyzeAppActivity(any(), any(), any());
+		when(mockOutboxItemRepository.findDueForUpdate(any(), any())).thenReturn(Collections.singletonList(item));
+		when(mockOutboxItemRepository.findById(item.getId())).thenReturn(Optional.of(item));
+
+		service.deliverDueItems();
+
+		// Third attempt: initial retry delay of 5 seconds, doubled twice
+		assertThat(item.getAttemptCount(), equalTo(3));
+		assertThat(item.getNextAttemptTime(), equalTo(now.plusSeconds(20)));
+		verify(mockOutboxItemRepository, never()).deleteById(any());
+	}
+
+	@Test
+	void deliverDueItems_maxAttemptsReached_itemDropped()
+	{
+		LocalDateTime now = JUnitUtil.mockCurrentTime("2026-03-19T20:47:00.000");
+		analysisServiceProperties.getAppActivityQueue().setMaxAttempts(1);
+		AppActivityOutboxItem item = AppActivityOutboxItem.createInstance(userAnonymizedId, deviceAnonymizedId,
+				APP_ACTIVITIES_JSON);
+		when(mockObjectMapper.readValue(anyString(), eq(AppActivitiesDto.class)))
+				.thenReturn(createAppActivities(now.atZone(ZoneOffset.UTC)));
+		doThrow(new IllegalStateException("Analysis service unavailable")).when(mockAnalysisEngineProxyService)
+				.analyzeAppActivity(any(), any(), any());
+		when(mockOutboxItemRepository.findDueForUpdate(any(), any())).thenReturn(Collections.singletonList(item));
+
+		service.deliverDueItems();
+
+		verify(mockOutboxItemRepository).deleteById(item.getId());
+	}
+
+	@Test
+	void deliverDueItems_analysisServiceRejectsAppActivities_itemDroppedWithoutRetry()
+	{
+		LocalDateTime now = JUnitUtil.mockCurrentTime("2026-03-19T20:47:00.000");
+		AppActivityOutboxItem item = AppActivityOutboxItem.createInstance(userAnonymizedId, deviceAnonymizedId,
+				APP_ACTIVITIES_JSON);
+		when(mockObjectMapper.readValue(anyString(), eq(AppActivitiesDto.class)))
+				.thenReturn(createAppActivities(now.atZone(ZoneOffset.UTC)));
+		doThrow(UpstreamException.yonaException(HttpStatus.BAD_REQUEST,
+				"error.analysis.invalid.app.activity.data.end.before.start", "Invalid app activity data"))
+				.when(mockAnalysisEngineProxyService).analyzeAppActivity(any(), any(), any());
+		when(mockOutboxItemRepository.findDueForUpdate(any(), any())).thenReturn(Collections.singletonList(item));
+
+		service.deliverDueItems();
+
+		verify(mockOutboxItemRepository).deleteById(item.getId());
+		verify(mockOutboxItemRepository, never()).findById(any());
+		assertThat(item.getAttemptCount(), equalTo(0));
+	}
+
+	@Test
+	void deliverDueItems_analysisServiceThrottles_retried()
+	{
+		LocalDateTime now = JUnitUtil.mockCurrentTime("2026-03-19T20:47:00.000");
+		AppActivityOutboxItem item = AppActivityOutboxItem.createInstance(userAnonymizedId, deviceAnonymizedId,
+				APP_ACTIVITIES_JSON);
+		when(mockObjectMapper.readValue(anyString(), eq(AppActivitiesDto.class)))
+				.thenReturn(createAppActivities(now.atZone(ZoneOffset.UTC)));
+		doThrow(UpstreamException.remoteServiceError(HttpStatus.TOO_MANY_REQUESTS, "")).when(mockAnalysisEngineProxyService)
+				.analyzeAppActivity(any(), any(), any());
+		when(mockOutboxItemRepository.findDueForUpdate(any(), any())).thenReturn(Collections.singletonList(item));
+		when(mockOutboxItemRepository.findById(item.getId())).thenReturn(Optional.of(item));
+
+		service.deliverDueItems();
+
+		assertThat(item.getAttemptCount(), equalTo(1));
+		assertThat(item.getNextAttemptTime(), equalTo(now.plusSeconds(5)));
+		verify(mockOutboxItemRepository, never()).deleteById(any());
+	}
+
+	private AppActivitiesDto createAppActivities(ZonedDateTime deviceDateTime)
+	{
+		return new AppActivitiesDto(deviceDateTime, new AppActivitiesDto.Activity[] {
+				new AppActivitiesDto.Activity("Poker App", deviceDateTime.minusMinutes(5), deviceDateTime.minusMinutes(1)) });
+	}
+}
@@ -1,14 +1,21 @@
 /*
- * Copyright (c) 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
- * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ * Copyright (c) 2019, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.crypto;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
 
 import org.junit.jupiter.api.Test;
 
@@ -23,4 +30,54 @@ class CryptoUtilTest
 			assertThat(URLEncoder.encode(randomString, StandardCharsets.UTF_8), equalTo(randomString));
 		}
 	}
+
+	@Test
+	void decrypt_intoBufferAtOffset_returnsOriginal() throws Exception
+	{
+		SecretKeySpec secretKey = CryptoUtil.secretKeyFromBytes(CryptoUtil.getRandomBytes(16));
+		IvParameterSpec initializationVector = new IvParameterSpec(CryptoUtil.getRandomBytes(16));
+		byte[] plaintext = "Hello, world".getBytes(StandardCharsets.UTF_8);
+		Cipher encryptionCipher = CipherPool.borrow("AES/CBC/PKCS5Padding");
+		encryptionCipher.init(Cipher.ENCRYPT_MODE, secretKey, initializationVector);
+		byte[] ciphertext = new byte[CryptoUtil.getMaxCiphertextLength(encryptionCipher, plaintext.length) + 3];
+		int ciphertextLength = CryptoUtil.encrypt((byte) 1, encryptionCipher, plaintext, 0, plaintext.length, ciphertext, 3);
+		Cipher decryptionCipher = CipherPool.borrow("AES/CBC/PKCS5Padding");
+		decryptionCipher.init(Cipher.DECRYPT_MODE, secretKey, initializationVector);
+		byte[] result = new byte[CryptoUtil.getMaxPlaintextLength(decryptionCipher, ciphertextLength) + 5];
+
+		int resultLength = CryptoUtil.decrypt((byte) 1, decryptionCipher, ciphertext, 3, ciphertextLength, result, 5);
+
+		assertThat(Arrays.copyOfRange(result, 5, 5 + resultLength), equalTo(plaintext));
+		assertThat(CryptoUtil.encrypt((byte) 1, encryptionCipher, plaintext),
+				equalTo(Arrays.copyOfRange(ciphertext, 3, 3 + ciphertextLength)));
+	}
+
+	@Test
+	void borrow_afterGiveBack_returnsSameInstance()
+	{
+		Cipher cipher = CipherPool.borrow("AES/CBC/PKCS5Padding");
+		Cipher otherCipher = CipherPool.borrow("AES/CBC/PKCS5Padding");
+		CipherPool.giveBack(cipher);
+
+		assertThat(otherCipher, not(sameInstance(cipher)));
+		assertThat(CipherPool.borrow("AES/CBC/PKCS5Padding"), sameInstance(cipher));
+	}
+
+	@Test
+	void giveBack_initializedCipher_keyOfBorrowerCleared() throws Exception
+	{
+		SecretKeySpec secretKey = CryptoUtil.secretKeyFromBytes(CryptoUtil.getRandomBytes(16));
+		byte[] plaintext = "Hello, world".getBytes(StandardCharsets.UTF_8);
+		Cipher cipher = CipherPool.borrow("AES/CBC/PKCS5Padding");
+		cipher.init(Cipher.ENCRYPT_MODE, secretKey, new IvParameterSpec(CryptoUtil.getRandomBytes(16)));
+		CipherPool.giveBack(cipher);
+		Cipher borrowedCipher = CipherPool.borrow("AES/CBC/PKCS5Padding");
+		Cipher referenceCipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+		referenceCipher.init(Cipher.ENCRYPT_MODE, secretKey, new IvParameterSpec(borrowedCipher.getIV()));
+
+		byte[] ciphertext = borrowedCipher.doFinal(plaintext);
+
+		assertThat(borrowedCipher, sameInstance(cipher));
+		assertThat(Arrays.equals(ciphertext, referenceCipher.doFinal(plaintext)), equalTo(false));
+	}
 }
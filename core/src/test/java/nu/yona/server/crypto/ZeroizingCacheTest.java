@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.crypto;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+class ZeroizingCacheTest
+{
+	private static final byte[] KEY1 = { 1, 2, 3 };
+	private static final byte[] KEY2 = { 4, 5, 6 };
+
+	private final ZeroizingCache cache = ZeroizingCache.createInstance(10, Duration.ofMinutes(1));
+
+	@Test
+	void get_afterPut_returnsReadValue()
+	{
+		cache.put(KEY1, createSecretBytes());
+
+		Optional<byte[]> result = cache.get(KEY1, b -> Optional.of(b.clone()));
+
+		assertThat(result.isPresent(), equalTo(true));
+		assertThat(result.get(), equalTo(createSecretBytes()));
+	}
+
+	@Test
+	void get_otherKey_returnsEmpty()
+	{
+		cache.put(KEY1, createSecretBytes());
+
+		assertThat(cache.get(KEY2, b -> Optional.of(b.clone())).isPresent(), equalTo(false));
+	}
+
+	@Test
+	void get_readerReturnsEmpty_returnsEmpty()
+	{
+		cache.put(KEY1, createSecretBytes());
+
+		assertThat(cache.get(KEY1, b -> Optional.empty()).isPresent(), equalTo(false));
+	}
+
+	@Test
+	void invalidate_default_secretBytesZeroizedAndReadValueStillValid()
+	{
+		byte[] secretBytes = createSecretBytes();
+		cache.put(KEY1, secretBytes);
+		byte[] readValue = cache.get(KEY1, b -> Optional.of(b.clone())).get();
+
+		cache.invalidate(KEY1);
+
+		assertThat(cache.get(KEY1, b -> Optional.of(b.clone())).isPresent(), equalTo(false));
+		assertThat(secretBytes, equalTo(new byte[secretBytes.length]));
+		assertThat(readValue, equalTo(createSecretBytes()));
+	}
+
+	@Test
+	void invalidateAll_default_secretBytesZeroized()
+	{
+		byte[] secretBytes1 = createSecretBytes();
+		byte[] secretBytes2 = createSecretBytes();
+		cache.put(KEY1, secretBytes1);
+		cache.put(KEY2, secretBytes2);
+
+		cache.invalidateAll();
+
+		assertThat(secretBytes1, equalTo(new byte[secretBytes1.length]));
+		assertThat(secretBytes2, equalTo(new byte[secretBytes2.length]));
+	}
+
+	private static byte[] createSecretBytes()
+	{
+		return new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 };
+	}
+}
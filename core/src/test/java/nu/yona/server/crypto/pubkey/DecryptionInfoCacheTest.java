@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.crypto.pubkey;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.security.PrivateKey;
+import java.time.Duration;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+class DecryptionInfoCacheTest
+{
+	private static final byte[] DECRYPTION_INFO_BYTES1 = { 1, 2, 3 };
+	private static final byte[] DECRYPTION_INFO_BYTES2 = { 4, 5, 6 };
+
+	private final DecryptionInfoCache cache = DecryptionInfoCache.createInstance(10, Duration.ofMinutes(1));
+	private final byte[] fingerprint = DecryptionInfoCache.getFingerprint(PublicKeyUtil.generateKeyPair().getPrivate());
+
+	@Test
+	void get_afterPut_returnsEqualDecryptionInfo()
+	{
+		byte[] decryptedBytes = createDecryptedBytes();
+		cache.put(fingerprint, DECRYPTION_INFO_BYTES1, decryptedBytes);
+
+		Optional<DecryptionInfo> result = cache.get(fingerprint, DECRYPTION_INFO_BYTES1);
+
+		assertThat(result.isPresent(), equalTo(true));
+		assertThat(result.get().convertToByteArray(), equalTo(createDecryptedBytes()));
+	}
+
+	@Test
+	void get_otherDecryptionInfo_returnsEmpty()
+	{
+		cache.put(fingerprint, DECRYPTION_INFO_BYTES1, createDecryptedBytes());
+
+		assertThat(cache.get(fingerprint, DECRYPTION_INFO_BYTES2).isPresent(), equalTo(false));
+	}
+
+	@Test
+	void get_otherPrivateKey_returnsEmpty()
+	{
+		cache.put(fingerprint, DECRYPTION_INFO_BYTES1, createDecryptedBytes());
+		byte[] otherFingerprint = DecryptionInfoCache.getFingerprint(PublicKeyUtil.generateKeyPair().getPrivate());
+
+		assertThat(cache.get(otherFingerprint, DECRYPTION_INFO_BYTES1).isPresent(), equalTo(false));
+	}
+
+	@Test
+	void get_afterInvalidation_returnsEmptyAndReturnedDecryptionInfoStillValid()
+	{
+		cache.put(fingerprint, DECRYPTION_INFO_BYTES1, createDecryptedBytes());
+		DecryptionInfo cachedDecryptionInfo = cache.get(fingerprint, DECRYPTION_INFO_BYTES1).get();
+
+		cache.invalidate(DECRYPTION_INFO_BYTES1);
+
+		assertThat(cache.get(fingerprint, DECRYPTION_INFO_BYTES1).isPresent(), equalTo(false));
+		assertThat(cachedDecryptionInfo.convertToByteArray(), equalTo(createDecryptedBytes()));
+	}
+
+	@Test
+	void put_default_decryptedBytesZeroized()
+	{
+		byte[] decryptedBytes = createDecryptedBytes();
+
+		cache.put(fingerprint, DECRYPTION_INFO_BYTES1, decryptedBytes);
+
+		assertThat(decryptedBytes, equalTo(new byte[decryptedBytes.length]));
+	}
+
+	@Test
+	void getFingerprint_samePrivateKey_returnsEqualFingerprint()
+	{
+		PrivateKey privateKey = PublicKeyUtil.generateKeyPair().getPrivate();
+
+		assertThat(DecryptionInfoCache.getFingerprint(privateKey), equalTo(DecryptionInfoCache.getFingerprint(privateKey)));
+	}
+
+	private static byte[] createDecryptedBytes()
+	{
+		// Initialization vector of 16 bytes, followed by an AES-128 key of 16 bytes
+		byte[] decryptedBytes = new byte[32];
+		for (int i = 0; i < decryptedBytes.length; i++)
+		{
+			decryptedBytes[i] = (byte) (i + 1);
+		}
+		return decryptedBytes;
+	}
+}
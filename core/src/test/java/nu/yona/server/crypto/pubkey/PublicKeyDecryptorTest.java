@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.crypto.pubkey;
@@ -11,15 +11,21 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
 import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
 import nu.yona.server.crypto.CryptoException;
+import nu.yona.server.crypto.seckey.CryptoSession;
 
 class PublicKeyDecryptorTest
 {
 	private static final KeyPair keyPair = PublicKeyUtil.generateKeyPair();
 	private static final String PLAINTEXT1 = "One";
+	private static final String PLAINTEXT2 = "Two";
+	private static final String PLAINTEXT3 = "Three";
 
 	@Test
 	void decrypt_validKeyPair_returnsDecryptedData()
@@ -63,6 +69,93 @@ class PublicKeyDecryptorTest
 		assertThrows(CryptoException.class, () -> decryptor.decrypt(ciphertext));
 	}
 
+	@Test
+	void executeInCryptoSessions_multipleItems_executesActionInCryptoSessionOfEachItem()
+	{
+		List<EncryptedItem> items = createItems();
+		PublicKeyDecryptor decryptor = PublicKeyDecryptor.createInstance(keyPair.getPrivate());
+
+		List<String> plaintexts = decryptItems(decryptor, items);
+
+		assertThat(plaintexts, equalTo(Arrays.asList(PLAINTEXT1, PLAINTEXT2, PLAINTEXT3, PLAINTEXT1)));
+		assertThat(CryptoSession.isActive(), equalTo(false));
+	}
+
+	@Test
+	void executeInCryptoSessions_parallelDecryptionEnabled_executesActionInCryptoSessionOfEachItem()
+	{
+		List<EncryptedItem> items = createItems();
+		PublicKeyDecryptor decryptor = PublicKeyDecryptor.createInstance(keyPair.getPrivate());
+		PublicKeyDecryptor.enableParallelDecryption(2);
+		try
+		{
+			List<String> plaintexts = decryptItems(decryptor, items);
+
+			assertThat(plaintexts, equalTo(Arrays.asList(PLAINTEXT1, PLAINTEXT2, PLAINTEXT3, PLAINTEXT1)));
+			assertThat(CryptoSession.isActive(), equalTo(false));
+		}
+		finally
+		{
+			PublicKeyDecryptor.disableParallelDecryption();
+		}
+	}
+
+	@Test
+	void executeInCryptoSessions_itemWithoutDecryptionInfo_throwsWithoutExecutingAction()
+	{
+		List<EncryptedItem> items = createItems();
+		items.add(new EncryptedItem());
+		PublicKeyDecryptor decryptor = PublicKeyDecryptor.createInstance(keyPair.getPrivate());
+		List<EncryptedItem> processedItems = new ArrayList<>();
+
+		assertThrows(CryptoException.class, () -> decryptor.executeInCryptoSessions(items, i -> i.decryptionInfo,
+				processedItems::add));
+		assertThat(processedItems.isEmpty(), equalTo(true));
+	}
+
+	@Test
+	void executeInCryptoSession_noDecryptionInfo_throws()
+	{
+		PublicKeyDecryptor decryptor = PublicKeyDecryptor.createInstance(keyPair.getPrivate());
+
+		assertThrows(CryptoException.class, () -> decryptor.executeInCryptoSession(null, () -> {
+			// Not executed
+		}));
+	}
+
+	private static List<EncryptedItem> createItems()
+	{
+		PublicKeyEncryptor encryptor = PublicKeyEncryptor.createInstance(keyPair.getPublic());
+		List<EncryptedItem> items = new ArrayList<>();
+		for (String plaintext : Arrays.asList(PLAINTEXT1, PLAINTEXT2, PLAINTEXT3))
+		{
+			EncryptedItem item = new EncryptedItem();
+			item.decryptionInfo = encryptor.executeInCryptoSession(
+					() -> item.ciphertext = CryptoSession.getCurrent().encrypt(plaintext.getBytes(StandardCharsets.UTF_8)));
+			items.add(item);
+		}
+		// An item sharing the decryption info of another one
+		EncryptedItem sharingItem = new EncryptedItem();
+		sharingItem.decryptionInfo = items.get(0).decryptionInfo.clone();
+		sharingItem.ciphertext = items.get(0).ciphertext;
+		items.add(sharingItem);
+		return items;
+	}
+
+	private static List<String> decryptItems(PublicKeyDecryptor decryptor, List<EncryptedItem> items)
+	{
+		List<String> plaintexts = new ArrayList<>();
+		decryptor.executeInCryptoSessions(items, i -> i.decryptionInfo,
+				i -> plaintexts.add(new String(CryptoSession.getCurrent().decrypt(i.ciphertext), StandardCharsets.UTF_8)));
+		return plaintexts;
+	}
+
+	private static class EncryptedItem
+	{
+		byte[] decryptionInfo;
+		byte[] ciphertext;
+	}
+
 	private static byte[] encrypt(PublicKey publicKey, String plaintext)
 	{
 		PublicKeyEncryptor encryptor = PublicKeyEncryptor.createInstance(publicKey);
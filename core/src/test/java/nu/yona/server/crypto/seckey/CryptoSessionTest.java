@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.crypto.seckey;
@@ -130,6 +130,21 @@ class CryptoSessionTest
 		});
 	}
 
+	@Test
+	void start_samePasswordTwice_sameKey()
+	{
+		String keyString;
+		try (CryptoSession cryptoSession = CryptoSession.start(Optional.of(PASSWORD1), CryptoSessionTest::passwordIsOk))
+		{
+			keyString = cryptoSession.getKeyString();
+		}
+
+		try (CryptoSession cryptoSession = CryptoSession.start(Optional.of(PASSWORD1), CryptoSessionTest::passwordIsOk))
+		{
+			assertThat(cryptoSession.getKeyString(), equalTo(keyString));
+		}
+	}
+
 	private static boolean passwordIsOk()
 	{
 		return true;
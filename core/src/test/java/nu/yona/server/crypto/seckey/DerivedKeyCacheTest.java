@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.crypto.seckey;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.Test;
+
+class DerivedKeyCacheTest
+{
+	private static final String PASSWORD1 = "secret";
+	private static final String PASSWORD2 = "easy";
+
+	private final DerivedKeyCache cache = DerivedKeyCache.createInstance(10, Duration.ofMinutes(1));
+
+	@Test
+	void get_afterPut_returnsEqualKey()
+	{
+		SecretKey secretKey = CryptoSession.getSecretKey(PASSWORD1);
+		cache.put(PASSWORD1, secretKey);
+
+		Optional<SecretKey> result = cache.get(PASSWORD1);
+
+		assertThat(result.isPresent(), equalTo(true));
+		assertThat(result.get().getEncoded(), equalTo(secretKey.getEncoded()));
+	}
+
+	@Test
+	void get_otherPassword_returnsEmpty()
+	{
+		cache.put(PASSWORD1, CryptoSession.getSecretKey(PASSWORD1));
+
+		assertThat(cache.get(PASSWORD2).isPresent(), equalTo(false));
+	}
+
+	@Test
+	void get_afterInvalidation_returnsEmptyAndReturnedKeyStillValid()
+	{
+		SecretKey secretKey = CryptoSession.getSecretKey(PASSWORD1);
+		cache.put(PASSWORD1, secretKey);
+		SecretKey cachedKey = cache.get(PASSWORD1).get();
+
+		cache.invalidateAll();
+
+		assertThat(cache.get(PASSWORD1).isPresent(), equalTo(false));
+		assertThat(cachedKey.getEncoded(), equalTo(secretKey.getEncoded()));
+	}
+}
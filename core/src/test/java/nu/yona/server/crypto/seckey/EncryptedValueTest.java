@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.crypto.seckey;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+class EncryptedValueTest
+{
+	private static final String PASSWORD1 = "secret";
+	private static final String PASSWORD2 = "easy";
+	private static final String PLAINTEXT = "Hello";
+
+	private final AtomicInteger decryptionCount = new AtomicInteger();
+	private final Function<byte[], String> countingDecryptor = c -> {
+		decryptionCount.incrementAndGet();
+		return SecretKeyUtil.decryptString(c);
+	};
+	private final byte[] initializationVector = new byte[SecretKeyUtil.INITIALIZATION_VECTOR_LENGTH];
+
+	@Test
+	void get_createdFromPlaintext_returnsPlaintextWithoutCryptoSession()
+	{
+		assertThat(EncryptedValue.createInstance(PLAINTEXT).get(), equalTo(PLAINTEXT));
+	}
+
+	@Test
+	void get_loadedAndAccessedTwice_decryptedOnceOnFirstAccess()
+	{
+		String ciphertext = encrypt(PASSWORD1, PLAINTEXT);
+		try (CryptoSession cryptoSession = startCryptoSession(PASSWORD1))
+		{
+			EncryptedValue<String> value = EncryptedValue.createLoadedInstance(ciphertext, countingDecryptor);
+			assertThat(decryptionCount.get(), equalTo(0));
+
+			assertThat(value.get(), equalTo(PLAINTEXT));
+			assertThat(value.get(), equalTo(PLAINTEXT));
+			assertThat(decryptionCount.get(), equalTo(1));
+		}
+	}
+
+	@Test
+	void get_otherCryptoSessionCurrent_decryptedWithKeyOfLoadingCryptoSession()
+	{
+		String ciphertext = encrypt(PASSWORD1, PLAINTEXT);
+		try (CryptoSession cryptoSession = startCryptoSession(PASSWORD1))
+		{
+			EncryptedValue<String> value = EncryptedValue.createLoadedInstance(ciphertext, countingDecryptor);
+			try (CryptoSession otherCryptoSession = startCryptoSession(PASSWORD2))
+			{
+				assertThat(value.get(), equalTo(PLAINTEXT));
+			}
+		}
+	}
+
+	@Test
+	void get_loadedWithoutCryptoSession_returnsNull()
+	{
+		EncryptedValue<String> value = EncryptedValue.createLoadedInstance(encrypt(PASSWORD1, PLAINTEXT), countingDecryptor);
+
+		try (CryptoSession cryptoSession = startCryptoSession(PASSWORD1))
+		{
+			assertThat(value.get(), nullValue());
+		}
+	}
+
+	@Test
+	void toDatabaseColumn_unchangedInLoadingCryptoSession_returnsLoadedCiphertextWithoutDecryption()
+	{
+		String ciphertext = encrypt(PASSWORD1, PLAINTEXT);
+		try (CryptoSession cryptoSession = startCryptoSession(PASSWORD1))
+		{
+			EncryptedValue<String> value = EncryptedValue.createLoadedInstance(ciphertext, countingDecryptor);
+
+			assertThat(value.toDatabaseColumn(SecretKeyUtil::encryptString), equalTo(ciphertext));
+			assertThat(decryptionCount.get(), equalTo(0));
+		}
+	}
+
+	@Test
+	void toDatabaseColumn_otherCryptoSessionCurrent_reencryptedWithCurrentKey()
+	{
+		String ciphertext = encrypt(PASSWORD1, PLAINTEXT);
+		EncryptedValue<String> value;
+		try (CryptoSession cryptoSession = startCryptoSession(PASSWORD1))
+		{
+			value = EncryptedValue.createLoadedInstance(ciphertext, countingDecryptor);
+		}
+
+		String newCiphertext;
+		try (CryptoSession cryptoSession = startCryptoSession(PASSWORD2))
+		{
+			newCiphertext = value.toDatabaseColumn(SecretKeyUtil::encryptString);
+		}
+
+		assertThat(newCiphertext, not(equalTo(ciphertext)));
+		try (CryptoSession cryptoSession = startCryptoSession(PASSWORD2))
+		{
+			assertThat(EncryptedValue.createLoadedInstance(newCiphertext, countingDecryptor).get(), equalTo(PLAINTEXT));
+		}
+	}
+
+	private String encrypt(String password, String plaintext)
+	{
+		try (CryptoSession cryptoSession = startCryptoSession(password))
+		{
+			return EncryptedValue.createInstance(plaintext).toDatabaseColumn(SecretKeyUtil::encryptString);
+		}
+	}
+
+	private CryptoSession startCryptoSession(String password)
+	{
+		CryptoSession cryptoSession = CryptoSession.start(password);
+		cryptoSession.setInitializationVector(initializationVector);
+		return cryptoSession;
+	}
+}
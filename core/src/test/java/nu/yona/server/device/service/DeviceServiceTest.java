@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2017, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2017, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.device.service;
@@ -61,6 +61,7 @@ import nu.yona.server.Translator;
 import nu.yona.server.analysis.entities.Activity;
 import nu.yona.server.analysis.entities.ActivityRepository;
 import nu.yona.server.crypto.seckey.CryptoSession;
+import nu.yona.server.crypto.seckey.EncryptedValue;
 import nu.yona.server.device.entities.DeviceAnonymized;
 import nu.yona.server.device.entities.DeviceAnonymized.OperatingSystem;
 import nu.yona.server.device.entities.DeviceAnonymizedRepository;
@@ -762,6 +763,31 @@ class DeviceServiceTest extends BaseSpringIntegrationTest
 		assertEquals("error.device.not.found.id", exception.getMessageId());
 	}
 
+	@Test
+	void getOwnDevice_secondDevice_correctDevice()
+	{
+		addDeviceToRichard(0, "First", OperatingSystem.ANDROID);
+		UserDevice device2 = addDeviceToRichard(1, "Second", OperatingSystem.IOS);
+
+		UserDeviceDto device = service.getOwnDevice(richard.getId(), device2.getId());
+
+		assertThat(device.getId(), equalTo(device2.getId()));
+		assertThat(device.getName(), equalTo("Second"));
+		assertThat(device.getDeviceAnonymizedId(), equalTo(device2.getDeviceAnonymizedId()));
+	}
+
+	@Test
+	void getOwnDevice_deviceOfOtherUser_exception()
+	{
+		addDeviceToRichard(0, "First", OperatingSystem.ANDROID);
+		UserDevice notAddedDevice = createDevice(1, "NotAddedDevice", OperatingSystem.IOS, SOME_APP_VERSION,
+				SUPPORTED_APP_VERSION_CODE);
+
+		DeviceServiceException exception = assertThrows(DeviceServiceException.class,
+				() -> service.getOwnDevice(richard.getId(), notAddedDevice.getId()));
+		assertEquals("error.device.not.found.id", exception.getMessageId());
+	}
+
 	@Test
 	void postOpenAppEvent_appLastOpenedDateOnEarlierDay_appLastOpenedDateUpdated()
 	{
@@ -905,7 +931,7 @@ class DeviceServiceTest extends BaseSpringIntegrationTest
 	{
 		try
 		{
-			appLastOpenedDateField.set(device, originalDate);
+			appLastOpenedDateField.set(device, EncryptedValue.createInstance(originalDate));
 		}
 		catch (IllegalArgumentException | IllegalAccessException e)
 		{
@@ -1,9 +1,11 @@
 /*
- * Copyright (c) 2017, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2017, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.entities;
 
+import java.util.Collection;
+import java.util.Set;
 import java.util.UUID;
 
 import org.apache.commons.lang3.NotImplementedException;
@@ -15,7 +17,8 @@ public class BuddyAnonymizedRepositoryMock extends MockJpaRepositoryEntityWithUu
 		implements BuddyAnonymizedRepository
 {
 	@Override
-	public boolean existsPendingOrEstablishedBuddyRelationship(UUID owningUserAnonymized, UUID userAnonymizedId)
+	public Set<UUID> findOwningUserAnonymizedIdsWithPendingOrEstablishedBuddyRelationship(
+			Collection<UUID> owningUserAnonymizedIds, UUID userAnonymizedId)
 	{
 		throw new NotImplementedException();
 	}
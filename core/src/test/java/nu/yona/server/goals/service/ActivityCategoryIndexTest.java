@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.goals.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import nu.yona.server.Translator;
+
+class ActivityCategoryIndexTest
+{
+	private ActivityCategoryDto gambling;
+	private ActivityCategoryDto news;
+	private ActivityCategoryDto gaming;
+	private ActivityCategoryIndex index;
+
+	@BeforeEach
+	public void setUp()
+	{
+		gambling = createActivityCategory("gambling", Set.of("poker", "lotto"), Set.of("Poker App"));
+		news = createActivityCategory("news", Set.of("refdag", "bbc"), Set.of("BBC News", "Shared App"));
+		gaming = createActivityCategory("gaming", Set.of("games", "poker"), Set.of("Shared App"));
+		index = ActivityCategoryIndex.createInstance(UUID.randomUUID(), new HashSet<>(Arrays.asList(gambling, news, gaming)));
+	}
+
+	@Test
+	void getMatchingCategoriesForApp_appInOneCategory_returnsThatCategory()
+	{
+		assertThat(index.getMatchingCategoriesForApp("Poker App"), containsInAnyOrder(gambling));
+	}
+
+	@Test
+	void getMatchingCategoriesForApp_appInMultipleCategories_returnsAllThoseCategories()
+	{
+		assertThat(index.getMatchingCategoriesForApp("Shared App"), containsInAnyOrder(news, gaming));
+	}
+
+	@Test
+	void getMatchingCategoriesForApp_unknownApp_returnsEmptySet()
+	{
+		assertThat(index.getMatchingCategoriesForApp("Unknown App"), empty());
+	}
+
+	@Test
+	void getMatchingCategoriesForSmoothwallCategories_oneMatchingCategory_returnsThatCategory()
+	{
+		assertThat(index.getMatchingCategoriesForSmoothwallCategories(Set.of("bbc", "unknown")), containsInAnyOrder(news));
+	}
+
+	@Test
+	void getMatchingCategoriesForSmoothwallCategories_multipleMatchingCategories_returnsUnion()
+	{
+		assertThat(index.getMatchingCategoriesForSmoothwallCategories(Set.of("poker", "refdag")),
+				containsInAnyOrder(gambling, gaming, news));
+	}
+
+	@Test
+	void getMatchingCategoriesForSmoothwallCategories_noMatchingCategory_returnsEmptySet()
+	{
+		assertThat(index.getMatchingCategoriesForSmoothwallCategories(Set.of("unknown")), empty());
+	}
+
+	private ActivityCategoryDto createActivityCategory(String name, Set<String> smoothwallCategories, Set<String> applications)
+	{
+		return new ActivityCategoryDto(UUID.randomUUID(), usString(name), false, smoothwallCategories, applications,
+				usString("Descr"));
+	}
+
+	private Map<Locale, String> usString(String string)
+	{
+		return Collections.singletonMap(Translator.EN_US_LOCALE, string);
+	}
+}
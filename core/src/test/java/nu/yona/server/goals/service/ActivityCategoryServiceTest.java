@@ -1,10 +1,11 @@
 /*
- * Copyright (c) 2016, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2016, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.goals.service;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -194,6 +195,17 @@ class ActivityCategoryServiceTest
 		assertGetAllActivityCategoriesResult("gambling");
 	}
 
+	@Test
+	void getActivityCategorySetVersion_activityCategoryDeleted_versionChanged()
+	{
+		UUID initialVersion = service.getActivityCategorySetVersion();
+		assertThat(service.getActivityCategorySetVersion(), equalTo(initialVersion));
+
+		service.deleteActivityCategory(news.getId());
+
+		assertThat(service.getActivityCategorySetVersion(), not(equalTo(initialVersion)));
+	}
+
 	private void assertGetAllActivityCategoriesResult(String... names)
 	{
 		assertThat(service.getAllActivityCategories().stream().map(a -> a.getName()).collect(Collectors.toSet()),
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.messaging.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class MessageCursorTest
+{
+	@ParameterizedTest
+	@ValueSource(strings = { "2026-10-18T10:15:30", "2026-10-18T10:15:30.123456", "2026-10-18T00:00" })
+	void decode_encodedCursor_returnsSameCreationTimeAndId(String creationTimeStr)
+	{
+		LocalDateTime creationTime = LocalDateTime.parse(creationTimeStr);
+		MessageDto message = mock(MessageDto.class);
+		when(message.getCreationTime()).thenReturn(creationTime);
+		when(message.getMessageId()).thenReturn(1234L);
+
+		MessageCursor cursor = MessageCursor.decode(MessageCursor.createInstance(message).encode());
+
+		assertThat(cursor.getCreationTime(), equalTo(creationTime));
+		assertThat(cursor.getMessageId(), equalTo(1234L));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "", "2026-10-18T10:15:30", "2026-10-18T10:15:30_abc", "yesterday_1234" })
+	void decode_invalidContent_throws(String decodedCursor)
+	{
+		String cursor = Base64.getUrlEncoder().encodeToString(decodedCursor.getBytes(StandardCharsets.UTF_8));
+
+		assertThrows(MessageServiceException.class, () -> MessageCursor.decode(cursor));
+	}
+
+	@Test
+	void decode_notBase64_throws()
+	{
+		assertThrows(MessageServiceException.class, () -> MessageCursor.decode("not base64!"));
+	}
+}
@@ -1,10 +1,11 @@
 /*
- * Copyright (c) 2018, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2018, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.messaging.service;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -33,6 +34,8 @@ import org.springframework.data.repository.Repository;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import nu.yona.server.Translator;
 import nu.yona.server.crypto.pubkey.PublicKeyUtil;
@@ -57,6 +60,7 @@ import nu.yona.server.sms.SmsService;
 import nu.yona.server.sms.SmsTemplate;
 import nu.yona.server.subscriptions.entities.User;
 import nu.yona.server.subscriptions.entities.UserAnonymized;
+import nu.yona.server.subscriptions.service.BuddyService;
 import nu.yona.server.subscriptions.service.UserAnonymizedDto;
 import nu.yona.server.subscriptions.service.UserAnonymizedService;
 import nu.yona.server.subscriptions.service.UserService;
@@ -118,6 +122,9 @@ class MessageServiceTest extends BaseSpringIntegrationTest
 	@MockitoBean
 	private SmsService mockSmsService;
 
+	@MockitoBean
+	private BuddyService mockBuddyService;
+
 	@Autowired
 	private MessageService service;
 
@@ -235,4 +242,57 @@ class MessageServiceTest extends BaseSpringIntegrationTest
 
 		verify(mockFirebaseService, times(1)).sendMessage(deviceAnonEntity.getId(), FIREBASE_REGISTRATION_TOKEN, message);
 	}
+
+	@Test
+	void broadcastMessageToBuddies_twoBuddies_sendsToEachBuddyAndFlushesOnce()
+	{
+		MessageDestination otherBuddyMessageDestination = MessageDestination.createInstance(
+				PublicKeyUtil.generateKeyPair().getPublic());
+		UserAnonymized otherBuddyUserAnonEntity = UserAnonymized.createInstance(otherBuddyMessageDestination,
+				Collections.emptySet());
+		when(mockBuddyService.getBuddyUsersAnonymized(any())).thenReturn(Set.of(UserAnonymizedDto.createInstance(userAnonEntity),
+				UserAnonymizedDto.createInstance(otherBuddyUserAnonEntity)));
+		when(mockMessageDestinationRepository.findAllById(any()))
+				.thenReturn(List.of(userAnonEntity.getAnonymousDestination(), otherBuddyMessageDestination));
+		UserAnonymizedDto sendingUserAnon = UserAnonymizedDto.createInstance(
+				UserAnonymized.createInstance(MessageDestination.createInstance(PublicKeyUtil.generateKeyPair().getPublic()),
+						Collections.emptySet()));
+
+		service.broadcastMessageToBuddies(sendingUserAnon, () -> Mockito.mock(Message.class));
+
+		verify(mockMessageRepository, times(2)).save(any());
+		verify(mockMessageDestinationRepository, times(1)).findAllById(any());
+		verify(mockMessageDestinationRepository, times(1)).flush();
+		verify(mockMessageDestinationRepository, never()).saveAndFlush(any());
+		verify(mockFirebaseService, times(1)).sendMessage(eq(deviceAnonEntity.getId()), eq(FIREBASE_REGISTRATION_TOKEN), any());
+	}
+
+	@Test
+	void broadcastMessageToBuddies_transactionActive_sendsFirebaseMessageAfterCommit()
+	{
+		when(mockBuddyService.getBuddyUsersAnonymized(any()))
+				.thenReturn(Set.of(UserAnonymizedDto.createInstance(userAnonEntity)));
+		when(mockMessageDestinationRepository.findAllById(any())).thenReturn(List.of(userAnonEntity.getAnonymousDestination()));
+		UserAnonymizedDto sendingUserAnon = UserAnonymizedDto.createInstance(
+				UserAnonymized.createInstance(MessageDestination.createInstance(PublicKeyUtil.generateKeyPair().getPublic()),
+						Collections.emptySet()));
+		Message message = Mockito.mock(Message.class);
+
+		TransactionSynchronizationManager.initSynchronization();
+		try
+		{
+			service.broadcastMessageToBuddies(sendingUserAnon, () -> message);
+
+			verify(mockMessageRepository, times(1)).save(message);
+			verify(mockFirebaseService, never()).sendMessage(any(), any(), any());
+
+			TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+			verify(mockFirebaseService, times(1)).sendMessage(deviceAnonEntity.getId(), FIREBASE_REGISTRATION_TOKEN, message);
+		}
+		finally
+		{
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
 }
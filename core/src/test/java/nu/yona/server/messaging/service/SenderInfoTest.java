@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.messaging.service;
+
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import nu.yona.server.Translator;
+import nu.yona.server.subscriptions.service.BuddyDto;
+import nu.yona.server.subscriptions.service.BuddyService;
+import nu.yona.server.subscriptions.service.UserDto;
+import nu.yona.server.subscriptions.service.UserService;
+
+@ExtendWith(MockitoExtension.class)
+class SenderInfoTest
+{
+	private static final int MESSAGES_PER_SENDER = 10;
+
+	private final UUID buddyUserId1 = UUID.randomUUID();
+	private final UUID buddyId1 = UUID.randomUUID();
+	private final UUID buddyUserId2 = UUID.randomUUID();
+	private final UUID buddyId2 = UUID.randomUUID();
+	private final UUID selfUserId = UUID.randomUUID();
+
+	@Mock
+	private BuddyService mockBuddyService;
+
+	@Mock
+	private UserService mockUserService;
+
+	@Mock
+	private Translator mockTranslator;
+
+	@InjectMocks
+	private final SenderInfo.Factory factory = new SenderInfo.Factory();
+
+	@BeforeEach
+	public void setUp()
+	{
+		lenient().when(mockUserService.getUserWithoutPrivateData(any())).thenAnswer(i -> mock(UserDto.class));
+		lenient().when(mockUserService.getUser(any(UUID.class))).thenAnswer(i -> mock(UserDto.class));
+		lenient().when(mockBuddyService.getBuddy(any())).thenAnswer(i -> mock(BuddyDto.class));
+	}
+
+	@Test
+	void executeResolvingEachSenderOnce_messagesOfTwoBuddiesAndSelf_resolvesEachSenderOnce()
+	{
+		List<SenderInfo> senderInfos = factory.executeResolvingEachSenderOnce(() -> IntStream.range(0, MESSAGES_PER_SENDER)
+				.boxed().flatMap(i -> List.of(createSenderInfoForBuddy(buddyUserId1, buddyId1),
+						createSenderInfoForBuddy(buddyUserId2, buddyId2), createSenderInfoForSelf()).stream())
+				.toList());
+
+		verify(mockUserService, times(1)).getUserWithoutPrivateData(buddyUserId1);
+		verify(mockUserService, times(1)).getUserWithoutPrivateData(buddyUserId2);
+		verify(mockBuddyService, times(1)).getBuddy(buddyId1);
+		verify(mockBuddyService, times(1)).getBuddy(buddyId2);
+		verify(mockUserService, times(1)).getUser(selfUserId);
+		assertThat(senderInfos.get(3), sameInstance(senderInfos.get(0)));
+		assertThat(senderInfos.get(5), sameInstance(senderInfos.get(2)));
+	}
+
+	@Test
+	void createInstanceForBuddy_outsideExecuteResolvingEachSenderOnce_resolvesEachTime()
+	{
+		IntStream.range(0, MESSAGES_PER_SENDER).forEach(i -> createSenderInfoForBuddy(buddyUserId1, buddyId1));
+
+		verify(mockUserService, times(MESSAGES_PER_SENDER)).getUserWithoutPrivateData(buddyUserId1);
+		verify(mockBuddyService, times(MESSAGES_PER_SENDER)).getBuddy(buddyId1);
+	}
+
+	@Test
+	void executeResolvingEachSenderOnce_consecutiveExecutions_resolvesAgain()
+	{
+		factory.executeResolvingEachSenderOnce(() -> createSenderInfoForBuddy(buddyUserId1, buddyId1));
+		factory.executeResolvingEachSenderOnce(() -> createSenderInfoForBuddy(buddyUserId1, buddyId1));
+
+		verify(mockUserService, times(2)).getUserWithoutPrivateData(buddyUserId1);
+		verify(mockBuddyService, times(2)).getBuddy(buddyId1);
+	}
+
+	private SenderInfo createSenderInfoForBuddy(UUID buddyUserId, UUID buddyId)
+	{
+		return factory.createInstanceForBuddy(buddyUserId, "Buddy", Optional.empty(), buddyId);
+	}
+
+	private SenderInfo createSenderInfoForSelf()
+	{
+		return factory.createInstanceForSelf(selfUserId, "Me", Optional.empty());
+	}
+}
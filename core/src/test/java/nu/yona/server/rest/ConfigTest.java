@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.rest;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import nu.yona.server.properties.RestClientProperties;
+import nu.yona.server.properties.YonaProperties;
+
+@ExtendWith(MockitoExtension.class)
+class ConfigTest
+{
+	private final RestClientProperties restClientProperties = new RestClientProperties();
+
+	@Mock
+	private YonaProperties mockYonaProperties;
+
+	@Mock
+	private ObjectProvider<PoolingHttpClientConnectionManager> mockConnectionManagerProvider;
+
+	@InjectMocks
+	private final Config config = new Config();
+
+	@BeforeEach
+	public void setUp()
+	{
+		lenient().when(mockYonaProperties.getRestClient()).thenReturn(restClientProperties);
+		restClientProperties.setMaxConnectionsTotal(20);
+		restClientProperties.setMaxConnectionsPerRoute(10);
+		restClientProperties.setConnectTimeout("PT2S");
+		restClientProperties.setReadTimeout("PT15S");
+	}
+
+	@Test
+	void restClientConnectionManager_default_poolLimitsApplied()
+	{
+		try (PoolingHttpClientConnectionManager connectionManager = config.restClientConnectionManager())
+		{
+			assertThat(connectionManager.getMaxTotal(), equalTo(20));
+			assertThat(connectionManager.getDefaultMaxPerRoute(), equalTo(10));
+		}
+	}
+
+	@Test
+	void createConnectionConfig_default_timeoutsApplied()
+	{
+		ConnectionConfig connectionConfig = Config.createConnectionConfig(restClientProperties);
+
+		assertThat(connectionConfig.getConnectTimeout().toMilliseconds(), equalTo(2000L));
+		assertThat(connectionConfig.getSocketTimeout().toMilliseconds(), equalTo(15000L));
+	}
+
+	@Test
+	void createRequestFactory_http2Disabled_pooledClientUsed()
+	{
+		try (PoolingHttpClientConnectionManager connectionManager = config.restClientConnectionManager())
+		{
+			when(mockConnectionManagerProvider.getObject()).thenReturn(connectionManager);
+
+			ClientHttpRequestFactory requestFactory = config.createRequestFactory(mockConnectionManagerProvider);
+
+			assertThat(requestFactory, instanceOf(HttpComponentsClientHttpRequestFactory.class));
+		}
+	}
+
+	@Test
+	void createRequestFactory_http2Enabled_jdkClientUsedWithoutConnectionPool()
+	{
+		restClientProperties.setHttp2Enabled(true);
+
+		ClientHttpRequestFactory requestFactory = config.createRequestFactory(mockConnectionManagerProvider);
+
+		assertThat(requestFactory, instanceOf(JdkClientHttpRequestFactory.class));
+		verify(mockConnectionManagerProvider, never()).getObject();
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.subscriptions.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import nu.yona.server.subscriptions.entities.BuddyAnonymized.Status;
+import nu.yona.server.subscriptions.entities.BuddyAnonymizedRepository;
+
+@ExtendWith(MockitoExtension.class)
+class BuddyServiceTest
+{
+	private final UUID userAnonymizedId = UUID.randomUUID();
+	private final UUID buddyUserAnonymizedId1 = UUID.randomUUID();
+	private final UUID buddyUserAnonymizedId2 = UUID.randomUUID();
+	private final UUID buddyUserAnonymizedId3 = UUID.randomUUID();
+	private final UUID requestedBuddyUserAnonymizedId = UUID.randomUUID();
+
+	@Mock
+	private BuddyAnonymizedRepository mockBuddyAnonymizedRepository;
+	@Mock
+	private UserAnonymizedService mockUserAnonymizedService;
+	@Mock
+	private UserAnonymizedDto mockUserAnonymized;
+
+	@InjectMocks
+	private final BuddyService service = new BuddyService();
+
+	@BeforeEach
+	public void setUp()
+	{
+		lenient().when(mockUserAnonymized.getId()).thenReturn(userAnonymizedId);
+		Stream.of(buddyUserAnonymizedId1, buddyUserAnonymizedId2, buddyUserAnonymizedId3, requestedBuddyUserAnonymizedId)
+				.forEach(this::setUpUserAnonymized);
+	}
+
+	@Test
+	void getBuddyUsersAnonymized_buddyWithoutReverseRelationship_filteredOutWithSingleQuery()
+	{
+		Set<BuddyAnonymizedDto> buddiesAnonymized = Set.of(createBuddyAnonymized(buddyUserAnonymizedId1, Status.ACCEPTED),
+				createBuddyAnonymized(buddyUserAnonymizedId2, Status.ACCEPTED),
+				createBuddyAnonymized(buddyUserAnonymizedId3, Status.ACCEPTED),
+				createBuddyAnonymized(requestedBuddyUserAnonymizedId, Status.REQUESTED));
+		when(mockUserAnonymized.getBuddiesAnonymized()).thenReturn(buddiesAnonymized);
+		when(mockBuddyAnonymizedRepository.findOwningUserAnonymizedIdsWithPendingOrEstablishedBuddyRelationship(
+				Set.of(buddyUserAnonymizedId1, buddyUserAnonymizedId2, buddyUserAnonymizedId3), userAnonymizedId))
+				.thenReturn(Set.of(buddyUserAnonymizedId1, buddyUserAnonymizedId3));
+
+		Set<UserAnonymizedDto> buddyUsersAnonymized = service.getBuddyUsersAnonymized(mockUserAnonymized);
+
+		verify(mockBuddyAnonymizedRepository, times(1))
+				.findOwningUserAnonymizedIdsWithPendingOrEstablishedBuddyRelationship(any(), any());
+		verify(mockUserAnonymizedService, never()).getUserAnonymized(buddyUserAnonymizedId2);
+		assertThat(buddyUsersAnonymized.stream().map(UserAnonymizedDto::getId).collect(Collectors.toSet()),
+				equalTo(Set.of(buddyUserAnonymizedId1, buddyUserAnonymizedId3)));
+	}
+
+	@Test
+	void getBuddyUsersAnonymized_noAcceptedBuddies_noQuery()
+	{
+		BuddyAnonymizedDto requestedBuddyAnonymized = createBuddyAnonymized(requestedBuddyUserAnonymizedId, Status.REQUESTED);
+		when(mockUserAnonymized.getBuddiesAnonymized()).thenReturn(Set.of(requestedBuddyAnonymized));
+
+		Set<UserAnonymizedDto> buddyUsersAnonymized = service.getBuddyUsersAnonymized(mockUserAnonymized);
+
+		verifyNoInteractions(mockBuddyAnonymizedRepository);
+		assertThat(buddyUsersAnonymized.isEmpty(), equalTo(true));
+	}
+
+	private BuddyAnonymizedDto createBuddyAnonymized(UUID buddyUserAnonymizedId, Status sendingStatus)
+	{
+		BuddyAnonymizedDto buddyAnonymized = mock(BuddyAnonymizedDto.class);
+		lenient().when(buddyAnonymized.getUserAnonymizedId()).thenReturn(Optional.of(buddyUserAnonymizedId));
+		lenient().when(buddyAnonymized.getSendingStatus()).thenReturn(sendingStatus);
+		return buddyAnonymized;
+	}
+
+	private void setUpUserAnonymized(UUID id)
+	{
+		UserAnonymizedDto userAnonymized = mock(UserAnonymizedDto.class);
+		lenient().when(userAnonymized.getId()).thenReturn(id);
+		lenient().when(mockUserAnonymizedService.getUserAnonymized(id)).thenReturn(userAnonymized);
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.subscriptions.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import nu.yona.server.messaging.service.MessageService;
+import nu.yona.server.subscriptions.entities.User;
+import nu.yona.server.subscriptions.entities.UserRepository;
+import nu.yona.server.util.HibernateHelperService;
+
+@ExtendWith(MockitoExtension.class)
+class UserLookupServiceTest
+{
+	private final UUID userId = UUID.randomUUID();
+
+	@Mock
+	private UserRepository mockUserRepository;
+	@Mock
+	private UserAnonymizedService mockUserAnonymizedService;
+	@Mock
+	private MessageService mockMessageService;
+	@Mock
+	private PrivateUserDataMigrationService mockPrivateUserDataMigrationService;
+	@Mock
+	private HibernateHelperService mockHibernateHelperService;
+	@Mock
+	private User mockUser;
+
+	@InjectMocks
+	private final UserLookupService service = new UserLookupService();
+
+	@BeforeEach
+	public void setUp()
+	{
+		when(mockUserRepository.findById(userId)).thenReturn(Optional.of(mockUser));
+		lenient().when(mockUserRepository.findByIdForUpdate(userId)).thenReturn(Optional.of(mockUser));
+		lenient().when(mockUser.canAccessPrivateData()).thenReturn(true);
+		lenient().when(mockUser.getBuddiesRelatedToRemovedUsers()).thenReturn(Collections.emptySet());
+		lenient().when(mockPrivateUserDataMigrationService.isUpToDate(mockUser)).thenReturn(true);
+	}
+
+	@Test
+	void doPreparationsAndCheckCanAccessPrivateData_nothingToPrepare_noLockTaken()
+	{
+		boolean result = service.doPreparationsAndCheckCanAccessPrivateData(userId);
+
+		assertThat(result, equalTo(true));
+		verify(mockUserRepository, never()).findByIdForUpdate(any());
+		verify(mockMessageService, never()).prepareMessageCollection(any());
+		verify(mockUserRepository, never()).save(any());
+	}
+
+	@Test
+	void doPreparationsAndCheckCanAccessPrivateData_cannotAccessPrivateData_falseWithoutLock()
+	{
+		when(mockUser.canAccessPrivateData()).thenReturn(false);
+
+		boolean result = service.doPreparationsAndCheckCanAccessPrivateData(userId);
+
+		assertThat(result, equalTo(false));
+		verify(mockUserRepository, never()).findByIdForUpdate(any());
+	}
+
+	@Test
+	void doPreparationsAndCheckCanAccessPrivateData_messagesToPrepare_preparedWithLock()
+	{
+		when(mockMessageService.isMessageCollectionPreparationNeeded(mockUser)).thenReturn(true);
+		when(mockMessageService.prepareMessageCollection(mockUser)).thenReturn(true);
+
+		boolean result = service.doPreparationsAndCheckCanAccessPrivateData(userId);
+
+		assertThat(result, equalTo(true));
+		verify(mockHibernateHelperService).clearSessionIfNotLockedYet(User.class, userId);
+		verify(mockUserRepository).findByIdForUpdate(userId);
+		verify(mockUserRepository).save(mockUser);
+	}
+
+	@Test
+	void doPreparationsAndCheckCanAccessPrivateData_migrationPending_migratedWithLock()
+	{
+		when(mockPrivateUserDataMigrationService.isUpToDate(mockUser)).thenReturn(false);
+
+		boolean result = service.doPreparationsAndCheckCanAccessPrivateData(userId);
+
+		assertThat(result, equalTo(true));
+		verify(mockUserRepository).findByIdForUpdate(userId);
+		verify(mockPrivateUserDataMigrationService).upgrade(mockUser);
+	}
+}
@@ -84,6 +84,7 @@ class EncryptUserCreationTimeTest
 		migrationStep.upgrade(user);
 
 		assertThat(userPrivate.getCreationTime(), equalTo(TEST_CREATION_TIME));
+		assertThat(JUnitUtil.getCreationTime(userPrivate), equalTo(TEST_CREATION_TIME));
 		assertThat(user.getRoundedCreationDate(), equalTo(TEST_CREATION_TIME.toLocalDate()));
 		assertThat(JUnitUtil.getRoundedCreationDate(user), equalTo(TEST_CREATION_TIME.toLocalDate().atStartOfDay()));
 	}
@@ -98,6 +99,18 @@ class EncryptUserCreationTimeTest
 		verify(userPrivate, never()).setCreationTime(Mockito.any());
 	}
 
+	@Test
+	void upgrade_creationTimeAlreadyMoved_creationTimesUnchanged()
+	{
+		LocalDateTime privateCreationTime = TEST_CREATION_TIME.plusDays(1);
+		JUnitUtil.setRoundedCreationDate(user, TEST_CREATION_TIME);
+		JUnitUtil.setCreationTime(userPrivate, privateCreationTime);
+		migrationStep.upgrade(user);
+
+		assertThat(JUnitUtil.getCreationTime(userPrivate), equalTo(privateCreationTime));
+		assertThat(JUnitUtil.getRoundedCreationDate(user), equalTo(TEST_CREATION_TIME));
+	}
+
 	private ZonedDateTime now()
 	{
 		return ZonedDateTime.now().withZoneSameInstant(userAnonZoneId);
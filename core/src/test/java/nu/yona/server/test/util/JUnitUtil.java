@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2017, 2020 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
+ * Copyright (c) 2017, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License,
  * v. 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.test.util;
@@ -34,6 +34,7 @@ import mockit.Mock;
 import mockit.MockUp;
 import nu.yona.server.Translator;
 import nu.yona.server.crypto.seckey.CryptoSession;
+import nu.yona.server.crypto.seckey.EncryptedValue;
 import nu.yona.server.entities.RepositoryProvider;
 import nu.yona.server.exceptions.YonaException;
 import nu.yona.server.messaging.entities.MessageSource;
@@ -180,11 +181,12 @@ public class JUnitUtil
 		}
 	}
 
+	@SuppressWarnings("unchecked")
 	public static LocalDateTime getCreationTime(UserPrivate userPrivate)
 	{
 		try
 		{
-			return (LocalDateTime) creationTimeField.get(userPrivate);
+			return EncryptedValue.plaintextOf((EncryptedValue<LocalDateTime>) creationTimeField.get(userPrivate));
 		}
 		catch (IllegalArgumentException | IllegalAccessException e)
 		{
@@ -196,7 +198,7 @@ public class JUnitUtil
 	{
 		try
 		{
-			creationTimeField.set(userPrivate, time);
+			creationTimeField.set(userPrivate, EncryptedValue.createInstance(time));
 		}
 		catch (IllegalArgumentException | IllegalAccessException e)
 		{
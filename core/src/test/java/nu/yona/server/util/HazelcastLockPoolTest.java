@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package nu.yona.server.util;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+
+import nu.yona.server.exceptions.YonaException;
+
+class HazelcastLockPoolTest
+{
+	private static HazelcastInstance member1;
+	private static HazelcastInstance member2;
+
+	@BeforeAll
+	static void startCluster()
+	{
+		String clusterName = "lockPoolTest-" + UUID.randomUUID();
+		member1 = Hazelcast.newHazelcastInstance(createConfig(clusterName));
+		member2 = Hazelcast.newHazelcastInstance(createConfig(clusterName));
+	}
+
+	@AfterAll
+	static void stopCluster()
+	{
+		member1.shutdown();
+		member2.shutdown();
+	}
+
+	private static Config createConfig(String clusterName)
+	{
+		Config config = new Config();
+		config.setClusterName(clusterName);
+		config.getNetworkConfig().setPort(5801);
+		config.getNetworkConfig().setPortAutoIncrement(true);
+		var joinConfig = config.getNetworkConfig().getJoin();
+		joinConfig.getMulticastConfig().setEnabled(false);
+		joinConfig.getTcpIpConfig().setEnabled(true).addMember("127.0.0.1");
+		return config;
+	}
+
+	@Test
+	void cluster_bothMembersJoined()
+	{
+		assertThat(member1.getCluster().getMembers().size(), equalTo(2));
+	}
+
+	@Test
+	void tryLock_lockHeldOnOtherMember_timesOut()
+	{
+		LockPool<UUID> lockPool1 = new HazelcastLockPool<>("timeOutTest", member1);
+		LockPool<UUID> lockPool2 = new HazelcastLockPool<>("timeOutTest", member2);
+		UUID id = UUID.randomUUID();
+
+		try (LockPool<UUID>.Lock lock = lockPool1.lock(id))
+		{
+			Optional<LockPool<UUID>.Lock> otherLock = lockPool2.tryLock(id, Duration.ofMillis(100));
+			assertThat(otherLock.isPresent(), equalTo(false));
+		}
+
+		Optional<LockPool<UUID>.Lock> otherLock = lockPool2.tryLock(id, Duration.ofMillis(100));
+		assertThat(otherLock.isPresent(), equalTo(true));
+		otherLock.get().close();
+	}
+
+	@Test
+	void lock_reentrantAccess_isNotBlocked()
+	{
+		LockPool<UUID> lockPool = new HazelcastLockPool<>("reentrantTest", member1);
+		UUID id = UUID.randomUUID();
+
+		try (LockPool<UUID>.Lock lock1 = lockPool.lock(id); LockPool<UUID>.Lock lock2 = lockPool.lock(id))
+		{
+			assertThat(lockPool.getSize(), equalTo(1));
+		}
+		assertThat(lockPool.getSize(), equalTo(0));
+	}
+
+	@Test
+	void lock_accessSameIdConcurrentlyFromBothMembers_isNotExecutedConcurrently() throws InterruptedException
+	{
+		final int numThreadsPerMember = 4;
+		final int iterations = 25;
+		LockPool<UUID> lockPool1 = new HazelcastLockPool<>("concurrencyTest", member1);
+		LockPool<UUID> lockPool2 = new HazelcastLockPool<>("concurrencyTest", member2);
+		UUID id = UUID.randomUUID();
+		AtomicBoolean concurrencyIndicator = new AtomicBoolean(false);
+		AtomicBoolean failureIndicator = new AtomicBoolean(false);
+		CountDownLatch startSignal = new CountDownLatch(1);
+		ExecutorService threadPool = Executors.newFixedThreadPool(numThreadsPerMember * 2);
+		for (int i = 0; (i < numThreadsPerMember); i++)
+		{
+			threadPool.execute(() -> access(lockPool1, id, iterations, startSignal, concurrencyIndicator, failureIndicator));
+			threadPool.execute(() -> access(lockPool2, id, iterations, startSignal, concurrencyIndicator, failureIndicator));
+		}
+		startSignal.countDown();
+		threadPool.shutdown();
+
+		assertThat(threadPool.awaitTermination(1, TimeUnit.MINUTES), equalTo(true));
+		assertThat(failureIndicator.get(), equalTo(false));
+	}
+
+	private void access(LockPool<UUID> lockPool, UUID id, int iterations, CountDownLatch startSignal,
+			AtomicBoolean concurrencyIndicator, AtomicBoolean failureIndicator)
+	{
+		try
+		{
+			startSignal.await();
+			for (int i = 0; (i < iterations); i++)
+			{
+				try (LockPool<UUID>.Lock lock = lockPool.lock(id))
+				{
+					if (!concurrencyIndicator.compareAndSet(false, true))
+					{
+						failureIndicator.set(true);
+						continue;
+					}
+					Thread.sleep(1);
+					concurrencyIndicator.set(false);
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			throw YonaException.unexpected(e);
+		}
+	}
+}
@@ -1,15 +1,20 @@
 /*
- * Copyright (c) 2017, 2019 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
+ * Copyright (c) 2017, 2026 Stichting Yona Foundation This Source Code Form is subject to the terms of the Mozilla Public License, v.
  * 2.0. If a copy of the MPL was not distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
  */
 package nu.yona.server.util;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.time.Duration;
+import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -45,6 +50,75 @@ class LockPoolTest
 		assertThat(testConcurrently(numThreads, iterations, this::attempImmediateAccessFreeLockId), equalTo(false));
 	}
 
+	@Test
+	void lock_allLocksClosed_poolIsEmpty()
+	{
+		LockPool<Integer> lockPool = new LockPool<>();
+		try (LockPool<Integer>.Lock lock1 = lockPool.lock(1); LockPool<Integer>.Lock lock2 = lockPool.lock(2))
+		{
+			try (LockPool<Integer>.Lock lock3 = lockPool.lock(1))
+			{
+				assertThat(lockPool.getSize(), equalTo(2));
+			}
+			assertThat(lockPool.getSize(), equalTo(2));
+		}
+		assertThat(lockPool.getSize(), equalTo(0));
+	}
+
+	@Test
+	void tryLock_lockHeldByOtherThread_timesOut()
+	{
+		LockPool<Integer> lockPool = new LockPool<>();
+		CountDownLatch lockedSignal = new CountDownLatch(1);
+		CountDownLatch doneSignal = new CountDownLatch(1);
+		ExecutorService threadPool = Executors.newSingleThreadExecutor();
+		threadPool.execute(() -> {
+			try (LockPool<Integer>.Lock lock = lockPool.lock(0))
+			{
+				lockedSignal.countDown();
+				awaitWithoutInterrupt(doneSignal);
+			}
+		});
+		awaitWithoutInterrupt(lockedSignal);
+
+		Optional<LockPool<Integer>.Lock> lock = lockPool.tryLock(0, Duration.ofMillis(10));
+		doneSignal.countDown();
+		threadPool.shutdown();
+
+		assertThat(lock.isPresent(), equalTo(false));
+		assertThat(lockPool.getTimeoutCount(), equalTo(1L));
+		assertThat(lockPool.getContentionCount(), equalTo(1L));
+	}
+
+	@Test
+	void tryLock_freeLockId_immediateAccess()
+	{
+		LockPool<Integer> lockPool = new LockPool<>();
+		Optional<LockPool<Integer>.Lock> lock = lockPool.tryLock(0, Duration.ZERO);
+
+		assertThat(lock.isPresent(), equalTo(true));
+		lock.get().close();
+		assertThat(lockPool.getSize(), equalTo(0));
+		assertThat(lockPool.getContentionCount(), equalTo(0L));
+	}
+
+	@Test
+	void close_otherThread_throwsAndLockStillClosableOnOwnThread()
+	{
+		LockPool<Integer> lockPool = new LockPool<>();
+		LockPool<Integer>.Lock lock = lockPool.lock(0);
+		ExecutorService threadPool = Executors.newSingleThreadExecutor();
+
+		Future<?> closeResult = threadPool.submit(lock::close);
+		ExecutionException exception = assertThrows(ExecutionException.class, closeResult::get);
+		threadPool.shutdown();
+
+		assertThat(exception.getCause() instanceof YonaException, equalTo(true));
+		assertThat(lockPool.getSize(), equalTo(1));
+		lock.close();
+		assertThat(lockPool.getSize(), equalTo(0));
+	}
+
 	private boolean testConcurrently(int numThreads, int iterations, AccessAttempt accessAttempt)
 	{
 		LockPool<Integer> lockPool = new LockPool<>();